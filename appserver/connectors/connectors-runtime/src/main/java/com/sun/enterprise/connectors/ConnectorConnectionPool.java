@@ -107,6 +107,12 @@ public class ConnectorConnectionPool implements Serializable {
     //This property will be set by ConnectorConnectionPoolDeployer or
     //JdbcConnectionPoolDeployer.
     private boolean preferValidateOverRecreate_ = false;
+    //This property will be set by ConnectorConnectionPoolDeployer or
+    //JdbcConnectionPoolDeployer.
+    private boolean adaptiveResizing_ = false;
+    //This property will be set by ConnectorConnectionPoolDeployer or
+    //JdbcConnectionPoolDeployer.
+    private String parallelPoolFill_ = "0";
     
     private String validateAtmostOncePeriod_ = null;
 
@@ -251,6 +257,8 @@ public class ConnectorConnectionPool implements Serializable {
                 (getConCreationRetryInterval());
         clone.setConCreationRetryAttempts(getConCreationRetryAttempts());
         clone.setPreferValidateOverRecreate(isPreferValidateOverRecreate());
+        clone.setAdaptiveResizing(isAdaptiveResizing());
+        clone.setParallelPoolFill(getParallelPoolFill());
         clone.setPooling(isPoolingOn());
         clone.setPingDuringPoolCreation(getPingDuringPoolCreation());
         return clone;
@@ -753,6 +761,10 @@ public class ConnectorConnectionPool implements Serializable {
             sb.append(isConnectionValidationRequired_);
             sb.append("\npreferValidateOverRecreate_ ");
             sb.append(preferValidateOverRecreate_);
+            sb.append("\nadaptiveResizing_ ");
+            sb.append(adaptiveResizing_);
+            sb.append("\nparallelPoolFill_ ");
+            sb.append(parallelPoolFill_);
 
             sb.append("\nmatchConnections_ ");
             sb.append(matchConnections_);
@@ -881,6 +893,22 @@ public class ConnectorConnectionPool implements Serializable {
         preferValidateOverRecreate_ = preferValidateOverRecreate;
     }
 
+    public boolean isAdaptiveResizing() {
+        return adaptiveResizing_;
+    }
+
+    public void setAdaptiveResizing(boolean adaptiveResizing) {
+        adaptiveResizing_ = adaptiveResizing;
+    }
+
+    public String getParallelPoolFill() {
+        return parallelPoolFill_;
+    }
+
+    public void setParallelPoolFill(String parallelPoolFill) {
+        parallelPoolFill_ = parallelPoolFill;
+    }
+
     public long getDynamicReconfigWaitTimeout() {
         return dynamicReconfigWaitTimeout;
     }
@@ -44,6 +44,7 @@ public class ResourceState {
     private boolean enlisted;
     private boolean busy;
     private long timestamp;
+    private long busyTimestamp;
 
     public boolean isEnlisted() {
         return enlisted;
@@ -66,6 +67,9 @@ public class ResourceState {
     }
 
     public void setBusy(boolean busy) {
+        if (busy && !this.busy) {
+            busyTimestamp = System.currentTimeMillis();
+        }
         this.busy = busy;
     }
 
@@ -73,6 +77,13 @@ public class ResourceState {
         return timestamp;
     }
 
+    /**
+     * @return time at which the resource was last marked busy
+     */
+    public long getBusyTimestamp() {
+        return busyTimestamp;
+    }
+
     public void touchTimestamp() {
         timestamp = System.currentTimeMillis();
     }
@@ -546,6 +546,19 @@ public class ConnectorConnectionPoolDeployer extends AbstractConnectorResourceDe
                                 value);
                     }
                     ccp.setPreferValidateOverRecreate(toBoolean(value, false));
+                } else if ("ADAPTIVE-RESIZING".equals(ep.getName().toUpperCase(locale))) {
+                    String value = ep.getValue();
+                    if (_logger.isLoggable(Level.FINE)) {
+                        _logger.fine(" ConnectorConnectionPoolDeployer::  " +
+                                "Setting ADAPTIVE-RESIZING to " + value);
+                    }
+                    ccp.setAdaptiveResizing(toBoolean(value, false));
+                } else if ("PARALLEL-POOL-FILL".equals(ep.getName().toUpperCase(locale))) {
+                    if (_logger.isLoggable(Level.FINE)) {
+                        _logger.fine(" ConnectorConnectionPoolDeployer::  " +
+                                "Setting PARALLEL-POOL-FILL to " + ep.getValue());
+                    }
+                    ccp.setParallelPoolFill(ep.getValue());
                 }
             }
         }
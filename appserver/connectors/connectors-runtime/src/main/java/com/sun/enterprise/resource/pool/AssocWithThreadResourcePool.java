@@ -155,6 +155,18 @@ public class AssocWithThreadResourcePool extends ConnectionPool {
         return null;
     }
 
+    /**
+     * Released resources are not handed off to waiting requests, as they may
+     * still be associated with the thread that used them. Waiters get them
+     * from the pool, through prefetch and getUnenlistedResource.
+     * @param h released resource
+     * @return false, always
+     */
+    @Override
+    protected boolean handOffToWaiter(ResourceHandle h) {
+        return false;
+    }
+
     @Override
     protected Resizer initializeResizer() {
         return new AssocWithThreadPoolResizer(poolInfo, ds, this, this,
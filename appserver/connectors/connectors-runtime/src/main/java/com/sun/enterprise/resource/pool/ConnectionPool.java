@@ -52,9 +52,13 @@ import com.sun.enterprise.resource.allocator.ResourceAllocator;
 import com.sun.enterprise.resource.listener.PoolLifeCycleListener;
 import com.sun.enterprise.resource.pool.datastructure.DataStructure;
 import com.sun.enterprise.resource.pool.datastructure.DataStructureFactory;
+import com.sun.enterprise.resource.pool.resizer.AdaptiveResizer;
+import com.sun.enterprise.resource.pool.resizer.PoolDemandHistory;
 import com.sun.enterprise.resource.pool.resizer.Resizer;
+import com.sun.enterprise.resource.pool.waitqueue.FairPoolWaitQueue;
 import com.sun.enterprise.resource.pool.waitqueue.PoolWaitQueue;
 import com.sun.enterprise.resource.pool.waitqueue.PoolWaitQueueFactory;
+import com.sun.enterprise.resource.pool.waitqueue.PoolWaiter;
 import com.sun.enterprise.transaction.api.JavaEETransaction;
 import com.sun.enterprise.util.i18n.StringManager;
 import com.sun.logging.LogDomains;
@@ -65,6 +69,10 @@ import javax.resource.ResourceException;
 import javax.resource.spi.RetryableUnavailableException;
 import javax.transaction.Transaction;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -94,6 +102,14 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     protected boolean matchConnections = false;
     protected boolean validation = false;
     protected boolean preferValidateOverRecreate = false;
+    protected boolean adaptiveResizing = false;
+    //demand recorded for adaptive resizing, null when not enabled
+    protected volatile PoolDemandHistory demandHistory;
+    //creates and validates resources concurrently, null when not enabled
+    protected ParallelResourceFiller resourceFiller;
+    //resources already created, to be handed to the datastructure by createResource()
+    private final ThreadLocal<LinkedList<ResourceHandle>> preparedResources =
+            new ThreadLocal<LinkedList<ResourceHandle>>();
     // hold on to the resizer task so we can cancel/reschedule it.
     protected Resizer resizerTask;
 
@@ -269,7 +285,18 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     }
 
     protected Resizer initializeResizer() {
-        return new Resizer(poolInfo, ds, this, this, preferValidateOverRecreate);
+        Resizer resizer;
+        if (adaptiveResizing) {
+            if (demandHistory == null) {
+                demandHistory = new PoolDemandHistory(idletime);
+            }
+            resizer = new AdaptiveResizer(poolInfo, ds, this, this, preferValidateOverRecreate, demandHistory);
+        } else {
+            demandHistory = null;
+            resizer = new Resizer(poolInfo, ds, this, this, preferValidateOverRecreate);
+        }
+        resizer.setResourceFiller(resourceFiller);
+        return resizer;
     }
 
     /**
@@ -361,13 +388,16 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
            //matching
         */
         ResourceHandle result = null;
+        //this request's place on the fair wait queue, kept across retries
+        PoolWaiter waiter = null;
 
         long startTime = System.currentTimeMillis();
         long elapsedWaitTime;
         long remainingWaitTime = 0;
 
         while (true) {
-            if (gateway.allowed()) {
+            //result is non-null here only when a resource was handed off to this waiter
+            if (result == null && gateway.allowed()) {
                 //See comment #1 above
                 JavaEETransaction jtx = ((JavaEETransaction) txn);
                 Set resourcesSet = null;
@@ -396,6 +426,10 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                                 elapsedWaitTime);
                     }
                 }
+                PoolDemandHistory history = demandHistory;
+                if (history != null) {
+                    history.connectionAcquired(System.currentTimeMillis() - startTime);
+                }
                 //got one - seems we are not doing validation or matching
                 //return it
                 break;
@@ -420,7 +454,24 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                     }
                 }
 
-                if (!blocked) {
+                if (!blocked && waitQueue instanceof FairPoolWaitQueue) {
+                    //wait on the fair queue for a resource to be handed off
+                    if (poolLifeCycleListener != null) {
+                        poolLifeCycleListener.connectionRequestQueued();
+                    }
+                    FairPoolWaitQueue fairQueue = (FairPoolWaitQueue) waitQueue;
+                    if (waiter == null) {
+                        waiter = fairQueue.acquire();
+                    } else {
+                        fairQueue.repark(waiter);
+                    }
+                    try {
+                        result = waitForHandOff(fairQueue, waiter, remainingWaitTime, spec, alloc, txn);
+                    } catch (InterruptedException ex) {
+                        //Could be system shutdown.
+                        break;
+                    }
+                } else if (!blocked) {
                     //add to wait-queue
                     Object waitMonitor = new Object();
                     if (poolLifeCycleListener != null) {
@@ -492,6 +543,137 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         return result;
     }
 
+    /**
+     * Waits on the fair wait queue until a released resource is handed off to this
+     * request, the request is woken up to retry the pool or the wait time expires.
+     *
+     * @param queue         fair wait queue of the pool
+     * @param waiter        the request, already parked on the queue
+     * @param waitTime      time to wait in milliseconds, 0 to wait indefinitely
+     * @param spec          ResourceSpec of the request
+     * @param alloc         ResourceAllocator of the request
+     * @param txn           Transaction of the request
+     * @return ResourceHandle handed off resource, null if the pool must be retried
+     * @throws InterruptedException when interrupted while waiting
+     */
+    private ResourceHandle waitForHandOff(FairPoolWaitQueue queue, PoolWaiter waiter, long waitTime,
+            ResourceSpec spec, ResourceAllocator alloc, Transaction txn) throws InterruptedException {
+        Future<ResourceHandle> parked = waiter.getFuture();
+        ResourceHandle handedOff = null;
+        InterruptedException interrupted = null;
+        try {
+            logFine("Resource Pool: getting on fair wait queue");
+            if (waitTime > 0) {
+                handedOff = parked.get(waitTime, TimeUnit.MILLISECONDS);
+            } else {
+                handedOff = parked.get();
+            }
+        } catch (TimeoutException ex) {
+            //fall through to withdraw the request
+        } catch (InterruptedException ex) {
+            interrupted = ex;
+        } catch (ExecutionException ex) {
+            //waiters are never completed exceptionally
+            logFine("Resource Pool: unexpected failure while on fair wait queue : " + ex);
+        } finally {
+            queue.removeFromQueue(waiter);
+            if (handedOff == null) {
+                //a resource may have been handed off after the wait expired.
+                handedOff = waiter.withdraw();
+            }
+            //requests on the fair queue always account for their own dequeue
+            if (poolLifeCycleListener != null) {
+                poolLifeCycleListener.connectionRequestDequeued();
+            }
+        }
+        if (handedOff == null) {
+            if (interrupted != null) {
+                throw interrupted;
+            }
+            return null;
+        }
+        if (interrupted != null) {
+            //the resource is already ours, keep the interrupt for the caller
+            Thread.currentThread().interrupt();
+        }
+        return getHandedOffResource(spec, alloc, txn, handedOff);
+    }
+
+    /**
+     * Serves a request that a released resource was handed off to. As in
+     * internalGetResource, a shareable resource already enlisted in the
+     * request's transaction is preferred. In that case the handed off
+     * resource goes back to the pool.
+     *
+     * @param spec  ResourceSpec of the request
+     * @param alloc ResourceAllocator of the request
+     * @param txn   Transaction of the request
+     * @param h     handed off resource
+     * @return ResourceHandle the resource, or null if the pool must be retried
+     */
+    private ResourceHandle getHandedOffResource(ResourceSpec spec, ResourceAllocator alloc,
+                                                Transaction txn, ResourceHandle h) {
+        ResourceHandle result = getResourceFromTransaction(txn, alloc, spec);
+        if (result == null) {
+            result = prefetch(spec, alloc, txn);
+        }
+        if (result != null) {
+            ds.returnResource(h);
+            notifyWaitingThreads();
+            return result;
+        }
+        return acceptHandedOffResource(h, alloc);
+    }
+
+    /**
+     * Marks a resource handed off by a releasing thread as used by this request,
+     * provided it is usable by the request.
+     *
+     * @param h     handed off resource
+     * @param alloc ResourceAllocator of the request
+     * @return ResourceHandle the resource, or null if it could not be used
+     */
+    private ResourceHandle acceptHandedOffResource(ResourceHandle h, ResourceAllocator alloc) {
+        if (h.isShareable() != alloc.shareableWithinComponent()) {
+            ds.returnResource(h);
+            notifyWaitingThreads();
+            return null;
+        }
+        if (h.hasConnectionErrorOccurred() || !isConnectionValid(h, alloc)) {
+            //destroy it like any other failed resource, and wake up the next
+            //request so that it can create a resource in its place
+            resourceErrorOccurred(h);
+            notifyWaitingThreads();
+            return null;
+        }
+        setResourceStateToBusy(h);
+        if (maxConnectionUsage_ > 0) {
+            h.incrementUsageCount();
+        }
+        if (poolLifeCycleListener != null) {
+            poolLifeCycleListener.connectionUsed(h.getId());
+            poolLifeCycleListener.decrementNumConnFree();
+        }
+        return h;
+    }
+
+    /**
+     * Hands off a released resource directly to the oldest request waiting on the
+     * pool, when the pool uses a fair wait queue. Not done when connections
+     * need to be matched, as the waiter may not be able to use the resource.
+     * Overridden in AssocWithThreadResourcePool, whose resources are handed out
+     * through its own association checks only.
+     *
+     * @param h released resource
+     * @return boolean indicating whether a waiting request took the resource
+     */
+    protected boolean handOffToWaiter(ResourceHandle h) {
+        if (matchConnections || !(waitQueue instanceof FairPoolWaitQueue)) {
+            return false;
+        }
+        return ((FairPoolWaitQueue) waitQueue).handOff(h);
+    }
+
     /**
      * Overridden in AssocWithThreadResourcePool to fetch the resource
      * cached in the ThreadLocal
@@ -939,11 +1121,62 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
      * @throws PoolingException When unable to create a resource
      */
     private void createResources(ResourceAllocator alloc, int size) throws PoolingException {
+        if (resourceFiller != null && size > 1) {
+            createResourcesInParallel(alloc, size);
+            return;
+        }
         for (int i = 0; i < size; i++) {
             createResourceAndAddToPool(alloc);
         }
     }
 
+    /**
+     * Creates the resources concurrently and then adds all of them to the
+     * datastructure in a single call.
+     *
+     * @param alloc ResourceAllocator
+     * @param size  number of resources to create
+     * @throws PoolingException when unable to create a resource. Resources
+     *                          created before the failure are added to the pool.
+     */
+    private void createResourcesInParallel(ResourceAllocator alloc, int size) throws PoolingException {
+        long startTime = System.currentTimeMillis();
+        List<ResourceHandle> created = new ArrayList<ResourceHandle>(size);
+        PoolingException failure = null;
+        try {
+            resourceFiller.createResources(this, alloc, size, created);
+        } catch (PoolingException pe) {
+            failure = pe;
+        }
+
+        if (!created.isEmpty()) {
+            LinkedList<ResourceHandle> prepared = new LinkedList<ResourceHandle>(created);
+            int numResCreated;
+            preparedResources.set(prepared);
+            try {
+                numResCreated = ds.addResource(alloc, prepared.size());
+            } finally {
+                preparedResources.remove();
+            }
+            if (poolLifeCycleListener != null) {
+                for (int i = 0; i < numResCreated; i++) {
+                    poolLifeCycleListener.incrementNumConnFree(false, steadyPoolSize);
+                }
+            }
+            //pool has reached its max-pool-size in the meantime
+            for (ResourceHandle extra : prepared) {
+                deleteResource(extra);
+            }
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "Pool: " + numResCreated + " resources created in parallel and added in "
+                        + (System.currentTimeMillis() - startTime) + " ms");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
 
     public void setPoolLifeCycleListener(PoolLifeCycleListener listener) {
         this.poolLifeCycleListener = listener;
@@ -1007,6 +1240,11 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
             throw new IllegalStateException("state.isBusy() : false");
         }
 
+        PoolDemandHistory history = demandHistory;
+        if (history != null) {
+            history.connectionReleased(System.currentTimeMillis() - state.getBusyTimestamp());
+        }
+
         setResourceStateToFree(h);  // mark as not busy
         state.touchTimestamp();
 
@@ -1059,13 +1297,17 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
                     resourceHandle.getUsageCount() >= maxConnectionUsage_) {
                  performMaxConnectionUsageOperation(resourceHandle);
             } else {
-                // Put it back to the free collection.
-                ds.returnResource(resourceHandle);
                 //update the monitoring data
                 if (poolLifeCycleListener != null && !resourceHandle.getDestroyByLeakTimeOut()) {
                     poolLifeCycleListener.decrementConnectionUsed(resourceHandle.getId());
                     poolLifeCycleListener.incrementNumConnFree(false, steadyPoolSize);
                 }
+                //give it to the oldest waiter, if any, without passing through the free collection
+                if (handOffToWaiter(resourceHandle)) {
+                    return;
+                }
+                // Put it back to the free collection.
+                ds.returnResource(resourceHandle);
             }
             //for both the cases of free.add and maxConUsageOperation, a free resource is added.
             // Hence notify waiting threads
@@ -1185,6 +1427,11 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
 
     public ResourceHandle createResource(ResourceAllocator alloc) throws PoolingException {
         //NOTE : Pool should not call this method directly, it should be called only by pool-datastructure
+        LinkedList<ResourceHandle> prepared = preparedResources.get();
+        if (prepared != null && !prepared.isEmpty()) {
+            //already created (and initialized) by createResourcesInParallel
+            return prepared.removeFirst();
+        }
         ResourceHandle result = createSingleResource(alloc);
 
         ResourceState state = new ResourceState();
@@ -1219,14 +1466,21 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         // notify the first thread in the waitqueue
         Object waitMonitor = null;
         synchronized (waitQueue) {
-            if (waitQueue.getQueueLength() > 0) {
+            while (waitQueue.getQueueLength() > 0) {
                 waitMonitor = waitQueue.remove();
-                if(poolLifeCycleListener != null) {
-                    poolLifeCycleListener.connectionRequestDequeued();
+                //skip requests on the fair queue that have already stopped waiting
+                if (!(waitMonitor instanceof PoolWaiter) || ((PoolWaiter) waitMonitor).wakeUp()) {
+                    break;
                 }
+                waitMonitor = null;
+            }
+            if(poolLifeCycleListener != null && waitMonitor != null && !(waitMonitor instanceof PoolWaiter)) {
+                poolLifeCycleListener.connectionRequestDequeued();
             }
         }
-        if (waitMonitor != null) {
+        if (waitMonitor instanceof PoolWaiter) {
+            logFine("Woke up request on fair wait queue");
+        } else if (waitMonitor != null) {
             synchronized (waitMonitor) {
                 if (_logger.isLoggable(Level.FINE)) {
                     _logger.log(Level.FINE, "Notifying wait monitor : " + waitMonitor.toString());
@@ -1451,6 +1705,9 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
     private void setAdvancedPoolConfiguration(ConnectorConnectionPool poolResource) {
         matchConnections = poolResource.matchConnections();
         preferValidateOverRecreate = poolResource.isPreferValidateOverRecreate();
+        adaptiveResizing = poolResource.isAdaptiveResizing();
+        int parallelPoolFill = parseParallelPoolFill(poolResource.getParallelPoolFill());
+        resourceFiller = (parallelPoolFill > 1) ? new ParallelResourceFiller(parallelPoolFill) : null;
         maxConnectionUsage_ = Integer.parseInt(poolResource.getMaxConnectionUsage());
         connectionCreationRetryAttempts_ = Integer.parseInt
                 (poolResource.getConCreationRetryAttempts());
@@ -1475,6 +1732,21 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         }
     }
 
+    private int parseParallelPoolFill(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException nfe) {
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "Ignoring invalid parallel-pool-fill value [" + value
+                        + "] for pool [" + poolInfo + "]");
+            }
+            return 0;
+        }
+    }
+
     /**
      * Kill the extra resources.<br>
      * The maxPoolSize being reduced causes this method to
@@ -1658,6 +1930,8 @@ public class ConnectionPool implements ResourcePool, ConnectionLeakListener,
         int numUsed = (this.poolInitialized) ? ds.getResourcesSize()-ds.getFreeListSize() : 0;
         poolStatus.setNumConnFree(numFree);
         poolStatus.setNumConnUsed(numUsed);
+        poolStatus.setDemandHistory(demandHistory);
+        poolStatus.setIdleTimeout(idletime);
         return poolStatus;
     }
 }
@@ -0,0 +1,318 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.logging.LogDomains;
+
+import javax.resource.ResourceException;
+import java.security.AccessControlContext;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates and validates resources of a pool concurrently.<br>
+ * Work is split into at most <i>parallelism</i> tasks that run on an executor shared
+ * by all pools, bounded to a few threads per processor and a bounded number of queued
+ * tasks; when the queue is full the caller runs the task itself. Tasks run with the
+ * context class loader and access control context of the caller. The caller waits for
+ * all tasks and gets the created resources back in one list, so that they can be
+ * published to the pool at once.<br>
+ * Enabled by setting the pool property <i>parallel-pool-fill</i> to the number of
+ * resources to create or validate concurrently.
+ */
+public class ParallelResourceFiller {
+
+    private static final int MAX_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static final int MAX_QUEUED_TASKS = MAX_THREADS * 8;
+
+    private static final ExecutorService execService;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_QUEUED_TASKS), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread th = new Thread(r, "connection-pool-filler-" + count.incrementAndGet());
+                th.setDaemon(true);
+                return th;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        execService = executor;
+    }
+
+    private final static Logger _logger = LogDomains.getLogger(ParallelResourceFiller.class, LogDomains.RSR_LOGGER);
+
+    private final int parallelism;
+
+    public ParallelResourceFiller(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * creates resources concurrently
+     *
+     * @param handler   handler that creates the resources
+     * @param allocator allocator to create the resources with
+     * @param count     number of resources to create
+     * @param created   list to which the created resources are added, including the
+     *                  ones created before a failure
+     * @throws PoolingException the first failure, after all tasks have completed
+     */
+    public void createResources(final ResourceHandler handler, final ResourceAllocator allocator, int count,
+                                List<ResourceHandle> created) throws PoolingException {
+        List<Future<List<ResourceHandle>>> futures = new ArrayList<Future<List<ResourceHandle>>>();
+        int tasks = Math.min(parallelism, count);
+        for (int i = 0; i < tasks; i++) {
+            //spread the resources evenly over the tasks
+            final int share = count / tasks + (i < count % tasks ? 1 : 0);
+            futures.add(submit(new Callable<List<ResourceHandle>>() {
+                public List<ResourceHandle> call() throws Exception {
+                    List<ResourceHandle> result = new ArrayList<ResourceHandle>(share);
+                    try {
+                        for (int j = 0; j < share; j++) {
+                            result.add(handler.createResource(allocator));
+                        }
+                    } catch (PoolingException pe) {
+                        throw new PartialCreationException(result, pe);
+                    }
+                    return result;
+                }
+            }));
+        }
+
+        PoolingException failure = null;
+        for (Future<List<ResourceHandle>> future : futures) {
+            try {
+                created.addAll(getUninterruptibly(future));
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                if (cause instanceof PartialCreationException) {
+                    created.addAll(((PartialCreationException) cause).created);
+                    cause = cause.getCause();
+                }
+                if (failure == null) {
+                    if (cause instanceof PoolingException) {
+                        failure = (PoolingException) cause;
+                    } else {
+                        failure = new PoolingException(cause.getMessage());
+                        failure.initCause(cause);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Validates the resources concurrently, in batches of
+     * <i>resources / parallelism</i> resources per call to
+     * {@link ResourceHandler#getInvalidConnections(java.util.Set)}.
+     * When the call fails for a batch, its resources are validated one at a
+     * time, and a resource whose validation fails is reported as invalid so
+     * that it gets destroyed.
+     *
+     * @param handler   handler that validates the resources
+     * @param resources resources to validate
+     * @return the invalid resources
+     */
+    public Set<ResourceHandle> findInvalidResources(final ResourceHandler handler, List<ResourceHandle> resources) {
+        Set<ResourceHandle> invalid = new HashSet<ResourceHandle>();
+        if (resources.isEmpty()) {
+            return invalid;
+        }
+        int tasks = Math.min(parallelism, resources.size());
+        int batchSize = (resources.size() + tasks - 1) / tasks;
+        List<Future<Set<ResourceHandle>>> futures = new ArrayList<Future<Set<ResourceHandle>>>();
+        for (int from = 0; from < resources.size(); from += batchSize) {
+            final List<ResourceHandle> batch = resources.subList(from, Math.min(from + batchSize, resources.size()));
+            futures.add(submit(new Callable<Set<ResourceHandle>>() {
+                public Set<ResourceHandle> call() {
+                    return validate(handler, batch);
+                }
+            }));
+        }
+        for (Future<Set<ResourceHandle>> future : futures) {
+            try {
+                invalid.addAll(getUninterruptibly(future));
+            } catch (ExecutionException ee) {
+                //same as sequential validation, resources that could not be validated are kept
+                if (_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE, "Exception while trying to get invalid connections from MCF",
+                            ee.getCause());
+                }
+            }
+        }
+        return invalid;
+    }
+
+    private static Set<ResourceHandle> validate(ResourceHandler handler, List<ResourceHandle> batch) {
+        Set<Object> connections = new HashSet<Object>();
+        for (ResourceHandle h : batch) {
+            connections.add(h.getResource());
+        }
+        Set<ResourceHandle> invalid = new HashSet<ResourceHandle>();
+        Set invalidConnections;
+        try {
+            invalidConnections = handler.getInvalidConnections(connections);
+        } catch (Exception e) {
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "Exception while trying to get invalid connections from MCF, "
+                        + "validating the batch one connection at a time", e);
+            }
+            for (ResourceHandle h : batch) {
+                if (!isValid(handler, h)) {
+                    invalid.add(h);
+                }
+            }
+            return invalid;
+        }
+        if (invalidConnections != null && !invalidConnections.isEmpty()) {
+            for (ResourceHandle h : batch) {
+                if (invalidConnections.contains(h.getResource())) {
+                    invalid.add(h);
+                }
+            }
+        }
+        return invalid;
+    }
+
+    private static boolean isValid(ResourceHandler handler, ResourceHandle h) {
+        try {
+            Set invalidConnections = handler.getInvalidConnections(Collections.singleton(h.getResource()));
+            return invalidConnections == null || !invalidConnections.contains(h.getResource());
+        } catch (ResourceException re) {
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "ResourceException while trying to get invalid connections from MCF", re);
+            }
+        } catch (Exception e) {
+            if (_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "Exception while trying to get invalid connections from MCF", e);
+            }
+        }
+        //the connection can not be validated, destroy it rather than keep it
+        return false;
+    }
+
+    /**
+     * submits the task to the shared executor, to run with the context class loader
+     * and the access control context of the calling thread
+     */
+    private static <T> Future<T> submit(final Callable<T> task) {
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        final AccessControlContext acc = AccessController.getContext();
+        return execService.submit(new Callable<T>() {
+            public T call() throws Exception {
+                Thread thread = Thread.currentThread();
+                ClassLoader current = thread.getContextClassLoader();
+                thread.setContextClassLoader(loader);
+                try {
+                    return AccessController.doPrivileged(new PrivilegedExceptionAction<T>() {
+                        public T run() throws Exception {
+                            return task.call();
+                        }
+                    }, acc);
+                } catch (PrivilegedActionException pae) {
+                    throw pae.getException();
+                } finally {
+                    thread.setContextClassLoader(current);
+                }
+            }
+        });
+    }
+
+    private static <T> T getUninterruptibly(Future<T> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * carries the resources created by a task before it failed.
+     */
+    private static final class PartialCreationException extends Exception {
+        private final transient List<ResourceHandle> created;
+
+        PartialCreationException(List<ResourceHandle> created, PoolingException cause) {
+            super(cause);
+            this.created = created;
+        }
+    }
+}
@@ -41,6 +41,7 @@
 package com.sun.enterprise.resource.pool;
 
 
+import com.sun.enterprise.resource.pool.resizer.PoolDemandHistory;
 import org.glassfish.resourcebase.resources.api.PoolInfo;
 
 /**
@@ -60,6 +61,12 @@ public class PoolStatus {
     //Number of connections in the pool that are being used currently.
     private int numConnUsed;
 
+    //Demand figures recorded by the pool, when adaptive resizing is enabled
+    private PoolDemandHistory demandHistory;
+
+    //Idle timeout of the pool in milliseconds, the interval at which it is resized
+    private long idleTimeout;
+
     public int getNumConnFree() {
         return numConnFree;
     }
@@ -76,6 +83,22 @@ public class PoolStatus {
         this.numConnUsed = numConnUsed;
     }
 
+    public PoolDemandHistory getDemandHistory() {
+        return demandHistory;
+    }
+
+    public void setDemandHistory(PoolDemandHistory demandHistory) {
+        this.demandHistory = demandHistory;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
     public PoolInfo getPoolInfo() {
         return poolInfo;
     }
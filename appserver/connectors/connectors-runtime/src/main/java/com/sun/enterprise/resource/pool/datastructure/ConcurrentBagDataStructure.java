@@ -0,0 +1,277 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.datastructure;
+
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.logging.LogDomains;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lock free datastructure for pool.<br>
+ * Every resource lives in a shared bag and carries its own state which is
+ * claimed and released by compare-and-set. Each thread additionally remembers
+ * the last few resources it returned, so that a warm borrow / return cycle
+ * usually finds a free resource in its own slots without scanning the bag or
+ * taking any lock.<br>
+ * Can be enabled by setting the pool property <i>pool-data-structure</i> to
+ * the name of this class.
+ */
+public class ConcurrentBagDataStructure implements DataStructure {
+
+    private static final int FREE = 0;
+    private static final int IN_USE = 1;
+    private static final int REMOVED = 2;
+
+    /**
+     * Number of recently returned resources remembered per thread.
+     */
+    private static final int MAX_THREAD_SLOTS = 8;
+
+    private final ResourceHandler handler;
+    private volatile int maxSize;
+
+    private final CopyOnWriteArrayList<BagEntry> bag = new CopyOnWriteArrayList<BagEntry>();
+    private final ConcurrentHashMap<ResourceHandle, BagEntry> entries =
+            new ConcurrentHashMap<ResourceHandle, BagEntry>();
+
+    //slots reserved for resources, including the ones being created.
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    private final ThreadLocal<ArrayList<BagEntry>> threadSlots = new ThreadLocal<ArrayList<BagEntry>>() {
+        @Override
+        protected ArrayList<BagEntry> initialValue() {
+            return new ArrayList<BagEntry>(MAX_THREAD_SLOTS);
+        }
+    };
+
+    protected final static Logger _logger =
+            LogDomains.getLogger(ConcurrentBagDataStructure.class, LogDomains.RSR_LOGGER);
+
+    public ConcurrentBagDataStructure(String parameters, int maxSize,
+                                      ResourceHandler handler, String strategyClass) {
+        this.maxSize = maxSize;
+        this.handler = handler;
+        if (_logger.isLoggable(Level.FINEST)) {
+            _logger.log(Level.FINEST, "pool.datastructure.concurrentbagds.init");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int addResource(ResourceAllocator allocator, int count) throws PoolingException {
+        int numResAdded = 0;
+        for (int i = 0; i < count && reserveSlot(); i++) {
+            ResourceHandle handle;
+            try {
+                handle = handler.createResource(allocator);
+            } catch (Exception e) {
+                reserved.decrementAndGet();
+                PoolingException pe = new PoolingException(e.getMessage());
+                pe.initCause(e);
+                throw pe;
+            }
+            BagEntry entry = new BagEntry(handle);
+            entries.put(handle, entry);
+            bag.add(entry);
+            freeCount.incrementAndGet();
+            numResAdded++;
+        }
+        return numResAdded;
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = reserved.get();
+            if (current >= maxSize) {
+                return false;
+            }
+            if (reserved.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ResourceHandle getResource() {
+        //try the resources recently returned by this thread first.
+        ArrayList<BagEntry> slots = threadSlots.get();
+        for (int i = slots.size() - 1; i >= 0; i--) {
+            BagEntry entry = slots.remove(i);
+            if (entry.claim()) {
+                return entry.handle;
+            }
+        }
+
+        if (freeCount.get() <= 0) {
+            return null;
+        }
+        for (BagEntry entry : bag) {
+            if (entry.claim()) {
+                return entry.handle;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeResource(ResourceHandle resource) {
+        BagEntry entry = entries.remove(resource);
+        if (entry == null) {
+            return;
+        }
+        entry.markRemoved();
+        bag.remove(entry);
+        reserved.decrementAndGet();
+        handler.deleteResource(resource);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void returnResource(ResourceHandle resource) {
+        BagEntry entry = entries.get(resource);
+        if (entry != null && entry.release()) {
+            ArrayList<BagEntry> slots = threadSlots.get();
+            if (slots.size() >= MAX_THREAD_SLOTS) {
+                slots.remove(0);
+            }
+            slots.add(entry);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getFreeListSize() {
+        return freeCount.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeAll() {
+        for (BagEntry entry : bag) {
+            removeResource(entry.handle);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getResourcesSize() {
+        return bag.size();
+    }
+
+    /**
+     * Set maxSize based on the new max pool size set on the connection pool
+     * during a reconfiguration.
+     *
+     * @param maxSize
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The list returned is a snapshot of the resources in the datastructure.
+     */
+    @Override
+    public ArrayList<ResourceHandle> getAllResources() {
+        ArrayList<ResourceHandle> resources = new ArrayList<ResourceHandle>(bag.size());
+        for (BagEntry entry : bag) {
+            resources.add(entry.handle);
+        }
+        return resources;
+    }
+
+    /**
+     * Holds a resource in the bag along with its state.
+     */
+    private final class BagEntry {
+        private final ResourceHandle handle;
+        private final AtomicInteger state = new AtomicInteger(FREE);
+
+        BagEntry(ResourceHandle handle) {
+            this.handle = handle;
+        }
+
+        boolean claim() {
+            if (state.get() == FREE && state.compareAndSet(FREE, IN_USE)) {
+                freeCount.decrementAndGet();
+                handle.setBusy(true);
+                return true;
+            }
+            return false;
+        }
+
+        boolean release() {
+            handle.setBusy(false);
+            if (state.compareAndSet(IN_USE, FREE)) {
+                freeCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        void markRemoved() {
+            int previous = state.getAndSet(REMOVED);
+            if (previous == FREE) {
+                freeCount.decrementAndGet();
+            }
+        }
+    }
+}
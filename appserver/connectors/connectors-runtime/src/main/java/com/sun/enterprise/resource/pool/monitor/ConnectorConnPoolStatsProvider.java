@@ -43,6 +43,7 @@ package com.sun.enterprise.resource.pool.monitor;
 import com.sun.enterprise.connectors.ConnectorRuntime;
 import com.sun.enterprise.resource.pool.PoolLifeCycleListenerRegistry;
 import com.sun.enterprise.resource.pool.PoolStatus;
+import com.sun.enterprise.resource.pool.resizer.PoolDemandHistory;
 import org.glassfish.external.probe.provider.annotations.ProbeListener;
 import org.glassfish.external.probe.provider.annotations.ProbeParam;
 import org.glassfish.external.statistics.CountStatistic;
@@ -139,6 +140,19 @@ public class ConnectorConnPoolStatsProvider {
     private CountStatisticImpl waitQueueLength = new CountStatisticImpl(
             "WaitQueueLength", StatisticImpl.UNIT_COUNT, 
             "Number of connection requests in the queue waiting to be serviced.");    
+    //Demand statistics, available when the pool uses adaptive resizing
+    private CountStatisticImpl connAcquisitionRate = new CountStatisticImpl(
+            "ConnAcquisitionRate", "count/minute",
+            "Number of connections acquired per minute during the last resizer interval.");
+    private CountStatisticImpl averageConnHoldTime = new CountStatisticImpl(
+            "AverageConnHoldTime", StatisticImpl.UNIT_MILLISECOND,
+            "Average time connections were held by applications, as of the last resizer interval.");
+    private CountStatisticImpl connWorkingSet = new CountStatisticImpl(
+            "ConnWorkingSet", StatisticImpl.UNIT_COUNT,
+            "Number of connections the pool keeps based on the recently observed peak usage.");
+    private CountStatisticImpl expectedConnDemand = new CountStatisticImpl(
+            "ExpectedConnDemand", StatisticImpl.UNIT_COUNT,
+            "Number of connections expected to be in use by the next resizer interval.");
     private static final String JCA_PROBE_LISTENER = "glassfish:jca:connection-pool:";
 
     public ConnectorConnPoolStatsProvider(PoolInfo poolInfo, Logger logger) {
@@ -480,6 +494,10 @@ public class ConnectorConnPoolStatsProvider {
         averageConnWaitTime.reset();
         totalConnRequestWaitTime.reset();
         waitQueueLength.reset();        
+        connAcquisitionRate.reset();
+        averageConnHoldTime.reset();
+        connWorkingSet.reset();
+        expectedConnDemand.reset();
     }
     
     /**
@@ -706,5 +724,53 @@ public class ConnectorConnPoolStatsProvider {
     @ManagedAttribute(id="waitqueuelength") 
     public CountStatistic getWaitQueueLength() {
         return waitQueueLength;
-    }    
+    }
+
+    private PoolStatus getPoolStatus() {
+        return ConnectorRuntime.getRuntime().getPoolManager().getPoolStatus(poolInfo);
+    }
+
+    private PoolDemandHistory getDemandHistory() {
+        PoolStatus status = getPoolStatus();
+        return (status != null) ? status.getDemandHistory() : null;
+    }
+
+    @ManagedAttribute(id="connacquisitionrate")
+    public CountStatistic getConnAcquisitionRate() {
+        PoolDemandHistory history = getDemandHistory();
+        if (history != null) {
+            connAcquisitionRate.setCount(Math.round(history.getAcquisitionRate() * 60));
+        }
+        return connAcquisitionRate;
+    }
+
+    @ManagedAttribute(id="averageconnholdtime")
+    public CountStatistic getAverageConnHoldTime() {
+        PoolDemandHistory history = getDemandHistory();
+        if (history != null) {
+            averageConnHoldTime.setCount(history.getAverageHoldTime());
+        }
+        return averageConnHoldTime;
+    }
+
+    @ManagedAttribute(id="connworkingset")
+    public CountStatistic getConnWorkingSet() {
+        PoolDemandHistory history = getDemandHistory();
+        if (history != null) {
+            connWorkingSet.setCount(history.getWorkingSetSize());
+        }
+        return connWorkingSet;
+    }
+
+    @ManagedAttribute(id="expectedconndemand")
+    public CountStatistic getExpectedConnDemand() {
+        PoolStatus status = getPoolStatus();
+        PoolDemandHistory history = (status != null) ? status.getDemandHistory() : null;
+        if (history != null) {
+            //same horizon as the adaptive resizer: the demand at its next run
+            expectedConnDemand.setCount(history.getPredictedDemand(
+                    System.currentTimeMillis() + status.getIdleTimeout()));
+        }
+        return expectedConnDemand;
+    }
 }
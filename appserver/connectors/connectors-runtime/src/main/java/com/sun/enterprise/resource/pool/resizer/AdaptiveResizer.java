@@ -0,0 +1,142 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.resizer;
+
+import com.sun.appserv.connectors.internal.api.PoolingException;
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.enterprise.resource.pool.PoolProperties;
+import com.sun.enterprise.resource.pool.ResourceHandler;
+import com.sun.enterprise.resource.pool.datastructure.DataStructure;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.util.logging.Level;
+
+/**
+ * Resizer that sizes the pool from its {@link PoolDemandHistory} in addition to the
+ * idle-timeout and steady-pool-size rules of the {@link Resizer}.<br>
+ * <code>
+ * i)  idle resources are not removed and the pool is not scaled down below the
+ * working set observed recently or the demand expected before the next run<br>
+ * ii) the pool is pre-filled up to the demand expected before the next run, so that
+ * recurring load ramps do not have to wait for connections to be created<br></code>
+ * Can be enabled by setting the pool property <i>adaptive-resizing</i> to true.
+ */
+public class AdaptiveResizer extends Resizer {
+
+    private final PoolDemandHistory history;
+    private int floor;
+    private int inUseAtStart;
+
+    public AdaptiveResizer(PoolInfo poolInfo, DataStructure ds, PoolProperties pp, ResourceHandler handler,
+                           boolean preferValidateOverRecreate, PoolDemandHistory history) {
+        super(poolInfo, ds, pp, handler, preferValidateOverRecreate);
+        this.history = history;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resizePool(boolean forced) {
+        long now = System.currentTimeMillis();
+        inUseAtStart = ds.getResourcesSize() - ds.getFreeListSize();
+        history.endInterval(now, inUseAtStart);
+
+        int expected = history.getPredictedDemand(now + pool.getIdleTimeout());
+        floor = Math.min(pool.getMaxPoolSize(), Math.max(history.getWorkingSetSize(), expected));
+        debug("Adaptive resizer for pool [ " + poolInfo + " ] : working set = " + history.getWorkingSetSize()
+                + ", expected demand = " + expected);
+
+        super.resizePool(forced);
+
+        preFill();
+    }
+
+    /**
+     * Create resources ahead of the expected demand.
+     */
+    private void preFill() {
+        //requests are waiting, new resources will be created on demand
+        if (pool.getWaitQueueLength() > 0) {
+            return;
+        }
+        int toCreate = floor - ds.getResourcesSize();
+        for (int i = 0; i < toCreate; i++) {
+            try {
+                handler.createResourceAndAddToPool();
+            } catch (PoolingException ex) {
+                Object[] params = new Object[]{poolInfo, ex.getMessage()};
+                _logger.log(Level.WARNING, "resource_pool.resize_pool_error", params);
+                break;
+            }
+        }
+        if (toCreate > 0) {
+            debug("Adaptive resizer pre-filled pool [ " + poolInfo + " ] with " + toCreate + " resources");
+        }
+    }
+
+    /**
+     * Scale down the pool, but not below the expected demand.
+     */
+    @Override
+    protected void scaleDownPool(int scaleDownQuantity, boolean forced) {
+        int removable = ds.getResourcesSize() - floor;
+        super.scaleDownPool(Math.min(scaleDownQuantity, Math.max(removable, 0)), forced);
+    }
+
+    /**
+     * Idle resources are kept (when valid) as long as the pool would otherwise
+     * drop below the expected demand.
+     */
+    @Override
+    protected boolean isResourceEligibleForRemoval(ResourceHandle h, int validConnectionsCounter) {
+        if (validConnectionsCounter + inUseAtStart < floor) {
+            ResourceAllocator alloc = h.getResourceAllocator();
+            if (!alloc.hasValidatingMCF() || alloc.isConnectionValid(h)) {
+                h.getResourceState().touchTimestamp();
+                return false;
+            }
+            return true;
+        }
+        return super.isResourceEligibleForRemoval(h, validConnectionsCounter);
+    }
+}
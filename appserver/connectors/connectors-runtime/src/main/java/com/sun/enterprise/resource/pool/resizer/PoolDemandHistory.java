@@ -0,0 +1,195 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.resizer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the demand placed on a pool so that the pool can be sized ahead of it.<br>
+ * Acquisitions, wait times and hold times are accumulated for the current interval
+ * without locking. At the end of every interval (normally a resizer run) the interval
+ * is folded into<br>
+ * i)  the working set, a moving average of the peak number of connections in use<br>
+ * ii) a time-of-day profile of the peak number of connections in use, which is used
+ * to anticipate recurring load ramps.<br>
+ */
+public class PoolDemandHistory {
+
+    private static final long DAY_IN_MILLIS = TimeUnit.DAYS.toMillis(1);
+    //weight of the latest interval in the moving averages.
+    private static final double SMOOTHING = 0.5;
+
+    private final long slotSize;
+    private final double[] dailyPeak;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder totalWaitTime = new LongAdder();
+    private final LongAdder totalHoldTime = new LongAdder();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+
+    private long intervalStart;
+
+    //figures of the last completed interval
+    private volatile double acquisitionRate;
+    private volatile long averageWaitTime;
+    private volatile long averageHoldTime;
+    private volatile double workingSet;
+
+    /**
+     * @param slotSizeInMillis granularity of the time-of-day profile, usually the
+     *                         interval at which the resizer runs.
+     */
+    public PoolDemandHistory(long slotSizeInMillis) {
+        slotSize = Math.max(TimeUnit.MINUTES.toMillis(1), Math.min(slotSizeInMillis, DAY_IN_MILLIS));
+        dailyPeak = new double[(int) ((DAY_IN_MILLIS + slotSize - 1) / slotSize)];
+        intervalStart = System.currentTimeMillis();
+    }
+
+    /**
+     * record that a connection was handed out
+     * @param waitTimeInMillis time the request waited for the connection
+     */
+    public void connectionAcquired(long waitTimeInMillis) {
+        acquired.increment();
+        totalWaitTime.add(waitTimeInMillis);
+        int current = inUse.incrementAndGet();
+        int peak;
+        while (current > (peak = peakInUse.get())) {
+            if (peakInUse.compareAndSet(peak, current)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * record that a connection was given back
+     * @param holdTimeInMillis time the connection was in use
+     */
+    public void connectionReleased(long holdTimeInMillis) {
+        released.increment();
+        totalHoldTime.add(holdTimeInMillis);
+        inUse.decrementAndGet();
+    }
+
+    /**
+     * Completes the current interval.
+     *
+     * @param now         current time in milliseconds
+     * @param actualInUse number of connections actually in use, used to correct
+     *                    drift of the in-use count (eg: connections destroyed while in use)
+     */
+    public synchronized void endInterval(long now, int actualInUse) {
+        long duration = Math.max(1, now - intervalStart);
+        long numAcquired = acquired.sumThenReset();
+        long numReleased = released.sumThenReset();
+        long waitTime = totalWaitTime.sumThenReset();
+        long holdTime = totalHoldTime.sumThenReset();
+
+        inUse.set(actualInUse);
+        int peak = Math.max(peakInUse.getAndSet(actualInUse), actualInUse);
+
+        acquisitionRate = numAcquired * 1000.0 / duration;
+        averageWaitTime = numAcquired > 0 ? waitTime / numAcquired : 0;
+        averageHoldTime = numReleased > 0 ? holdTime / numReleased : averageHoldTime;
+        workingSet = smooth(workingSet, peak);
+
+        int slot = slotOf(intervalStart);
+        dailyPeak[slot] = smooth(dailyPeak[slot], peak);
+        intervalStart = now;
+    }
+
+    private static double smooth(double average, double sample) {
+        if (average == 0) {
+            return sample;
+        }
+        return SMOOTHING * sample + (1 - SMOOTHING) * average;
+    }
+
+    private int slotOf(long time) {
+        return (int) ((time % DAY_IN_MILLIS) / slotSize);
+    }
+
+    /**
+     * @return the number of connections the pool should keep, based on recent usage
+     */
+    public int getWorkingSetSize() {
+        return (int) Math.ceil(workingSet);
+    }
+
+    /**
+     * Estimates the number of connections that will be in use at the given time
+     * from the time-of-day profile and, for the current load, from the acquisition
+     * rate and hold time (Little's law).
+     *
+     * @param time time in milliseconds
+     * @return expected number of connections in use
+     */
+    public synchronized int getPredictedDemand(long time) {
+        double recurring = dailyPeak[slotOf(time)];
+        double current = acquisitionRate * averageHoldTime / 1000.0;
+        return (int) Math.ceil(Math.max(recurring, current));
+    }
+
+    /**
+     * @return acquisitions per second during the last interval
+     */
+    public double getAcquisitionRate() {
+        return acquisitionRate;
+    }
+
+    /**
+     * @return average wait time in milliseconds of the requests in the last interval
+     */
+    public long getAverageWaitTime() {
+        return averageWaitTime;
+    }
+
+    /**
+     * @return average time in milliseconds connections were held, as of the last interval
+     */
+    public long getAverageHoldTime() {
+        return averageHoldTime;
+    }
+}
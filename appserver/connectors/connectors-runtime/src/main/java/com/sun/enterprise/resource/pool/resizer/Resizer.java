@@ -44,6 +44,7 @@ import com.sun.appserv.connectors.internal.api.PoolingException;
 import com.sun.enterprise.resource.ResourceHandle;
 import com.sun.enterprise.resource.ResourceState;
 import com.sun.enterprise.resource.allocator.ResourceAllocator;
+import com.sun.enterprise.resource.pool.ParallelResourceFiller;
 import com.sun.enterprise.resource.pool.PoolProperties;
 import com.sun.enterprise.resource.pool.ResourceHandler;
 import com.sun.enterprise.resource.pool.datastructure.DataStructure;
@@ -52,7 +53,9 @@ import org.glassfish.resourcebase.resources.api.PoolInfo;
 
 import javax.resource.ResourceException;
 import javax.resource.spi.ManagedConnection;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.TimerTask;
 import java.util.logging.Level;
@@ -78,6 +81,7 @@ public class
     protected PoolProperties pool;
     protected ResourceHandler handler;
     protected boolean preferValidateOverRecreate = false;
+    protected ParallelResourceFiller resourceFiller;
 
     protected final static Logger _logger = LogDomains.getLogger(Resizer.class, LogDomains.RSR_LOGGER);
 
@@ -90,6 +94,14 @@ public class
         this.preferValidateOverRecreate = preferValidateOverRecreate;
     }
 
+    /**
+     * validate free resources concurrently, in batches, using the given filler
+     * @param resourceFiller filler, null to validate resources one at a time
+     */
+    public void setResourceFiller(ParallelResourceFiller resourceFiller) {
+        this.resourceFiller = resourceFiller;
+    }
+
     public void run() {
         debug("Resizer for pool " + poolInfo);
         try {
@@ -249,6 +261,10 @@ public class
      * @param freeConnectionsToValidate Set of free connections
      */
     private void removeInvalidResources(Set<String> freeConnectionsToValidate) {
+        if (resourceFiller != null) {
+            removeInvalidResourcesInBatches(freeConnectionsToValidate);
+            return;
+        }
         try {
             debug("Sending a set of free connections to RA, " +
                     "of size : " + freeConnectionsToValidate.size());
@@ -292,6 +308,52 @@ public class
     }
 
 
+    /**
+     * Removes invalid resource handles in the pool while resizing the pool.
+     * Free connections are validated concurrently in batches, with one
+     * call to the RA per batch. The connections of a batch the RA fails on
+     * are validated one at a time, and those that still fail are destroyed.
+     *
+     * @param freeConnectionsToValidate Set of free connections
+     */
+    private void removeInvalidResourcesInBatches(Set<String> freeConnectionsToValidate) {
+        ResourceHandle handle;
+        Set<ResourceHandle> freeResources = new HashSet<ResourceHandle>();
+        List<ResourceHandle> resourcesToValidate = new ArrayList<ResourceHandle>();
+        try {
+            while ((handle = ds.getResource()) != null) {
+                freeResources.add(handle);
+                if (freeConnectionsToValidate.contains(handle.toString())) {
+                    resourcesToValidate.add(handle);
+                }
+            }
+            debug("Validating a set of free connections in batches of parallelism "
+                    + resourceFiller.getParallelism() + ", of size : " + resourcesToValidate.size());
+            Set<ResourceHandle> invalidResources =
+                    resourceFiller.findInvalidResources(handler, resourcesToValidate);
+            for (ResourceHandle invalid : invalidResources) {
+                freeResources.remove(invalid);
+                try {
+                    ds.removeResource(invalid);
+                    handler.invalidConnectionDetected(invalid);
+                } catch (Exception e) {
+                    if(_logger.isLoggable(Level.FINE)) {
+                        _logger.log(Level.FINE, "Exception while destroying invalid connection " + invalid, e);
+                    }
+                }
+            }
+            debug("No. of invalid connections received from RA : " + invalidResources.size());
+        } catch (Exception e) {
+            if(_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE, "Exception while trying to get invalid connections from MCF", e);
+            }
+        } finally {
+            for (ResourceHandle resourceHandle : freeResources) {
+                ds.returnResource(resourceHandle);
+            }
+        }
+    }
+
     protected static void debug(String debugStatement) {
         if (_logger.isLoggable(Level.FINE))
             _logger.log(Level.FINE, debugStatement);
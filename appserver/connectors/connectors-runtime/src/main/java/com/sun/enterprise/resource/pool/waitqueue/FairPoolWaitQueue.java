@@ -0,0 +1,177 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.waitqueue;
+
+import com.sun.enterprise.resource.ResourceHandle;
+import com.sun.logging.LogDomains;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Strict FIFO, non-blocking wait queue for the connection pool.<br>
+ * Waiters are {@link PoolWaiter}s, ordered by the ticket they got on arrival.
+ * A released resource can be handed off directly to the oldest waiter so that
+ * threads arriving later can not barge ahead of it. A waiter that was woken up
+ * to retry the pool and did not get a resource is parked again at its original
+ * place with {@link #repark(PoolWaiter)}. Requesters that must not park a
+ * thread can react to the completion of {@link PoolWaiter#getFuture()}.<br>
+ * Plain wait monitors are queued in arrival order as well.<br>
+ * Can be enabled by setting the pool property <i>pool-wait-queue</i> to
+ * the name of this class.
+ */
+public class FairPoolWaitQueue implements PoolWaitQueue {
+
+    private final ConcurrentSkipListMap<Long, Object> queue = new ConcurrentSkipListMap<Long, Object>();
+    private final Map<Object, Long> tickets = new ConcurrentHashMap<Object, Long>();
+    private final AtomicLong nextTicket = new AtomicLong();
+    private final AtomicInteger length = new AtomicInteger();
+
+    protected final static Logger _logger = LogDomains.getLogger(FairPoolWaitQueue.class, LogDomains.RSR_LOGGER);
+
+    public FairPoolWaitQueue() {
+        debug("Initializing fair Pool Wait Queue");
+    }
+
+    public int getQueueLength() {
+        return length.get();
+    }
+
+    public void addToQueue(Object waiter) {
+        Long ticket;
+        if (waiter instanceof PoolWaiter) {
+            ticket = ((PoolWaiter) waiter).getTicket();
+        } else {
+            ticket = nextTicket.getAndIncrement();
+        }
+        tickets.put(waiter, ticket);
+        queue.put(ticket, waiter);
+        length.incrementAndGet();
+    }
+
+    public boolean removeFromQueue(Object o) {
+        Long ticket = tickets.remove(o);
+        boolean removed = ticket != null && queue.remove(ticket, o);
+        if (removed) {
+            length.decrementAndGet();
+        }
+        return removed;
+    }
+
+    /**
+     * removes the first object (resource request) from the queue
+     * @return Object first object, null if the queue is empty
+     */
+    public Object remove() {
+        Map.Entry<Long, Object> first = queue.pollFirstEntry();
+        if (first == null) {
+            return null;
+        }
+        tickets.remove(first.getValue());
+        length.decrementAndGet();
+        return first.getValue();
+    }
+
+    public Object peek() {
+        Map.Entry<Long, Object> first = queue.firstEntry();
+        return first == null ? null : first.getValue();
+    }
+
+    public Collection getQueueContents() {
+        return queue.values();
+    }
+
+    /**
+     * adds a new resource request at the tail of the queue
+     * @return PoolWaiter whose future is completed with a handed off resource,
+     * or with null when the requester should retry the pool.
+     */
+    public PoolWaiter acquire() {
+        PoolWaiter waiter = new PoolWaiter(nextTicket.getAndIncrement());
+        addToQueue(waiter);
+        return waiter;
+    }
+
+    /**
+     * parks a request that has been woken up or has taken itself off the queue
+     * again, ahead of all requests that arrived after it.
+     * @param waiter PoolWaiter returned by {@link #acquire()}
+     */
+    public void repark(PoolWaiter waiter) {
+        waiter.repark();
+        addToQueue(waiter);
+    }
+
+    /**
+     * hands off the resource to the oldest waiter still waiting
+     * @param resource ResourceHandle being released
+     * @return boolean indicating whether a waiter took the resource
+     */
+    public boolean handOff(ResourceHandle resource) {
+        Object waiter;
+        while ((waiter = remove()) != null) {
+            if (waiter instanceof PoolWaiter) {
+                if (((PoolWaiter) waiter).handOff(resource)) {
+                    return true;
+                }
+            } else {
+                //plain wait monitor, let it retry the pool.
+                synchronized (waiter) {
+                    waiter.notifyAll();
+                }
+                return false;
+            }
+        }
+        return false;
+    }
+
+    protected void debug(String debugStatement) {
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, debugStatement);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.enterprise.resource.pool.waitqueue;
+
+import com.sun.enterprise.resource.ResourceHandle;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A resource request waiting in a {@link FairPoolWaitQueue}.<br>
+ * Each time the request parks, its future is completed either with a resource
+ * handed off by a thread releasing it, or with <i>null</i> when the requester
+ * should retry the pool. A requester that gives up completes the future itself
+ * with <i>null</i>, so a resource handed off concurrently is never lost.<br>
+ * A requester that retried the pool without success parks the same waiter
+ * again. The waiter keeps the ticket it got on arrival, and so its place in
+ * the queue.
+ */
+public class PoolWaiter {
+
+    private final long ticket;
+    private CompletableFuture<ResourceHandle> parked = new CompletableFuture<ResourceHandle>();
+
+    PoolWaiter(long ticket) {
+        this.ticket = ticket;
+    }
+
+    /**
+     * @return long arrival order of the request in the queue
+     */
+    long getTicket() {
+        return ticket;
+    }
+
+    /**
+     * @return CompletableFuture of the current park, completed with a handed off
+     * resource, or with null when the requester should retry the pool.
+     */
+    public synchronized CompletableFuture<ResourceHandle> getFuture() {
+        return parked;
+    }
+
+    /**
+     * hands off the resource to this waiter
+     * @param resource ResourceHandle
+     * @return boolean indicating whether the waiter accepted the resource
+     */
+    public boolean handOff(ResourceHandle resource) {
+        return getFuture().complete(resource);
+    }
+
+    /**
+     * wakes up the waiter without a resource so that it retries the pool
+     * @return boolean indicating whether the waiter was still waiting
+     */
+    public boolean wakeUp() {
+        return getFuture().complete(null);
+    }
+
+    /**
+     * withdraws the request. If a resource was handed off in the meantime,
+     * it is returned to the caller which then owns it.
+     * @return ResourceHandle handed off resource, if any
+     */
+    public ResourceHandle withdraw() {
+        CompletableFuture<ResourceHandle> future = getFuture();
+        if (future.complete(null)) {
+            return null;
+        }
+        return future.getNow(null);
+    }
+
+    /**
+     * starts a new park, once the previous one has completed
+     */
+    synchronized void repark() {
+        parked = new CompletableFuture<ResourceHandle>();
+    }
+}
@@ -104,6 +104,14 @@ public class InvocationInfo {
     // Stringified method signature to be used for monitoring
     public String str_method_sig;
 
+    // Invocation plan: the stages of an invocation this method needs,
+    // computed once when the container starts.  The other fields are only
+    // meaningful if hasInvocationPlan is true.
+    public boolean hasInvocationPlan;
+    public boolean needsAroundInvoke;
+    public boolean isBusinessHomeMethod;
+    public boolean isEJBLocalObjectRemove;
+
     public InvocationInfo() {}
     
     public InvocationInfo(Method method) {
@@ -137,6 +145,9 @@ public class InvocationInfo {
         sb.append("removalInfo = " + removalInfo + "\t");
         sb.append("lockInfo = " + methodLockInfo + "\t");
         sb.append("async = " + asyncMethodFlag + "\t");
+        if (hasInvocationPlan) {
+            sb.append("needsAroundInvoke = " + needsAroundInvoke + "\t");
+        }
         sb.append("\n");
         return sb.toString();
     }
@@ -43,6 +43,8 @@ package com.sun.ejb.base.stats;
 import org.glassfish.j2ee.statistics.CountStatistic;
 import org.glassfish.j2ee.statistics.TimeStatistic;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.sun.ejb.spi.stats.MonitorableSFSBStoreManager;
 
 import com.sun.enterprise.admin.monitor.stats.CountStatisticImpl;
@@ -61,6 +63,13 @@ public class StatefulSessionStoreMonitor {
 
     private StatefulSessionStoreStatsImpl statsImpl;
 
+    //Passivation queue statistics are kept here, since they describe the
+    //container's passivation tasks rather than the store
+    private volatile int passivationQueueDepth;
+    private final AtomicLong passivationQueueTimeCount = new AtomicLong();
+    private final AtomicLong passivationQueueTimeTotal = new AtomicLong();
+    private final AtomicLong passivationQueueTimeMax = new AtomicLong();
+
     void setDelegate(StatefulSessionStoreStatsImpl delegate) {
 	this.statsImpl = delegate;
     }
@@ -69,6 +78,11 @@ public class StatefulSessionStoreMonitor {
 	if (statsImpl != null) {
 	    statsImpl.appendStats(sbuf);
 	}
+	sbuf.append("PassivationQueueDepth=").append(passivationQueueDepth)
+	    .append("; AveragePassivationQueueTime=")
+	    .append(getAveragePassivationQueueTime())
+	    .append("; MaxPassivationQueueTime=")
+	    .append(getMaxPassivationQueueTime()).append("; ");
     }
 
     //The following methods are called from StatefulSessionContainer
@@ -126,6 +140,23 @@ public class StatefulSessionStoreMonitor {
 	}
     }
 
+    public final void setPassivationQueueDepth(int val) {
+	passivationQueueDepth = val;
+    }
+
+    /**
+     * Records how long a bean waited in the passivation queue between
+     * being trimmed from the cache and being passivated.
+     */
+    public final void addPassivationQueueTime(long val) {
+	passivationQueueTimeCount.incrementAndGet();
+	passivationQueueTimeTotal.addAndGet(val);
+	long max = passivationQueueTimeMax.get();
+	while (val > max && !passivationQueueTimeMax.compareAndSet(max, val)) {
+	    max = passivationQueueTimeMax.get();
+	}
+    }
+
     public void incrementCheckpointCount(boolean success) {
 	throw new RuntimeException("Checkpoint operation not allowed on non-HA store");
     }
@@ -161,6 +192,21 @@ public class StatefulSessionStoreMonitor {
 	    : 0;
     }
 
+    public int getPassivationQueueDepth() {
+	return passivationQueueDepth;
+    }
+
+    public long getAveragePassivationQueueTime() {
+	long count = passivationQueueTimeCount.get();
+	return (count > 0)
+	    ? passivationQueueTimeTotal.get() / count
+	    : 0;
+    }
+
+    public long getMaxPassivationQueueTime() {
+	return passivationQueueTimeMax.get();
+    }
+
     public int getNumPassivationSuccess() {
 	StatefulSessionStoreStatsImpl delegate = statsImpl;
 	return (delegate != null)
@@ -289,6 +289,10 @@ public abstract class BaseContainer
 
     protected static final String SINGLETON_BEAN_POOL_PROP = "singleton-bean-pool";
 
+    protected static final String LOCK_FREE_BEAN_POOL_PROP = "lock-free-bean-pool";
+
+    protected static final String TINYLFU_BEAN_CACHE_PROP = "tinylfu-bean-cache";
+
     protected ClassLoader loader = null;
     protected Class ejbClass = null;
     protected Class sfsbSerializedClass = null;
@@ -952,10 +956,12 @@ public abstract class BaseContainer
             for(Object o : invocationInfoMap.values()) {
                 InvocationInfo next = (InvocationInfo) o;
                 setInterceptorChain(next);
+                setInvocationPlan(next);
             }
             for(Object o : this.webServiceInvocationInfoMap.values()) {
                 InvocationInfo next = (InvocationInfo) o;
                 setInterceptorChain(next);
+                setInvocationPlan(next);
             }
 
         } catch(Exception e) {
@@ -979,6 +985,28 @@ public abstract class BaseContainer
         }
     }
     
+    /**
+     * Precomputes the parts of preInvoke, authorize and intercept that only
+     * depend on the method, so that invocations skip the stages the method
+     * does not need.  Must be called after setInterceptorChain.
+     */
+    private void setInvocationPlan(InvocationInfo info) {
+        Method method = info.method;
+        if (method == null) {
+            return;
+        }
+        info.isEJBLocalObjectRemove =
+                method.equals(ejbIntfMethods[EJBLocalObject_remove]);
+        info.isBusinessHomeMethod =
+                (method.getDeclaringClass() == localBusinessHomeIntf) ||
+                (method.getDeclaringClass() == remoteBusinessHomeIntf);
+        // Methods without around invoke interceptors of their own go
+        // straight to the bean method, as when the bean has no interceptors
+        info.needsAroundInvoke = interceptorManager.hasInterceptors() &&
+                interceptorManager.hasInterceptors(info.interceptorChain);
+        info.hasInvocationPlan = true;
+    }
+
     public final void setStoppedState() {
         containerState = CONTAINER_STOPPED;
     }
@@ -1925,9 +1953,12 @@ public abstract class BaseContainer
 
         // preInvocation authorization does not apply if this is a timer callback
         // OR if it's a remove operation initiated via the 299 SPI
+        InvocationInfo info = inv.invocationInfo;
+        boolean isRemove = (info != null && info.hasInvocationPlan) ?
+                info.isEJBLocalObjectRemove :
+                inv.method.equals(ejbIntfMethods[EJBLocalObject_remove]);
         boolean skipPreInvokeAuth = inv.isTimerCallback ||
-                ( inv.isLocal &&
-                  inv.method.equals(ejbIntfMethods[EJBLocalObject_remove]) &&
+                ( inv.isLocal && isRemove &&
                   !((EJBLocalObjectImpl)inv.ejbObject).isLocalHomeView() );
 
        return !skipPreInvokeAuth;
@@ -2412,9 +2443,12 @@ public abstract class BaseContainer
 
         // Internal methods for 3.0 bean creation so there won't 
         // be corresponding permissions in the security policy file.  
-        if( (inv.method.getDeclaringClass() == localBusinessHomeIntf) 
+        InvocationInfo info = inv.invocationInfo;
+        if( (info != null && info.hasInvocationPlan) ?
+            info.isBusinessHomeMethod :
+            ((inv.method.getDeclaringClass() == localBusinessHomeIntf) 
             ||
-            (inv.method.getDeclaringClass() == remoteBusinessHomeIntf) ) {
+            (inv.method.getDeclaringClass() == remoteBusinessHomeIntf)) ) {
             return true;
         }
        
@@ -4786,7 +4820,10 @@ public abstract class BaseContainer
         throws Throwable
     {
         Object result = null;
-        if (interceptorManager.hasInterceptors()) {
+        InvocationInfo info = inv.invocationInfo;
+        boolean aroundInvoke = info.hasInvocationPlan ?
+                info.needsAroundInvoke : interceptorManager.hasInterceptors();
+        if (aroundInvoke) {
             try {
                 onEjbMethodStart(inv.invocationInfo.str_method_sig);
                 result = interceptorManager.intercept(inv.getInterceptorChain(), inv);
@@ -4797,6 +4834,9 @@ public abstract class BaseContainer
                 onEjbMethodEnd(inv.invocationInfo.str_method_sig,  inv.exception);
             }
         } else { // invoke() has the same exc. semantics as Method.invoke
+            // Only the interceptor chain is skipped here: invokeTargetBeanMethod
+            // fires the methodStart/methodEnd probe events itself, and is the
+            // method that ReadOnlyBeanContainer overrides, so it is not inlined
             result = this.invokeTargetBeanMethod(inv.getBeanMethod(), inv, inv.ejb,
                     inv.methodParams, null);
         }
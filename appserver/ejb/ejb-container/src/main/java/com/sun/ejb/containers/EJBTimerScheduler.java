@@ -0,0 +1,167 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.ejb.containers;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Hands EJB timer expirations to the timer service when they are due.
+ *
+ * Pending tasks are kept in an index ordered by due time, so that a 
+ * cancelled task is removed right away rather than left in the queue until
+ * its expiration, as happens with a JDK timer.  Each wakeup of the 
+ * scheduler thread takes every task that is due in one batch; the timer
+ * service then dispatches the ejbTimeout calls to the ejb thread pool.
+ */
+class EJBTimerScheduler implements Runnable {
+
+    private static final Logger logger = EJBTimerService.logger;
+
+    private final TreeSet<EJBTimerTask> pending_ = new TreeSet<EJBTimerTask>();
+
+    private final Thread thread_;
+
+    private boolean started_;
+
+    private boolean shutdown_;
+
+    private boolean interrupted_;
+
+    EJBTimerScheduler() {
+        thread_ = new Thread(this, "EJB Timer Scheduler");
+        thread_.setDaemon(true);
+        // The thread lives longer than deployed apps, so don't let it keep
+        // a reference to an application class loader.  Issue 17468
+        thread_.setContextClassLoader(EJBTimerScheduler.class.getClassLoader());
+    }
+
+    synchronized void schedule(EJBTimerTask task) {
+        if( shutdown_ ) {
+            logger.log(Level.FINE, "Timer scheduler is shut down. Ignoring " +
+                       "timeout of " + task.getTimerId());
+            return;
+        }
+
+        task.scheduled(this);
+        pending_.add(task);
+        if( !started_ ) {
+            started_ = true;
+            thread_.start();
+        } else if( pending_.first() == task ) {
+            // New earliest expiration
+            notify();
+        }
+    }
+
+    synchronized boolean cancel(EJBTimerTask task) {
+        return pending_.remove(task);
+    }
+
+    synchronized void shutdown() {
+        shutdown_ = true;
+        pending_.clear();
+        notifyAll();
+    }
+
+    public void run() {
+        List<EJBTimerTask> expired = new ArrayList<EJBTimerTask>();
+        while( takeExpired(expired) ) {
+            for(EJBTimerTask task : expired) {
+                try {
+                    task.run();
+                } catch(Throwable t) {
+                    logger.log(Level.WARNING, "Error delivering expiration " +
+                               "of timer " + task.getTimerId(), t);
+                }
+            }
+            expired.clear();
+        }
+        if( interrupted_ ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until at least one task is due and moves all due tasks into
+     * the given list.
+     * @return false if the scheduler has been shut down
+     */
+    private synchronized boolean takeExpired(List<EJBTimerTask> expired) {
+        while( !shutdown_ ) {
+            try {
+                if( pending_.isEmpty() ) {
+                    wait();
+                    continue;
+                }
+
+                long now = System.currentTimeMillis();
+                long delay = pending_.first().getTimeoutMillis() - now;
+                if( delay > 0 ) {
+                    wait(delay);
+                    continue;
+                }
+
+                for(Iterator<EJBTimerTask> it = pending_.iterator(); 
+                        it.hasNext(); ) {
+                    EJBTimerTask task = it.next();
+                    if( task.getTimeoutMillis() > now ) {
+                        break;
+                    }
+                    expired.add(task);
+                    it.remove();
+                }
+                return true;
+            } catch(InterruptedException e) {
+                // Only shutdown stops the scheduler; the interrupt is
+                // restored when the thread exits.
+                logger.log(Level.FINE, "Timer scheduler interrupted", e);
+                interrupted_ = true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -109,6 +109,9 @@ public class EJBTimerService {
     // A cache of timer info for all timers *owned* by this server instance. 
     protected TimerCache timerCache_;
 
+    // Delivers the expirations of the timers in the cache.
+    private final EJBTimerScheduler scheduler_;
+
     private boolean shutdown_;
 
     // Total number of ejb components initialized as timed objects between the
@@ -161,6 +164,7 @@ public class EJBTimerService {
 
     protected EJBTimerService() throws Exception {
         timerCache_     = new TimerCache();
+        scheduler_      = new EJBTimerScheduler();
         shutdown_       = false;
 
         ServerEnvironmentImpl env = ejbContainerUtil.getServerEnvironment();
@@ -356,6 +360,7 @@ public class EJBTimerService {
     private void shutdown() {
         // Set flag to prevent any new timer expirations.
         shutdown_ = true;
+        scheduler_.shutdown();
     }
 
     /**
@@ -467,8 +472,7 @@ public class EJBTimerService {
                     timerState.scheduled(timerTask);
                 }
 
-                java.util.Timer jdkTimer = ejbContainerUtil.getTimer();
-                jdkTimer.schedule(timerTask, timerExpiration);            
+                scheduler_.schedule(timerTask);
             }
         } else {
             
@@ -1399,7 +1403,7 @@ public class EJBTimerService {
 
     /**
      * This method is called back from the EJBTimerTask object 
-     * on the JDK Timer Thread.  Work performed in this callback 
+     * on the EJBTimerScheduler thread.  Work performed in this callback 
      * should be short-lived, so do a little bookkeeping and then
      * launch a separate thread to invoke ejbTimeout, etc.
      */
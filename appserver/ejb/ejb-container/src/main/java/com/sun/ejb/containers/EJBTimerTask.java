@@ -40,32 +40,32 @@
 
 package com.sun.ejb.containers;
 
-import java.io.Serializable;
-
 import java.util.Date;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.TimerTask;
-
-import javax.ejb.Timer;
-
-import com.sun.logging.LogDomains;
+import java.util.concurrent.atomic.AtomicLong;
 
 /*
- * JDK timer task for timer expirations.  
+ * Timer task for timer expirations, run by the EJBTimerScheduler.
  *
  * @author Kenneth Saks
  */
-public class EJBTimerTask extends TimerTask {
-    
+public class EJBTimerTask implements Runnable, Comparable<EJBTimerTask> {
+
+    // Orders tasks that expire in the same millisecond
+    private static final AtomicLong nextSequenceNumber_ = new AtomicLong();
+
     private Date timeout_;
+    private long timeoutMillis_;
+    private long sequenceNumber_;
     private TimerPrimaryKey timerId_;
     private EJBTimerService timerService_;
+    private volatile EJBTimerScheduler scheduler_;
 
     EJBTimerTask(Date timeout, TimerPrimaryKey timerId, 
                  EJBTimerService timerService)
     { 
         timeout_ = timeout;
+        timeoutMillis_ = timeout.getTime();
+        sequenceNumber_ = nextSequenceNumber_.getAndIncrement();
         timerId_ = timerId;
         timerService_ = timerService;
     }
@@ -79,5 +79,33 @@ public class EJBTimerTask extends TimerTask {
         return timeout_;
     }
 
-} 
+    long getTimeoutMillis() {
+        return timeoutMillis_;
+    }
 
+    TimerPrimaryKey getTimerId() {
+        return timerId_;
+    }
+
+    void scheduled(EJBTimerScheduler scheduler) {
+        scheduler_ = scheduler;
+    }
+
+    /**
+     * Removes this task from its scheduler.
+     * @return true if the task was still waiting for its expiration
+     */
+    public boolean cancel() {
+        EJBTimerScheduler scheduler = scheduler_;
+        return (scheduler != null) && scheduler.cancel(this);
+    }
+
+    public int compareTo(EJBTimerTask other) {
+        if( timeoutMillis_ != other.timeoutMillis_ ) {
+            return (timeoutMillis_ < other.timeoutMillis_) ? -1 : 1;
+        }
+        return (sequenceNumber_ < other.sequenceNumber_) ? -1 :
+            ((sequenceNumber_ == other.sequenceNumber_) ? 0 : 1);
+    }
+
+} 
@@ -434,7 +434,8 @@ public class StatefulContainerFactory extends BaseContainerFactory
             long timeout = cacheProps.getCacheIdleTimeoutInSeconds() * 1000L;
             try {
                 sfsbContainer.invokePeriodically(timeout, timeout,
-                        new CachePassivatorTask(ejbName, sessionCache, _logger));
+                        new CachePassivatorTask(ejbName, sfsbContainer,
+                                sessionCache, _logger));
                 if (_logger.isLoggable(TRACE_LEVEL)) {
                     _logger.log(TRACE_LEVEL, "Added CachePassivator for {0} to run after {1} milliseconds",
                             new Object[]{ejbName, timeout});
@@ -495,19 +496,32 @@ public class StatefulContainerFactory extends BaseContainerFactory
 class CachePassivatorTask
         implements Runnable {
 
+    private StatefulSessionContainer container;
     private LruSessionCache cache;
     private Logger logger;
     private String name;
 
-    CachePassivatorTask(String name, LruSessionCache cache, Logger logger) {
+    CachePassivatorTask(String name, StatefulSessionContainer container,
+                        LruSessionCache cache, Logger logger) {
         this.name = name;
+        this.container = container;
         this.cache = cache;
         this.logger = logger;
     }
 
     public void run() {
         try {
-            cache.trimTimedoutItems(Integer.MAX_VALUE);
+            // Idle beans can wait for the next run while the passivation
+            // queue is full; they stay in the cache meanwhile
+            int capacity = container.getPassivationQueueCapacity();
+            if (capacity == 0) {
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.log(Level.FINE, "Passivation queue of {0} is full, " +
+                            "skipping idle bean trimming", name);
+                }
+                return;
+            }
+            cache.trimTimedoutItems(capacity);
         } catch (Exception ex) {
             if (logger.isLoggable(Level.WARNING)) {
                 logger.log(Level.WARNING, StatefulContainerFactory.SFSB_HELPER_REMOVE_IDLE_BEANS_FAILED,
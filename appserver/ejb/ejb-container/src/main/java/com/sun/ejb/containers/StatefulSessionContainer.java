@@ -282,10 +282,29 @@ public final class StatefulSessionContainer
     // We do not want too many ORB task for passivation
     public static final int MIN_PASSIVATION_BATCH_COUNT = 8;
 
+    // Upper bound on the number of ASyncPassivator tasks of one container
+    // running in the ejb thread pool, so that a trim storm does not take
+    // the threads that serve active sessions.
+    public static final String MAX_PASSIVATOR_TASKS_PROPERTY =
+            "com.sun.ejb.containers.sfsb.maxPassivatorTasks";
+
+    // Number of queued passivation candidates above which the idle bean
+    // trimmer skips a round instead of adding more beans to the queue.
+    public static final String MAX_PASSIVATION_QUEUE_DEPTH_PROPERTY =
+            "com.sun.ejb.containers.sfsb.maxPassivationQueueDepth";
+
+    private static final int maxPassivatorTasks = Math.max(1,
+            Integer.getInteger(MAX_PASSIVATOR_TASKS_PROPERTY,
+                    Runtime.getRuntime().availableProcessors()));
+
+    private static final int maxPassivationQueueDepth = Math.max(1,
+            Integer.getInteger(MAX_PASSIVATION_QUEUE_DEPTH_PROPERTY, 8192));
+
     private final static long CONCURRENCY_NOT_ALLOWED = 0;
     private final static long BLOCK_INDEFINITELY = -1;
 
-    private ArrayList passivationCandidates = new ArrayList();
+    private ArrayList<PassivationCandidate> passivationCandidates =
+            new ArrayList<PassivationCandidate>();
     private Object asyncTaskSemaphore = new Object();
 
 
@@ -2295,11 +2314,9 @@ public final class StatefulSessionContainer
 
 
             long passStartTime = -1;
-            /* TODO 
-            if (sfsbStoreMonitor.isMonitoringOn()) {
+            if ((sfsbStoreMonitor != null) && sfsbStoreMonitor.isMonitoringOn()) {
                 passStartTime = System.currentTimeMillis();
             }
-            */
 
             EjbInvocation ejbInv = createEjbInvocation(ejb, sc);
             invocationManager.preInvoke(ejbInv);
@@ -2452,7 +2469,7 @@ public final class StatefulSessionContainer
                     if (passStartTime != -1) {
                         long timeSpent = System.currentTimeMillis()
                                 - passStartTime;
-                        // V2: sfsbStoreMonitor.setPassivationTime(timeSpent);
+                        sfsbStoreMonitor.setPassivationTime(timeSpent);
                     }
                 }
             } //synchronized
@@ -2916,17 +2933,8 @@ public final class StatefulSessionContainer
             
             sessionBeanCache.shutdown();
 
-            while (true) {
-                ComponentContext ctx = null;
-                synchronized (asyncTaskSemaphore) {
-                    int sz = passivationCandidates.size();
-                    if (sz > 0) {
-                        ctx = (ComponentContext)
-                                passivationCandidates.remove(sz - 1);
-                    } else {
-                        break;
-                    }
-                }
+            ComponentContext ctx;
+            while ((ctx = nextPassivationCandidate()) != null) {
                 passivateEJB(ctx);
             }
 
@@ -2971,17 +2979,11 @@ public final class StatefulSessionContainer
                 invokePreDestroyAndUndeploy(ctx);
             }
 
-            while (true) {
-                SessionContextImpl ctx = null;
-                synchronized (asyncTaskSemaphore) {
-                    int sz = passivationCandidates.size();
-                    if (sz > 0) {
-                        ctx = (SessionContextImpl) passivationCandidates
-                                .remove(sz - 1);
-                        invokePreDestroyAndUndeploy(ctx);
-                    } else {
-                        break;
-                    }
+            synchronized (asyncTaskSemaphore) {
+                SessionContextImpl ctx;
+                while ((ctx = (SessionContextImpl)
+                        nextPassivationCandidate()) != null) {
+                    invokePreDestroyAndUndeploy(ctx);
                 }
             }
 
@@ -3135,9 +3137,14 @@ public final class StatefulSessionContainer
         boolean addTask = false;
         synchronized (asyncTaskSemaphore) {
             containerTrimCount++;
-            passivationCandidates.add(context);
-            int requiredTaskCount =
-                    (passivationCandidates.size() / passivationBatchCount);
+            passivationCandidates.add(new PassivationCandidate(
+                    (ComponentContext) context, System.currentTimeMillis()));
+            if (sfsbStoreMonitor != null) {
+                sfsbStoreMonitor.setPassivationQueueDepth(
+                        passivationCandidates.size());
+            }
+            int requiredTaskCount = Math.min(maxPassivatorTasks,
+                    (passivationCandidates.size() / passivationBatchCount));
             addTask = (asyncTaskCount < requiredTaskCount);
 
             if (_logger.isLoggable(Level.FINE)) {
@@ -3168,6 +3175,50 @@ public final class StatefulSessionContainer
 
     }
 
+    /**
+     * Returns the number of beans the idle bean trimmer may add to the
+     * passivation queue, or 0 while the passivator tasks are behind.
+     */
+    final int getPassivationQueueCapacity() {
+        synchronized (asyncTaskSemaphore) {
+            return Math.max(0,
+                    maxPassivationQueueDepth - passivationCandidates.size());
+        }
+    }
+
+    /**
+     * Removes the most recently trimmed passivation candidate from the queue.
+     * @return the candidate, or null if the queue is empty
+     */
+    private ComponentContext nextPassivationCandidate() {
+        PassivationCandidate candidate;
+        synchronized (asyncTaskSemaphore) {
+            int sz = passivationCandidates.size();
+            if (sz == 0) {
+                return null;
+            }
+            candidate = passivationCandidates.remove(sz - 1);
+            if (sfsbStoreMonitor != null) {
+                sfsbStoreMonitor.setPassivationQueueDepth(sz - 1);
+            }
+        }
+        if (sfsbStoreMonitor != null) {
+            sfsbStoreMonitor.addPassivationQueueTime(
+                    System.currentTimeMillis() - candidate.queuedAt);
+        }
+        return candidate.context;
+    }
+
+    private static final class PassivationCandidate {
+        final ComponentContext context;
+        final long queuedAt;
+
+        PassivationCandidate(ComponentContext context, long queuedAt) {
+            this.context = context;
+            this.queuedAt = queuedAt;
+        }
+    }
+
     private class ASyncPassivator implements Runnable {
 
         public void run() {
@@ -3191,20 +3242,10 @@ public final class StatefulSessionContainer
                                 }
                             });
                 }
-                ComponentContext ctx = null;
-
-                do {
-                    synchronized (asyncTaskSemaphore) {
-                        int sz = passivationCandidates.size();
-                        if (sz > 0) {
-                            ctx = (ComponentContext)
-                                    passivationCandidates.remove(sz - 1);
-                        } else {
-                            return;
-                        }
-                    }
+                ComponentContext ctx;
+                while ((ctx = nextPassivationCandidate()) != null) {
                     passivateEJB(ctx);
-                } while (true);
+                }
 
             } catch (Throwable th) {
                 th.printStackTrace();
@@ -3333,6 +3374,21 @@ public final class StatefulSessionContainer
         return sessionBeanCache.getMaxCacheSize();
     }
 
+    public int getPassivationQueueDepth() {
+        return (sfsbStoreMonitor == null)
+                ? 0 : sfsbStoreMonitor.getPassivationQueueDepth();
+    }
+
+    public long getAveragePassivationQueueTime() {
+        return (sfsbStoreMonitor == null)
+                ? 0 : sfsbStoreMonitor.getAveragePassivationQueueTime();
+    }
+
+    public long getMaxPassivationQueueTime() {
+        return (sfsbStoreMonitor == null)
+                ? 0 : sfsbStoreMonitor.getMaxPassivationQueueTime();
+    }
+
     public BackingStore<Serializable, SimpleMetadata> getBackingStore() {
         return backingStore;
     }
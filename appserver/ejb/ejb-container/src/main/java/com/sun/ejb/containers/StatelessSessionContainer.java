@@ -63,6 +63,7 @@ import org.glassfish.ejb.deployment.descriptor.runtime.IASEjbExtraDescriptors;
 import com.sun.ejb.ComponentContext;
 import com.sun.ejb.EjbInvocation;
 import com.sun.ejb.containers.util.pool.AbstractPool;
+import com.sun.ejb.containers.util.pool.LockFreePool;
 import com.sun.ejb.containers.util.pool.NonBlockingPool;
 import com.sun.ejb.containers.util.pool.ObjectFactory;
 import com.sun.ejb.monitoring.stats.EjbMonitoringStatsProvider;
@@ -255,10 +256,18 @@ public class StatelessSessionContainer
 
         poolProp = new PoolProperties(ejbContainer, beanPoolDes);
         String val = ejbDescriptor.getEjbBundleDescriptor().getEnterpriseBeansProperty(SINGLETON_BEAN_POOL_PROP);
-        pool= new NonBlockingPool(getContainerId(), ejbDescriptor.getName(),
-           sessionCtxFactory, poolProp.steadyPoolSize,
-           poolProp.poolResizeQuantity, poolProp.maxPoolSize,
-           poolProp.poolIdleTimeoutInSeconds, loader, Boolean.parseBoolean(val));
+        String lockFree = ejbDescriptor.getEjbBundleDescriptor().getEnterpriseBeansProperty(LOCK_FREE_BEAN_POOL_PROP);
+        if (Boolean.parseBoolean(lockFree) && !Boolean.parseBoolean(val)) {
+            pool= new LockFreePool(getContainerId(), ejbDescriptor.getName(),
+               sessionCtxFactory, poolProp.steadyPoolSize,
+               poolProp.poolResizeQuantity, poolProp.maxPoolSize,
+               poolProp.poolIdleTimeoutInSeconds, loader);
+        } else {
+            pool= new NonBlockingPool(getContainerId(), ejbDescriptor.getName(),
+               sessionCtxFactory, poolProp.steadyPoolSize,
+               poolProp.poolResizeQuantity, poolProp.maxPoolSize,
+               poolProp.poolIdleTimeoutInSeconds, loader, Boolean.parseBoolean(val));
+        }
     }
 
     protected void registerMonitorableComponents() {
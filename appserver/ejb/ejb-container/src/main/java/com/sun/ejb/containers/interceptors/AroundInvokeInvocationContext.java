@@ -40,6 +40,7 @@
 
 package com.sun.ejb.containers.interceptors;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
@@ -134,6 +135,17 @@ public class AroundInvokeInvocationContext extends CallbackInvocationContext
         
     }
 
+    /**
+     * Invokes the bean method through the given handle, of type
+     * (Object, Object[])Object, bound to the method of this context.
+     * Exceptions from the bean method are thrown as is.
+     */
+    Object invokeBeanMethod(MethodHandle beanMethodHandle) throws Throwable {
+
+        return (Object) beanMethodHandle.invokeExact(getTarget(), parameters);
+
+    }
+
 
 
 }
@@ -41,6 +41,7 @@
 package com.sun.ejb.containers.interceptors;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -49,6 +50,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.PostConstruct;
@@ -112,6 +115,10 @@ public class InterceptorManager {
 
     List<InterceptorDescriptor> frameworkInterceptors = new LinkedList<InterceptorDescriptor>();
 
+    // Around invoke chains of non-ejb beans, which ask for them on every call
+    private final ConcurrentMap<Method, InterceptorChain> aroundInvokeChains
+            = new ConcurrentHashMap<Method, InterceptorChain>();
+
 
     public InterceptorManager(Logger _logger, BaseContainer container,
                               Class[] lcAnnotationClasses, String[] pre30LCMethodNames)
@@ -213,6 +220,24 @@ public class InterceptorManager {
     public InterceptorManager.InterceptorChain getAroundInvokeChain(
             MethodDescriptor mDesc, Method beanMethod) {
 
+        if (ejbDesc != null || beanMethod == null) {
+            return buildAroundInvokeChain(mDesc, beanMethod);
+        }
+
+        InterceptorChain chain = aroundInvokeChains.get(beanMethod);
+        if (chain == null) {
+            chain = buildAroundInvokeChain(mDesc, beanMethod);
+            InterceptorChain existing = aroundInvokeChains.putIfAbsent(beanMethod, chain);
+            if (existing != null) {
+                chain = existing;
+            }
+        }
+        return chain;
+    }
+
+    private InterceptorManager.InterceptorChain buildAroundInvokeChain(
+            MethodDescriptor mDesc, Method beanMethod) {
+
         ArrayList<AroundInvokeInterceptor> interceptors =
                 new ArrayList<AroundInvokeInterceptor>();
 
@@ -265,7 +290,8 @@ public class InterceptorManager {
 
         AroundInvokeInterceptor[] inter = interceptors.toArray(
                 new AroundInvokeInterceptor[interceptors.size()]);
-        return new AroundInvokeChainImpl(inter);
+        // The target method of an ejb is invoked by the container
+        return new AroundInvokeChainImpl(inter, (ejbDesc == null) ? beanMethod : null);
     }
 
     public InterceptorManager.InterceptorChain getAroundTimeoutChain(
@@ -363,6 +389,17 @@ public class InterceptorManager {
         return this.interceptorsExists;
     }
 
+    /**
+     * Returns true if the given around invoke or around timeout chain has
+     * any interceptor to run before the target method.
+     */
+    public boolean hasInterceptors(InterceptorChain chain) {
+        if (chain instanceof AroundInvokeChainImpl) {
+            return ((AroundInvokeChainImpl) chain).size > 0;
+        }
+        return chain != null;
+    }
+
     public Object intercept(InterceptorManager.InterceptorChain chain,
                             AroundInvokeContext ctx)
             throws Throwable {
@@ -810,6 +847,9 @@ class AroundInvokeChainImpl
     protected AroundInvokeInterceptor[] interceptors;
     protected int size;
 
+    // Handle to the target method, used for AroundInvokeInvocationContexts
+    private MethodHandle beanMethodHandle;
+
 
     protected AroundInvokeChainImpl(AroundInvokeInterceptor[] interceptors) {
 
@@ -817,11 +857,24 @@ class AroundInvokeChainImpl
         this.size = (interceptors == null) ? 0 : interceptors.length;
     }
 
+    protected AroundInvokeChainImpl(AroundInvokeInterceptor[] interceptors,
+                                    Method beanMethod) {
+        this(interceptors);
+        if (beanMethod != null) {
+            beanMethodHandle = InterceptorUtil.beanMethodHandle(beanMethod);
+        }
+    }
+
     public Object invokeNext(int index, InterceptorManager.AroundInvokeContext inv)
             throws Throwable {
-        return ( index < size ) ?
-            interceptors[index].intercept(inv) :
-            inv.invokeBeanMethod();
+        if (index < size) {
+            return interceptors[index].intercept(inv);
+        }
+        // An EjbInvocation must go through the container to invoke the bean
+        if (beanMethodHandle != null && inv instanceof AroundInvokeInvocationContext) {
+            return ((AroundInvokeInvocationContext) inv).invokeBeanMethod(beanMethodHandle);
+        }
+        return inv.invokeBeanMethod();
     }
 
     public String toString() {
@@ -838,6 +891,8 @@ class AroundInvokeChainImpl
 class AroundInvokeInterceptor {
     protected int index;
     protected Method method;
+    // Set if the method is invoked through a method handle
+    protected MethodHandle handle;
 
     AroundInvokeInterceptor(int index, Method method) {
         this.index = index;
@@ -863,9 +918,14 @@ class AroundInvokeInterceptor {
             throw new EJBException(e);
         }
 
+        handle = InterceptorUtil.interceptorMethodHandle(method);
     }
 
     Object intercept(final InterceptorManager.AroundInvokeContext invCtx) throws Throwable {
+        if (handle != null) {
+            return (Object) handle.invokeExact(
+                    invCtx.getInterceptorInstances()[index], (InvocationContext) invCtx);
+        }
         try {
             final Object[] interceptors = invCtx.getInterceptorInstances();
 
@@ -909,6 +969,10 @@ class BeanAroundInvokeInterceptor
     }
 
     Object intercept(final InterceptorManager.AroundInvokeContext invCtx) throws Throwable {
+        if (handle != null) {
+            return (Object) handle.invokeExact(
+                    invCtx.getTarget(), (InvocationContext) invCtx);
+        }
         try {
 
             if( System.getSecurityManager() != null ) {
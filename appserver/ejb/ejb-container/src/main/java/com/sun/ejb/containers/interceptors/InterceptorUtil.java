@@ -42,17 +42,38 @@
  */
 package com.sun.ejb.containers.interceptors;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.HashSet;
+import javax.interceptor.InvocationContext;
 
 
 /**
  */
 public class InterceptorUtil {
 
+    /**
+     * Name of the system property that enables dispatching around-invoke
+     * interceptor methods, and the target methods of managed beans, through
+     * method handles bound when the interceptor chain is built, instead of
+     * through reflection.  Has no effect when a security manager is installed.
+     */
+    public static final String METHOD_HANDLE_DISPATCH_PROPERTY =
+            "com.sun.ejb.containers.interceptors.methodHandleDispatch";
+
+    // Read once; not final so that the tests can switch the dispatch mode
+    static boolean methodHandleDispatch =
+            Boolean.getBoolean(METHOD_HANDLE_DISPATCH_PROPERTY);
+
+    private static final MethodType INTERCEPTOR_METHOD_TYPE =
+            MethodType.methodType(Object.class, Object.class, InvocationContext.class);
+
     private static Map<Class, Set<Class>> compatiblePrimitiveWrapper
          = new HashMap<Class, Set<Class>>();
 
@@ -155,5 +176,47 @@ public class InterceptorUtil {
     }
 
 
+    /**
+     * Returns true if interceptors should be dispatched through method
+     * handles.
+     */
+    static boolean useMethodHandles() {
+        return methodHandleDispatch && System.getSecurityManager() == null;
+    }
 
+    /**
+     * Returns a handle to the given around-invoke or around-timeout method,
+     * of type (Object, InvocationContext)Object, or null if the method must
+     * be invoked through reflection.  The method must already be accessible.
+     */
+    static MethodHandle interceptorMethodHandle(Method method) {
+        if (!useMethodHandles() || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        try {
+            return MethodHandles.lookup().unreflect(method)
+                    .asType(INTERCEPTOR_METHOD_TYPE);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a handle to the given business method, of type
+     * (Object, Object[])Object, that applies the same argument conversions
+     * as Method.invoke(), or null if the method must be invoked through
+     * reflection.
+     */
+    static MethodHandle beanMethodHandle(Method method) {
+        if (!useMethodHandles() || Modifier.isStatic(method.getModifiers())) {
+            return null;
+        }
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            return handle.asType(handle.type().generic())
+                    .asSpreader(Object[].class, method.getParameterTypes().length);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
 }
@@ -667,6 +667,7 @@ public class LruSessionCache
      * This call is to be scheduled by a thread managed by the container.
      * In this case a sorted LRU list exists based on access time and this
      * list is scanned
+     * @param maxTrimCount maximum number of idle beans to trim in this call
      */
     public void trimTimedoutItems(int  maxTrimCount) {
         
@@ -698,6 +699,10 @@ public class LruSessionCache
                     _logger.log(Level.WARNING, EXITING_TRIM_TIMEDOUT_BEANS, new Object[]{cacheName, currentCacheState});
 		    break;
 		}
+                if (victimList.size() >= maxTrimCount) {
+                    // the rest is left for a later run
+                    break;
+                }
 
                 StatefulEJBContext ctx = (StatefulEJBContext) item.getValue();
                 if (ctx != null) {
@@ -764,6 +769,7 @@ public class LruSessionCache
      * LRU list
      * NRU cache at light loads and FIFO caches do not maintain a LRU list and
      * hence they have to scan the entire cache and select victims
+     * @param maxCount the scan stops once about this many victims are found
      **/
     public void trimUnSortedTimedoutItems(int  maxCount) {
         int maxIndex = buckets.length;
@@ -779,6 +785,9 @@ public class LruSessionCache
         // Go through each bucket in the cache and if there are entries in that
         // bucket scan them and select victims
         for (int index = 0; index < maxIndex ; index++) {
+            if (totalSize + victims.size() >= maxCount) {
+                break;
+            }
 
             if (buckets[index] != null) {
                 synchronized (bucketLocks[index]) {
@@ -0,0 +1,757 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.ejb.containers.util.pool;
+
+import com.sun.ejb.containers.EjbContainerUtilImpl;
+import com.sun.enterprise.util.Utility;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+
+/**
+ * <p>LockFreePool has the same sizing semantics as NonBlockingPool : it never
+ * blocks, creates an object when none is available, keeps at most
+ * maxPoolSize idle objects, maintains steadyPoolSize objects through an
+ * asynchronous resize task and removes objects idle for longer than
+ * idleTimeoutInSeconds, resizeQuantity at a time.
+ * <p>No lock is taken on the getObject / returnObject path. Every thread
+ * first uses a one object cache of its own, so that a thread that repeatedly
+ * gets and returns a bean reuses the same (cache warm) instance without
+ * contending with other threads. Other idle objects are kept in a lock-free
+ * (Treiber) stack shared by all threads. Objects left in the cache of a
+ * thread are moved to the shared stack by the resize task once they become
+ * idle, or when the owning thread has terminated.
+ * <p>The single bean instance mode of NonBlockingPool (singleton-bean-pool)
+ * needs callers to wait and is not supported by this pool.
+ */
+public class LockFreePool
+    extends AbstractPool
+{
+
+    private TimerTask poolTimerTask;
+    private boolean maintainSteadySize = false;
+    private volatile boolean poolClosed = false;
+
+    // Idle objects, in the shared stack and in the per thread caches
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicReference<Node> top = new AtomicReference<Node>();
+
+    private final ThreadLocal<ThreadCache> threadCache = new ThreadLocal<ThreadCache>() {
+        @Override
+        protected ThreadCache initialValue() {
+            ThreadCache cache = new ThreadCache(Thread.currentThread());
+            threadCaches.add(cache);
+            return cache;
+        }
+    };
+    private final ConcurrentLinkedQueue<ThreadCache> threadCaches =
+            new ConcurrentLinkedQueue<ThreadCache>();
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger destroyed = new AtomicInteger();
+    private final AtomicInteger success = new AtomicInteger();
+    private final AtomicBoolean resizeTaskAdded = new AtomicBoolean();
+    private final AtomicBoolean idleBeanWorkAdded = new AtomicBoolean();
+    private final AtomicBoolean inResizing = new AtomicBoolean();
+
+    public LockFreePool(long beanId, String poolName, ObjectFactory factory,
+        int steadyPoolSize, int resizeQuantity,
+        int maxPoolSize, int idleTimeoutInSeconds,
+        ClassLoader loader)
+    {
+        this.poolName = poolName;
+        this.beanId = beanId;
+        this.factory = factory;
+        this.steadyPoolSize = (steadyPoolSize <= 0) ? 0 : steadyPoolSize;
+        this.resizeQuantity = (resizeQuantity <= 0) ? 0 : resizeQuantity;
+        this.maxPoolSize = (maxPoolSize <= 0)
+            ? Integer.MAX_VALUE : maxPoolSize;
+        this.steadyPoolSize = (this.steadyPoolSize > this.maxPoolSize)
+            ? this.maxPoolSize : this.steadyPoolSize;
+        this.idleTimeoutInSeconds =
+            (idleTimeoutInSeconds <= 0) ? 0 : idleTimeoutInSeconds;
+
+        this.containerClassLoader = loader;
+
+        // The beans live in the lock-free stack; keep the inherited list
+        // empty rather than null for the AbstractPool code that reads it
+        this.list = new ArrayList(0);
+
+        this.maintainSteadySize = (this.steadyPoolSize > 0);
+        if ((this.idleTimeoutInSeconds > 0) && (this.resizeQuantity > 0)) {
+            try {
+                this.poolTimerTask =  new PoolResizeTimerTask();
+                EjbContainerUtilImpl.getInstance().getTimer().scheduleAtFixedRate
+                    (poolTimerTask, idleTimeoutInSeconds*1000L,
+                     idleTimeoutInSeconds*1000L);
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE,
+                      "[Pool-" + poolName + "]: Added PoolResizeTimerTask...");
+                }
+            } catch (Throwable th) {
+                _logger.log(Level.WARNING,"[Pool-" +
+                            poolName + "]: Could not add"
+                            + " PoolTimerTask. Continuing anyway...", th);
+            }
+        }
+    }
+
+    public Object getObject(boolean canWait, Object param)
+        throws PoolException
+    {
+        return getObject(param);
+    }
+
+    public Object getObject(long maxWaitTime, Object param)
+        throws PoolException
+    {
+        return getObject(param);
+    }
+
+    public Object getObject(Object param)
+    {
+        Object obj = threadCache.get().take();
+        if (obj == null) {
+            Node node = pop();
+            if (node != null) {
+                obj = node.obj;
+            }
+        }
+
+        if (obj != null) {
+            success.incrementAndGet();
+            if ((idleCount.decrementAndGet() < steadyPoolSize) && maintainSteadySize) {
+                addResizeTaskForImmediateExecution();
+            }
+            return obj;
+        }
+
+        if (maintainSteadySize) {
+            addResizeTaskForImmediateExecution();
+        }
+        poolProbeNotifier.ejbObjectAddedEvent(beanId, appName, modName, ejbName);
+        created.incrementAndGet();	//hope that everything will be OK.
+        try {
+            return factory.create(param);
+        } catch (RuntimeException th) {
+            poolProbeNotifier.ejbObjectAddFailedEvent(beanId, appName, modName, ejbName);
+            created.decrementAndGet();
+            throw th;
+        }
+    }
+
+    private void addResizeTaskForImmediateExecution() {
+        if (!resizeTaskAdded.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ReSizeWork work = new ReSizeWork();
+            EjbContainerUtilImpl.getInstance().addWork(work);
+            if(_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE,
+                     "[Pool-" + poolName + "]: Added PoolResizeTimerTask...");
+            }
+        } catch (Exception ex) {
+            resizeTaskAdded.set(false);
+            if(_logger.isLoggable(Level.WARNING)) {
+                _logger.log(Level.WARNING,
+                            "[Pool-"+poolName+"]: Cannot perform "
+                            + " pool resize task", ex);
+            }
+        }
+    }
+
+    /**
+     * Return an object back to the pool. An object that is obtained through
+     *	getObject() must always be returned back to the pool using either
+     *	returnObject(obj) or through destroyObject(obj).
+     */
+    public void returnObject(Object object) {
+        if (!poolClosed && reserveIdleSlot()) {
+            long now = System.currentTimeMillis();
+            if (!threadCache.get().offer(object, now)) {
+                push(new Node(object, now));
+            }
+            if (poolClosed) {
+                //raced with close(), which may have missed this object
+                drainAndDestroy();
+            }
+            return;
+        }
+
+        poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+        destroyed.incrementAndGet();
+        try {
+            factory.destroy(object);
+        } catch (Exception ex) {
+            _logger.log(Level.FINE, "exception in returnObj", ex);
+        }
+    }
+
+    /**
+     * Destroys an Object. Note that applications should not ignore
+     * the reference to the object that they got from getObject(). An object
+     * that is obtained through getObject() must always be returned back to
+     * the pool using either returnObject(obj) or through destroyObject(obj).
+     * This method tells that the object should be destroyed and cannot
+     * be reused.
+     */
+    public void destroyObject(Object object) {
+        poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+        destroyed.incrementAndGet();
+        try {
+            factory.destroy(object);
+        } catch (Exception ex) {
+            _logger.log(Level.FINE, "exception in destroyObject", ex);
+        }
+    }
+
+    /**
+    * Preload the pool with objects.
+    * @param count the number of objects to be added.
+    */
+    protected void preload(int count) {
+
+        ArrayList instances = new ArrayList(count);
+        try {
+            for (int i=0; i<count; i++) {
+                instances.add(factory.create(null));
+            }
+    	} catch (Exception ex) {
+            //Need not throw this exception up since we are pre-populating
+    	}
+
+        int sz = instances.size();
+        if (sz == 0) {
+            return;
+        }
+        created.addAndGet(sz);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < sz; i++) {
+            Object obj = instances.get(i);
+            if (!poolClosed && reserveIdleSlot()) {
+                push(new Node(obj, now));
+            } else {
+                // destroys unnecessary instances
+                destroyObject(obj);
+            }
+        }
+    }
+
+    /**
+    * Prepopulate the pool with objects.
+    * @param count the number of objects to be added.
+    */
+    public void prepopulate(int count) {
+        this.steadyPoolSize = (count <= 0) ? 0 : count;
+        this.steadyPoolSize = (this.steadyPoolSize > this.maxPoolSize)
+            ? this.maxPoolSize : this.steadyPoolSize;
+
+        if (this.steadyPoolSize > 0) {
+            preload(this.steadyPoolSize);
+        }
+    }
+
+    /**
+    * Close the pool
+    */
+    public void close() {
+        if (poolTimerTask != null) {
+            try {
+                poolTimerTask.cancel();
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE,
+                        "[Pool-"+poolName+"]: Cancelled pool timer task "
+                                + " at: " + (new java.util.Date()));
+                }
+            } catch (Throwable th) {
+                //Can safely ignore this!!
+            }
+        }
+        poolClosed = true;
+
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,"[Pool-"+poolName+"]: Destroying "
+                        + idleCount.get() + " beans from the pool...");
+        }
+
+        // since we're calling into ejb code, we need to set context
+        // class loader
+        ClassLoader origLoader =
+            Utility.setContextClassLoader(containerClassLoader);
+        try {
+            drainAndDestroy();
+        } finally {
+            Utility.setContextClassLoader(origLoader);
+        }
+        threadCaches.clear();
+        unregisterProbeProvider();
+
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,"Pool-"+poolName+"]: Pool closed....");
+        }
+        this.poolTimerTask = null;
+    }
+
+    protected void remove(int count) {
+        List removeList = new ArrayList();
+        for (int i=0; i<count; i++) {
+            Node node = pop();
+            if (node == null) {
+                break;
+            }
+            idleCount.decrementAndGet();
+            removeList.add(node.obj);
+        }
+        destroyAll(removeList, "exception in remove");
+    }
+
+    protected void removeIdleObjects() {
+    }
+
+    protected void doResize() {
+
+        if (poolClosed || !inResizing.compareAndSet(false, true)) {
+            return;
+        }
+
+        //We need to set the context class loader for this (deamon) thread!!
+        final Thread currentThread = Thread.currentThread();
+        final ClassLoader previousClassLoader =
+            currentThread.getContextClassLoader();
+        final ClassLoader ctxClassLoader = containerClassLoader;
+
+        long startTime = 0;
+        try {
+            setContextClassLoader(currentThread, ctxClassLoader);
+
+            if(_logger.isLoggable(Level.FINE)) {
+                _logger.log(Level.FINE,
+                    "[Pool-"+poolName+"]: Resize started at: "
+                  + (new java.util.Date())+" steadyPoolSize ::"+steadyPoolSize
+                  + " resizeQuantity ::"+resizeQuantity+" maxPoolSize ::" +
+                  maxPoolSize );
+            }
+            startTime = System.currentTimeMillis();
+
+            long allowedIdleTime = startTime - idleTimeoutInSeconds*1000L;
+            reclaimThreadCaches(allowedIdleTime);
+
+            List removeList = new ArrayList();
+            long populateCount = 0;
+            int curSize = idleCount.get();
+
+            if (curSize > steadyPoolSize) {
+
+                //possible to reduce pool size....
+                if ((idleTimeoutInSeconds > 0) && (resizeQuantity > 0)) {
+                    int victimCount =
+                        (curSize > (steadyPoolSize + resizeQuantity) )
+                        ? resizeQuantity : (curSize - steadyPoolSize);
+                    if(_logger.isLoggable(Level.FINE)) {
+                        _logger.log(Level.FINE,
+                                    "[Pool-"+poolName+"]: Resize:: reducing "
+                                    + " pool size by: " + victimCount);
+                    }
+                    removeIdle(victimCount, allowedIdleTime, removeList);
+                }
+            } else if (curSize < steadyPoolSize && maintainSteadySize) {
+
+                //Need to populate....
+                if (resizeQuantity <= 0) {
+                    populateCount = steadyPoolSize - curSize;
+                } else {
+                    while ((curSize + populateCount) < steadyPoolSize) {
+                        populateCount += resizeQuantity;
+                    }
+                    if ((curSize + populateCount) > maxPoolSize) {
+                        populateCount -= (curSize + populateCount) - maxPoolSize;
+                    }
+                }
+            }
+
+            destroyAll(removeList, "exception in doResize");
+
+            if (populateCount > 0) {
+                if(_logger.isLoggable(Level.FINE)) {
+                    _logger.log(Level.FINE,
+                            "[Pool-"+poolName+"]: Attempting to preload "
+                            + populateCount + " beans. CurSize/MaxPoolSize: "
+                            + idleCount.get() + "/" + maxPoolSize);
+                }
+
+                preload((int)populateCount);
+            }
+
+        } catch (Throwable th) {
+            _logger.log(Level.WARNING,
+                        "[Pool-"+poolName+"]: Exception during reSize", th);
+
+        } finally {
+            inResizing.set(false);
+            setContextClassLoader(currentThread, previousClassLoader);
+        }
+
+        long endTime = System.currentTimeMillis();
+        if(_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE,
+                "[Pool-"+poolName+"]: Resize completed at: "
+                + (new java.util.Date()) + "; after reSize: " +
+                getAllAttrValues());
+            _logger.log(Level.FINE, "[Pool-"+poolName+"]: Resize took: "
+                        + ((endTime-startTime)/1000.0) + " seconds.");
+        }
+    }
+
+    /**
+     * Moves the objects cached by terminated threads, and the ones that have
+     * been idle for longer than the idle timeout, to the shared stack where
+     * they can be reused by other threads or removed.
+     */
+    private void reclaimThreadCaches(long allowedIdleTime) {
+        for (ThreadCache cache : threadCaches) {
+            boolean ownerAlive = cache.isOwnerAlive();
+            if (!ownerAlive || (idleTimeoutInSeconds > 0
+                    && cache.returnedAt <= allowedIdleTime)) {
+                long returnedAt = cache.returnedAt;
+                Object obj = cache.take();
+                if (obj != null) {
+                    push(new Node(obj, returnedAt));
+                }
+            }
+            if (!ownerAlive) {
+                threadCaches.remove(cache);
+            }
+        }
+    }
+
+    /**
+     * Removes up to victimCount objects that have not been used since
+     * allowedIdleTime from the shared stack. The stack is popped one entry
+     * at a time, so concurrent getObject calls keep finding the objects not
+     * examined yet; the recently used objects popped on the way are pushed
+     * back, in their original order, once the victims have been found.
+     */
+    private void removeIdle(int victimCount, long allowedIdleTime, List removeList) {
+        // Objects returned meanwhile are pushed on top of the stack and may
+        // be popped again: examine at most as many entries as there are
+        // idle objects now.
+        int examine = idleCount.get();
+        Node keptFirst = null;
+        Node keptLast = null;
+        while (examine-- > 0 && removeList.size() < victimCount) {
+            Node node = pop();
+            if (node == null) {
+                break;
+            }
+            if (node.idleSince <= allowedIdleTime) {
+                removeList.add(node.obj);
+                idleCount.decrementAndGet();
+                poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+                destroyed.incrementAndGet();
+            } else {
+                // a popped node is never pushed again, see Node
+                Node kept = new Node(node.obj, node.idleSince);
+                if (keptLast == null) {
+                    keptFirst = kept;
+                } else {
+                    keptLast.next = kept;
+                }
+                keptLast = kept;
+            }
+        }
+        if (keptFirst != null) {
+            Node current;
+            do {
+                current = top.get();
+                keptLast.next = current;
+            } while (!top.compareAndSet(current, keptFirst));
+        }
+    }
+
+    private void drainAndDestroy() {
+        List removeList = new ArrayList();
+        for (ThreadCache cache : threadCaches) {
+            Object obj = cache.take();
+            if (obj != null) {
+                removeList.add(obj);
+            }
+        }
+        for (Node node = top.getAndSet(null); node != null; node = node.next) {
+            removeList.add(node.obj);
+        }
+        for (int i = 0; i < removeList.size(); i++) {
+            idleCount.decrementAndGet();
+            poolProbeNotifier.ejbObjectDestroyedEvent(beanId, appName, modName, ejbName);
+            destroyed.incrementAndGet();
+        }
+        destroyAll(removeList, "exception in close");
+    }
+
+    private void destroyAll(List removeList, String message) {
+        int sz = removeList.size();
+        for (int i=0; i<sz; i++) {
+            try {
+                factory.destroy(removeList.get(i));
+            } catch (Throwable th) {
+                _logger.log(Level.FINE, message, th);
+            }
+        }
+    }
+
+    /**
+     * Counts an object about to be added to the idle objects, unless there
+     * are already maxPoolSize of them.
+     */
+    private boolean reserveIdleSlot() {
+        while (true) {
+            int count = idleCount.get();
+            if (count >= maxPoolSize) {
+                return false;
+            }
+            if (idleCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void push(Node node) {
+        Node current;
+        do {
+            current = top.get();
+            node.next = current;
+        } while (!top.compareAndSet(current, node));
+    }
+
+    private Node pop() {
+        Node current;
+        do {
+            current = top.get();
+            if (current == null) {
+                return null;
+            }
+        } while (!top.compareAndSet(current, current.next));
+        return current;
+    }
+
+    private static void setContextClassLoader(final Thread thread,
+            final ClassLoader loader) {
+        if(System.getSecurityManager() == null) {
+            thread.setContextClassLoader(loader);
+        } else {
+            java.security.AccessController.doPrivileged(
+                    new java.security.PrivilegedAction() {
+                public java.lang.Object run() {
+                    thread.setContextClassLoader(loader);
+                    return null;
+                }
+            });
+        }
+    }
+
+    /**************** For Monitoring ***********************/
+    /*******************************************************/
+
+    public int getCreatedCount() {
+        return created.get();
+    }
+
+    public int getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    public int getPoolSuccess() {
+        return success.get();
+    }
+
+    public int getSize() {
+        return idleCount.get();
+    }
+
+    public int getNumBeansInPool() {
+        return idleCount.get();
+    }
+
+    public int getTotalBeansCreated() {
+        return created.get();
+    }
+
+    public int getTotalBeansDestroyed() {
+        return destroyed.get();
+    }
+
+    public void appendStats(StringBuffer sbuf) {
+	sbuf.append("[Pool: ")
+	    .append("SZ=").append(idleCount.get()).append("; ")
+	    .append("CC=").append(created.get()).append("; ")
+	    .append("DC=").append(destroyed.get()).append("; ")
+	    .append("WC=").append(waitCount).append("; ")
+	    .append("MSG=0");
+	if (configData != null) {
+	    sbuf.append(configData);
+	}
+	sbuf.append("]");
+    }
+
+    public String getAllMonitoredAttrbuteValues() {
+        StringBuffer sbuf = new StringBuffer();
+        sbuf.append("createdCount=").append(created.get()).append(";")
+            .append("destroyedCount=").append(destroyed.get()).append(";")
+            .append("waitCount=").append(waitCount).append(";")
+            .append("size=").append(idleCount.get()).append(";");
+        sbuf.append("maxPoolSize=").append(maxPoolSize).append(";");
+        return sbuf.toString();
+    }
+
+    public String getAllAttrValues() {
+        StringBuffer sbuf = new StringBuffer("[Pool-"+poolName+"] ");
+        sbuf.append("CC=").append(created.get()).append("; ")
+            .append("DC=").append(destroyed.get()).append("; ")
+            .append("CS=").append(idleCount.get()).append("; ")
+            .append("SS=").append(steadyPoolSize).append("; ")
+            .append("MS=").append(maxPoolSize).append(";");
+        return sbuf.toString();
+    }
+
+    /**
+     * Entry of the shared stack. Nodes are never reused, hence the stack is
+     * not subject to the ABA problem.
+     */
+    private static final class Node {
+        final Object obj;
+        final long idleSince;
+        Node next;
+
+        Node(Object obj, long idleSince) {
+            this.obj = obj;
+            this.idleSince = idleSince;
+        }
+    }
+
+    /**
+     * One object cache of a thread. The owner thread and the resize task
+     * both take the object with an atomic exchange.
+     */
+    private static final class ThreadCache {
+        private final AtomicReference<Object> slot = new AtomicReference<Object>();
+        private final WeakReference<Thread> owner;
+        volatile long returnedAt;
+
+        ThreadCache(Thread owner) {
+            this.owner = new WeakReference<Thread>(owner);
+        }
+
+        Object take() {
+            return slot.getAndSet(null);
+        }
+
+        boolean offer(Object obj, long now) {
+            if (slot.get() != null) {
+                return false;
+            }
+            returnedAt = now;
+            return slot.compareAndSet(null, obj);
+        }
+
+        boolean isOwnerAlive() {
+            Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+    }
+
+    private class ReSizeWork
+        implements Runnable
+    {
+        public void run() {
+            try {
+                doResize();
+            } catch (Exception ex) {
+                _logger.log(Level.WARNING,
+                    "[Pool-"+poolName+"]: Exception during reSize", ex);
+            } finally {
+                resizeTaskAdded.set(false);
+            }
+        }
+    }
+
+    private class IdleBeanWork
+        implements Runnable
+    {
+        public void run() {
+            try {
+                doResize();
+            } catch (Exception ex) {
+            } finally {
+                idleBeanWorkAdded.set(false);
+            }
+        }
+    }
+
+    private class PoolResizeTimerTask
+        extends java.util.TimerTask
+    {
+        PoolResizeTimerTask() {}
+
+        public void run() {
+            if (!idleBeanWorkAdded.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                IdleBeanWork work = new IdleBeanWork();
+                EjbContainerUtilImpl.getInstance().addWork(work);
+            } catch (Exception ex) {
+                idleBeanWorkAdded.set(false);
+                _logger.log(Level.WARNING,
+                            "[Pool-"+poolName+"]: Cannot perform "
+                            + " pool idle bean cleanup", ex);
+            }
+        }
+    } // End of class PoolResizeTimerTask
+
+}
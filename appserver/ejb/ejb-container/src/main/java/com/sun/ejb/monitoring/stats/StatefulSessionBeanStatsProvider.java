@@ -59,6 +59,11 @@ public class StatefulSessionBeanStatsProvider extends EjbMonitoringStatsProvider
 
     private BoundedRangeStatisticImpl methodReadyStat = null;
     private BoundedRangeStatisticImpl passiveCount = null;
+    private BoundedRangeStatisticImpl passivationQueueDepth = null;
+    private CountStatisticImpl averagePassivationQueueTime = null;
+    private CountStatisticImpl maxPassivationQueueTime = null;
+
+    private StatefulSessionContainer delegate;
 
     private AtomicLong methodReadyCount = new AtomicLong();
     private AtomicLong passivations = new AtomicLong();
@@ -67,6 +72,7 @@ public class StatefulSessionBeanStatsProvider extends EjbMonitoringStatsProvider
             long beanId, String appName, String moduleName, String beanName) {
 
         super(beanId, appName, moduleName, beanName);
+        this.delegate = delegate;
 
         long now = System.currentTimeMillis();
 
@@ -79,6 +85,20 @@ public class StatefulSessionBeanStatsProvider extends EjbMonitoringStatsProvider
             0, 0, 0, Long.MAX_VALUE, 0,
             "PassiveCount", "count", "Number of stateful session beans in Passive state",
             now, now);
+
+        passivationQueueDepth = new BoundedRangeStatisticImpl(
+            0, 0, 0, Long.MAX_VALUE, 0,
+            "PassivationQueueDepth", "count",
+            "Number of stateful session beans waiting to be passivated",
+            now, now);
+
+        averagePassivationQueueTime = new CountStatisticImpl(
+            "AveragePassivationQueueTime", "Milliseconds",
+            "Average time stateful session beans waited to be passivated");
+
+        maxPassivationQueueTime = new CountStatisticImpl(
+            "MaxPassivationQueueTime", "Milliseconds",
+            "Longest time a stateful session bean waited to be passivated");
     }
 
     @ManagedAttribute(id="methodreadycount")
@@ -95,6 +115,27 @@ public class StatefulSessionBeanStatsProvider extends EjbMonitoringStatsProvider
         return passiveCount;
     }
 
+    @ManagedAttribute(id="passivationqueuedepth")
+    @Description( "Number of stateful session beans waiting to be passivated")
+    public RangeStatistic getPassivationQueueDepth() {
+        passivationQueueDepth.setCurrent(delegate.getPassivationQueueDepth());
+        return passivationQueueDepth;
+    }
+
+    @ManagedAttribute(id="averagepassivationqueuetime")
+    @Description( "Average time (ms) stateful session beans waited to be passivated")
+    public CountStatistic getAveragePassivationQueueTime() {
+        averagePassivationQueueTime.setCount(delegate.getAveragePassivationQueueTime());
+        return averagePassivationQueueTime;
+    }
+
+    @ManagedAttribute(id="maxpassivationqueuetime")
+    @Description( "Longest time (ms) a stateful session bean waited to be passivated")
+    public CountStatistic getMaxPassivationQueueTime() {
+        maxPassivationQueueTime.setCount(delegate.getMaxPassivationQueueTime());
+        return maxPassivationQueueTime;
+    }
+
     @ProbeListener("glassfish:ejb:bean:methodReadyAddEvent")
     public void methodReadyAddEvent(
             @ProbeParam("beanId") long beanId,
@@ -0,0 +1,80 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.ejb.base.stats;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the passivation queue statistics of StatefulSessionStoreMonitor.
+ */
+public class StatefulSessionStoreMonitorTest extends TestCase {
+
+    public void testNoQueueTimeRecorded() {
+        StatefulSessionStoreMonitor monitor = new StatefulSessionStoreMonitor();
+        assertEquals(0, monitor.getPassivationQueueDepth());
+        assertEquals(0, monitor.getAveragePassivationQueueTime());
+        assertEquals(0, monitor.getMaxPassivationQueueTime());
+    }
+
+    public void testQueueTimes() {
+        StatefulSessionStoreMonitor monitor = new StatefulSessionStoreMonitor();
+        monitor.addPassivationQueueTime(10);
+        monitor.addPassivationQueueTime(50);
+        monitor.addPassivationQueueTime(30);
+
+        assertEquals(30, monitor.getAveragePassivationQueueTime());
+        assertEquals(50, monitor.getMaxPassivationQueueTime());
+    }
+
+    public void testAppendStats() {
+        StatefulSessionStoreMonitor monitor = new StatefulSessionStoreMonitor();
+        monitor.setPassivationQueueDepth(7);
+        monitor.addPassivationQueueTime(20);
+
+        StringBuffer sbuf = new StringBuffer();
+        monitor.appendStats(sbuf);
+        String stats = sbuf.toString();
+        assertTrue(stats, stats.contains("PassivationQueueDepth=7;"));
+        assertTrue(stats, stats.contains("AveragePassivationQueueTime=20;"));
+        assertTrue(stats, stats.contains("MaxPassivationQueueTime=20;"));
+    }
+}
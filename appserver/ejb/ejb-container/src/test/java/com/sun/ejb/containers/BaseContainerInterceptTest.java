@@ -0,0 +1,174 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.ejb.containers;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.sun.ejb.EjbInvocation;
+import com.sun.ejb.InvocationInfo;
+import com.sun.ejb.monitoring.probes.EjbMonitoringProbeProvider;
+import com.sun.enterprise.admin.monitor.callflow.CallFlowInfo;
+import org.glassfish.ejb.deployment.descriptor.EjbSessionDescriptor;
+
+/**
+ * Checks that methods without around invoke interceptors, which skip the
+ * interceptor chain, still fire the ejb method probe events.
+ */
+public class BaseContainerInterceptTest extends TestCase {
+
+    public BaseContainerInterceptTest(String testName) {
+        super(testName);
+    }
+
+    public void testFastPathFiresProbeEvents() throws Throwable {
+        RecordingProbeProvider probes = new RecordingProbeProvider();
+        BaseContainer container = newContainer(probes);
+        Bean bean = new Bean();
+        EjbInvocation inv = newInvocation(bean, "hello");
+
+        Object result = container.intercept(inv);
+
+        assertEquals("hello", result);
+        assertEquals(1, bean.calls);
+        assertEquals(2, probes.events.size());
+        assertEquals("start:hello", probes.events.get(0));
+        assertEquals("end:hello:null", probes.events.get(1));
+    }
+
+    public void testFastPathFiresEndEventOnException() throws Throwable {
+        RecordingProbeProvider probes = new RecordingProbeProvider();
+        BaseContainer container = newContainer(probes);
+        EjbInvocation inv = newInvocation(new Bean(), "fail");
+
+        try {
+            container.intercept(inv);
+            fail("expected the bean exception");
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        assertEquals(2, probes.events.size());
+        assertEquals("start:fail", probes.events.get(0));
+        assertEquals("end:fail:" + IllegalStateException.class.getName(),
+                probes.events.get(1));
+    }
+
+    private static BaseContainer newContainer(EjbMonitoringProbeProvider probes)
+            throws Exception {
+        // Skip the constructor, which needs a running server
+        BaseContainer container = allocate(StatelessSessionContainer.class);
+        container.ejbDescriptor = new EjbSessionDescriptor();
+        container.ejbProbeNotifier = probes;
+        container.callFlowInfo = (CallFlowInfo) Proxy.newProxyInstance(
+                CallFlowInfo.class.getClassLoader(),
+                new Class[] { CallFlowInfo.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method m, Object[] args) {
+                        return null;
+                    }
+                });
+        return container;
+    }
+
+    private static EjbInvocation newInvocation(Object bean, String methodName)
+            throws Exception {
+        Method method = Bean.class.getMethod(methodName);
+        InvocationInfo info = new InvocationInfo(method);
+        info.str_method_sig = methodName;
+        info.hasInvocationPlan = true;
+        info.needsAroundInvoke = false;
+
+        EjbInvocation inv = allocate(EjbInvocation.class);
+        inv.invocationInfo = info;
+        inv.useFastPath = true;
+        inv.beanMethod = method;
+        inv.ejb = bean;
+        inv.methodParams = new Object[0];
+        return inv;
+    }
+
+    private static <T> T allocate(Class<T> type) throws Exception {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+        return type.cast(allocateInstance.invoke(theUnsafe.get(null), type));
+    }
+
+    public static class Bean {
+        int calls;
+
+        public String hello() {
+            calls++;
+            return "hello";
+        }
+
+        public String fail() {
+            throw new IllegalStateException("fail");
+        }
+    }
+
+    private static class RecordingProbeProvider extends EjbMonitoringProbeProvider {
+        final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void ejbMethodStartEvent(long beanId, String appName,
+                String modName, String ejbName, String method_sig) {
+            events.add("start:" + method_sig);
+        }
+
+        @Override
+        public void ejbMethodEndEvent(long beanId, String appName,
+                String modName, String ejbName, Throwable exception,
+                String method_sig) {
+            events.add("end:" + method_sig + ":"
+                    + (exception == null ? null : exception.getClass().getName()));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.ejb.containers;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the order in which the EJB timer scheduler delivers expirations,
+ * cancellation, and that only shutdown stops the scheduler thread.
+ */
+public class EJBTimerSchedulerTest extends TestCase {
+
+    private EJBTimerScheduler scheduler;
+    private List<String> delivered;
+
+    protected void setUp() {
+        scheduler = new EJBTimerScheduler();
+        delivered = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    protected void tearDown() {
+        scheduler.shutdown();
+    }
+
+    public void testDeliversInDueTimeOrder() throws Exception {
+        long now = System.currentTimeMillis();
+        CountDownLatch done = new CountDownLatch(4);
+        scheduler.schedule(new TestTask("c", now + 300, done));
+        scheduler.schedule(new TestTask("a", now + 100, done));
+        scheduler.schedule(new TestTask("b", now + 200, done));
+        // same due time as "c": scheduled later, delivered later
+        scheduler.schedule(new TestTask("d", now + 300, done));
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("a", "b", "c", "d"), delivered);
+    }
+
+    public void testEarlierTaskWakesScheduler() throws Exception {
+        long now = System.currentTimeMillis();
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.schedule(new TestTask("late", now + 60000, null));
+        scheduler.schedule(new TestTask("early", now + 50, done));
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("early"), delivered);
+    }
+
+    public void testCancelledTaskIsNotDelivered() throws Exception {
+        long now = System.currentTimeMillis();
+        CountDownLatch done = new CountDownLatch(1);
+        TestTask cancelled = new TestTask("cancelled", now + 100, null);
+        scheduler.schedule(cancelled);
+        scheduler.schedule(new TestTask("kept", now + 200, done));
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("kept"), delivered);
+    }
+
+    public void testCancelAfterDeliveryReturnsFalse() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        TestTask task = new TestTask("a", System.currentTimeMillis(), done);
+        scheduler.schedule(task);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertFalse(task.cancel());
+    }
+
+    public void testInterruptDoesNotStopScheduler() throws Exception {
+        CountDownLatch first = new CountDownLatch(1);
+        scheduler.schedule(new TestTask("first", System.currentTimeMillis(), first));
+        assertTrue(first.await(10, TimeUnit.SECONDS));
+
+        Thread thread = schedulerThread();
+        thread.interrupt();
+
+        CountDownLatch second = new CountDownLatch(1);
+        scheduler.schedule(new TestTask("second", System.currentTimeMillis() + 100, second));
+        assertTrue(second.await(10, TimeUnit.SECONDS));
+        assertTrue(thread.isAlive());
+
+        scheduler.shutdown();
+        thread.join(10000);
+        assertFalse(thread.isAlive());
+    }
+
+    public void testShutdownIgnoresNewTasks() throws Exception {
+        scheduler.shutdown();
+        TestTask task = new TestTask("a", System.currentTimeMillis(), null);
+        scheduler.schedule(task);
+
+        assertFalse(task.cancel());
+    }
+
+    private Thread schedulerThread() throws Exception {
+        Field field = EJBTimerScheduler.class.getDeclaredField("thread_");
+        field.setAccessible(true);
+        return (Thread) field.get(scheduler);
+    }
+
+    private class TestTask extends EJBTimerTask {
+        private final String name;
+        private final CountDownLatch done;
+
+        TestTask(String name, long timeoutMillis, CountDownLatch done) {
+            super(new Date(timeoutMillis), null, null);
+            this.name = name;
+            this.done = done;
+        }
+
+        public void run() {
+            delivered.add(name);
+            if (done != null) {
+                done.countDown();
+            }
+        }
+    }
+}
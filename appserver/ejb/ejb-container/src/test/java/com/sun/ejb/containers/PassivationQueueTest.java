@@ -0,0 +1,150 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.ejb.containers;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.logging.Logger;
+
+import com.sun.ejb.ComponentContext;
+import com.sun.ejb.base.stats.StatefulSessionStoreMonitor;
+import com.sun.ejb.containers.util.cache.LruSessionCache;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the bound on the stateful session bean passivation queue: the idle
+ * bean trimmer only adds as many beans as there is room for, and skips its
+ * run while the queue is full.
+ */
+public class PassivationQueueTest extends TestCase {
+
+    private StatefulSessionContainer container;
+    private RecordingCache cache;
+    private int maxDepth;
+
+    protected void setUp() throws Exception {
+        container = allocate(StatefulSessionContainer.class);
+        setField("passivationCandidates", new ArrayList());
+        setField("asyncTaskSemaphore", new Object());
+        setField("sfsbStoreMonitor", new StatefulSessionStoreMonitor());
+        // no passivator task is started by the trim events
+        setField("passivationBatchCount", Integer.MAX_VALUE);
+
+        Field depth = StatefulSessionContainer.class.getDeclaredField("maxPassivationQueueDepth");
+        depth.setAccessible(true);
+        maxDepth = depth.getInt(null);
+
+        cache = new RecordingCache();
+    }
+
+    public void testTrimEventsUpdateQueueDepth() {
+        assertEquals(maxDepth, container.getPassivationQueueCapacity());
+        trim(3);
+
+        assertEquals(3, container.getPassivationQueueDepth());
+        assertEquals(maxDepth - 3, container.getPassivationQueueCapacity());
+    }
+
+    public void testIdleTrimBoundedByQueueCapacity() {
+        trim(maxDepth - 2);
+        new CachePassivatorTask("test", container, cache, Logger.getAnonymousLogger()).run();
+
+        assertEquals(2, cache.trimCount);
+    }
+
+    public void testIdleTrimSkippedWhileQueueFull() {
+        trim(maxDepth);
+        assertEquals(0, container.getPassivationQueueCapacity());
+        new CachePassivatorTask("test", container, cache, Logger.getAnonymousLogger()).run();
+
+        assertEquals(-1, cache.trimCount);
+    }
+
+    public void testDequeueRecordsDepthAndQueueTime() throws Exception {
+        trim(2);
+        Thread.sleep(20);
+
+        Method next = StatefulSessionContainer.class.getDeclaredMethod("nextPassivationCandidate");
+        next.setAccessible(true);
+        next.invoke(container);
+
+        assertEquals(1, container.getPassivationQueueDepth());
+        assertEquals(maxDepth - 1, container.getPassivationQueueCapacity());
+        assertTrue(container.getMaxPassivationQueueTime() >= 20);
+        assertEquals(container.getMaxPassivationQueueTime(),
+                container.getAveragePassivationQueueTime());
+    }
+
+    private void trim(int count) {
+        for (int i = 0; i < count; i++) {
+            container.trimEvent(i, (ComponentContext) null);
+        }
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = StatefulSessionContainer.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(container, value);
+    }
+
+    private static <T> T allocate(Class<T> type) throws Exception {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+        return type.cast(allocateInstance.invoke(theUnsafe.get(null), type));
+    }
+
+    private static class RecordingCache extends LruSessionCache {
+        int trimCount = -1;
+
+        RecordingCache() {
+            super("test", null, 0, 0);
+        }
+
+        public void trimTimedoutItems(int maxTrimCount) {
+            trimCount = maxTrimCount;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.ejb.containers.interceptors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import javax.interceptor.InvocationContext;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the opt-in dispatch of around-invoke interceptors and of the target
+ * methods of managed beans through method handles.
+ */
+public class MethodHandleDispatchTest extends TestCase {
+
+    private boolean savedDispatch;
+
+    public MethodHandleDispatchTest(String testName) {
+        super(testName);
+    }
+
+    protected void setUp() {
+        savedDispatch = InterceptorUtil.methodHandleDispatch;
+    }
+
+    protected void tearDown() {
+        InterceptorUtil.methodHandleDispatch = savedDispatch;
+    }
+
+    public void testSystemPropertyEnablesDispatch() throws Exception {
+        String saved = System.getProperty(InterceptorUtil.METHOD_HANDLE_DISPATCH_PROPERTY);
+        try {
+            System.clearProperty(InterceptorUtil.METHOD_HANDLE_DISPATCH_PROPERTY);
+            assertFalse(useMethodHandlesOfFreshCopy());
+
+            System.setProperty(InterceptorUtil.METHOD_HANDLE_DISPATCH_PROPERTY, "true");
+            assertTrue(useMethodHandlesOfFreshCopy());
+        } finally {
+            if (saved == null) {
+                System.clearProperty(InterceptorUtil.METHOD_HANDLE_DISPATCH_PROPERTY);
+            } else {
+                System.setProperty(InterceptorUtil.METHOD_HANDLE_DISPATCH_PROPERTY, saved);
+            }
+        }
+    }
+
+    public void testNoHandlesWhenDisabled() throws Exception {
+        InterceptorUtil.methodHandleDispatch = false;
+
+        assertNull(new AroundInvokeInterceptor(0, aroundMethod()).handle);
+        assertNull(InterceptorUtil.beanMethodHandle(beanMethod("add")));
+    }
+
+    public void testHandlesWhenEnabled() throws Exception {
+        InterceptorUtil.methodHandleDispatch = true;
+
+        assertNotNull(new AroundInvokeInterceptor(0, aroundMethod()).handle);
+        assertNotNull(new BeanAroundInvokeInterceptor(
+                Bean.class.getDeclaredMethod("aroundInvoke", InvocationContext.class)).handle);
+        assertNotNull(InterceptorUtil.beanMethodHandle(beanMethod("add")));
+        assertNull(InterceptorUtil.beanMethodHandle(
+                Bean.class.getMethod("twice", int.class)));
+    }
+
+    public void testChainWithHandles() throws Throwable {
+        InterceptorUtil.methodHandleDispatch = true;
+        checkChain();
+    }
+
+    public void testChainWithReflection() throws Throwable {
+        InterceptorUtil.methodHandleDispatch = false;
+        checkChain();
+    }
+
+    public void testArgumentsAreConvertedAsByReflection() throws Throwable {
+        InterceptorUtil.methodHandleDispatch = true;
+        Bean bean = new Bean();
+
+        // Integer to long widening, as done by Method.invoke()
+        assertEquals(5L, invoke(bean, beanMethod("add"), 2, 3));
+        // Void methods return null
+        assertNull(invoke(bean, beanMethod("clear")));
+        assertNull(invoke(bean, beanMethod("clear"), (Object[]) null));
+        assertEquals(2, bean.cleared);
+    }
+
+    public void testExceptionsAreNotWrapped() throws Throwable {
+        InterceptorUtil.methodHandleDispatch = true;
+        try {
+            invoke(new Bean(), beanMethod("fail"), "boom");
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    public void testParametersSetByInterceptorAreUsed() throws Throwable {
+        InterceptorUtil.methodHandleDispatch = true;
+        Method add = beanMethod("add");
+        AroundInvokeChainImpl chain = new AroundInvokeChainImpl(
+                new AroundInvokeInterceptor[] {
+                        new AroundInvokeInterceptor(0,
+                                ReplacingInterceptor.class.getMethod("replace",
+                                        InvocationContext.class)) },
+                add);
+        AroundInvokeInvocationContext ctx = new AroundInvokeInvocationContext(new Bean(),
+                new Object[] { new ReplacingInterceptor() }, chain, add,
+                new Object[] { 1, 1L });
+
+        assertEquals(30L, chain.invokeNext(0, ctx));
+    }
+
+    private void checkChain() throws Throwable {
+        Bean bean = new Bean();
+        CountingInterceptor interceptor = new CountingInterceptor();
+        Method add = beanMethod("add");
+        AroundInvokeChainImpl chain = new AroundInvokeChainImpl(
+                new AroundInvokeInterceptor[] {
+                        new AroundInvokeInterceptor(0, aroundMethod()),
+                        new BeanAroundInvokeInterceptor(Bean.class.getDeclaredMethod(
+                                "aroundInvoke", InvocationContext.class)) },
+                add);
+        AroundInvokeInvocationContext ctx = new AroundInvokeInvocationContext(bean,
+                new Object[] { interceptor }, chain, add, new Object[] { 4, 5L });
+
+        assertEquals(9L, chain.invokeNext(0, ctx));
+        assertEquals(1, interceptor.calls);
+        assertEquals(1, bean.intercepted);
+    }
+
+    private static Object invoke(Bean bean, Method method, Object... params)
+            throws Throwable {
+        AroundInvokeChainImpl chain = new AroundInvokeChainImpl(
+                new AroundInvokeInterceptor[0], method);
+        return chain.invokeNext(0, new AroundInvokeInvocationContext(bean,
+                new Object[0], chain, method, params));
+    }
+
+    private static Method aroundMethod() throws NoSuchMethodException {
+        return CountingInterceptor.class.getMethod("around", InvocationContext.class);
+    }
+
+    private static Method beanMethod(String name) throws NoSuchMethodException {
+        for (Method m : Bean.class.getMethods()) {
+            if (m.getName().equals(name)) {
+                return m;
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    /**
+     * Loads a new copy of InterceptorUtil so that the system property is
+     * read again, and returns the result of its useMethodHandles().
+     */
+    private static boolean useMethodHandlesOfFreshCopy() throws Exception {
+        Class<?> c = Class.forName(InterceptorUtil.class.getName(), true,
+                new IsolatingClassLoader(InterceptorUtil.class));
+        Method m = c.getDeclaredMethod("useMethodHandles");
+        m.setAccessible(true);
+        return (Boolean) m.invoke(null);
+    }
+
+    private static class IsolatingClassLoader extends ClassLoader {
+        private final Class<?> isolated;
+
+        IsolatingClassLoader(Class<?> isolated) {
+            super(isolated.getClassLoader());
+            this.isolated = isolated;
+        }
+
+        protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+            if (!name.equals(isolated.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> c = findLoadedClass(name);
+                if (c == null) {
+                    byte[] bytes = readClass(name);
+                    c = defineClass(name, bytes, 0, bytes.length);
+                }
+                return c;
+            }
+        }
+
+        private byte[] readClass(String name) throws ClassNotFoundException {
+            InputStream in = getParent().getResourceAsStream(
+                    name.replace('.', '/') + ".class");
+            if (in == null) {
+                throw new ClassNotFoundException(name);
+            }
+            try {
+                try {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, n);
+                    }
+                    return out.toByteArray();
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+
+    public static class Bean {
+        int intercepted;
+        int cleared;
+
+        public long add(int a, long b) {
+            return a + b;
+        }
+
+        public void clear() {
+            cleared++;
+        }
+
+        public void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+
+        public static int twice(int a) {
+            return 2 * a;
+        }
+
+        private Object aroundInvoke(InvocationContext ctx) throws Exception {
+            intercepted++;
+            return ctx.proceed();
+        }
+    }
+
+    public static class CountingInterceptor {
+        int calls;
+
+        public Object around(InvocationContext ctx) throws Exception {
+            calls++;
+            return ctx.proceed();
+        }
+    }
+
+    public static class ReplacingInterceptor {
+        public Object replace(InvocationContext ctx) throws Exception {
+            ctx.setParameters(new Object[] { 10, 20L });
+            return ctx.proceed();
+        }
+    }
+}
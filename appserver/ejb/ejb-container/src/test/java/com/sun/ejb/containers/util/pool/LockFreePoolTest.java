@@ -0,0 +1,234 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.ejb.containers.util.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.sun.ejb.monitoring.probes.EjbPoolProbeProvider;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the reuse of pooled objects and the removal of idle objects by the
+ * resize task of LockFreePool.
+ */
+public class LockFreePoolTest extends TestCase {
+
+    private static final int IDLE_TIMEOUT_SECONDS = 1;
+
+    private TestFactory factory;
+
+    protected void setUp() {
+        factory = new TestFactory();
+    }
+
+    public void testReturnedObjectIsReused() {
+        LockFreePool pool = newPool(10);
+        Object obj = pool.getObject(null);
+        pool.returnObject(obj);
+
+        assertSame(obj, pool.getObject(null));
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(0, pool.getNumBeansInPool());
+    }
+
+    public void testRemoveIdleKeepsRecentlyUsedObjects() throws Exception {
+        LockFreePool pool = newPool(10);
+        List<TestBean> beans = getObjects(pool, 6);
+        returnObjects(pool, beans);
+
+        waitIdleTimeout();
+        // two of the objects are used again; the first comes from the
+        // cache of this thread, the second from the top of the stack
+        List<TestBean> used = getObjects(pool, 2);
+        returnObjects(pool, used);
+
+        pool.doResize();
+
+        assertEquals(2, pool.getNumBeansInPool());
+        assertEquals(4, pool.getDestroyedCount());
+        assertEquals(4, factory.destroyed.size());
+        for (TestBean bean : used) {
+            assertFalse(bean.destroyed.get());
+        }
+        List<TestBean> remaining = getObjects(pool, 2);
+        assertTrue(remaining.containsAll(used));
+        assertEquals(6, pool.getCreatedCount());
+    }
+
+    public void testRemoveIdleRemovesAtMostResizeQuantity() throws Exception {
+        LockFreePool pool = newPool(2);
+        List<TestBean> beans = getObjects(pool, 6);
+        returnObjects(pool, beans);
+        waitIdleTimeout();
+
+        pool.doResize();
+        assertEquals(4, pool.getNumBeansInPool());
+        assertEquals(2, pool.getDestroyedCount());
+
+        pool.doResize();
+        assertEquals(2, pool.getNumBeansInPool());
+        assertEquals(4, pool.getDestroyedCount());
+    }
+
+    public void testRemoveIdleKeepsStackOrder() throws Exception {
+        LockFreePool pool = newPool(10);
+        List<TestBean> beans = getObjects(pool, 5);
+        returnObjects(pool, beans);
+        waitIdleTimeout();
+
+        // use four objects again: the first one goes back to the cache of
+        // this thread, the other ones on top of the idle object left
+        List<TestBean> used = getObjects(pool, 4);
+        returnObjects(pool, used);
+        List<TestBean> expected = new ArrayList<TestBean>();
+        expected.add(used.get(0));
+        expected.add(used.get(3));
+        expected.add(used.get(2));
+        expected.add(used.get(1));
+
+        pool.doResize();
+
+        assertEquals(4, pool.getNumBeansInPool());
+        assertEquals(1, pool.getDestroyedCount());
+        assertEquals(expected, getObjects(pool, 4));
+    }
+
+    public void testConcurrentGetDuringRemoveIdle() throws Exception {
+        final LockFreePool pool = newPool(Integer.MAX_VALUE / 2);
+        returnObjects(pool, getObjects(pool, 200));
+        waitIdleTimeout();
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final CountDownLatch started = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread() {
+                public void run() {
+                    started.countDown();
+                    try {
+                        while (!stop.get()) {
+                            TestBean bean = (TestBean) pool.getObject(null);
+                            assertFalse("destroyed bean handed out", bean.destroyed.get());
+                            assertTrue("bean handed out twice", bean.inUse.compareAndSet(false, true));
+                            Thread.yield();
+                            bean.inUse.set(false);
+                            pool.returnObject(bean);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        started.await();
+        for (int i = 0; i < 50; i++) {
+            pool.doResize();
+        }
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertFalse("bean destroyed while in use", factory.destroyedInUse);
+        assertTrue(pool.getDestroyedCount() > 0);
+        assertEquals(pool.getCreatedCount() - pool.getDestroyedCount(), pool.getNumBeansInPool());
+    }
+
+    private LockFreePool newPool(int resizeQuantity) {
+        LockFreePool pool = new LockFreePool(0, "test", factory, 0, resizeQuantity,
+                100000, IDLE_TIMEOUT_SECONDS, null);
+        pool.poolProbeNotifier = new EjbPoolProbeProvider();
+        return pool;
+    }
+
+    private static List<TestBean> getObjects(LockFreePool pool, int count) {
+        List<TestBean> beans = new ArrayList<TestBean>();
+        for (int i = 0; i < count; i++) {
+            beans.add((TestBean) pool.getObject(null));
+        }
+        return beans;
+    }
+
+    private static void returnObjects(LockFreePool pool, List<TestBean> beans) {
+        for (TestBean bean : beans) {
+            pool.returnObject(bean);
+        }
+    }
+
+    private static void waitIdleTimeout() throws InterruptedException {
+        Thread.sleep(IDLE_TIMEOUT_SECONDS * 1000L + 100);
+    }
+
+    static class TestBean {
+        final AtomicBoolean inUse = new AtomicBoolean();
+        final AtomicBoolean destroyed = new AtomicBoolean();
+    }
+
+    static class TestFactory implements ObjectFactory {
+        final List<TestBean> destroyed = new ArrayList<TestBean>();
+        volatile boolean destroyedInUse;
+
+        public Object create(Object param) {
+            return new TestBean();
+        }
+
+        public synchronized void destroy(Object object) {
+            TestBean bean = (TestBean) object;
+            if (bean.inUse.get()) {
+                destroyedInUse = true;
+            }
+            bean.destroyed.set(true);
+            destroyed.add(bean);
+        }
+    }
+}
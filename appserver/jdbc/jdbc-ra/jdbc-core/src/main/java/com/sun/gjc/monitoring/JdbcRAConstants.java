@@ -124,4 +124,19 @@ public interface JdbcRAConstants {
                 "executeQuery",
                 "executeUpdate"
             ));
+
+    /**
+     * List of method names whose execution time is recorded when sql
+     * latency tracking is enabled.
+     */
+    public static final List<String> latencyTrackedMethodNames =
+            Collections.unmodifiableList(
+            Arrays.asList(
+                "execute",
+                "executeQuery",
+                "executeUpdate",
+                "executeLargeUpdate",
+                "executeBatch",
+                "executeLargeBatch"
+            ));
 }
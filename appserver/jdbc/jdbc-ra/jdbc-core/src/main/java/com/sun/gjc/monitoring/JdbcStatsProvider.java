@@ -40,6 +40,7 @@
 
 package com.sun.gjc.monitoring;
 
+import com.sun.gjc.util.SQLLatencyTracker;
 import com.sun.gjc.util.SQLTrace;
 import com.sun.gjc.util.SQLTraceCache;
 import org.glassfish.external.probe.provider.annotations.ProbeListener;
@@ -81,8 +82,14 @@ public class JdbcStatsProvider {
             "NumPotentialStatementLeak", StatisticImpl.UNIT_COUNT,
             "The total number of potential Statement leaks");
 
+    private StringStatisticImpl sqlExecutionLatency = new StringStatisticImpl(
+            "SqlExecutionLatency", "List",
+            "Execution count, p50/p99/max latency and rows of the most frequently executed sql queries");
+
     private PoolInfo poolInfo;
     private SQLTraceCache sqlTraceCache;
+    private SQLLatencyTracker sqlLatencyTracker;
+    private int numLatencyQueriesToReport;
 
     public JdbcStatsProvider(String poolName, String appName, String moduleName, int sqlTraceCacheSize,
             long timeToKeepQueries) {
@@ -189,11 +196,32 @@ public class JdbcStatsProvider {
         return freqUsedSqlQueries;
     }
 
+    @ManagedAttribute(id="sqlexecutionlatency")
+    public StringStatistic getSqlExecutionLatency() {
+        if(sqlLatencyTracker != null) {
+            sqlExecutionLatency.setCurrent(
+                    sqlLatencyTracker.getLatencyReport(numLatencyQueriesToReport));
+        }
+        return sqlExecutionLatency;
+    }
+
     @ManagedAttribute(id="numpotentialstatementleak")
     public CountStatistic getNumPotentialStatementLeak() {
         return numPotentialStatementLeak;
     }
     
+    /**
+     * Set the tracker whose sql latency histograms are reported by this
+     * stats provider.
+     * @param sqlLatencyTracker
+     * @param numQueriesToReport maximum number of queries reported
+     */
+    public void setSqlLatencyTracker(SQLLatencyTracker sqlLatencyTracker,
+            int numQueriesToReport) {
+        this.sqlLatencyTracker = sqlLatencyTracker;
+        this.numLatencyQueriesToReport = numQueriesToReport;
+    }
+
     /**
      * Get the SQLTraceCache associated with this stats provider.
      * @return SQLTraceCache
@@ -45,6 +45,8 @@ import com.sun.enterprise.util.i18n.StringManager;
 import com.sun.gjc.common.DataSourceObjectBuilder;
 import com.sun.gjc.common.DataSourceSpec;
 import com.sun.gjc.monitoring.JdbcStatsProvider;
+import com.sun.gjc.spi.base.datastructure.StatementMetadataCache;
+import com.sun.gjc.util.SQLLatencyTracker;
 import com.sun.gjc.util.SQLTraceDelegator;
 import com.sun.gjc.util.SecurityUtils;
 import com.sun.logging.LogDomains;
@@ -109,6 +111,9 @@ public abstract class ManagedConnectionFactoryImpl implements javax.resource.spi
     private long statementLeakTimeout = 0;
     private boolean statementLeakReclaim = false;
 
+    //Sql metadata shared by the statement caches of the pool's connections
+    private final StatementMetadataCache statementMetadataCache = new StatementMetadataCache();
+
     //Jdbc Stats provider that is created
     private JdbcStatsProvider jdbcStatsProvider = null;
 
@@ -596,6 +601,24 @@ public abstract class ManagedConnectionFactoryImpl implements javax.resource.spi
                 }
             }
         }
+        detectSqlLatencyTracking();
+    }
+
+    /**
+     * Enables recording of the sql execution latencies when the
+     * sql-latency-tracking property is set. Statements are profiled through
+     * the sql trace delegator, which is created if no sql trace listener is
+     * configured.
+     */
+    private void detectSqlLatencyTracking() {
+        if (Boolean.valueOf(getSqlLatencyTracking())) {
+            if (sqlTraceDelegator == null) {
+                sqlTraceDelegator = new SQLTraceDelegator(getPoolName(), getApplicationName(), getModuleName());
+            }
+            if (sqlTraceDelegator.getLatencyTracker() == null) {
+                sqlTraceDelegator.setLatencyTracker(new SQLLatencyTracker(getPoolName()));
+            }
+        }
     }
 
 
@@ -1082,6 +1105,14 @@ public abstract class ManagedConnectionFactoryImpl implements javax.resource.spi
         }
     }
 
+    /**
+     * Returns the sql metadata cache shared by the statement caches of all
+     * connections created by this factory, ie. of one pool.
+     */
+    StatementMetadataCache getStatementMetadataCache() {
+        return statementMetadataCache;
+    }
+
     public String getNumberOfTopQueriesToReport() {
         return spec.getDetail(DataSourceSpec.NUMBEROFTOPQUERIESTOREPORT);
     }
@@ -1141,6 +1172,17 @@ public abstract class ManagedConnectionFactoryImpl implements javax.resource.spi
         }
     }
     
+    public String getSqlLatencyTracking() {
+        return spec.getDetail(DataSourceSpec.SQLLATENCYTRACKING);
+    }
+
+    public void setSqlLatencyTracking(String sqlLatencyTracking) {
+        if(sqlLatencyTracking != null) {
+            spec.setDetail(DataSourceSpec.SQLLATENCYTRACKING, sqlLatencyTracking);
+            detectSqlLatencyTracking();
+        }
+    }
+
     /**
      * Sets the description.
      *
@@ -1404,11 +1446,22 @@ public abstract class ManagedConnectionFactoryImpl implements javax.resource.spi
         if(_logger.isLoggable(Level.FINEST)) {
             _logger.finest("MCF Created");
         }
+        SQLLatencyTracker latencyTracker = null;
+        if (sqlTraceDelegator != null) {
+            latencyTracker = sqlTraceDelegator.getLatencyTracker();
+        }
         if (statementCacheSize > 0 ||
                 (sqlTraceListeners != null && !sqlTraceListeners.equals("null")) ||
-                statementLeakTimeout > 0) {
+                statementLeakTimeout > 0 || latencyTracker != null) {
             jdbcStatsProvider = new JdbcStatsProvider(getPoolName(), getApplicationName(), getModuleName(),
                     sqlTraceCacheSize, timeToKeepQueries);
+            if (latencyTracker != null) {
+                int numQueriesToReport = 10;
+                if (getNumberOfTopQueriesToReport() != null && !getNumberOfTopQueriesToReport().equals("null")) {
+                    numQueriesToReport = Integer.parseInt(getNumberOfTopQueriesToReport());
+                }
+                jdbcStatsProvider.setSqlLatencyTracker(latencyTracker, numQueriesToReport);
+            }
             //get the poolname and use it to initialize the stats provider n register
             StatsProviderManager.register(
                     "jdbc-connection-pool",
@@ -248,7 +248,8 @@ public class ManagedConnectionImpl implements javax.resource.spi.ManagedConnecti
         cacheType = statementCacheType;
         if (cacheSize > 0) {
             try {
-                statementCache = CacheFactory.getDataStructure(poolInfo, cacheType, cacheSize);
+                statementCache = CacheFactory.getDataStructure(poolInfo, cacheType, cacheSize,
+                        ((ManagedConnectionFactoryImpl) mcf).getStatementMetadataCache());
                 statementCaching = true;
             } catch (ResourceException ex) {
                 _logger.severe(ex.getMessage());
@@ -66,7 +66,7 @@ public class CacheFactory {
             StringManager.getManager(DataSourceObjectBuilder.class);
 
     public static Cache getDataStructure(PoolInfo poolInfo, String cacheType,
-            int maxSize) throws ResourceException {
+            int maxSize, StatementMetadataCache metadataCache) throws ResourceException {
         Cache stmtCacheStructure;
 
         if(cacheType == null || cacheType.trim().equals("")) {
@@ -75,6 +75,13 @@ public class CacheFactory {
         } else if(cacheType.equals("FIXED")) {
             debug("Initializing FIXED Cache Implementation");
             stmtCacheStructure = new FIXEDCacheImpl(poolInfo, maxSize);
+        } else if(cacheType.equals("CONCURRENT")) {
+            debug("Initializing CONCURRENT Cache Implementation");
+            stmtCacheStructure = new ConcurrentCacheImpl(poolInfo, maxSize, null);
+        } else if(cacheType.equals("CONCURRENT-SHARED")) {
+            debug("Initializing CONCURRENT Cache Implementation with shared metadata");
+            stmtCacheStructure = new ConcurrentCacheImpl(poolInfo, maxSize,
+                    metadataCache);
         } else { // consider the value of cacheType as a className
             stmtCacheStructure = initCustomCacheStructurePrivileged(cacheType,
                     maxSize);
@@ -0,0 +1,302 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.gjc.spi.base.datastructure;
+
+import com.sun.gjc.monitoring.StatementCacheProbeProvider;
+import com.sun.gjc.spi.base.CacheObjectKey;
+import com.sun.gjc.spi.base.PreparedStatementWrapper;
+import com.sun.logging.LogDomains;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Statement cache implementation that does not need external synchronization.
+ * <p/>
+ * Entries are kept in a <code>ConcurrentHashMap</code> and are weighted by the
+ * length of their sql and the number of parameters, so that a few very large
+ * statements cannot hold on to as much driver memory as many small ones. The
+ * maximum cache size is the total weight allowed; a statement with short sql
+ * and few parameters weighs 1, hence for typical workloads it behaves like a
+ * cache bounded by the number of statements.
+ * <p/>
+ * Eviction uses the second chance (clock) policy : an entry that was hit since
+ * the last scan, or that is currently in use, is skipped once.
+ */
+public class ConcurrentCacheImpl implements Cache {
+
+    /**
+     * Number of sql characters that add one unit of weight
+     */
+    private static final int SQL_LENGTH_PER_WEIGHT = 512;
+    /**
+     * Number of parameters that add one unit of weight
+     */
+    private static final int PARAMETERS_PER_WEIGHT = 16;
+
+    protected final static Logger _logger =
+            LogDomains.getLogger(ConcurrentCacheImpl.class, LogDomains.RSR_LOGGER);
+
+    private final ConcurrentHashMap<CacheObjectKey, WeightedEntry> entries;
+    private final AtomicInteger weight = new AtomicInteger();
+    private final int maxWeight;
+    private final PoolInfo poolInfo;
+    private final StatementMetadataCache metadataCache;
+    private StatementCacheProbeProvider probeProvider = null;
+
+    /**
+     * @param poolInfo pool to which the statement cache belongs
+     * @param maxSize maximum total weight of the cached statements
+     * @param metadataCache pool wide metadata cache, or null if the metadata
+     * is to be computed by this cache
+     */
+    public ConcurrentCacheImpl(PoolInfo poolInfo, int maxSize,
+            StatementMetadataCache metadataCache) {
+        this.poolInfo = poolInfo;
+        this.maxWeight = maxSize;
+        this.metadataCache = metadataCache;
+        entries = new ConcurrentHashMap<CacheObjectKey, WeightedEntry>(maxSize);
+        try {
+            probeProvider = new StatementCacheProbeProvider();
+        } catch(Exception ex) {
+            _logger.log(Level.FINE, "Unable to create statement cache probe provider", ex);
+        }
+    }
+
+    public Object checkAndUpdateCache(CacheObjectKey key) {
+        Object result = null;
+        WeightedEntry entry = entries.get(key);
+        if (entry != null) {
+            entry.referenced = true;
+            result = entry.entryObj;
+            if (_logger.isLoggable(Level.FINEST)) {
+                _logger.finest("Cache Hit");
+            }
+            if (probeProvider != null) {
+                probeProvider.statementCacheHitEvent(poolInfo.getName(),
+                        poolInfo.getApplicationName(), poolInfo.getModuleName());
+            }
+        } else {
+            if (_logger.isLoggable(Level.FINEST)) {
+                _logger.finest("Cache Miss");
+            }
+            if (probeProvider != null) {
+                probeProvider.statementCacheMissEvent(poolInfo.getName(),
+                        poolInfo.getApplicationName(), poolInfo.getModuleName());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add the key and entry value into the cache, evicting other entries
+     * until the total weight fits in the maximum cache size. A statement that
+     * is heavier than the whole cache is not cached.
+     * @param key key that contains the sql string and its type (PS/CS)
+     * @param o entry that is the wrapper of PreparedStatement or
+     * CallableStatement
+     * @param force If the already existing key is to be overwritten
+     */
+    public void addToCache(CacheObjectKey key, Object o, boolean force) {
+        WeightedEntry entry = new WeightedEntry(o, weigh(key));
+        if (entry.weight > maxWeight) {
+            uncache(o);
+            return;
+        }
+        if (force) {
+            WeightedEntry previous = entries.put(key, entry);
+            if (previous != null) {
+                weight.addAndGet(-previous.weight);
+                uncache(previous.entryObj);
+            }
+        } else if (entries.putIfAbsent(key, entry) != null) {
+            //Another statement for the same key was cached concurrently
+            uncache(o);
+            return;
+        }
+        weight.addAndGet(entry.weight);
+        while (weight.get() > maxWeight) {
+            if (!evict()) {
+                break;
+            }
+        }
+    }
+
+    public void clearCache() {
+        if (_logger.isLoggable(Level.FINE)) {
+            _logger.fine("clearing objects in cache");
+        }
+        entries.clear();
+        weight.set(0);
+    }
+
+    public void flushCache() {
+        Iterator<Map.Entry<CacheObjectKey, WeightedEntry>> iterator =
+                entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<CacheObjectKey, WeightedEntry> tuple = iterator.next();
+            remove(tuple.getKey(), tuple.getValue());
+        }
+    }
+
+    public void purge() {
+        evict();
+    }
+
+    // Used only for purging the bad statements.
+    public void purge(Object obj) {
+        for (Map.Entry<CacheObjectKey, WeightedEntry> tuple : entries.entrySet()) {
+            if (tuple.getValue().entryObj == obj) {
+                if (_logger.isLoggable(Level.FINEST)) {
+                    _logger.log(Level.FINEST, "Purging an entry from cache");
+                }
+                remove(tuple.getKey(), tuple.getValue());
+                break;
+            }
+        }
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxWeight;
+    }
+
+    /**
+     * Total weight of the statements currently cached.
+     * @return int weight
+     */
+    public int getWeight() {
+        return weight.get();
+    }
+
+    public boolean isSynchronized() {
+        return true;
+    }
+
+    /**
+     * Removes one entry chosen by the second chance policy. Entries that
+     * were referenced or are busy get their reference bit cleared on the
+     * first pass and become candidates on the second one.
+     * @return true if an entry was removed
+     */
+    private boolean evict() {
+        for (int pass = 0; pass < 2; pass++) {
+            for (Map.Entry<CacheObjectKey, WeightedEntry> tuple : entries.entrySet()) {
+                WeightedEntry entry = tuple.getValue();
+                if (pass == 0 && (entry.referenced || isBusy(entry.entryObj))) {
+                    entry.referenced = false;
+                    continue;
+                }
+                if (remove(tuple.getKey(), entry)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean remove(CacheObjectKey key, WeightedEntry entry) {
+        if (!entries.remove(key, entry)) {
+            return false;
+        }
+        weight.addAndGet(-entry.weight);
+        uncache(entry.entryObj);
+        return true;
+    }
+
+    private int weigh(CacheObjectKey key) {
+        StatementMetadataCache.StatementMetadata metadata;
+        if (metadataCache != null) {
+            metadata = metadataCache.getMetadata(key);
+        } else {
+            metadata = StatementMetadataCache.StatementMetadata.parse(key.getSql());
+        }
+        return 1 + metadata.getSqlLength() / SQL_LENGTH_PER_WEIGHT
+                + metadata.getParameterCount() / PARAMETERS_PER_WEIGHT;
+    }
+
+    private static boolean isBusy(Object o) {
+        return o instanceof PreparedStatementWrapper
+                && ((PreparedStatementWrapper) o).isBusy();
+    }
+
+    /**
+     * Marks the statement as no longer cached and closes it unless it is in
+     * use, in which case it is closed when the application closes it.
+     */
+    private static void uncache(Object o) {
+        if (o instanceof PreparedStatementWrapper) {
+            PreparedStatementWrapper ps = (PreparedStatementWrapper) o;
+            ps.setCached(false);
+            if (!ps.isBusy()) {
+                try {
+                    ps.close();
+                } catch (SQLException e) {
+                    //ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Cache entry along with its weight and reference bit.
+     */
+    private static class WeightedEntry {
+        private final Object entryObj;
+        private final int weight;
+        private volatile boolean referenced;
+
+        private WeightedEntry(Object o, int weight) {
+            this.entryObj = o;
+            this.weight = weight;
+        }
+    }
+}
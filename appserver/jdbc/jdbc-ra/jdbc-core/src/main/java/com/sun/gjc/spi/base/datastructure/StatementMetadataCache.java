@@ -0,0 +1,142 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.gjc.spi.base.datastructure;
+
+import com.sun.gjc.spi.base.CacheObjectKey;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pool wide cache of the metadata derived from the sql of a cached statement.
+ * <p/>
+ * The metadata depends only on the sql and the statement type, so it can be
+ * shared by the statement caches of all the physical connections of a pool
+ * instead of being recomputed by each of them. The number of entries is
+ * bounded; once the bound is reached metadata is computed but not retained.
+ * <p/>
+ * There is one instance per pool, held by the pool's
+ * <code>ManagedConnectionFactoryImpl</code>, so the cache goes away together
+ * with the pool.
+ */
+public class StatementMetadataCache {
+
+    /**
+     * Upper bound on the number of entries retained per pool
+     */
+    private static final int MAX_ENTRIES = 4096;
+
+    private final ConcurrentMap<CacheObjectKey, StatementMetadata> metadata =
+            new ConcurrentHashMap<CacheObjectKey, StatementMetadata>();
+
+    /**
+     * Returns the metadata for the statement identified by <code>key</code>,
+     * parsing the sql if it is not yet known.
+     * @param key key that contains the sql string and its type (PS/CS)
+     * @return StatementMetadata
+     */
+    public StatementMetadata getMetadata(CacheObjectKey key) {
+        StatementMetadata result = metadata.get(key);
+        if (result == null) {
+            result = StatementMetadata.parse(key.getSql());
+            if (metadata.size() < MAX_ENTRIES) {
+                StatementMetadata existing = metadata.putIfAbsent(key, result);
+                if (existing != null) {
+                    result = existing;
+                }
+            }
+        }
+        return result;
+    }
+
+    public int getSize() {
+        return metadata.size();
+    }
+
+    /**
+     * Metadata derived from the sql of a statement.
+     */
+    public static class StatementMetadata {
+        private final int sqlLength;
+        private final int parameterCount;
+
+        public StatementMetadata(int sqlLength, int parameterCount) {
+            this.sqlLength = sqlLength;
+            this.parameterCount = parameterCount;
+        }
+
+        /**
+         * Parses the sql and counts the parameter markers that are not part
+         * of a quoted literal or identifier.
+         * @param sql statement text
+         * @return StatementMetadata
+         */
+        public static StatementMetadata parse(String sql) {
+            if (sql == null) {
+                return new StatementMetadata(0, 0);
+            }
+            int parameterCount = 0;
+            char quote = 0;
+            for (int i = 0; i < sql.length(); i++) {
+                char c = sql.charAt(i);
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '\'' || c == '"') {
+                    quote = c;
+                } else if (c == '?') {
+                    parameterCount++;
+                }
+            }
+            return new StatementMetadata(sql.length(), parameterCount);
+        }
+
+        public int getSqlLength() {
+            return sqlLength;
+        }
+
+        public int getParameterCount() {
+            return parameterCount;
+        }
+    }
+}
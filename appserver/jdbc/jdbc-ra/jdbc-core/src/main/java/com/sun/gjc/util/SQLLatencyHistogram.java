@@ -0,0 +1,168 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.gjc.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram of the executions of one (normalized) sql statement.
+ * <p/>
+ * Latencies are recorded in microseconds into log-linear buckets in the
+ * manner of HdrHistogram : every power of two is divided into 16 linear
+ * sub buckets, which bounds the relative error of a reported value to about
+ * 6%. The buckets are preallocated, so recording a value does not allocate
+ * and does not take a lock.
+ */
+public class SQLLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    /**
+     * Highest trackable latency, 2^36 microseconds (about 19 hours).
+     * Larger values are recorded as this value.
+     */
+    private static final long HIGHEST_TRACKABLE_VALUE = (1L << 36) - 1;
+    private static final int BUCKET_COUNT =
+            indexOf(HIGHEST_TRACKABLE_VALUE) + 1;
+
+    private final String sql;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalRows = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public SQLLatencyHistogram(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Records one execution of the statement.
+     * @param elapsedNanos time taken by the execution
+     * @param rows rows fetched or updated by the execution, -1 if not known
+     */
+    public void recordExecution(long elapsedNanos, long rows) {
+        long value = Math.min(Math.max(elapsedNanos / 1000, 0), HIGHEST_TRACKABLE_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        if (rows > 0) {
+            totalRows.add(rows);
+        }
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * Records rows fetched after the execution has been recorded, when the
+     * rows of a result set are known only once it has been read.
+     * @param rows number of rows fetched
+     */
+    public void recordRows(long rows) {
+        if (rows > 0) {
+            totalRows.add(rows);
+        }
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getTotalRows() {
+        return totalRows.sum();
+    }
+
+    /**
+     * @return highest latency recorded, in microseconds
+     */
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    /**
+     * Returns the latency at or below which the given percentage of the
+     * executions completed. The value returned is the upper bound of the
+     * bucket holding the percentile, capped by the highest recorded value.
+     * @param percentile percentage between 0 and 100
+     * @return latency in microseconds
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    private static int indexOf(long value) {
+        int bucket = Math.max(0, (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1));
+        int subBucket = (int) (value >>> bucket);
+        return bucket * SUB_BUCKET_HALF_COUNT + subBucket;
+    }
+
+    private static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int bucket = index / SUB_BUCKET_HALF_COUNT - 1;
+        long subBucket = index - bucket * SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << bucket) - 1;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.gjc.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maintains the latency histograms of the sql statements executed through
+ * a connection pool. Statements are grouped by their normalized text, in
+ * which literals are replaced by parameter markers and white space is
+ * collapsed, so that statements differing only by literal values share a
+ * histogram.
+ * <p/>
+ * The sql strings seen are mapped directly to their histogram, so the
+ * normalization is done only the first time a string is seen and recording
+ * an execution of a known statement does not allocate. The sql strings are
+ * kept in a bounded cache that evicts the least recently used ones, so that
+ * strings executed often stay cached when many distinct strings are seen,
+ * for instance statements built with literals. The number of distinct
+ * statements tracked is bounded too; statements seen after the bound is
+ * reached are recorded in a shared overflow histogram.
+ */
+public class SQLLatencyTracker {
+
+    private static final int MAX_STATEMENTS = 1000;
+    static final int MAX_SQL_STRINGS = 4 * MAX_STATEMENTS;
+    //the sql string cache is split in segments, each with its own lock
+    private static final int SQL_STRING_SEGMENTS = 16;
+    private static final String OTHER_STATEMENTS = "<other statements>";
+    private static final String LINE_BREAK = "%%%EOL%%%";
+
+    private final String poolName;
+    private final SqlStringSegment[] sqlStrings = new SqlStringSegment[SQL_STRING_SEGMENTS];
+    private final ConcurrentMap<String, SQLLatencyHistogram> statements =
+            new ConcurrentHashMap<String, SQLLatencyHistogram>();
+    private final SQLLatencyHistogram otherStatements =
+            new SQLLatencyHistogram(OTHER_STATEMENTS);
+
+    public SQLLatencyTracker(String poolName) {
+        this.poolName = poolName;
+        for (int i = 0; i < SQL_STRING_SEGMENTS; i++) {
+            sqlStrings[i] = new SqlStringSegment(MAX_SQL_STRINGS / SQL_STRING_SEGMENTS);
+        }
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * Returns the histogram in which the executions of the given sql are
+     * recorded.
+     * @param sql statement text as passed by the application
+     * @return SQLLatencyHistogram
+     */
+    public SQLLatencyHistogram getHistogram(String sql) {
+        SqlStringSegment segment = segmentFor(sql);
+        SQLLatencyHistogram histogram;
+        synchronized (segment) {
+            histogram = segment.get(sql);
+        }
+        if (histogram != null) {
+            return histogram;
+        }
+        String normalized = normalize(sql);
+        histogram = statements.get(normalized);
+        if (histogram == null) {
+            if (statements.size() >= MAX_STATEMENTS) {
+                histogram = otherStatements;
+            } else {
+                histogram = new SQLLatencyHistogram(normalized);
+                SQLLatencyHistogram existing = statements.putIfAbsent(normalized, histogram);
+                if (existing != null) {
+                    histogram = existing;
+                }
+            }
+        }
+        synchronized (segment) {
+            segment.put(sql, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * @return number of sql strings currently mapped to their histogram
+     */
+    int getCachedSqlStringCount() {
+        int count = 0;
+        for (SqlStringSegment segment : sqlStrings) {
+            synchronized (segment) {
+                count += segment.size();
+            }
+        }
+        return count;
+    }
+
+    boolean isCached(String sql) {
+        SqlStringSegment segment = segmentFor(sql);
+        synchronized (segment) {
+            return segment.containsKey(sql);
+        }
+    }
+
+    private SqlStringSegment segmentFor(String sql) {
+        int h = sql.hashCode();
+        h ^= (h >>> 16);
+        return sqlStrings[h & (SQL_STRING_SEGMENTS - 1)];
+    }
+
+    /**
+     * Records one execution of the given sql.
+     * @param sql statement text
+     * @param elapsedNanos time taken by the execution
+     * @param rows rows updated by the execution, -1 if not known
+     */
+    public void recordExecution(String sql, long elapsedNanos, long rows) {
+        getHistogram(sql).recordExecution(elapsedNanos, rows);
+    }
+
+    /**
+     * Returns the String representation of the latency statistics of the
+     * most frequently executed statements, one statement per line. Latencies
+     * are in milliseconds.
+     *
+     * @param numQueriesToReport maximum number of statements reported
+     * @return string representation of the statement latencies
+     */
+    public String getLatencyReport(int numQueriesToReport) {
+        List<SQLLatencyHistogram> histograms =
+                new ArrayList<SQLLatencyHistogram>(statements.values());
+        if (otherStatements.getCount() > 0) {
+            histograms.add(otherStatements);
+        }
+        final int size = histograms.size();
+        final long[] counts = new long[size];
+        for (int i = 0; i < size; i++) {
+            counts[i] = histograms.get(i).getCount();
+        }
+        List<Integer> order = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++) {
+            order.add(i);
+        }
+        //most frequently executed first, using the counts read above as they
+        //keep changing while the report is built
+        Collections.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Long.compare(counts[b], counts[a]);
+            }
+        });
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(size, numQueriesToReport); i++) {
+            SQLLatencyHistogram histogram = histograms.get(order.get(i));
+            sb.append(LINE_BREAK);
+            sb.append("count=").append(histogram.getCount());
+            sb.append(" p50=").append(toMillis(histogram.getValueAtPercentile(50.0)));
+            sb.append(" p99=").append(toMillis(histogram.getValueAtPercentile(99.0)));
+            sb.append(" max=").append(toMillis(histogram.getMax()));
+            sb.append(" rows=").append(histogram.getTotalRows());
+            sb.append(" sql=").append(histogram.getSql());
+        }
+        return sb.toString();
+    }
+
+    private static String toMillis(long micros) {
+        return String.format("%.3fms", micros / 1000.0);
+    }
+
+    /**
+     * Replaces the string and numeric literals of the sql with parameter
+     * markers and collapses white space.
+     * @param sql statement text
+     * @return normalized statement text
+     */
+    static String normalize(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                //string literal, '' is an escaped quote
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                sb.append('?');
+            } else if (c == '"') {
+                //quoted identifier, kept as is
+                int end = sql.indexOf('"', i + 1);
+                end = end < 0 ? length : end + 1;
+                sb.append(sql, i, end);
+                i = end;
+            } else if (Character.isDigit(c) && !isPartOfIdentifier(sb)) {
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i))
+                        || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                sb.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (sb.length() > 0 && i < length) {
+                    sb.append(' ');
+                }
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isPartOfIdentifier(StringBuilder sb) {
+        if (sb.length() == 0) {
+            return false;
+        }
+        char previous = sb.charAt(sb.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_'
+                || previous == '$' || previous == '#';
+    }
+
+    /**
+     * Part of the sql string cache, in least recently used order.
+     */
+    private static class SqlStringSegment extends LinkedHashMap<String, SQLLatencyHistogram> {
+        private final int maxSize;
+
+        SqlStringSegment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SQLLatencyHistogram> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
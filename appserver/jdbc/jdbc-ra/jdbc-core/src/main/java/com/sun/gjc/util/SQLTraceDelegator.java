@@ -74,6 +74,7 @@ public class SQLTraceDelegator implements SQLTraceListener {
     private String appName;
     private String moduleName;
     private SQLTraceProbeProvider probeProvider = null;
+    private SQLLatencyTracker latencyTracker = null;
 
     public SQLTraceProbeProvider getProbeProvider() {
         return probeProvider;
@@ -86,6 +87,71 @@ public class SQLTraceDelegator implements SQLTraceListener {
         probeProvider = new SQLTraceProbeProvider();
     }
 
+    /**
+     * Enable recording of the sql execution latencies in the given tracker.
+     * @param latencyTracker
+     */
+    public void setLatencyTracker(SQLLatencyTracker latencyTracker) {
+        this.latencyTracker = latencyTracker;
+    }
+
+    public SQLLatencyTracker getLatencyTracker() {
+        return latencyTracker;
+    }
+
+    /**
+     * Check if the execution time of the given method is to be recorded.
+     * @param methodName name of the <code>Statement</code> method invoked
+     * @return true if latency tracking is enabled and the method executes sql
+     */
+    public boolean isLatencyTracked(String methodName) {
+        return latencyTracker != null &&
+                JdbcRAConstants.latencyTrackedMethodNames.contains(methodName);
+    }
+
+    /**
+     * Check if the sql trace listeners and the sql trace monitoring are to
+     * be notified of the calls made on statements.
+     * @return true if sql trace listeners are configured for the pool
+     */
+    public boolean isTraceEnabled() {
+        return sqlTraceListenersList != null;
+    }
+
+    /**
+     * Record the execution of a sql statement in the latency histograms.
+     * Update counts returned by the execution are recorded as the rows of
+     * the statement; when the execution returns a <code>ResultSet</code>, the
+     * caller is expected to count the rows fetched from it and record them
+     * in the returned histogram.
+     *
+     * @param sql statement executed
+     * @param elapsedNanos time taken by the execution
+     * @param result value returned by the execution
+     * @return the histogram of the statement, or null if it is not tracked
+     */
+    public SQLLatencyHistogram sqlExecuted(String sql, long elapsedNanos, Object result) {
+        if (latencyTracker == null || sql == null) {
+            return null;
+        }
+        SQLLatencyHistogram histogram = latencyTracker.getHistogram(sql);
+        long rows = -1;
+        if (result instanceof Integer) {
+            rows = (Integer) result;
+        } else if (result instanceof Long) {
+            rows = (Long) result;
+        } else if (result instanceof int[]) {
+            rows = 0;
+            for (int count : (int[]) result) {
+                if (count > 0) {
+                    rows += count;
+                }
+            }
+        }
+        histogram.recordExecution(elapsedNanos, rows);
+        return histogram;
+    }
+
     /**
      * Add a listener to the list of sql trace listeners maintained by 
      * this registry.
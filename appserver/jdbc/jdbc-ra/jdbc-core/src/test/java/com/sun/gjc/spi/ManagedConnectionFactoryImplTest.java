@@ -0,0 +1,113 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.gjc.spi;
+
+import java.sql.ResultSet;
+
+import com.sun.gjc.spi.base.CacheObjectKey;
+import com.sun.gjc.spi.base.datastructure.Cache;
+import com.sun.gjc.spi.base.datastructure.CacheFactory;
+import com.sun.gjc.spi.base.datastructure.StatementMetadataCache;
+import org.glassfish.resourcebase.resources.api.PoolInfo;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the statement caches of the connections of a pool share the
+ * statement metadata held by the pool's connection factory.
+ */
+public class ManagedConnectionFactoryImplTest {
+
+    private static final String SQL = "select a from t where b = ?";
+
+    @Test
+    public void testEachPoolOwnsOneMetadataCache() {
+        ManagedConnectionFactoryImpl mcf = new DSManagedConnectionFactory();
+        StatementMetadataCache metadataCache = mcf.getStatementMetadataCache();
+
+        assertNotNull(metadataCache);
+        assertSame(metadataCache, mcf.getStatementMetadataCache());
+        assertNotSame(metadataCache,
+                new DSManagedConnectionFactory().getStatementMetadataCache());
+    }
+
+    @Test
+    public void testSharedStatementCachesReuseMetadata() throws Exception {
+        ManagedConnectionFactoryImpl mcf = new DSManagedConnectionFactory();
+        StatementMetadataCache metadataCache = mcf.getStatementMetadataCache();
+        PoolInfo poolInfo = new PoolInfo("pool");
+
+        // one statement cache per physical connection
+        Cache first = CacheFactory.getDataStructure(poolInfo, "CONCURRENT-SHARED",
+                100, metadataCache);
+        Cache second = CacheFactory.getDataStructure(poolInfo, "CONCURRENT-SHARED",
+                100, metadataCache);
+        first.addToCache(key(SQL), new Object(), false);
+        StatementMetadataCache.StatementMetadata metadata =
+                metadataCache.getMetadata(key(SQL));
+        second.addToCache(key(SQL), new Object(), false);
+
+        assertEquals(1, metadataCache.getSize());
+        assertSame(metadata, metadataCache.getMetadata(key(SQL)));
+        assertEquals(1, first.getSize());
+        assertEquals(1, second.getSize());
+    }
+
+    @Test
+    public void testUnsharedStatementCacheLeavesMetadataCacheEmpty() throws Exception {
+        ManagedConnectionFactoryImpl mcf = new DSManagedConnectionFactory();
+        StatementMetadataCache metadataCache = mcf.getStatementMetadataCache();
+
+        Cache cache = CacheFactory.getDataStructure(new PoolInfo("pool"), "CONCURRENT",
+                100, metadataCache);
+        cache.addToCache(key(SQL), new Object(), false);
+
+        assertEquals(1, cache.getSize());
+        assertEquals(0, metadataCache.getSize());
+    }
+
+    private static CacheObjectKey key(String sql) {
+        return new CacheObjectKey(sql, CacheObjectKey.PREPARED_STATEMENT,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+}
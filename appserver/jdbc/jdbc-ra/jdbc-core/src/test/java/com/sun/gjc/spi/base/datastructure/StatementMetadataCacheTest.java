@@ -0,0 +1,102 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.gjc.spi.base.datastructure;
+
+import java.sql.ResultSet;
+
+import com.sun.gjc.spi.base.CacheObjectKey;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the parsing and the reuse of the statement metadata shared by the
+ * statement caches of a pool.
+ */
+public class StatementMetadataCacheTest {
+
+    @Test
+    public void testParseCountsParameterMarkers() {
+        StatementMetadataCache.StatementMetadata metadata =
+                StatementMetadataCache.StatementMetadata.parse(
+                        "select * from t where a = ? and b = '?' and \"c?\" = ?");
+        assertEquals(2, metadata.getParameterCount());
+        assertEquals(52, metadata.getSqlLength());
+    }
+
+    @Test
+    public void testParseNullSql() {
+        StatementMetadataCache.StatementMetadata metadata =
+                StatementMetadataCache.StatementMetadata.parse(null);
+        assertEquals(0, metadata.getParameterCount());
+        assertEquals(0, metadata.getSqlLength());
+    }
+
+    @Test
+    public void testMetadataIsReused() {
+        StatementMetadataCache cache = new StatementMetadataCache();
+        StatementMetadataCache.StatementMetadata first =
+                cache.getMetadata(key("select a from t where b = ?"));
+        StatementMetadataCache.StatementMetadata second =
+                cache.getMetadata(key("select a from t where b = ?"));
+
+        assertSame(first, second);
+        assertEquals(1, cache.getSize());
+        assertNotSame(first, cache.getMetadata(key("select b from t")));
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void testNumberOfEntriesIsBounded() {
+        StatementMetadataCache cache = new StatementMetadataCache();
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(1, cache.getMetadata(key("select a from t" + i + " where b = ?"))
+                    .getParameterCount());
+        }
+        assertEquals(4096, cache.getSize());
+    }
+
+    static CacheObjectKey key(String sql) {
+        return new CacheObjectKey(sql, CacheObjectKey.PREPARED_STATEMENT,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+}
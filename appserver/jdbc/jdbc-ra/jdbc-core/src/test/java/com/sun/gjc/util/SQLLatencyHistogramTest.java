@@ -0,0 +1,127 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.gjc.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the buckets and percentiles of the sql latency histogram.
+ */
+public class SQLLatencyHistogramTest {
+
+    private static final long MICROS = 1000;
+
+    @Test
+    public void testEmptyHistogram() {
+        SQLLatencyHistogram histogram = new SQLLatencyHistogram("sql");
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50.0));
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        SQLLatencyHistogram histogram = new SQLLatencyHistogram("sql");
+        for (long value = 0; value < 32; value++) {
+            histogram.recordExecution(value * MICROS, -1);
+        }
+        assertEquals(32, histogram.getCount());
+        assertEquals(15, histogram.getValueAtPercentile(50.0));
+        assertEquals(31, histogram.getValueAtPercentile(100.0));
+        assertEquals(0, histogram.getValueAtPercentile(0.0));
+    }
+
+    @Test
+    public void testLargeValuesWithinRelativeError() {
+        long[] values = {100, 1000, 12345, 987654, 123456789L};
+        for (long value : values) {
+            SQLLatencyHistogram histogram = new SQLLatencyHistogram("sql");
+            histogram.recordExecution(value * MICROS, -1);
+            // capped by the highest recorded value
+            assertEquals(value, histogram.getValueAtPercentile(50.0));
+
+            histogram.recordExecution((value + 1) * 10 * MICROS, -1);
+            long reported = histogram.getValueAtPercentile(50.0);
+            assertTrue(value + " reported as " + reported,
+                    reported >= value && reported <= value + value / 16);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        SQLLatencyHistogram histogram = new SQLLatencyHistogram("sql");
+        for (int i = 0; i < 99; i++) {
+            histogram.recordExecution(10 * MICROS, -1);
+        }
+        histogram.recordExecution(5000 * MICROS, -1);
+
+        assertEquals(10, histogram.getValueAtPercentile(50.0));
+        assertEquals(10, histogram.getValueAtPercentile(99.0));
+        assertEquals(5000, histogram.getValueAtPercentile(100.0));
+        assertEquals(5000, histogram.getMax());
+    }
+
+    @Test
+    public void testValuesOutOfRangeAreClamped() {
+        SQLLatencyHistogram histogram = new SQLLatencyHistogram("sql");
+        histogram.recordExecution(-5, -1);
+        assertEquals(0, histogram.getMax());
+
+        histogram.recordExecution(Long.MAX_VALUE, -1);
+        assertEquals((1L << 36) - 1, histogram.getMax());
+        assertEquals((1L << 36) - 1, histogram.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void testRows() {
+        SQLLatencyHistogram histogram = new SQLLatencyHistogram("sql");
+        histogram.recordExecution(MICROS, 4);
+        histogram.recordExecution(MICROS, -1);
+        histogram.recordRows(6);
+        histogram.recordRows(0);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(10, histogram.getTotalRows());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.gjc.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the grouping of sql statements by their normalized text and the
+ * bounded sql string cache.
+ */
+public class SQLLatencyTrackerTest {
+
+    @Test
+    public void testNormalizeReplacesLiterals() {
+        assertEquals("select * from t where a = ? and b = ?",
+                SQLLatencyTracker.normalize("select * from t where a = 'x' and b = 42"));
+        assertEquals("insert into t values (?, ?, ?)",
+                SQLLatencyTracker.normalize("insert into t values ('it''s', 1.5, 1e3)"));
+    }
+
+    @Test
+    public void testNormalizeCollapsesWhiteSpace() {
+        assertEquals("select a from t",
+                SQLLatencyTracker.normalize("  select\ta \n  from   t  "));
+    }
+
+    @Test
+    public void testNormalizeKeepsIdentifiers() {
+        assertEquals("select col1, t2.x from tab_2 where \"Col 3\" = ?",
+                SQLLatencyTracker.normalize("select col1, t2.x from tab_2 where \"Col 3\" = 7"));
+    }
+
+    @Test
+    public void testStatementsDifferingByLiteralsShareHistogram() {
+        SQLLatencyTracker tracker = new SQLLatencyTracker("pool");
+        SQLLatencyHistogram first = tracker.getHistogram("select * from t where id = 1");
+        SQLLatencyHistogram second = tracker.getHistogram("select * from t where id = 2");
+
+        assertSame(first, second);
+        assertEquals("select * from t where id = ?", first.getSql());
+        assertNotSame(first, tracker.getHistogram("select * from u where id = 1"));
+    }
+
+    @Test
+    public void testRecordExecution() {
+        SQLLatencyTracker tracker = new SQLLatencyTracker("pool");
+        tracker.recordExecution("update t set a = 1", 2000000, 3);
+        tracker.recordExecution("update t set a = 2", 4000000, 2);
+
+        SQLLatencyHistogram histogram = tracker.getHistogram("update t set a = 3");
+        assertEquals(2, histogram.getCount());
+        assertEquals(5, histogram.getTotalRows());
+        assertEquals(4000, histogram.getMax());
+    }
+
+    @Test
+    public void testSqlStringCacheIsBounded() {
+        SQLLatencyTracker tracker = new SQLLatencyTracker("pool");
+        String hot = "select * from t where id = ?";
+        SQLLatencyHistogram histogram = tracker.getHistogram(hot);
+        for (int i = 0; i < 4 * SQLLatencyTracker.MAX_SQL_STRINGS; i++) {
+            tracker.getHistogram("select * from t where id = " + i);
+            tracker.getHistogram(hot);
+        }
+
+        assertTrue(tracker.getCachedSqlStringCount() <= SQLLatencyTracker.MAX_SQL_STRINGS);
+        // the string executed all along is still cached, the first ones
+        // were evicted
+        assertTrue(tracker.isCached(hot));
+        assertFalse(tracker.isCached("select * from t where id = 0"));
+        assertSame(histogram, tracker.getHistogram(hot));
+        assertSame(histogram, tracker.getHistogram("select * from t where id = 0"));
+    }
+
+    @Test
+    public void testReportOrdersByCount() {
+        SQLLatencyTracker tracker = new SQLLatencyTracker("pool");
+        tracker.recordExecution("select a from t", 1000, -1);
+        for (int i = 0; i < 3; i++) {
+            tracker.recordExecution("select b from t", 1000, -1);
+        }
+
+        String report = tracker.getLatencyReport(10);
+        assertTrue(report, report.indexOf("select b from t") < report.indexOf("select a from t"));
+        assertTrue(report, report.startsWith("%%%EOL%%%count=3 "));
+
+        report = tracker.getLatencyReport(1);
+        assertFalse(report, report.contains("select a from t"));
+    }
+}
@@ -42,6 +42,7 @@ package com.sun.gjc.spi.jdbc40;
 
 import com.sun.gjc.spi.ManagedConnectionImpl;
 import com.sun.gjc.spi.base.ConnectionWrapper;
+import com.sun.gjc.util.SQLLatencyHistogram;
 import com.sun.gjc.util.SQLTraceDelegator;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
@@ -168,7 +169,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         try{
             output = (java.sql.CallableStatement)getProxyObject(
                     mc.prepareCachedCallableStatement(this,sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -192,7 +193,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         try{
             output = (java.sql.CallableStatement)getProxyObject(
                     mc.prepareCachedCallableStatement(this, sql, resultSetType, resultSetConcurrency), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -218,7 +219,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         try{
             output = (java.sql.CallableStatement)getProxyObject(
                     mc.prepareCachedCallableStatement(this, sql, resultSetType, resultSetConcurrency, resultSetHoldability), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -241,7 +242,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
             output = (PreparedStatement)getProxyObject(
                     mc.prepareCachedStatement(this, sql, 
                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY),
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -262,7 +263,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         Class intf[] = new Class[]{java.sql.PreparedStatement.class};
         try{
             output = (PreparedStatement)getProxyObject(
-                    mc.prepareCachedStatement(this, sql, autoGeneratedKeys), intf);
+                    mc.prepareCachedStatement(this, sql, autoGeneratedKeys), intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -284,7 +285,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         Class intf[] = new Class[]{java.sql.PreparedStatement.class};
         try{
             output = (PreparedStatement)getProxyObject(
-                    mc.prepareCachedStatement(this, sql, columnIndexes), intf);
+                    mc.prepareCachedStatement(this, sql, columnIndexes), intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -308,7 +309,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         try{
             output = (PreparedStatement)getProxyObject(
                     mc.prepareCachedStatement(this, sql, resultSetType, resultSetConcurrency), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -334,7 +335,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         try{
             output = (PreparedStatement)getProxyObject(
                     mc.prepareCachedStatement(this, sql, resultSetType, resultSetConcurrency, resultSetHoldability), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -357,7 +358,7 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
         Class intf[] = new Class[]{java.sql.PreparedStatement.class};
         try{
             output = (PreparedStatement)getProxyObject(mc.prepareCachedStatement(this, sql, columnNames), 
-                    intf);
+                    intf, sql);
         }catch(Exception e){
             throw new SQLException(e);
         }
@@ -419,20 +420,47 @@ public class ProfiledConnectionWrapper40 extends ConnectionHolder40 implements C
 
     //TODO refactor this method and move to a higher level
     private <T> T getProxyObject(final Object actualObject, Class<T>[] ifaces) throws Exception {
+        return getProxyObject(actualObject, ifaces, null);
+    }
+
+    /**
+     * @param sql the sql of a prepared or callable statement, used to record
+     * the latency of its executions; null for a plain statement whose sql is
+     * passed to each execute method.
+     */
+    private <T> T getProxyObject(final Object actualObject, Class<T>[] ifaces,
+            final String sql) throws Exception {
         
         T result;
         InvocationHandler ih = new InvocationHandler() {
 
             public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                SQLTraceRecord record = new SQLTraceRecord();
-                record.setMethodName(method.getName());
-                record.setParams(args);
-                record.setClassName(actualObject.getClass().getName());
-                record.setThreadName(Thread.currentThread().getName());
-                record.setThreadID(Thread.currentThread().getId());
-                record.setTimeStamp(System.currentTimeMillis());
-                sqlTraceDelegator.sqlTrace(record);
-                return method.invoke(actualObject, args);
+                if (sqlTraceDelegator.isTraceEnabled()) {
+                    SQLTraceRecord record = new SQLTraceRecord();
+                    record.setMethodName(method.getName());
+                    record.setParams(args);
+                    record.setClassName(actualObject.getClass().getName());
+                    record.setThreadName(Thread.currentThread().getName());
+                    record.setThreadID(Thread.currentThread().getId());
+                    record.setTimeStamp(System.currentTimeMillis());
+                    sqlTraceDelegator.sqlTrace(record);
+                }
+                if (!sqlTraceDelegator.isLatencyTracked(method.getName())) {
+                    return method.invoke(actualObject, args);
+                }
+                String executedSql = sql;
+                if (executedSql == null && args != null && args.length > 0
+                        && args[0] instanceof String) {
+                    executedSql = (String) args[0];
+                }
+                long start = System.nanoTime();
+                Object value = method.invoke(actualObject, args);
+                SQLLatencyHistogram histogram = sqlTraceDelegator.sqlExecuted(executedSql,
+                        System.nanoTime() - start, value);
+                if (histogram != null && value instanceof ResultSet) {
+                    return new RowCountingResultSetWrapper40((ResultSet) value, histogram);
+                }
+                return value;
             }
         };
         result = (T) Proxy.newProxyInstance(actualObject.getClass().getClassLoader(), ifaces, ih);
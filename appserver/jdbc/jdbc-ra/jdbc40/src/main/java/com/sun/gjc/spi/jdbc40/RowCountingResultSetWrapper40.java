@@ -0,0 +1,114 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.gjc.spi.jdbc40;
+
+import com.sun.gjc.spi.base.ResultSetWrapper;
+import com.sun.gjc.util.SQLLatencyHistogram;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wrapper for the ResultSet of a profiled statement that counts the rows read
+ * through it and records them in the latency histogram of the statement when
+ * the last row has been read or the result set is closed.
+ */
+public class RowCountingResultSetWrapper40 extends ResultSetWrapper40 {
+
+    private final SQLLatencyHistogram histogram;
+    private long rows;
+    private boolean recorded;
+
+    /**
+     * Creates a new instance of RowCountingResultSetWrapper40
+     *
+     * @param rs        ResultSet returned by the statement wrapper<br>
+     * @param histogram histogram of the statement that produced it<br>
+     */
+    public RowCountingResultSetWrapper40(ResultSet rs, SQLLatencyHistogram histogram) {
+        // The wrapped result set already notifies its statement when it is
+        // closed, so no statement is passed here
+        super(null, rs);
+        this.histogram = histogram;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        boolean hasRow = resultSet.next();
+        if (hasRow) {
+            rows++;
+        } else {
+            record();
+        }
+        return hasRow;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            resultSet.close();
+        } finally {
+            record();
+        }
+    }
+
+    @Override
+    public Statement getStatement() throws SQLException {
+        return resultSet.getStatement();
+    }
+
+    @Override
+    public Statement getActualStatement() throws SQLException {
+        if (resultSet instanceof ResultSetWrapper) {
+            return ((ResultSetWrapper) resultSet).getActualStatement();
+        }
+        return resultSet.getStatement();
+    }
+
+    private void record() {
+        if (!recorded) {
+            recorded = true;
+            histogram.recordRows(rows);
+        }
+    }
+}
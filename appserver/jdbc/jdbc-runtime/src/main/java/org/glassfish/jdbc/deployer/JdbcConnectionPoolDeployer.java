@@ -491,6 +491,15 @@ public class JdbcConnectionPoolDeployer implements ResourceDeployer {
                     conConnPool.setPreferValidateOverRecreate(toBoolean(value, false));
                     logFine("PREFER-VALIDATE-OVER-RECREATE : " + value);
 
+                } else if ("ADAPTIVE-RESIZING".equals(name.toUpperCase(Locale.getDefault()))) {
+                    String value = rp.getValue();
+                    conConnPool.setAdaptiveResizing(toBoolean(value, false));
+                    logFine("ADAPTIVE-RESIZING : " + value);
+
+                } else if ("PARALLEL-POOL-FILL".equals(name.toUpperCase(Locale.getDefault()))) {
+                    conConnPool.setParallelPoolFill(rp.getValue());
+                    logFine("PARALLEL-POOL-FILL : " + rp.getValue());
+
                 } else if ("STATEMENT-CACHE-TYPE".equals(name.toUpperCase(Locale.getDefault()))) {
 
 		    if(adminPool.getStatementCacheType() != null) {
@@ -508,6 +517,11 @@ public class JdbcConnectionPoolDeployer implements ResourceDeployer {
                     propList.add(new ConnectorConfigProperty("TimeToKeepQueriesInMinutes",
                             rp.getValue(), "TimeToKeepQueriesInMinutes", "java.lang.String"));
 
+                } else if ("SQL-LATENCY-TRACKING".equals(name.toUpperCase(Locale.getDefault()))) {
+
+                    propList.add(new ConnectorConfigProperty("SqlLatencyTracking",
+                            rp.getValue(), "SqlLatencyTracking", "java.lang.String"));
+
                 } else if (mcfConPropKeys.containsKey(name.toUpperCase(Locale.getDefault()))) {
 
                     propList.add(new ConnectorConfigProperty(
@@ -75,6 +75,7 @@ import com.sun.appserv.util.cache.Cache;
 import com.sun.appserv.util.cache.CacheListener;
 import com.sun.appserv.util.cache.Constants;
 import com.sun.appserv.util.cache.LruCache;
+import com.sun.appserv.util.cache.TinyLfuCache;
 import com.sun.ejb.ComponentContext;
 import com.sun.ejb.EJBUtils;
 import com.sun.ejb.EjbInvocation;
@@ -2682,13 +2683,20 @@ public class EntityContainer
             readyStore.init(cacheSize, loadFactor, null);
         } else {
             cacheSize = (cacheSize <= 0) ? DEFAULT_CACHE_SIZE : cacheSize;
-            LruCache lru = new LruCache(DEFAULT_CACHE_SIZE);
             if (numberOfVictimsToSelect >= 0) {
                 loadFactor = (float) (1.0 - (1.0 *
                                              numberOfVictimsToSelect/cacheSize));
             }
-            lru.init(cacheSize, idleTimeout, loadFactor, null);
-            readyStore = lru;
+            String val = ejbDescriptor.getEjbBundleDescriptor().getEnterpriseBeansProperty(TINYLFU_BEAN_CACHE_PROP);
+            if (Boolean.parseBoolean(val)) {
+                TinyLfuCache tinyLfu = new TinyLfuCache(DEFAULT_CACHE_SIZE);
+                tinyLfu.init(cacheSize, idleTimeout, loadFactor, null);
+                readyStore = tinyLfu;
+            } else {
+                LruCache lru = new LruCache(DEFAULT_CACHE_SIZE);
+                lru.init(cacheSize, idleTimeout, loadFactor, null);
+                readyStore = lru;
+            }
             readyStore.addCacheListener(this);
         }
         
@@ -41,6 +41,7 @@
 package com.sun.enterprise.transaction;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.*;
 
 import javax.transaction.*;
@@ -67,12 +68,12 @@ import com.sun.logging.LogDomains;
  * If jtsTx!=null, all calls are delegated to jtsTx.
  *
 
- * Time out capability is added to the local transactions. This class extends the TimerTask.
- * When the transaction needs to be timedout, this schedules with the timer. At the commit 
- * and rollback time, task will be cancelled.  If the transaction is timedout, run() method
+ * Time out capability is added to the local transactions. When the transaction needs to be
+ * timedout, it is armed on the shared {@link TransactionTimeoutWheel}. At the commit 
+ * and rollback time, the timeout will be cancelled.  If the transaction is timedout, run() method
  * will be called and transaction will be marked for rollback.
  */
-public final class JavaEETransactionImpl extends TimerTask implements
+public final class JavaEETransactionImpl implements Runnable,
         JavaEETransaction {
 
     static Logger _logger = LogDomains.getLogger(JavaEETransactionImpl.class, LogDomains.JTA_LOGGER);
@@ -84,7 +85,7 @@ public final class JavaEETransactionImpl extends TimerTask implements
 
     // Local Tx ids are just numbers: they dont need to be unique across
     // processes or across multiple activations of this server process.
-    private static long txIdCounter = 1;
+    private static final AtomicLong txIdCounter = new AtomicLong(1);
 
     // Fall back to the old (wrong) behavior for the case when setRollbackOnly
     // was called before XA transaction started
@@ -108,9 +109,14 @@ public final class JavaEETransactionImpl extends TimerTask implements
     private boolean timedOut = false;
     private boolean isTimerTask = false;
     private int timeout = 0;
+    private TransactionTimeoutWheel.Timeout timeoutHandle = null;
     // END: local transaction timeout
     private boolean imported = false;
 
+    // One XA resource per resource manager enlisted, used to tell a
+    // one-phase from a two-phase commit for monitoring
+    private List<XAResource> enlistedXAResources = null;
+
     private HashMap resourceTable;
     private HashMap<Object, Object> userResourceMap;
 
@@ -128,17 +134,6 @@ public final class JavaEETransactionImpl extends TimerTask implements
     // tx-specific ejb container info associated with this tx
     private Object containerData = null;
 
-    static private boolean isTimerInitialized = false;
-    static private Timer timer = null;
-    static private long timerTasksScheduled = 0; // Global counter
-
-    static synchronized private void initializeTimer() {
-        if (isTimerInitialized)
-            return;
-        timer = new Timer(true); // daemon 
-        isTimerInitialized = true;
-    }
-
     JavaEETransactionImpl(JavaEETransactionManager javaEETM) {
         this.javaEETM = javaEETM;
         this.txId = getNewTxId();
@@ -154,10 +149,7 @@ public final class JavaEETransactionImpl extends TimerTask implements
     // START: local transaction timeout
     JavaEETransactionImpl(int timeout, JavaEETransactionManager javaEETM) {
         this(javaEETM);
-        if (!isTimerInitialized)
-            initializeTimer();
-        timer.schedule(this,timeout * 1000L);
-        timerTasksScheduled++;
+        timeoutHandle = TransactionTimeoutWheel.getInstance().schedule(this, timeout * 1000L);
         isTimerTask = true;
         this.timeout = timeout;
     }
@@ -170,7 +162,7 @@ public final class JavaEETransactionImpl extends TimerTask implements
     }
 
     // START: local transaction timeout
-    // TimerTask run() method implementation
+    // Timeout task run() method implementation
     public void run() {
         timedOut = true;
         try {
@@ -192,15 +184,11 @@ public final class JavaEETransactionImpl extends TimerTask implements
         return isTimerTask;
     }
 
-    // Cancels the timertask and returns the timeout
+    // Cancels the timeout and returns the timeout value
     public int cancelTimerTask() {
-        cancel();
-        int mod = javaEETM.getPurgeCancelledTtransactionsAfter();
-        if (mod > 0 && timerTasksScheduled % mod == 0) {
-            int purged = timer.purge();
-            if (_logger.isLoggable(Level.FINE)) {
-                _logger.log(Level.FINE, "Purged " + purged + " timer tasks from canceled queue");
-            } 
+        TransactionTimeoutWheel.Timeout handle = timeoutHandle;
+        if (handle != null) {
+            handle.cancel();
         }
         return timeout;
     }
@@ -210,9 +198,8 @@ public final class JavaEETransactionImpl extends TimerTask implements
     }
     // END: local transaction timeout
 
-    private static synchronized long getNewTxId() {
-        long newTxId = txIdCounter++;
-        return newTxId;
+    private static long getNewTxId() {
+        return txIdCounter.getAndIncrement();
     }
 
     public boolean equals(Object other) {
@@ -250,6 +237,43 @@ public final class JavaEETransactionImpl extends TimerTask implements
         laoResource = h;
     }
 
+    /**
+     * Records an XA resource enlisted in this transaction.  Resources of the
+     * same resource manager share a transaction branch, so they count as a
+     * single participant.
+     */
+    void xaResourceEnlisted(XAResource res) {
+        if (enlistedXAResources == null) {
+            enlistedXAResources = new ArrayList<XAResource>();
+        }
+        for (XAResource enlisted : enlistedXAResources) {
+            try {
+                if (enlisted == res || enlisted.isSameRM(res)) {
+                    return;
+                }
+            } catch (XAException ex) {
+                // Count it as a separate branch
+            }
+        }
+        enlistedXAResources.add(res);
+    }
+
+    /**
+     * Returns true if this transaction completes with a one-phase commit:
+     * either it is still local, or it was promoted but has a single
+     * participant, in which case the coordinator skips the prepare phase.
+     * A promoted transaction with an LAO resource and any XA resource is
+     * committed in two phases, with the LAO resource committed last.
+     */
+    boolean isOnePhaseCommit() {
+        if (isLocalTx()) {
+            return true;
+        }
+        int participants = ((enlistedXAResources == null)? 0 : enlistedXAResources.size())
+                + ((laoResource != null)? 1 : 0);
+        return participants <= 1;
+    }
+
     boolean isImportedTransaction() {
         return imported;
     }
@@ -41,6 +41,7 @@
 package com.sun.enterprise.transaction;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.*;
 import java.rmi.RemoteException;
 
@@ -106,7 +107,7 @@ public class JavaEETransactionManagerSimplified
 
     @Inject protected InvocationManager invMgr;
 
-    private JavaEETransactionManagerDelegate delegate;
+    private volatile JavaEETransactionManagerDelegate delegate;
 
     // Sting Manager for Localization
     private static StringManager sm 
@@ -131,28 +132,33 @@ public class JavaEETransactionManagerSimplified
     private int purgeCancelledTtransactions = 0;
 
     // admin and monitoring related parameters
-    private  static final Hashtable statusMap = new Hashtable();
-    private List activeTransactions = Collections.synchronizedList(new ArrayList());
-    private boolean monitoringEnabled = false;
+    private  static final Map<Integer, String> statusMap;
+    // Concurrent set so that begin and completion do not contend on a
+    // single lock or scan a list when monitoring is enabled
+    private final Set<Object> activeTransactions =
+            Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+    private volatile boolean monitoringEnabled = false;
 
     private TransactionServiceProbeProvider monitor;
-    private Hashtable txnTable = null;
+    private volatile Map<String, Transaction> txnTable = null;
 
     private Cache resourceTable;
 
     private  Timer _timer = new Timer("transaction-manager", true);
 
     static {
-        statusMap.put(Status.STATUS_ACTIVE, "Active");
-        statusMap.put(Status.STATUS_MARKED_ROLLBACK, "MarkedRollback");
-        statusMap.put(Status.STATUS_PREPARED, "Prepared");
-        statusMap.put(Status.STATUS_COMMITTED, "Committed");
-        statusMap.put(Status.STATUS_ROLLEDBACK, "RolledBack");
-        statusMap.put(Status.STATUS_UNKNOWN, "UnKnown");
-        statusMap.put(Status.STATUS_NO_TRANSACTION, "NoTransaction");
-        statusMap.put(Status.STATUS_PREPARING, "Preparing");
-        statusMap.put(Status.STATUS_COMMITTING, "Committing");
-        statusMap.put(Status.STATUS_ROLLING_BACK, "RollingBack");
+        Map<Integer, String> statuses = new HashMap<Integer, String>();
+        statuses.put(Status.STATUS_ACTIVE, "Active");
+        statuses.put(Status.STATUS_MARKED_ROLLBACK, "MarkedRollback");
+        statuses.put(Status.STATUS_PREPARED, "Prepared");
+        statuses.put(Status.STATUS_COMMITTED, "Committed");
+        statuses.put(Status.STATUS_ROLLEDBACK, "RolledBack");
+        statuses.put(Status.STATUS_UNKNOWN, "UnKnown");
+        statuses.put(Status.STATUS_NO_TRANSACTION, "NoTransaction");
+        statuses.put(Status.STATUS_PREPARING, "Preparing");
+        statuses.put(Status.STATUS_COMMITTING, "Committing");
+        statuses.put(Status.STATUS_ROLLING_BACK, "RollingBack");
+        statusMap = Collections.unmodifiableMap(statuses);
 
     }
     public JavaEETransactionManagerSimplified() {
@@ -299,6 +305,22 @@ public class JavaEETransactionManagerSimplified
 
     public boolean enlistResource(Transaction tran, TransactionalResource h)
             throws RollbackException, IllegalStateException, SystemException {
+        if (!monitoringEnabled) {
+            return enlistResource0(tran, h);
+        }
+
+        long start = System.nanoTime();
+        try {
+            return enlistResource0(tran, h);
+        } finally {
+            if (h.isTransactional()) {
+                monitor.resourceEnlistedEvent(h.getName(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    private boolean enlistResource0(Transaction tran, TransactionalResource h)
+            throws RollbackException, IllegalStateException, SystemException {
        if(_logger.isLoggable(Level.FINE)) {
            _logger.log(Level.FINE, "\n\nIn JavaEETransactionManagerSimplified.enlistResource, h=" 
                    + h + " h.xares=" + h.getXAResource()
@@ -429,7 +451,12 @@ public class JavaEETransactionManagerSimplified
         TransactionInternal jtsTx = getDelegate().startJTSTx(tx, tx.isAssociatedTimeout());
 
         // The local Transaction was promoted to global Transaction
+        if (_logger.isLoggable(Level.FINE)) {
+            _logger.log(Level.FINE, "Promoted local transaction " + tx.getTransactionId()
+                    + " to global transaction " + jtsTx + ", nonXAResource=" + tx.getNonXAResource());
+        }
         if (monitoringEnabled){
+            monitor.transactionPromotedEvent();
             if(activeTransactions.remove(tx)){
                 monitor.transactionDeactivatedEvent();
             }
@@ -1039,6 +1066,9 @@ public class JavaEETransactionManagerSimplified
     /**
      * Modify the value to be used to purge transaction tasks after the 
      * specified number of cancelled tasks.
+     * The value is kept for configuration compatibility only: transaction
+     * timeouts are armed on the {@link TransactionTimeoutWheel}, which unlinks
+     * a cancelled timeout by itself, so there is no task queue to purge.
      */
     public void setPurgeCancelledTtransactionsAfter(int num) {
         purgeCancelledTtransactions = num;
@@ -1126,11 +1156,12 @@ public class JavaEETransactionManagerSimplified
     */
     public ArrayList getActiveTransactions() {
         ArrayList tranBeans = new ArrayList();
-        txnTable = new Hashtable();
-        Object[] activeCopy = activeTransactions.toArray(); // get the clone of the active transactions
-        for(int i=0;i<activeCopy.length;i++){
+        Map<String, Transaction> table = new ConcurrentHashMap<String, Transaction>();
+        txnTable = table;
+        // The iterator is weakly consistent: no copy or lock is needed
+        for(Object active : activeTransactions){
             try{
-                Transaction tran = (Transaction)activeCopy[i];
+                Transaction tran = (Transaction)active;
                 TransactionAdminBean tBean = getDelegate().getTransactionAdminBean(tran);
                 if (tBean == null) {
                     // Shouldn't happen
@@ -1139,7 +1170,7 @@ public class JavaEETransactionManagerSimplified
                     if (_logger.isLoggable(Level.FINE))
                         _logger.log(Level.FINE, "TM: Adding txnId " + tBean.getId() + " to txnTable");
 
-                    txnTable.put(tBean.getId(), tran);
+                    table.put(tBean.getId(), tran);
                     tranBeans.add(tBean);
                 }
             }catch(Exception ex){
@@ -1179,14 +1210,16 @@ public class JavaEETransactionManagerSimplified
              getActiveTransactions();
          // XXX - WORK AROUND MONITORING BUG
 
-         if (txnTable == null || txnTable.get(txnId) == null) {
+         Map<String, Transaction> table = txnTable;
+         Transaction tran = (table == null)? null : table.get(txnId);
+         if (tran == null) {
             String result = sm.getString("transaction.monitor.rollback_invalid_id");
             throw new  IllegalStateException(result);
         } else {
             if (_logger.isLoggable(Level.FINE))
                 _logger.log(Level.FINE, "TM: Marking txnId " + txnId + " for rollback");
 
-             ((Transaction) txnTable.get(txnId)).setRollbackOnly();
+             tran.setRollbackOnly();
          }
 
     }
@@ -1199,8 +1232,12 @@ public class JavaEETransactionManagerSimplified
 
     private void _monitorTxCompleted(Object obj, boolean committed){
         if(obj != null) {
+            // Only transactions started through this manager know their
+            // participants; a JTS transaction is not classified.
+            Boolean onePhase = null;
             if (obj instanceof JavaEETransactionImpl) {
                 JavaEETransactionImpl t = (JavaEETransactionImpl) obj;
+                onePhase = t.isOnePhaseCommit();
                 if (!t.isLocalTx()) {
                     obj = t.getJTSTx();
                 }
@@ -1208,6 +1245,13 @@ public class JavaEETransactionManagerSimplified
             if(activeTransactions.remove(obj)) {
                 if(committed){
                     monitor.transactionCommittedEvent();
+                    if (onePhase != null) {
+                        if (onePhase) {
+                            monitor.onePhaseCommitEvent();
+                        } else {
+                            monitor.twoPhaseCommitEvent();
+                        }
+                    }
                 }else{
                     monitor.transactionRolledbackEvent();
                 }
@@ -1256,7 +1300,7 @@ public class JavaEETransactionManagerSimplified
 /************************* Helper Methods ***********************************/
 /****************************************************************************/
     public static String getStatusAsString(int status) {
-        return (String)statusMap.get(status);
+        return statusMap.get(status);
     }
 
     private void delistComponentResources(ComponentInvocation inv,
@@ -1311,12 +1355,16 @@ public class JavaEETransactionManagerSimplified
 
             XAResource res = h.getXAResource();
             boolean result = tran.enlistResource(res);
-            if (!h.isEnlisted())
+            if (!h.isEnlisted()) {
                 if(_logger.isLoggable(Level.FINE)) {
                     _logger.log(Level.FINE, "\n\nIn JavaEETransactionManagerSimplified.enlistXAResource - enlist");
                 }
+                if (tran instanceof JavaEETransactionImpl) {
+                    ((JavaEETransactionImpl) tran).xaResourceEnlisted(res);
+                }
+            }
 
-                h.enlistedInTransaction(tran);
+            h.enlistedInTransaction(tran);
             return result;
         } else {
             return true;
@@ -1472,9 +1520,10 @@ public class JavaEETransactionManagerSimplified
     }
 
     /**
-     * Called by JavaEETransactionImpl also
+     * Called by JavaEETransactionImpl also.
+     * The delegate field is volatile, so no lock is needed to read it.
      */
-    synchronized JavaEETransactionManagerDelegate getDelegate() {
+    JavaEETransactionManagerDelegate getDelegate() {
         JavaEETransactionManagerDelegate d = delegates.get();
         return (d == null)? delegate : d;
     }
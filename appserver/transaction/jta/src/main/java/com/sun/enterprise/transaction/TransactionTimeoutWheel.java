@@ -0,0 +1,410 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.transaction;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.logging.LogDomains;
+
+/**
+ * Hashed timing wheel used to time out transactions, shared by the local
+ * (JTA) transactions of {@link JavaEETransactionImpl} and the JTS
+ * <code>TimeoutManager</code>.
+ * <p>
+ * Arming and cancelling a timeout are O(1) and take no lock: new timeouts
+ * and cancellations are handed to the wheel thread through lock-free queues,
+ * and only that thread touches the buckets.  On every tick the wheel thread
+ * visits a single bucket and runs the tasks whose deadline has passed, so the
+ * cost of the bookkeeping does not grow with the number of live transactions.
+ * <p>
+ * The tick duration, in milliseconds, can be changed with the
+ * <code>com.sun.enterprise.transaction.timeoutWheelTick</code> system
+ * property.  Tasks run on the wheel thread and must not block.
+ */
+public final class TransactionTimeoutWheel {
+
+    public static final String TICK_PROPERTY = "com.sun.enterprise.transaction.timeoutWheelTick";
+
+    static final long DEFAULT_TICK_MILLIS = 100L;
+
+    static final int WHEEL_SIZE = 512;
+
+    // Bound the work done per tick when a burst of transactions begins
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private static final int ST_INIT = 0;
+    private static final int ST_CANCELLED = 1;
+    private static final int ST_EXPIRED = 2;
+
+    private static final Logger _logger = LogDomains.getLogger(TransactionTimeoutWheel.class, LogDomains.JTA_LOGGER);
+
+    private static volatile TransactionTimeoutWheel instance;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<Timeout>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<Timeout>();
+    private final AtomicInteger armed = new AtomicInteger();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+    private final String threadName;
+
+    private volatile long startTime;
+    private volatile boolean stopped;
+    private Thread worker;
+
+    // Only accessed by the wheel thread
+    private long tick;
+
+    /**
+     * Returns the wheel shared by the transaction managers of this process,
+     * creating it on first use.
+     */
+    public static TransactionTimeoutWheel getInstance() {
+        TransactionTimeoutWheel wheel = instance;
+        if (wheel == null) {
+            synchronized (TransactionTimeoutWheel.class) {
+                wheel = instance;
+                if (wheel == null) {
+                    long tickMillis = Long.getLong(TICK_PROPERTY, DEFAULT_TICK_MILLIS);
+                    if (tickMillis <= 0) {
+                        tickMillis = DEFAULT_TICK_MILLIS;
+                    }
+                    wheel = new TransactionTimeoutWheel(tickMillis, TimeUnit.MILLISECONDS,
+                            WHEEL_SIZE, "transaction-timeout-wheel");
+                    instance = wheel;
+                }
+            }
+        }
+        return wheel;
+    }
+
+    TransactionTimeoutWheel(long tickDuration, TimeUnit unit, int wheelSize, String threadName) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration: " + tickDuration);
+        }
+        if (wheelSize <= 0 || (wheelSize & (wheelSize - 1)) != 0) {
+            throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.threadName = threadName;
+    }
+
+    /**
+     * Arms a timeout that runs the given task once the delay has elapsed,
+     * unless it is cancelled first.
+     *
+     * @param task the task to run on the wheel thread
+     * @param delayMillis the delay in milliseconds
+     * @return the handle used to cancel the timeout
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        start();
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delayMillis));
+        Timeout timeout = new Timeout(this, task, deadline);
+        armed.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the number of timeouts that are armed and have neither expired
+     * nor been cancelled.
+     */
+    public int size() {
+        return armed.get();
+    }
+
+    /**
+     * Stops the wheel thread.  Timeouts that have not expired are discarded.
+     */
+    void stop() {
+        stopped = true;
+        Thread t = worker;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    private void start() {
+        if (!started.get() && started.compareAndSet(false, true)) {
+            startTime = System.nanoTime();
+            startTimeInitialized.countDown();
+            Thread t = new Thread(new Worker(), threadName);
+            t.setDaemon(true);
+            worker = t;
+            t.start();
+        }
+        // A caller that lost the race above must not compute a deadline
+        // before the winner has set the start time
+        if (startTimeInitialized.getCount() != 0) {
+            boolean interrupted = false;
+            for (;;) {
+                try {
+                    startTimeInitialized.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Handle of an armed timeout.
+     */
+    public static final class Timeout {
+
+        private final TransactionTimeoutWheel wheel;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // Only accessed by the wheel thread
+        long remainingRounds;
+        Timeout next;
+        Timeout prev;
+        Bucket bucket;
+
+        Timeout(TransactionTimeoutWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout.
+         *
+         * @return <code>true</code> if the timeout was cancelled,
+         * <code>false</code> if it had already expired or been cancelled
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            wheel.armed.decrementAndGet();
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        /**
+         * Returns the time left in milliseconds before the timeout expires,
+         * or 0 if the deadline has passed.
+         */
+        public long remainingMillis() {
+            long left = deadline - (System.nanoTime() - wheel.startTime);
+            return left <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(left);
+        }
+
+        void expire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            wheel.armed.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                _logger.log(Level.WARNING, "enterprise_distributedtx.some_excep", t);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts hashed to one slot of the wheel.
+     */
+    static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+
+        void expireTimeouts(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    Timeout next = remove(timeout);
+                    timeout.expire();
+                    timeout = next;
+                } else if (timeout.isCancelled()) {
+                    timeout = remove(timeout);
+                } else {
+                    if (timeout.remainingRounds > 0) {
+                        timeout.remainingRounds--;
+                    }
+                    timeout = timeout.next;
+                }
+            }
+        }
+
+        void clear() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                timeout = remove(timeout);
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        public void run() {
+            while (!stopped) {
+                long deadline = waitForNextTick();
+                if (deadline < 0) {
+                    continue;
+                }
+                processCancelled();
+                transferPending();
+                wheel[(int) (tick & mask)].expireTimeouts(deadline);
+                tick++;
+            }
+            for (Bucket bucket : wheel) {
+                bucket.clear();
+            }
+            pending.clear();
+            cancelled.clear();
+        }
+
+        /**
+         * Sleeps until the end of the current tick and returns its deadline
+         * relative to the start time, or -1 if interrupted.
+         */
+        private long waitForNextTick() {
+            long deadline = tickNanos * (tick + 1);
+            for (;;) {
+                long now = System.nanoTime() - startTime;
+                long sleepMillis = (deadline - now + 999999) / 1000000;
+                if (sleepMillis <= 0) {
+                    return now;
+                }
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    if (stopped) {
+                        return -1;
+                    }
+                }
+            }
+        }
+
+        private void processCancelled() {
+            Timeout timeout;
+            while ((timeout = cancelled.poll()) != null) {
+                Bucket bucket = timeout.bucket;
+                if (bucket != null) {
+                    bucket.remove(timeout);
+                }
+            }
+        }
+
+        private void transferPending() {
+            for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+                Timeout timeout = pending.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.isCancelled()) {
+                    continue;
+                }
+                long calculated = timeout.deadline / tickNanos;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+    }
+}
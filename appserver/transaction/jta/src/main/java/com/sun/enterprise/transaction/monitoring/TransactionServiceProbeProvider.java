@@ -63,6 +63,19 @@ public class TransactionServiceProbeProvider {
     @Probe(name="rolledback")
     public void transactionRolledbackEvent() {}
 
+    @Probe(name="promoted")
+    public void transactionPromotedEvent() {}
+
+    @Probe(name="onephasecommitted")
+    public void onePhaseCommitEvent() {}
+
+    @Probe(name="twophasecommitted")
+    public void twoPhaseCommitEvent() {}
+
+    @Probe(name="resourceenlisted")
+    public void resourceEnlistedEvent(@ProbeParam("resourceName") String resourceName,
+            @ProbeParam("elapsedNanos") long elapsedNanos) {}
+
     @Probe(name="freeze")
     public void freezeEvent(@ProbeParam("isFrozen") boolean b) {}
 }
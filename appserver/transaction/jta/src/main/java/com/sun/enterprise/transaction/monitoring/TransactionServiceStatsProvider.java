@@ -41,6 +41,12 @@
 package com.sun.enterprise.transaction.monitoring;
 
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.*;
 
 import org.glassfish.external.statistics.CountStatistic;
@@ -86,6 +92,33 @@ public class TransactionServiceStatsProvider {
     private StringStatisticImpl state = new StringStatisticImpl("State", "String", 
                 "Indicates if the transaction service has been frozen.");
 
+    private CountStatisticImpl promotedCount = new CountStatisticImpl("PromotedCount", "count", 
+            "Provides the number of local transactions that have been promoted to global transactions.");
+
+    private CountStatisticImpl onePhaseCommitCount = new CountStatisticImpl("OnePhaseCommitCount", "count", 
+            "Provides the number of transactions that have been committed in one phase.");
+
+    private CountStatisticImpl twoPhaseCommitCount = new CountStatisticImpl("TwoPhaseCommitCount", "count", 
+            "Provides the number of transactions that have been committed in two phases.");
+
+    private StringStatisticImpl onePhaseCommitRatio = new StringStatisticImpl("OnePhaseCommitRatio", "String", 
+            "Provides the percentage of classified commits that were done in one phase.");
+
+    private StringStatisticImpl resourceEnlistmentTimes = new StringStatisticImpl("ResourceEnlistmentTimes", "List", 
+            "Provides the number of enlistments and the average and maximum enlistment time "
+            + "in microseconds of each resource.");
+
+    // Striped counters updated by the probe listeners on every transaction;
+    // the statistics above are only refreshed from them when read
+    private final LongAdder active = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder rolledback = new LongAdder();
+    private final LongAdder promoted = new LongAdder();
+    private final LongAdder onePhase = new LongAdder();
+    private final LongAdder twoPhase = new LongAdder();
+    private final Map<String, EnlistmentTime> enlistmentTimes =
+            new ConcurrentHashMap<String, EnlistmentTime>();
+
     private boolean isFrozen = false;
 
     private JavaEETransactionManager txMgr;
@@ -100,21 +133,88 @@ public class TransactionServiceStatsProvider {
     @ManagedAttribute(id="activecount")
     @Description( "Provides the number of transactions that are currently active." )
     public CountStatistic getActiveCount() {
+        activeCount.setCount(active.sum());
         return activeCount;
     }
 
     @ManagedAttribute(id="committedcount")
     @Description( "Provides the number of transactions that have been committed." )
     public CountStatistic getCommittedCount() {
+        committedCount.setCount(committed.sum());
         return committedCount;
     }
 
     @ManagedAttribute(id="rolledbackcount")
     @Description( "Provides the number of transactions that have been rolled back." )
     public CountStatistic getRolledbackCount() {
+        rolledbackCount.setCount(rolledback.sum());
         return rolledbackCount;
     }
     
+    @ManagedAttribute(id="promotedcount")
+    @Description( "Provides the number of local transactions that have been promoted to global transactions." )
+    public CountStatistic getPromotedCount() {
+        promotedCount.setCount(promoted.sum());
+        return promotedCount;
+    }
+
+    @ManagedAttribute(id="onephasecommitcount")
+    @Description( "Provides the number of transactions that have been committed in one phase." )
+    public CountStatistic getOnePhaseCommitCount() {
+        onePhaseCommitCount.setCount(onePhase.sum());
+        return onePhaseCommitCount;
+    }
+
+    @ManagedAttribute(id="twophasecommitcount")
+    @Description( "Provides the number of transactions that have been committed in two phases." )
+    public CountStatistic getTwoPhaseCommitCount() {
+        twoPhaseCommitCount.setCount(twoPhase.sum());
+        return twoPhaseCommitCount;
+    }
+
+    @ManagedAttribute(id="onephasecommitratio")
+    @Description( "Provides the percentage of classified commits that were done in one phase." )
+    public StringStatistic getOnePhaseCommitRatio() {
+        long one = onePhase.sum();
+        long total = one + twoPhase.sum();
+        onePhaseCommitRatio.setCurrent((total == 0)? "" : String.format("%.1f%%", 100.0 * one / total));
+        return onePhaseCommitRatio;
+    }
+
+    @ManagedAttribute(id="resourceenlistmenttimes")
+    @Description( "Provides the number of enlistments and the enlistment time of each resource." )
+    public StringStatistic getResourceEnlistmentTimes() {
+        StringBuffer strBuf = new StringBuffer(1024);
+        if (!enlistmentTimes.isEmpty()) {
+            Map<String, EnlistmentTime> sorted = new TreeMap<String, EnlistmentTime>(enlistmentTimes);
+            int nameLength = COLUMN_LENGTH;
+            for (String name : sorted.keySet()) {
+                if (name.length() >= nameLength) {
+                    nameLength = name.length() + 1;
+                }
+            }
+
+            strBuf.append(LINE_BREAK).append(LINE_BREAK);
+            appendColumn(strBuf, "ResourceName", nameLength);
+            appendColumn(strBuf, "Enlistments", COLUMN_LENGTH);
+            appendColumn(strBuf, "AverageTime(us)", COLUMN_LENGTH);
+            strBuf.append("MaxTime(us)").append(LINE_BREAK);
+
+            for (Map.Entry<String, EnlistmentTime> entry : sorted.entrySet()) {
+                EnlistmentTime time = entry.getValue();
+                long count = time.count.sum();
+                long average = (count == 0)? 0 : time.totalNanos.sum() / count;
+                appendColumn(strBuf, entry.getKey(), nameLength);
+                appendColumn(strBuf, String.valueOf(count), COLUMN_LENGTH);
+                appendColumn(strBuf, String.valueOf(TimeUnit.NANOSECONDS.toMicros(average)), COLUMN_LENGTH);
+                strBuf.append(TimeUnit.NANOSECONDS.toMicros(time.maxNanos.get())).append(LINE_BREAK);
+            }
+        }
+
+        resourceEnlistmentTimes.setCurrent(strBuf.toString());
+        return resourceEnlistmentTimes;
+    }
+
     @ManagedAttribute(id="state")
     @Description( "Indicates if the transaction service has been frozen." )
     public StringStatistic getState() {
@@ -189,27 +289,60 @@ public class TransactionServiceStatsProvider {
     @ProbeListener("glassfish:transaction:transaction-service:activated")
     public void transactionActivatedEvent() {
         _logger.fine("=== transaction-service active ++");
-        activeCount.increment();
+        active.increment();
     }
 
     @ProbeListener("glassfish:transaction:transaction-service:deactivated")
     public void transactionDeactivatedEvent() {
         _logger.fine("=== transaction-service active --");
-        activeCount.decrement();
+        active.decrement();
     }
 
     @ProbeListener("glassfish:transaction:transaction-service:committed")
     public void transactionCommittedEvent() {
         _logger.fine("=== transaction-service committed ++");
-        committedCount.increment();
-        activeCount.decrement();
+        committed.increment();
+        active.decrement();
     }
 
     @ProbeListener("glassfish:transaction:transaction-service:rolledback")
     public void transactionRolledbackEvent() {
         _logger.fine("=== transaction-service rolledback ++");
-        rolledbackCount.increment();
-        activeCount.decrement();
+        rolledback.increment();
+        active.decrement();
+    }
+
+    @ProbeListener("glassfish:transaction:transaction-service:promoted")
+    public void transactionPromotedEvent() {
+        _logger.fine("=== transaction-service promoted ++");
+        promoted.increment();
+    }
+
+    @ProbeListener("glassfish:transaction:transaction-service:onephasecommitted")
+    public void onePhaseCommitEvent() {
+        onePhase.increment();
+    }
+
+    @ProbeListener("glassfish:transaction:transaction-service:twophasecommitted")
+    public void twoPhaseCommitEvent() {
+        twoPhase.increment();
+    }
+
+    @ProbeListener("glassfish:transaction:transaction-service:resourceenlisted")
+    public void resourceEnlistedEvent(@ProbeParam("resourceName") String resourceName,
+            @ProbeParam("elapsedNanos") long elapsedNanos) {
+        if (resourceName == null) {
+            return;
+        }
+        EnlistmentTime time = enlistmentTimes.get(resourceName);
+        if (time == null) {
+            EnlistmentTime newTime = new EnlistmentTime();
+            time = enlistmentTimes.putIfAbsent(resourceName, newTime);
+            if (time == null) {
+                time = newTime;
+            }
+        }
+        time.record(elapsedNanos);
     }
 
     @ProbeListener("glassfish:transaction:transaction-service:freeze")
@@ -223,4 +356,22 @@ public class TransactionServiceStatsProvider {
             buf.append(" ");
         }
     }
+
+    /**
+     * Enlistment count and times of a single resource.
+     */
+    private static final class EnlistmentTime {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+    }
 }
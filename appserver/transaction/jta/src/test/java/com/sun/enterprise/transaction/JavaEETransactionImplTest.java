@@ -0,0 +1,160 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.transaction;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+import com.sun.enterprise.transaction.spi.TransactionInternal;
+import com.sun.enterprise.transaction.spi.TransactionalResource;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests how a transaction classifies its commit as one-phase or two-phase
+ * for monitoring.
+ */
+public class JavaEETransactionImplTest extends TestCase {
+
+    public void testLocalTransactionIsOnePhase() {
+        JavaEETransactionImpl tx = new JavaEETransactionImpl(null);
+        tx.xaResourceEnlisted(new TestResource("rm1"));
+        tx.xaResourceEnlisted(new TestResource("rm2"));
+
+        assertTrue(tx.isOnePhaseCommit());
+    }
+
+    public void testSingleResourceIsOnePhase() {
+        JavaEETransactionImpl tx = globalTransaction();
+        tx.xaResourceEnlisted(new TestResource("rm1"));
+
+        assertTrue(tx.isOnePhaseCommit());
+    }
+
+    public void testResourcesOfSameResourceManagerShareBranch() {
+        JavaEETransactionImpl tx = globalTransaction();
+        TestResource res = new TestResource("rm1");
+        tx.xaResourceEnlisted(res);
+        tx.xaResourceEnlisted(res);
+        tx.xaResourceEnlisted(new TestResource("rm1"));
+
+        assertTrue(tx.isOnePhaseCommit());
+    }
+
+    public void testDistinctResourceManagersAreTwoPhase() {
+        JavaEETransactionImpl tx = globalTransaction();
+        tx.xaResourceEnlisted(new TestResource("rm1"));
+        tx.xaResourceEnlisted(new TestResource("rm2"));
+
+        assertFalse(tx.isOnePhaseCommit());
+    }
+
+    public void testLAOResourceIsAParticipant() {
+        JavaEETransactionImpl tx = globalTransaction();
+        tx.setLAOResource((TransactionalResource) proxy(TransactionalResource.class));
+        assertTrue(tx.isOnePhaseCommit());
+
+        tx.xaResourceEnlisted(new TestResource("rm1"));
+        assertFalse(tx.isOnePhaseCommit());
+    }
+
+    public void testIsSameRMFailureCountsAsSeparateBranch() {
+        JavaEETransactionImpl tx = globalTransaction();
+        tx.xaResourceEnlisted(new TestResource("rm1"));
+        tx.xaResourceEnlisted(new TestResource(null));
+
+        assertFalse(tx.isOnePhaseCommit());
+    }
+
+    private static JavaEETransactionImpl globalTransaction() {
+        return new JavaEETransactionImpl((TransactionInternal) proxy(TransactionInternal.class), null);
+    }
+
+    private static Object proxy(Class<?> type) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("equals")) {
+                            return proxy == args[0];
+                        }
+                        if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * An XA resource of the named resource manager; a resource without a
+     * name fails isSameRM.
+     */
+    static class TestResource implements XAResource {
+        private final String rm;
+
+        TestResource(String rm) {
+            this.rm = rm;
+        }
+
+        public boolean isSameRM(XAResource xaresource) throws XAException {
+            if (rm == null || ((TestResource) xaresource).rm == null) {
+                throw new XAException(XAException.XAER_RMERR);
+            }
+            return rm.equals(((TestResource) xaresource).rm);
+        }
+
+        public void commit(Xid xid, boolean onePhase) throws XAException {}
+        public void rollback(Xid xid) throws XAException {}
+        public int prepare(Xid xid) throws XAException { return XAResource.XA_OK; }
+        public boolean setTransactionTimeout(int i) throws XAException { return true; }
+        public int getTransactionTimeout() throws XAException { return 0; }
+        public void forget(Xid xid) throws XAException {}
+        public void start(Xid xid, int flags) throws XAException {}
+        public void end(Xid xid, int flags) throws XAException {}
+        public Xid[] recover(int flags) throws XAException { return null; }
+    }
+}
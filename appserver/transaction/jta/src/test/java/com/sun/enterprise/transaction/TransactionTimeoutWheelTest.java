@@ -0,0 +1,197 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.transaction;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the hashed timing wheel used to time out transactions.
+ */
+public class TransactionTimeoutWheelTest extends TestCase {
+
+    private TransactionTimeoutWheel wheel;
+
+    @Override
+    protected void setUp() {
+        wheel = new TransactionTimeoutWheel(10, TimeUnit.MILLISECONDS, 8, "test-timeout-wheel");
+    }
+
+    @Override
+    protected void tearDown() {
+        wheel.stop();
+    }
+
+    public void testExpiresAfterDelay() throws Exception {
+        final CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        TransactionTimeoutWheel.Timeout timeout = wheel.schedule(new Runnable() {
+            public void run() {
+                fired.countDown();
+            }
+        }, 50);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.size());
+    }
+
+    public void testExpiresAfterSeveralRounds() throws Exception {
+        // 8 slots of 10ms: a 250ms delay wraps the wheel three times
+        final CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(new Runnable() {
+            public void run() {
+                fired.countDown();
+            }
+        }, 250);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+    }
+
+    public void testCancelledTimeoutDoesNotRun() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable task = new Runnable() {
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        TransactionTimeoutWheel.Timeout cancelled = wheel.schedule(task, 30);
+        assertEquals(1, wheel.size());
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+        assertEquals(0, wheel.size());
+
+        final CountDownLatch fired = new CountDownLatch(1);
+        wheel.schedule(new Runnable() {
+            public void run() {
+                fired.countDown();
+            }
+        }, 100);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    public void testManyConcurrentTimeouts() throws Exception {
+        final int threads = 4;
+        final int perThread = 5000;
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(threads);
+        final Runnable task = new Runnable() {
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+
+        for (int t = 0; t < threads; t++) {
+            new Thread() {
+                public void run() {
+                    // Cancel every other timeout, as a commit would
+                    for (int i = 0; i < perThread; i++) {
+                        TransactionTimeoutWheel.Timeout timeout = wheel.schedule(task, 20 + (i % 100));
+                        if ((i & 1) == 0) {
+                            timeout.cancel();
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (wheel.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, wheel.size());
+        assertEquals(threads * perThread / 2, runs.get());
+    }
+
+    public void testConcurrentScheduleOnFreshWheel() throws Exception {
+        // All threads race the first schedule(), which starts the wheel
+        final int threads = 8;
+        final long delay = 10000;
+        final CountDownLatch go = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final TransactionTimeoutWheel.Timeout[] timeouts = new TransactionTimeoutWheel.Timeout[threads];
+        final Runnable task = new Runnable() {
+            public void run() {
+            }
+        };
+
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            new Thread() {
+                public void run() {
+                    try {
+                        go.await();
+                        timeouts[index] = wheel.schedule(task, delay);
+                    } catch (InterruptedException e) {
+                        // leave the slot empty, the test fails below
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        long start = System.nanoTime();
+        go.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        for (TransactionTimeoutWheel.Timeout timeout : timeouts) {
+            assertNotNull(timeout);
+            long remaining = timeout.remainingMillis();
+            assertTrue("remaining " + remaining, remaining <= delay);
+            assertTrue("remaining " + remaining, remaining >= delay - elapsed - 1000);
+            assertFalse(timeout.isExpired());
+        }
+        assertEquals(threads, wheel.size());
+    }
+}
@@ -124,6 +124,11 @@ class LogExtent extends Object {
      */
     boolean writtenSinceLastForce = false;
 
+    /**The number of writes to the extent, so that a force done outside the
+     * log handle lock can tell whether the extent was written meanwhile.
+     */
+    long writeCount = 0;
+
     /**The cursor position in the log extent.
      */
     int cursorPosition = 0;
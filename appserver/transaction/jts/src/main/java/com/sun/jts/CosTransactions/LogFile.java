@@ -105,6 +105,10 @@ class LogFile {
      */
     LogHandle handle = null;
 
+    /**Coordinates forced writes when group commit is enabled, otherwise null.
+     */
+    private final LogGroupCommit groupCommit;
+
     /**LogFile constructor.
      *
      * @param LogHandle
@@ -118,6 +122,7 @@ class LogFile {
         // Set up the instance variables to those values passed in.
 
         this.handle = handle;
+        this.groupCommit = LogGroupCommit.ENABLED ? new LogGroupCommit(handle) : null;
 
     }
 
@@ -131,6 +136,10 @@ class LogFile {
      * <p>
      * Returns true if the write completed successfully and false if the write
      * did not complete.
+     * <p>
+     * When group commit is enabled, a forced record is appended to the log
+     * buffers under the lock and the caller then waits, outside the lock, for
+     * a force shared with other concurrent writers to cover it.
      *
      * @param writeType   Forced/non-forced write indicator.
      * @param record      Log record data.
@@ -141,10 +150,10 @@ class LogFile {
      *
      * @see
      */
-    synchronized boolean write( int    writeType,
-                                byte[] record,
-                                int    recordType,
-                                LogLSN recordLSN ) {
+    boolean write( int    writeType,
+                   byte[] record,
+                   int    recordType,
+                   LogLSN recordLSN ) {
 
         boolean result = true;
 
@@ -152,10 +161,23 @@ class LogFile {
         // Set the result based on return code from log write.
 
         try {
-            LogLSN resultLSN = handle.writeRecord(record,recordType,
-                                                  (writeType==LogFile.FORCED ? LogHandle.FORCE : LogHandle.BUFFER));
-            if( recordLSN != null )
-                recordLSN.copy(resultLSN);
+            if( groupCommit != null && writeType == LogFile.FORCED ) {
+                long sequence;
+                synchronized( this ) {
+                    LogLSN resultLSN = handle.writeRecord(record,recordType,LogHandle.BUFFER);
+                    if( recordLSN != null )
+                        recordLSN.copy(resultLSN);
+                    sequence = groupCommit.appended();
+                }
+                groupCommit.awaitDurable(sequence);
+            } else {
+                synchronized( this ) {
+                    LogLSN resultLSN = handle.writeRecord(record,recordType,
+                                                          (writeType==LogFile.FORCED ? LogHandle.FORCE : LogHandle.BUFFER));
+                    if( recordLSN != null )
+                        recordLSN.copy(resultLSN);
+                }
+            }
         } catch( LogException le ) {
 			_logger.log(Level.SEVERE,"jts.log_error",le.toString());
 			 String msg = LogFormatter.getLocalizedMessage(_logger,"jts.log_error",
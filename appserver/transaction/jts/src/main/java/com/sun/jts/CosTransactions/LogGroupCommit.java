@@ -0,0 +1,189 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.jts.CosTransactions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**Coordinates group commit of forced log writes.
+ * <p>
+ * Each forced record is first appended to the log buffers and given a
+ * sequence number.  The first writer that finds no force in progress becomes
+ * the leader: it optionally waits for a short window so that concurrent
+ * writers can append their records, then issues a single force of the log
+ * covering every record appended so far.  Writers whose records were appended
+ * while a force was in progress wait for the next force.  Each writer is
+ * released as soon as the force covering its sequence number has completed.
+ * The force itself holds neither the LogFile nor the LogHandle lock, so
+ * writers keep appending records while it is in progress.
+ *
+ * @see LogFile#write
+ */
+final class LogGroupCommit {
+
+    /**System property that enables group commit of forced log writes.
+     */
+    static final String GROUP_COMMIT_PROPERTY = "com.sun.jts.groupcommit";
+
+    /**System property giving the time in microseconds a leader waits for
+     * other writers to join its force.  Defaults to 0, in which case batching
+     * only happens among writers that arrive while a force is in progress.
+     */
+    static final String GROUP_COMMIT_WINDOW_PROPERTY = "com.sun.jts.groupcommit.window";
+
+    static final boolean ENABLED = Boolean.getBoolean(GROUP_COMMIT_PROPERTY);
+
+    private final LogHandle handle;
+    private final long windowNanos;
+
+    // All guarded by this.
+
+    private long appended = 0;
+    private long durable = 0;
+    private boolean forcing = false;
+    private long failedUpTo = 0;
+    private LogException failure = null;
+    private long forceCount = 0;
+
+    LogGroupCommit( LogHandle handle ) {
+        this(handle, TimeUnit.MICROSECONDS.toNanos(Math.max(0L,
+                Long.getLong(GROUP_COMMIT_WINDOW_PROPERTY, 0L))));
+    }
+
+    LogGroupCommit( LogHandle handle, long windowNanos ) {
+        this.handle = handle;
+        this.windowNanos = windowNanos;
+    }
+
+    /**Assigns the next sequence number to a record that has just been
+     * appended to the log buffers.  Must be called while the append is still
+     * serialised by the caller so that sequence order matches log order.
+     *
+     * @return  The sequence number to pass to {@link #awaitDurable}.
+     */
+    synchronized long appended() {
+        return ++appended;
+    }
+
+    /**Waits until the record with the given sequence number has been forced
+     * to disk, performing the force if no other thread is doing so.
+     *
+     * @param sequence  The sequence number returned by {@link #appended}.
+     *
+     * @exception LogException The force covering the record failed.
+     */
+    void awaitDurable( long sequence ) throws LogException {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                synchronized (this) {
+                    for (;;) {
+                        if (durable >= sequence) {
+                            return;
+                        }
+                        if (failedUpTo >= sequence) {
+                            throw new LogException(LogException.LOG_ERROR_FORCING_LOG, 15,
+                                    failure.getMessage(), failure);
+                        }
+                        if (!forcing) {
+                            forcing = true;
+                            break;
+                        }
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                }
+                force();
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**Performs one force on behalf of every record appended so far.  Called
+     * by the leader only, with the forcing flag set.
+     */
+    private void force() {
+        if (windowNanos > 0) {
+            LockSupport.parkNanos(windowNanos);
+        }
+
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+
+        LogException error = null;
+        try {
+            handle.forceLog();
+        } catch (LogException le) {
+            error = le;
+        } catch (RuntimeException re) {
+            error = new LogException(LogException.LOG_ERROR_FORCING_LOG, 16, re.toString(), re);
+        }
+
+        synchronized (this) {
+            forcing = false;
+            forceCount++;
+            if (error == null) {
+                if (target > durable) {
+                    durable = target;
+                }
+            } else {
+                failure = error;
+                failedUpTo = target;
+            }
+            notifyAll();
+        }
+    }
+
+    /**Returns the number of forces issued so far.
+     */
+    synchronized long getForceCount() {
+        return forceCount;
+    }
+}
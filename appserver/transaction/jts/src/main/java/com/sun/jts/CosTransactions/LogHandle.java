@@ -396,6 +396,7 @@ class LogHandle {
             // Set its 'extent written' flag to TRUE
 
             logEDP.writtenSinceLastForce = true;
+            logEDP.writeCount++;
             logEDP.cursorPosition += bytesWritten;
 
             // Update the head LSN value in the Log_FileDescriptor block
@@ -542,6 +543,7 @@ class LogHandle {
         // Set 'extent written' flag to TRUE
 
         logEDP.writtenSinceLastForce = true;
+        logEDP.writeCount++;
         logEDP.cursorPosition += bytesWritten;
 
         // IF LOG_FORCE was specified
@@ -554,20 +556,8 @@ class LogHandle {
         //       Set 'extent written' flag to FALSE
         //   ENDLOOP
 
-        if( writeMode == FORCE ) {
-            Enumeration extents = extentTable.elements();
-            while( extents.hasMoreElements() ) {
-                LogExtent nextEDP = (LogExtent)extents.nextElement();
-                if( nextEDP.writtenSinceLastForce )
-                    try {
-                        nextEDP.fileHandle.fileSync();
-                        nextEDP.writtenSinceLastForce = false;
-                    } catch (LogException le) {
-                        throw new LogException(LogException.LOG_ERROR_FORCING_LOG, 14,
-                                sm.getString("jts.log_file_sync_failed"), le);
-                    }
-            }
-        }
+        if( writeMode == FORCE )
+            forceExtents();
 
         // Update the head LSN and 'next free' LSN in the Log_FileDescriptor
         // block
@@ -603,6 +593,87 @@ class LogHandle {
         return result;
     }
 
+    /**Forces all records written to the log so far to disk.
+     * <p>
+     * Used by group commit to make a batch of buffered records durable with a
+     * single force.  The extents to force are picked under the LogHandle lock,
+     * together with their write counts, but the syncs are issued outside it so
+     * that other writers can keep appending records meanwhile.  An extent is
+     * only marked as forced afterwards if it has not been written since it was
+     * picked, otherwise the next force syncs it again.
+     *
+     * @param
+     *
+     * @return
+     *
+     * @exception LogException The force failed.
+     *
+     * @see LogGroupCommit
+     */
+    void forceLog() throws LogException {
+
+        List forced = new ArrayList();
+        List writeCounts = new ArrayList();
+        synchronized( this ) {
+            if( blockValid != this )
+                throw new LogException(null,LogException.LOG_INVALID_FILE_DESCRIPTOR,1);
+
+            Enumeration extents = extentTable.elements();
+            while( extents.hasMoreElements() ) {
+                LogExtent nextEDP = (LogExtent)extents.nextElement();
+                if( nextEDP.writtenSinceLastForce ) {
+                    forced.add(nextEDP);
+                    writeCounts.add(Long.valueOf(nextEDP.writeCount));
+                }
+            }
+        }
+
+        for( int i = 0; i < forced.size(); i++ ) {
+            LogExtent nextEDP = (LogExtent)forced.get(i);
+            try {
+                nextEDP.fileHandle.fileSync();
+            } catch (LogException le) {
+                synchronized( this ) {
+                    // An extent closed meanwhile was either synced before it was
+                    // closed or truncated from the log.
+                    if( extentTable.get(nextEDP.extentNumber) != nextEDP )
+                        continue;
+                }
+                throw new LogException(LogException.LOG_ERROR_FORCING_LOG, 14,
+                        sm.getString("jts.log_file_sync_failed"), le);
+            }
+            synchronized( this ) {
+                if( nextEDP.writeCount == ((Long)writeCounts.get(i)).longValue() )
+                    nextEDP.writtenSinceLastForce = false;
+            }
+        }
+    }
+
+    /**Issues a sync for each extent written since it was last forced.
+     *
+     * @param
+     *
+     * @return
+     *
+     * @exception LogException The sync failed.
+     *
+     * @see
+     */
+    private void forceExtents() throws LogException {
+        Enumeration extents = extentTable.elements();
+        while( extents.hasMoreElements() ) {
+            LogExtent nextEDP = (LogExtent)extents.nextElement();
+            if( nextEDP.writtenSinceLastForce )
+                try {
+                    nextEDP.fileHandle.fileSync();
+                    nextEDP.writtenSinceLastForce = false;
+                } catch (LogException le) {
+                    throw new LogException(LogException.LOG_ERROR_FORCING_LOG, 14,
+                            sm.getString("jts.log_file_sync_failed"), le);
+                }
+        }
+    }
+
     /**Reads a record from the log.
      *
      * @param readLSN  The LSN of the record to be read.
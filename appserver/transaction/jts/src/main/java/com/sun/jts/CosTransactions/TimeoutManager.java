@@ -55,8 +55,14 @@
 package com.sun.jts.CosTransactions;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.omg.CosTransactions.*;
+import com.sun.enterprise.transaction.TransactionTimeoutWheel;
 import com.sun.jts.jtsxa.XID;
 
 import com.sun.jts.trace.*;
@@ -67,8 +73,15 @@ import com.sun.logging.LogDomains;
 import com.sun.jts.utils.LogFormatter;
 
 /**
- * This class records state for timing out transactions, and runs a thread
- * which performs occasional checks to time out transactions.
+ * This class records state for timing out transactions.  Each timeout is
+ * armed on the shared {@link TransactionTimeoutWheel}, so setting and
+ * cancelling a timeout is O(1) and needs no global lock.  Expired timeouts
+ * are handed to a dedicated thread which performs the timeout action.
+ * A timeout that is still recorded once its action has run (the transaction
+ * could not be rolled back, or the outcome of an in-doubt transaction is not
+ * known yet) is armed again to expire after the timeout interval
+ * ({@link Configuration#TIMEOUT_INTERVAL}), the period at which the former
+ * timeout thread rescanned all timeouts.
  *
  * @version 0.01
  *
@@ -98,12 +111,18 @@ class TimeoutManager {
      */
     private static boolean initialised = false;
 
-    private static Hashtable     pendingTimeouts = new Hashtable();
-    private static Hashtable     indoubtTimeouts = new Hashtable();
-    private static TimeoutThread timeoutThread = null;
-    private static boolean       timeoutActive = false;
-    private static boolean       quiescing = false;
-    private static boolean       isSetTimeout = false;
+    private static Map<Long, TimeoutInfo> pendingTimeouts = new ConcurrentHashMap<Long, TimeoutInfo>();
+    private static Map<Long, TimeoutInfo> indoubtTimeouts = new ConcurrentHashMap<Long, TimeoutInfo>();
+    private static volatile ExecutorService timeoutThread = null;
+    private static volatile boolean timeoutActive = false;
+    private static volatile boolean quiescing = false;
+    private static volatile boolean isSetTimeout = false;
+
+    /**
+     * Milliseconds after which a timeout whose action did not complete the
+     * transaction is retried; 0 until read from the configuration.
+     */
+    static volatile long timeoutInterval = 0;
 
 	/*
 		Logger to log transaction messages
@@ -141,9 +160,14 @@ class TimeoutManager {
     static synchronized void initSetTimeout() {
 	if (isSetTimeout)
 	   return;
+        timeoutThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "JTS Timeout Thread"/*#Frozen*/);
+                t.setDaemon(true);
+                return t;
+            }
+        });
         isSetTimeout = true;
-        timeoutThread = new TimeoutThread();
-        timeoutThread.start();
     }
 
     /**
@@ -184,10 +208,10 @@ class TimeoutManager {
                  }
                  timeoutInfo = new TimeoutInfo();
                  timeoutInfo.expireTime  =
-                    new Date().getTime() + seconds * 1000L;
+                    System.currentTimeMillis() + seconds * 1000L;
                  timeoutInfo.localTID    = localTID;
                  timeoutInfo.timeoutType = timeoutType;
-                 pendingTimeouts.put(localTID,timeoutInfo);
+                 arm(pendingTimeouts, timeoutInfo, seconds);
                  break;
             case TimeoutManager.IN_DOUBT_TIMEOUT :
 		 if (!isSetTimeout) {
@@ -196,10 +220,10 @@ class TimeoutManager {
                  }
                 timeoutInfo = new TimeoutInfo();
                 timeoutInfo.expireTime  =
-                    new Date().getTime() + seconds * 1000L;
+                    System.currentTimeMillis() + seconds * 1000L;
                 timeoutInfo.localTID    = localTID;
                 timeoutInfo.timeoutType = timeoutType;
-                indoubtTimeouts.put(localTID,timeoutInfo);
+                arm(indoubtTimeouts, timeoutInfo, seconds);
                 break;
 
             // For any other type, remove the timeout if there is one.
@@ -207,16 +231,16 @@ class TimeoutManager {
             default:
 		if (!isSetTimeout)
 		  break;
-                   result = (pendingTimeouts.remove(localTID) != null);
+                   result = disarm(pendingTimeouts.remove(localTID));
 		   if (!result)
-                      result = (indoubtTimeouts.remove(localTID) != null);
+                      result = disarm(indoubtTimeouts.remove(localTID));
 
                     // If the transaction service is quiescing and
                     // there are no more pending timeouts,
                     // deactivate timeout and stop the timeout thread.
 
                     if (quiescing && pendingTimeouts.isEmpty() && indoubtTimeouts.isEmpty()) {
-                        timeoutThread.stop();
+                        timeoutThread.shutdown();
                         timeoutActive = false;
                         // pendingTimeouts = null;
                     }
@@ -230,6 +254,146 @@ class TimeoutManager {
         return result;
     }
 
+    /**
+     * Records the timeout in the given table and arms it on the timeout wheel,
+     * replacing any previous timeout for the same transaction.
+     *
+     * @param timeouts     The table for the type of timeout.
+     * @param timeoutInfo  The timeout to arm.
+     * @param seconds      The length of the timeout.
+     *
+     * @return
+     *
+     * @see
+     */
+    private static void arm(final Map<Long, TimeoutInfo> timeouts,
+                            final TimeoutInfo timeoutInfo, int seconds) {
+        disarm(timeouts.put(timeoutInfo.localTID, timeoutInfo));
+        schedule(timeouts, timeoutInfo, seconds * 1000L);
+    }
+
+    /**
+     * Arms an expired timeout again after the timeout interval, unless it has
+     * been removed from its table or replaced in the meantime.
+     *
+     * @param timeouts     The table the timeout was recorded in.
+     * @param timeoutInfo  The timeout to arm again.
+     *
+     * @return
+     *
+     * @see
+     */
+    private static void rearm(Map<Long, TimeoutInfo> timeouts,
+                              TimeoutInfo timeoutInfo) {
+        if (!timeoutActive || timeouts.get(timeoutInfo.localTID) != timeoutInfo) {
+            return;
+        }
+        schedule(timeouts, timeoutInfo, getTimeoutInterval());
+
+        // A cancel that removed the timeout before the new handle was
+        // published could not cancel it, so check again.
+
+        if (timeouts.get(timeoutInfo.localTID) != timeoutInfo) {
+            disarm(timeoutInfo);
+        }
+    }
+
+    private static void schedule(final Map<Long, TimeoutInfo> timeouts,
+                                 final TimeoutInfo timeoutInfo, long millis) {
+        timeoutInfo.handle = TransactionTimeoutWheel.getInstance().schedule(
+            new Runnable() {
+                public void run() {
+                    expired(timeouts, timeoutInfo);
+                }
+            }, millis);
+    }
+
+    /**
+     * Returns the interval at which timeouts are retried, read from the
+     * {@link Configuration#TIMEOUT_INTERVAL} property in seconds, with a
+     * minimum and default of ten seconds.
+     */
+    private static long getTimeoutInterval() {
+        long interval = timeoutInterval;
+        if (interval == 0) {
+            interval = 10000;
+            try {
+                String timeout_interval = Configuration.getPropertyValue(Configuration.TIMEOUT_INTERVAL);
+                if (timeout_interval != null) {
+                    interval = Math.max(interval, Integer.parseInt(timeout_interval) * 1000L);
+                }
+            } catch (Exception e) {
+                // keep the default
+            }
+            timeoutInterval = interval;
+        }
+        return interval;
+    }
+
+    /**
+     * Cancels the wheel entry of a timeout removed from its table.
+     *
+     * @param timeoutInfo  The removed timeout, may be null.
+     *
+     * @return  Indicates whether there was a timeout to cancel.
+     *
+     * @see
+     */
+    private static boolean disarm(TimeoutInfo timeoutInfo) {
+        if (timeoutInfo == null) {
+            return false;
+        }
+        TransactionTimeoutWheel.Timeout handle = timeoutInfo.handle;
+        if (handle != null) {
+            handle.cancel();
+        }
+        return true;
+    }
+
+    /**
+     * Called on the timeout wheel thread when a timeout expires.  The timeout
+     * action is not performed on the wheel thread, as it may need to call the
+     * RecoveryManager or remote coordinators; it is passed to the JTS timeout
+     * thread instead.
+     *
+     * @param timeouts     The table the timeout was recorded in.
+     * @param timeoutInfo  The timeout that expired.
+     *
+     * @return
+     *
+     * @see
+     */
+    private static void expired(final Map<Long, TimeoutInfo> timeouts,
+                                final TimeoutInfo timeoutInfo) {
+
+        // Ignore a timeout that has since been replaced or cancelled.
+
+        if (!timeoutActive || timeouts.get(timeoutInfo.localTID) != timeoutInfo) {
+            return;
+        }
+
+        // Look up the Coordinator and tell it to roll back
+        // if it still exists. Note that we rely on the
+        // Coordinator calling removeCoordinator when it
+        // has finished, which will remove the timeout from 
+        // the list, and remove other associations as well.
+        // Until then, the timeout action is retried.
+
+        try {
+            timeoutThread.execute(new Runnable() {
+                public void run() {
+                    try {
+                        timeoutCoordinator(timeoutInfo.localTID, timeoutInfo.timeoutType);
+                    } finally {
+                        rearm(timeouts, timeoutInfo);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException exc) {
+            _logger.log(Level.INFO, "jts.time_out_thread_stopped");
+        }
+    }
+
     /**
      * Takes appropriate action for a timeout.
      * <p>
@@ -351,132 +515,30 @@ class TimeoutManager {
         }
     }
 
-    /**
-     * Periodically checks the existing timeouts.
-     * <p>
-     * This is done to discover if any transactions have overrun their allotted
-     * time.  Those which have are returned as an Enumeration.
-     * <p>
-     * Note that this method should not do anything that will cause a
-     * synchronized method in the RecoveryManager to be called, as this could
-     * cause a deadlock when RecoveryManager methods on other threads call
-     * setTimeout.
-     *
-     * @param
-     *
-     * @return  The information for transactions which have timed out.
-     *
-     * @see
-     */
-     static Enumeration checkTimeouts() {
-        if (!isSetTimeout)
-           return null;
-
-        Enumeration result = null;
-
-        // When woken up, go through all current timeouts and identify those
-        // which have expired.
-
-        if (timeoutActive && ((pendingTimeouts.size() != 0) || (indoubtTimeouts.size() != 0))) {
-            Vector timedOut = null;
-
-            Enumeration timeouts = null;
-          
-            synchronized (pendingTimeouts) {
-                timeouts = pendingTimeouts.elements();
-
-                while (timeouts.hasMoreElements()) {
-
-                    TimeoutInfo timeoutInfo = (TimeoutInfo)timeouts.nextElement();
-
-                    // For each timeout in the list, check whether it has expired.
-                    // If so, look up the Coordinator and roll it back.
-
-                    if (new Date().getTime() > timeoutInfo.expireTime) {
-
-                       // Add the TimeoutInfo to the queue of
-                       //those that have timed out.
-
-                       if (timedOut == null) {
-                           timedOut = new Vector();
-                       }
-
-                       timedOut.addElement(timeoutInfo);
-                    }
-               }
-            }
-
-	    synchronized (indoubtTimeouts) {
-
-                timeouts = indoubtTimeouts.elements();
-
-                while (timeouts.hasMoreElements()) {
-
-                    TimeoutInfo timeoutInfo = (TimeoutInfo)timeouts.nextElement();
-
-                    // For each timeout in the list, check whether it has expired.
-                    // If so, look up the Coordinator and roll it back.
-
-                    if (new Date().getTime() > timeoutInfo.expireTime) {
-
-                       // Add the TimeoutInfo to the queue of
-                       //those that have timed out.
-
-                       if (timedOut == null) {
-                           timedOut = new Vector();
-                       }
-
-                       timedOut.addElement(timeoutInfo);
-                    }
-                }
-
-            }
-            // Enumerate the transactions which have timed out.
-
-            if (timedOut != null) {
-                result = timedOut.elements();
-            }
-           }
-
-        // The remainder of the timeout processing is not carried out here
-        // because we would get deadlocked with addCoordinator or
-        // removeCoordinator that also update the timeout list.  Hence the
-        // returned enumeration, which may be processed with
-        // no concurrency control.
-
-        return result;
-    }
-
     /**
      * @return a set of in-doubt transaction ids.
      */
     static XID[] getInDoubtXids() {
-        
-       synchronized (indoubtTimeouts) {
-        Vector inDoubtList = new Vector();
-        
-        Enumeration timeouts = indoubtTimeouts.elements();
 
-        while (timeouts.hasMoreElements()) {
+        Vector inDoubtList = new Vector();
 
-            TimeoutInfo timeoutInfo = (TimeoutInfo) timeouts.nextElement();
+        for (TimeoutInfo timeoutInfo : indoubtTimeouts.values()) {
 
             // Look up the Coordinator for the transaction.
             // If there is none, then the transaction has already gone.
             // Otherwise do something with the transaction.
-                
-            CoordinatorImpl coord = 
+
+            CoordinatorImpl coord =
                 RecoveryManager.getLocalCoordinator(timeoutInfo.localTID);
-                                
+
             if (coord != null) {
                 XID xid = new XID();
                 xid.copy(coord.getGlobalTID());
                 inDoubtList.addElement(xid);
             }
         }
-        
+
         return (XID[]) inDoubtList.toArray(new XID[] {});
-       }
     }
 
     /**
@@ -492,12 +554,12 @@ class TimeoutManager {
      */
     static long timeLeft(Long localTID) {
 
-        TimeoutInfo timeoutInfo = (TimeoutInfo) pendingTimeouts.get(localTID);
+        TimeoutInfo timeoutInfo = pendingTimeouts.get(localTID);
         if (timeoutInfo == null)
-            timeoutInfo = (TimeoutInfo) indoubtTimeouts.get(localTID);
+            timeoutInfo = indoubtTimeouts.get(localTID);
         long result = -1;
         if (timeoutInfo != null) {
-            result = timeoutInfo.expireTime - new Date().getTime();
+            result = timeoutInfo.expireTime - System.currentTimeMillis();
             if (result < 0) {
                 result = 0;
             }
@@ -530,10 +592,13 @@ class TimeoutManager {
         if (immediate ||
                 pendingTimeouts == null || pendingTimeouts.isEmpty()) {
             if (timeoutThread != null) {
-                timeoutThread.stop();
+                timeoutThread.shutdownNow();
             }
 
             if (pendingTimeouts != null) {
+                for (TimeoutInfo timeoutInfo : pendingTimeouts.values()) {
+                    disarm(timeoutInfo);
+                }
                 pendingTimeouts.clear();
             }
 
@@ -610,106 +675,5 @@ class TimeoutInfo extends Object {
     Long localTID = null;
     long expireTime = 0;
     int  timeoutType = TimeoutManager.NO_TIMEOUT;
-}
-
-/**
- * This class represents a thread on which the TimeoutManager can perform
- * timeout checking.
- *
- * @version 0.01
- *
- * @author Simon Holdsworth, IBM Corporation
- *
- * @see
- */
-
-//----------------------------------------------------------------------------
-// CHANGE HISTORY
-//
-// Version By     Change Description
-//   0.01  SAJH   Initial implementation.
-//----------------------------------------------------------------------------
-
-class TimeoutThread extends Thread {
-
-    private int TIMEOUT_INTERVAL ;
-
-    static Logger _logger = LogDomains.getLogger(TimeoutThread.class, LogDomains.TRANSACTION_LOGGER);
-    /**
-     * TimeoutThread constructor.
-     * <p>
-     * This sets the thread name, and sets the thread to be a daemon thread so
-     * that it does not prevent the process from terminating.
-     *
-     * @param
-     *
-     * @return
-     *
-     * @see
-     */
-    TimeoutThread() {
-        setName("JTS Timeout Thread"/*#Frozen*/);
-        setDaemon(true);
-        try{
-            String timeout_interval = Configuration.getPropertyValue(Configuration.TIMEOUT_INTERVAL);
-            if(timeout_interval!=null){
-                TIMEOUT_INTERVAL= Integer.parseInt(timeout_interval);
-		TIMEOUT_INTERVAL*=1000;
-                if(TIMEOUT_INTERVAL<10000)
-                    TIMEOUT_INTERVAL=10000;
-            }
-            else{
-                TIMEOUT_INTERVAL=10000;
-            }
-        }catch(Exception e){
-            TIMEOUT_INTERVAL=10000;
-        }
-    }
-
-    /**
-     * Performs timeout checking on a regular basis (every ten seconds or so).
-     *
-     * @param
-     *
-     * @return
-     *
-     * @see
-     */
-    public void run() {
-        try {
-            while (true) {
-
-                // Sleep for a while between checks.
-
-                Thread.sleep(TIMEOUT_INTERVAL);
-
-                // Perform timeout checks, getting a list of timed-out
-                // transactions.
-
-                Enumeration timedOut = TimeoutManager.checkTimeouts();
-
-                // Now we must go through the list, telling each
-                // timed-out Coordinator to do something appropriate.
-
-                if (timedOut != null) {
-                    while (timedOut.hasMoreElements()) {
-                        TimeoutInfo timeoutInfo =
-                            (TimeoutInfo) timedOut.nextElement();
-
-                        // Look up the Coordinator and tell it to roll back
-                        // if it still exists. Note that we rely on the
-                        // Coordinator calling removeCoordinator when it
-                        // has finished, which will remove the timeout from 
-                        // the list, and remove other associations as well.
-
-                        TimeoutManager.
-                            timeoutCoordinator(timeoutInfo.localTID,
-                                               timeoutInfo.timeoutType);
-                    }
-                }
-            }
-        } catch (InterruptedException exc) {
-			_logger.log(Level.INFO,"jts.time_out_thread_stopped");
-        }
-    }
+    volatile TransactionTimeoutWheel.Timeout handle = null;
 }
@@ -0,0 +1,199 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.jts.CosTransactions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that concurrent forced log writes share forces, and that a writer
+ * is only released by a force that started after its record was appended.
+ */
+public class LogGroupCommitTest extends TestCase {
+
+    private FakeLogHandle handle;
+    private LogGroupCommit groupCommit;
+
+    protected void setUp() throws Exception {
+        handle = new FakeLogHandle();
+        groupCommit = new LogGroupCommit(handle, 0L);
+    }
+
+    public void testSingleWriterForcesOnce() throws Exception {
+        long sequence = append();
+        groupCommit.awaitDurable(sequence);
+
+        assertEquals(1, groupCommit.getForceCount());
+        assertEquals(sequence, handle.forcedUpTo.get());
+    }
+
+    public void testWritersDuringForceShareNextForce() throws Exception {
+        handle.blockNextForce();
+        Writer first = new Writer();
+        first.start();
+        assertTrue(handle.forceStarted.await(10, TimeUnit.SECONDS));
+
+        List<Writer> writers = new ArrayList<Writer>();
+        for (int i = 0; i < 3; i++) {
+            Writer writer = new Writer();
+            writer.start();
+            writers.add(writer);
+        }
+        for (Writer writer : writers) {
+            awaitWaiting(writer);
+        }
+        handle.releaseForce.countDown();
+
+        first.join();
+        first.assertDurable();
+        for (Writer writer : writers) {
+            writer.join();
+            writer.assertDurable();
+        }
+        assertEquals(2, groupCommit.getForceCount());
+    }
+
+    public void testFailedForceIsReportedToCoveredWriters() throws Exception {
+        handle.failNextForce = true;
+        long sequence = append();
+        try {
+            groupCommit.awaitDurable(sequence);
+            fail("expected the force failure");
+        } catch (LogException expected) {
+        }
+
+        // a later record gets its own force
+        long next = append();
+        groupCommit.awaitDurable(next);
+        assertEquals(next, handle.forcedUpTo.get());
+    }
+
+    private long append() {
+        // LogFile appends under its own lock, so the records reach the handle
+        // in sequence order
+        synchronized (handle) {
+            long sequence = groupCommit.appended();
+            handle.appended.set(sequence);
+            return sequence;
+        }
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.WAITING) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(thread.getName() + " is not waiting for the running force");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private class Writer extends Thread {
+        private volatile long sequence;
+        private volatile long forcedUpToOnReturn;
+        private volatile Throwable failure;
+
+        public void run() {
+            try {
+                sequence = append();
+                groupCommit.awaitDurable(sequence);
+                forcedUpToOnReturn = handle.forcedUpTo.get();
+            } catch (Throwable t) {
+                failure = t;
+            }
+        }
+
+        void assertDurable() {
+            if (failure != null) {
+                throw new AssertionError(failure);
+            }
+            assertTrue("record " + sequence + " released before it was forced",
+                    forcedUpToOnReturn >= sequence);
+        }
+    }
+
+    /**
+     * Records how far the log was forced: a force covers the records
+     * appended before it started.
+     */
+    private static class FakeLogHandle extends LogHandle {
+        final AtomicLong appended = new AtomicLong();
+        final AtomicLong forcedUpTo = new AtomicLong();
+        volatile CountDownLatch forceStarted = new CountDownLatch(0);
+        volatile CountDownLatch releaseForce = new CountDownLatch(0);
+        volatile boolean failNextForce;
+
+        FakeLogHandle() throws LogException {
+            super(null, "test", null, null);
+        }
+
+        void blockNextForce() {
+            forceStarted = new CountDownLatch(1);
+            releaseForce = new CountDownLatch(1);
+        }
+
+        void forceLog() throws LogException {
+            long covered;
+            synchronized (this) {
+                covered = appended.get();
+            }
+            CountDownLatch release = releaseForce;
+            forceStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            releaseForce = new CountDownLatch(0);
+            if (failNextForce) {
+                failNextForce = false;
+                throw new LogException(LogException.LOG_ERROR_FORCING_LOG, 14, "force failed", null);
+            }
+            forcedUpTo.set(covered);
+        }
+    }
+}
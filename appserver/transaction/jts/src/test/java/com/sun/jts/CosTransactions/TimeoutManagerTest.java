@@ -0,0 +1,118 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.jts.CosTransactions;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.omg.CosTransactions.Status;
+
+/**
+ * Tests that timeouts whose action did not complete the transaction are retried.
+ */
+public class TimeoutManagerTest extends TestCase {
+
+    private static final Long LOCAL_TID = Long.valueOf(4711L);
+
+    private final GlobalTID globalTID = new GlobalTID(0, 0, new byte[] {1, 2, 3, 4});
+
+    @Override
+    protected void setUp() {
+        TimeoutManager.initialise();
+        TimeoutManager.timeoutInterval = 100;
+    }
+
+    @Override
+    protected void tearDown() {
+        TimeoutManager.setTimeout(LOCAL_TID, TimeoutManager.CANCEL_TIMEOUT, 0);
+        RecoveryManager.removeCoordinator(globalTID, LOCAL_TID, true);
+    }
+
+    public void testInDoubtTimeoutIsRetriedUntilRecovered() throws Exception {
+        InDoubtCoordinator coord = new InDoubtCoordinator(globalTID, LOCAL_TID);
+        RecoveryManager.addCoordinator(globalTID, LOCAL_TID, coord, 0);
+
+        TimeoutManager.setTimeout(LOCAL_TID, TimeoutManager.IN_DOUBT_TIMEOUT, 1);
+
+        assertTrue(coord.rolledBack.await(10, TimeUnit.SECONDS));
+        assertEquals(2, coord.recoverCalls.get());
+        assertTrue(TimeoutManager.timeLeft(LOCAL_TID) < 0);
+    }
+
+    /**
+     * An in-doubt transaction whose outcome is unknown the first time
+     * recovery is attempted, and rolled back the second time.
+     */
+    private static final class InDoubtCoordinator extends TopCoordinator {
+
+        final AtomicInteger recoverCalls = new AtomicInteger();
+        final CountDownLatch rolledBack = new CountDownLatch(1);
+        private final GlobalTID globalTID;
+        private final Long localTID;
+
+        InDoubtCoordinator(GlobalTID globalTID, Long localTID) {
+            this.globalTID = globalTID;
+            this.localTID = localTID;
+        }
+
+        @Override
+        synchronized Status recover(boolean[] isRoot) {
+            isRoot[0] = false;
+            return (recoverCalls.incrementAndGet() == 1)
+                ? Status.StatusUnknown : Status.StatusRolledBack;
+        }
+
+        @Override
+        void rollback(boolean force) {
+            RecoveryManager.removeCoordinator(globalTID, localTID, true);
+            rolledBack.countDown();
+        }
+
+        @Override
+        public boolean is_top_level_transaction() {
+            return false;
+        }
+    }
+}
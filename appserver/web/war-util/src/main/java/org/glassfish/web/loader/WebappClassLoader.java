@@ -19,6 +19,7 @@ package org.glassfish.web.loader;
 
 import com.sun.appserv.BytecodePreprocessor;
 import com.sun.appserv.server.util.PreprocessorUtil;
+import com.sun.enterprise.loader.PackageIndex;
 import com.sun.enterprise.util.io.FileUtils;
 import org.apache.naming.JndiPermission;
 import org.apache.naming.resources.DirContextURLStreamHandler;
@@ -112,6 +113,10 @@ public class WebappClassLoader
 
     private static final ResourceBundle rb = logger.getResourceBundle();
 
+    static {
+        registerAsParallelCapable();
+    }
+
     /**
      * Set of package names which are not allowed to be loaded from a webapp
      * class loader without delegating first.
@@ -214,6 +219,12 @@ public class WebappClassLoader
      */
     protected final Object jarFilesLock = new Object();
 
+    /**
+     * The directories of the JARs in <code>jarFiles</code>, by position,
+     * so that lookups only search the JARs that can contain a resource.
+     */
+    private final PackageIndex packageIndex = new PackageIndex();
+
     /**
      * The list of JARs, in the order they should be searched
      * for locally loaded classes or resources.
@@ -815,6 +826,7 @@ public class WebappClassLoader
             result2[i] = jarFiles[i];
         }
         result2[jarFiles.length] = jarFile;
+        packageIndex.add(jarFiles.length, jarFile);
         jarFiles = result2;
 
         // Add the file to the list
@@ -1457,7 +1469,21 @@ public class WebappClassLoader
      * @exception ClassNotFoundException if the class was not found
      */
     @Override
-    protected synchronized Class<?> loadClass(String name, boolean resolve)
+    protected Class<?> loadClass(String name, boolean resolve)
+        throws ClassNotFoundException {
+
+        synchronized (getClassLoadingLock(name)) {
+            return loadClassUnderLock(name, resolve);
+        }
+
+    }
+
+
+    /**
+     * Does the work of {@link #loadClass(String, boolean)} while the class
+     * loading lock of the class is held.
+     */
+    private Class<?> loadClassUnderLock(String name, boolean resolve)
         throws ClassNotFoundException {
 
         if (logger.isLoggable(Level.FINER)) {
@@ -1798,6 +1824,7 @@ public class WebappClassLoader
         files = null;
         jarFiles = null;
         jarRealFiles = null;
+        packageIndex.clear();
         jarPath = null;
         jarNames.clear();
         lastModifiedDates = null;
@@ -2775,8 +2802,16 @@ public class WebappClassLoader
         }
 
         int jarFilesLength = jarFiles.length;
-
-        for (int i=0; (entry == null) && (i < jarFilesLength); i++) {
+        // Only search the JARs with entries in the directory of the path
+        int[] candidates = packageIndex.getPositions(path);
+        int candidatesLength =
+            (candidates == null) ? jarFilesLength : candidates.length;
+
+        for (int c=0; (entry == null) && (c < candidatesLength); c++) {
+            int i = (candidates == null) ? c : candidates[c];
+            if (i >= jarFilesLength) {
+                break;
+            }
             jarEntry = jarFiles[i].getJarEntry(path);
 
             if (jarEntry != null) {
@@ -64,6 +64,12 @@ public class CacheManager {
     public static final String DEFAULT_CACHE_CLASSNAME = 
         "com.sun.appserv.util.cache.LruCache";
 
+    public static final String TINYLFU_CACHE_CLASSNAME =
+        "com.sun.appserv.util.cache.TinyLfuCache";
+
+    // short name accepted for the cacheClassName property
+    public static final String TINYLFU_CACHE_NAME = "tinylfu";
+
     private static final Logger _logger = LogFacade.getLogger();
 
     /**
@@ -148,7 +154,8 @@ public class CacheManager {
      */
     public void addProperty(String name, String value) {
         if (name.equalsIgnoreCase("cacheClassName")) {
-           cacheClassName = value; 
+           cacheClassName = TINYLFU_CACHE_NAME.equalsIgnoreCase(value) ?
+               TINYLFU_CACHE_CLASSNAME : value;
         } else {
             if (cacheProps == null) {
                 cacheProps = new Properties();
@@ -113,6 +113,9 @@ public final class Constants {
 
     public static final String ACCESS_LOGGING_ENABLED = "accessLoggingEnabled";
 
+    public static final String ACCESS_LOG_PER_THREAD_BUFFERS_PROPERTY =
+        "accessLogPerThreadBuffers";
+
     public static final String SSO_ENABLED = "sso-enabled";
 
     public static final String ERROR_REPORT_VALVE = "errorReportValve";
@@ -63,9 +63,13 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -79,6 +83,17 @@ import java.util.logging.Logger;
  * </p>This class uses a direct <code>ByteBuffer</code> to store and write 
  * logs. 
  *
+ * </p>By default, all requests append their entries to one shared
+ * <code>CharBuffer</code> under a common lock.  When per-thread buffers are
+ * enabled, each request borrows a set of buffers from a pool, formats into
+ * its <code>CharBuffer</code> and encodes the entry straight into its direct
+ * <code>ByteBuffer</code>; the full buffers are then written to the log file
+ * with one gathering write.  The pool only grows to the number of requests
+ * logged concurrently, so the direct memory does not depend on how many
+ * request threads come and go, and it is dropped as a whole when the valve
+ * is stopped.  Entries of different requests may appear in the log slightly
+ * out of order.
+ *
  * @author Jean-Francois Arcand
  * @author Charlie J. Hunt
  */
@@ -295,6 +310,20 @@ public final class PEAccessLogValve
      * Simple lock
      */
     private Object lock = new Object();
+
+
+    /**
+     * Should each request thread format and encode its entries into its own
+     * buffers?
+     */
+    private boolean perThreadBuffers = false;
+
+
+    /**
+     * The buffers of the request threads, when per-thread buffers are used
+     * and the valve is started.
+     */
+    private volatile LogBufferPool logBuffers = null;
     
 
     /**
@@ -353,6 +382,23 @@ public final class PEAccessLogValve
         return bufferSize;
     }
 
+
+    /**
+     * Are entries formatted and encoded into per-thread buffers?
+     */
+    public boolean isPerThreadBuffers() {
+        return perThreadBuffers;
+    }
+
+
+    /**
+     * Set whether entries are formatted and encoded into per-thread buffers,
+     * instead of one shared buffer.  Takes effect when this valve is started.
+     */
+    public void setPerThreadBuffers(boolean perThreadBuffers) {
+        this.perThreadBuffers = perThreadBuffers;
+    }
+
     // ------------------------------------------------------------- Properties
 
 
@@ -579,6 +625,11 @@ public final class PEAccessLogValve
                 null!=request.getRequest().getAttribute(condition)) {
              return;
         }
+
+        if (perThreadBuffers) {
+            postInvokePerThread(request, response);
+            return;
+        }
         
         synchronized (lock){
             // Reset properly the buffer in case of an unexpected
@@ -618,11 +669,96 @@ public final class PEAccessLogValve
     }
 
 
+    /*
+     * Formats the entry into the buffers of the current thread, and writes
+     * them when they are full.
+     */
+    private void postInvokePerThread(Request request, Response response)
+            throws IOException {
+
+        LogBufferPool buffers = logBuffers;
+        if (formatter == null || buffers == null) {
+            return;
+        }
+
+        LogBuffer logBuffer = buffers.borrow();
+        ByteBuffer full = null;
+        try {
+            CharBuffer chars = logBuffer.chars;
+            chars.clear();
+            try {
+                formatter.appendLogEntry(request, response, chars);
+                chars.put('\n');
+            } catch (BufferOverflowException ex) {
+                _logger.log(Level.SEVERE,
+                            LogFacade.ACCESS_LOG_UNABLE_TO_WRITE,
+                            new Object[] {ex});
+                return;
+            }
+            chars.flip();
+
+            synchronized (logBuffer) {
+                if (!logBuffer.encode(chars)) {
+                    // Hand the full buffer over and retry with an empty one
+                    full = logBuffer.takeBytes();
+                    if (!logBuffer.encode(chars)) {
+                        _logger.log(Level.SEVERE,
+                                    LogFacade.ACCESS_LOG_UNABLE_TO_WRITE,
+                                    new Object[] {new BufferOverflowException()});
+                    }
+                }
+                if (flushRealTime && full == null) {
+                    full = logBuffer.takeBytes();
+                }
+            }
+        } finally {
+            buffers.release(logBuffer);
+        }
+
+        if (full != null) {
+            rotateIfNeeded();
+            write(new ByteBuffer[] {full});
+            logBuffer.recycle(full);
+        }
+    }
+
+
     /**
      * Log the specified message to the log file, switching files if the date
      * has changed since the previous log call.
      */
     public void log() throws IOException {
+
+        rotateIfNeeded();
+
+        if (perThreadBuffers) {
+            writeLogBuffers();
+            return;
+        }
+        
+        synchronized(lock){
+            try{
+                charBuffer.flip();
+                ByteBuffer byteBuffer =
+                    ByteBuffer.wrap(charBuffer.toString().getBytes(Charset.defaultCharset()));
+                while (byteBuffer.hasRemaining()){
+                    fileChannel.write(byteBuffer);
+                }
+            } catch (IOException ex){
+                ;
+            } finally {
+                charBuffer.clear();
+            }
+        }
+
+    }
+
+
+    /*
+     * Switches to a new log file if the rotation interval has elapsed and
+     * the date stamp has changed.
+     */
+    private void rotateIfNeeded() throws IOException {
         
         if (rotatable){
 
@@ -644,29 +780,73 @@ public final class PEAccessLogValve
                         lastAccessLogCreationTime = systime;
 
                         if (!lastDateStamp.equals(newDateStamp)) {
-                            close();
-                            open(newDateStamp, false);
+                            // Hold the write lock so that no per-thread
+                            // buffer is written while there is no file
+                            synchronized (lock) {
+                                close();
+                                open(newDateStamp, false);
+                            }
                         }
                     }
                 }
             }
         }
-        
-        synchronized(lock){
-            try{
-                charBuffer.flip();
-                ByteBuffer byteBuffer =
-                    ByteBuffer.wrap(charBuffer.toString().getBytes(Charset.defaultCharset()));
-                while (byteBuffer.hasRemaining()){
-                    fileChannel.write(byteBuffer);
+    }
+
+
+    /*
+     * Writes the buffers of all request threads to the log file with one
+     * gathering write.
+     */
+    private void writeLogBuffers() {
+        LogBufferPool buffers = logBuffers;
+        if (buffers == null) {
+            return;
+        }
+        List<LogBuffer> owners = new ArrayList<LogBuffer>();
+        List<ByteBuffer> filled = new ArrayList<ByteBuffer>();
+        for (LogBuffer logBuffer : buffers.all) {
+            ByteBuffer full;
+            synchronized (logBuffer) {
+                full = logBuffer.takeBytes();
+            }
+            if (full != null) {
+                owners.add(logBuffer);
+                filled.add(full);
+            }
+        }
+        if (filled.isEmpty()) {
+            return;
+        }
+
+        write(filled.toArray(new ByteBuffer[filled.size()]));
+        for (int i = 0; i < filled.size(); i++) {
+            owners.get(i).recycle(filled.get(i));
+        }
+    }
+
+
+    /*
+     * Writes the given flipped buffers to the log file, and clears them.
+     */
+    private void write(ByteBuffer[] buffers) {
+        synchronized (lock) {
+            try {
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
                 }
-            } catch (IOException ex){
+                while (remaining > 0) {
+                    remaining -= fileChannel.write(buffers);
+                }
+            } catch (IOException ex) {
                 ;
             } finally {
-                charBuffer.clear();
+                for (ByteBuffer buffer : buffers) {
+                    buffer.clear();
+                }
             }
         }
-
     }
 
 
@@ -790,6 +970,13 @@ public final class PEAccessLogValve
             }
         }
 
+        /*
+         * The accessLogPerThreadBuffers property under <virtual-server>
+         * enables per-thread formatting and encoding buffers
+         */
+        setPerThreadBuffers(Boolean.parseBoolean(vsBean.getPropertyValue(
+            Constants.ACCESS_LOG_PER_THREAD_BUFFERS_PROPERTY)));
+
         return true;
     }
 
@@ -1060,7 +1247,11 @@ public final class PEAccessLogValve
             bufferSize = MIN_BUFFER_SIZE;
         }
 
-        charBuffer = CharBuffer.allocate(bufferSize);
+        if (perThreadBuffers) {
+            logBuffers = new LogBufferPool(bufferSize);
+        } else {
+            charBuffer = CharBuffer.allocate(bufferSize);
+        }
 
         // Initialize the timeZone, Date formatters, and currentDate
         final TimeZone tz = TimeZone.getDefault();
@@ -1118,6 +1309,9 @@ public final class PEAccessLogValve
         }
         
         close();
+
+        // Buffers still borrowed by a request go back to the dropped pool
+        logBuffers = null;
     }
 
     
@@ -1193,4 +1387,124 @@ public final class PEAccessLogValve
         writerThread = null;
 
     }
+
+
+    /**
+     * The buffers used when per-thread buffers are enabled.  A request
+     * borrows a <code>LogBuffer</code> for as long as it formats and encodes
+     * its entry, so no more buffers are allocated than there are requests
+     * logging at the same time.
+     */
+    private static final class LogBufferPool {
+
+        private final int size;
+
+        /**
+         * Every buffer of this pool, whether borrowed or not, so that the
+         * writer thread can collect their entries.
+         */
+        private final Queue<LogBuffer> all =
+            new ConcurrentLinkedQueue<LogBuffer>();
+
+        private final Queue<LogBuffer> idle =
+            new ConcurrentLinkedQueue<LogBuffer>();
+
+        LogBufferPool(int size) {
+            this.size = size;
+        }
+
+        LogBuffer borrow() {
+            LogBuffer logBuffer = idle.poll();
+            if (logBuffer == null) {
+                logBuffer = new LogBuffer(size);
+                all.add(logBuffer);
+            }
+            return logBuffer;
+        }
+
+        void release(LogBuffer logBuffer) {
+            idle.offer(logBuffer);
+        }
+    }
+
+
+    /**
+     * The buffers of one borrower: the entry being formatted, and the
+     * direct buffer into which the entries are encoded until it is written.
+     * The byte buffers are guarded by the monitor of this object; the char
+     * buffer is only used by the current borrower.
+     */
+    private static final class LogBuffer {
+
+        private final CharBuffer chars;
+
+        private final CharsetEncoder encoder;
+
+        private final int size;
+
+        private ByteBuffer bytes;
+
+        /**
+         * An empty buffer to swap in when <code>bytes</code> is taken, or
+         * null while it is being written.
+         */
+        private ByteBuffer spare;
+
+        LogBuffer(int size) {
+            this.size = size;
+            chars = CharBuffer.allocate(size);
+            encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            bytes = ByteBuffer.allocateDirect(size);
+            spare = ByteBuffer.allocateDirect(size);
+        }
+
+        /**
+         * Encodes the given entry.
+         *
+         * @return false, leaving the buffers unchanged, if the entry does not
+         * fit in the remaining space
+         */
+        boolean encode(CharBuffer entry) {
+            int mark = bytes.position();
+            encoder.reset();
+            CoderResult result = encoder.encode(entry, bytes, true);
+            if (!result.isOverflow()) {
+                result = encoder.flush(bytes);
+            }
+            if (result.isOverflow()) {
+                bytes.position(mark);
+                entry.rewind();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Takes the encoded entries, flipped for writing, and replaces them
+         * with an empty buffer.
+         *
+         * @return the entries, or null if there are none
+         */
+        ByteBuffer takeBytes() {
+            if (bytes.position() == 0) {
+                return null;
+            }
+            ByteBuffer full = bytes;
+            bytes = (spare != null) ? spare : ByteBuffer.allocateDirect(size);
+            spare = null;
+            full.flip();
+            return full;
+        }
+
+        /**
+         * Gives back a buffer returned by {@link #takeBytes} once written.
+         */
+        synchronized void recycle(ByteBuffer written) {
+            if (spare == null) {
+                spare = written;
+            }
+        }
+    }
 }
@@ -2979,7 +2979,8 @@ public class WebContainer implements org.glassfish.api.container.Container, Post
                     habitat,
                     domain,
                     globalAccessLoggingEnabled);
-        } else if (Constants.ACCESS_LOG_BUFFER_SIZE_PROPERTY.equals(name)) {
+        } else if (Constants.ACCESS_LOG_BUFFER_SIZE_PROPERTY.equals(name)
+                || Constants.ACCESS_LOG_PER_THREAD_BUFFERS_PROPERTY.equals(name)) {
             vs.reconfigureAccessLog(globalAccessLogBufferSize,
                     globalAccessLogWriteInterval,
                     habitat,
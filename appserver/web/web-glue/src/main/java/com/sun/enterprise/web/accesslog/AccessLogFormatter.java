@@ -104,21 +104,20 @@ public abstract class AccessLogFormatter {
     protected boolean needTimeTaken;
 
     /**
-     * The system time when we last updated the Date that this valve
-     * uses for log lines.
+     * The current date, formatted as "dd/MMM/yyyy:HH:mm:ss zzzz", and the
+     * second it was formatted for.
      */
-    private Date currentDate = null;
+    private volatile FormattedDate formattedDate = null;
 
 
     /**
      * Constructor.
      *
-     * Initialize the timeZone and currentDate.
+     * Initialize the timeZone.
      */
     public AccessLogFormatter() {
         tz = TimeZone.getDefault();
         timeZone = calculateTimeZoneOffset(tz.getRawOffset());
-        currentDate = new Date(System.currentTimeMillis());
     }
 
 
@@ -136,24 +135,58 @@ public abstract class AccessLogFormatter {
 
 
     /**
-     * This method returns a Date object that is accurate to within one
-     * second.  If a writerThread calls this method to get a Date and it's been
-     * less than 1 second since a new Date was created, this method
-     * simply gives out the same Date again so that the system doesn't
-     * spend time creating Date objects unnecessarily.
-     */
-    protected synchronized Date getDate() {
-
-        // Only create a new Date once per second, max.
-        long systime = System.currentTimeMillis();
-        if ((systime - currentDate.getTime()) > 1000) {
-            currentDate = new Date(systime);
+     * Appends the current date, formatted as "dd/MMM/yyyy:HH:mm:ss zzzz",
+     * to the given CharBuffer.  The date is formatted with the day, month,
+     * year and time formatters of this formatter at most once per second,
+     * instead of for every entry.
+     */
+    protected void appendDate(CharBuffer cb) {
+        long second = System.currentTimeMillis() / 1000;
+        FormattedDate fd = formattedDate;
+        if (fd == null || fd.second != second) {
+            Date date = new Date(second * 1000);
+            StringBuilder sb = new StringBuilder(26);
+            sb.append(dayFormatter.get().format(date));           // Day
+            sb.append('/');
+            sb.append(lookup(monthFormatter.get().format(date))); // Month
+            sb.append('/');
+            sb.append(yearFormatter.get().format(date));          // Year
+            sb.append(':');
+            sb.append(timeFormatter.get().format(date));          // Time
+            sb.append(SPACE);
+            sb.append(timeZone);                                  // Time Zone
+            char[] chars = new char[sb.length()];
+            sb.getChars(0, chars.length, chars, 0);
+            fd = new FormattedDate(second, chars);
+            formattedDate = fd;
         }
+        cb.put(fd.chars);
+    }
 
-        return currentDate;
 
+    /**
+     * Appends the decimal representation of the given number to the given
+     * CharBuffer, without creating a String.
+     */
+    protected static void appendNumber(CharBuffer cb, long value) {
+        if (value == Long.MIN_VALUE) {
+            cb.put(String.valueOf(value));
+            return;
+        }
+        if (value < 0) {
+            cb.put('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            cb.put((char) ('0' + (value / divisor) % 10));
+        }
     }
 
+
     protected String calculateTimeZoneOffset(long offset) {
         StringBuilder sb = new StringBuilder();
         if ((offset<0))  {
@@ -206,4 +239,20 @@ public abstract class AccessLogFormatter {
     public boolean needTimeTaken() {
         return needTimeTaken;
     }    
+
+
+    /**
+     * A date formatted for the access log, with the second it stands for.
+     */
+    private static final class FormattedDate {
+
+        private final long second;
+
+        private final char[] chars;
+
+        FormattedDate(long second, char[] chars) {
+            this.second = second;
+            this.chars = chars;
+        }
+    }
 }
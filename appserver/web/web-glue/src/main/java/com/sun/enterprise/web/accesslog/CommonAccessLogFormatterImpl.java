@@ -48,7 +48,6 @@ import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 import java.nio.CharBuffer;
 import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.TimeZone;
 
 /**
@@ -178,18 +177,9 @@ public class CommonAccessLogFormatterImpl extends AccessLogFormatter {
      * Appends the current date to the given char buffer.
      */
     private void appendCurrentDate(CharBuffer cb) {
-        Date date = getDate();
-        cb.put("[");
-        cb.put(dayFormatter.get().format(date));           // Day
-        cb.put('/');
-        cb.put(lookup(monthFormatter.get().format(date))); // Month
-        cb.put('/');
-        cb.put(yearFormatter.get().format(date));          // Year
-        cb.put(':');
-        cb.put(timeFormatter.get().format(date));          // Time
-        cb.put(SPACE);
-        cb.put(timeZone);                                  // Time Zone
-        cb.put("]");
+        cb.put('[');
+        appendDate(cb);
+        cb.put(']');
     }
 
 
@@ -219,7 +209,7 @@ public class CommonAccessLogFormatterImpl extends AccessLogFormatter {
      * Appends the response status to the given char buffer.
      */
     private void appendResponseStatus(CharBuffer cb, Response response) {
-        cb.put(String.valueOf(((HttpResponse) response).getStatus()));
+        appendNumber(cb, ((HttpResponse) response).getStatus());
     }
 
 
@@ -228,6 +218,6 @@ public class CommonAccessLogFormatterImpl extends AccessLogFormatter {
      * buffer.
      */
     private void appendResponseLength(CharBuffer cb, Response response) {
-        cb.put("" + response.getContentCount());
+        appendNumber(cb, response.getContentCount());
     }
 }
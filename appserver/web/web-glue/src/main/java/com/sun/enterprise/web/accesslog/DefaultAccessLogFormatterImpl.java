@@ -487,16 +487,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendCurrentDate(CharBuffer cb) {
         cb.put(QUOTE);
-        Date date = getDate();
-        cb.put(dayFormatter.get().format(date));           // Day
-        cb.put('/');
-        cb.put(lookup(monthFormatter.get().format(date))); // Month
-        cb.put('/');
-        cb.put(yearFormatter.get().format(date));          // Year
-        cb.put(':');
-        cb.put(timeFormatter.get().format(date));          // Time
-        cb.put(SPACE);
-        cb.put(timeZone);                                  // Time Zone
+        appendDate(cb);
         cb.put(QUOTE);
     }
 
@@ -525,7 +516,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * Appends the response status to the given char buffer.
      */
     private void appendResponseStatus(CharBuffer cb, Response response) {
-        cb.put(String.valueOf(((HttpResponse) response).getStatus()));
+        appendNumber(cb, ((HttpResponse) response).getStatus());
     }
 
     /*
@@ -533,7 +524,7 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      * buffer.
      */
     private void appendResponseLength(CharBuffer cb, Response response) {
-        cb.put("" + response.getContentCount());
+        appendNumber(cb, response.getContentCount());
     }
 
     /*
@@ -564,17 +555,16 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
      */
     private void appendTimeTaken(CharBuffer cb, Request req) {
 
-        String timeTaken = "NULL-TIME-TAKEN";
-
         cb.put(QUOTE);
         Long startTimeObj = (Long) req.getNote(
             Constants.REQUEST_START_TIME_NOTE);
         if (startTimeObj != null) {
             long startTime = startTimeObj.longValue();
             long endTime = System.currentTimeMillis();
-            timeTaken = String.valueOf(endTime - startTime);
-        } 
-        cb.put(timeTaken);
+            appendNumber(cb, endTime - startTime);
+        } else {
+            cb.put("NULL-TIME-TAKEN");
+        }
         cb.put(QUOTE);
     }
 
@@ -799,7 +789,10 @@ public class DefaultAccessLogFormatterImpl extends AccessLogFormatter {
         Cookie[] cookies = hreq.getCookies();
         if (cookies != null && cookies.length > 0) {
             for (int i=0; i<cookies.length; i++) {
-                cb.put(cookies[i].getName() + "=" + cookies[i].getValue());
+                cb.put(cookies[i].getName());
+                cb.put('=');
+                // a cookie without a value is logged as "null"
+                cb.put(String.valueOf(cookies[i].getValue()));
                 if (i<cookies.length-1) {
                     cb.put(";");
                 }
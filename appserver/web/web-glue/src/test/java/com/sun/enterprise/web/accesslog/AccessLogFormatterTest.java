@@ -0,0 +1,144 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.web.accesslog;
+
+import java.lang.reflect.Field;
+import java.nio.CharBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the date and number formatting shared by the access log formatters.
+ */
+public class AccessLogFormatterTest {
+
+    @Test
+    public void testAppendNumber() {
+        assertEquals("0", number(0));
+        assertEquals("7", number(7));
+        assertEquals("10", number(10));
+        assertEquals("12345", number(12345));
+        assertEquals("-42", number(-42));
+        assertEquals(String.valueOf(Long.MAX_VALUE), number(Long.MAX_VALUE));
+        assertEquals(String.valueOf(Long.MIN_VALUE), number(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testTimeZoneOffset() {
+        AccessLogFormatter formatter = new CommonAccessLogFormatterImpl();
+        assertEquals("+0000", formatter.calculateTimeZoneOffset(0));
+        assertEquals("+0530", formatter.calculateTimeZoneOffset(330 * 60 * 1000L));
+        assertEquals("-0800", formatter.calculateTimeZoneOffset(-8 * 60 * 60 * 1000L));
+    }
+
+    @Test
+    public void testLookup() {
+        AccessLogFormatter formatter = new CommonAccessLogFormatterImpl();
+        assertEquals("Jan", formatter.lookup("01"));
+        assertEquals("Dec", formatter.lookup("12"));
+    }
+
+    @Test
+    public void testAppendDate() {
+        AccessLogFormatter formatter = new CommonAccessLogFormatterImpl();
+        SimpleDateFormat expectedFormat = new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss", Locale.US);
+        expectedFormat.setTimeZone(TimeZone.getDefault());
+
+        long second;
+        String actual;
+        do {
+            // retry if the clock moved to the next second meanwhile
+            second = System.currentTimeMillis() / 1000;
+            actual = date(formatter);
+        } while (System.currentTimeMillis() / 1000 != second);
+        String expected = expectedFormat.format(new Date(second * 1000))
+                + " " + formatter.timeZone;
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testDateFormattedOncePerSecond() throws Exception {
+        AccessLogFormatter formatter = new CommonAccessLogFormatterImpl();
+        Object first;
+        Object second;
+        long now;
+        do {
+            // retry if the clock moved to the next second meanwhile
+            now = System.currentTimeMillis() / 1000;
+            date(formatter);
+            first = formattedDate(formatter);
+            assertEquals(date(formatter), date(formatter));
+            second = formattedDate(formatter);
+        } while (System.currentTimeMillis() / 1000 != now);
+        assertSame(first, second);
+
+        Thread.sleep(1100);
+        date(formatter);
+        assertNotSame(first, formattedDate(formatter));
+    }
+
+    private static String number(long value) {
+        CharBuffer cb = CharBuffer.allocate(32);
+        AccessLogFormatter.appendNumber(cb, value);
+        cb.flip();
+        return cb.toString();
+    }
+
+    private static String date(AccessLogFormatter formatter) {
+        CharBuffer cb = CharBuffer.allocate(64);
+        formatter.appendDate(cb);
+        cb.flip();
+        return cb.toString();
+    }
+
+    private static Object formattedDate(AccessLogFormatter formatter) throws Exception {
+        Field field = AccessLogFormatter.class.getDeclaredField("formattedDate");
+        field.setAccessible(true);
+        return field.get(formatter);
+    }
+}
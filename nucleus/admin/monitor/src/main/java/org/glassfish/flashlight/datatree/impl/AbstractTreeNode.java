@@ -190,7 +190,12 @@ public abstract class AbstractTreeNode implements TreeNode, Comparable<TreeNode>
             children.remove(child);
         }
 
-        // too fragile to hunt for the matching key...
+        // The key is usually the one used by addChild, unless the node's
+        // path changed since.  Only then do we have to look for it.
+        if (normalizedChildren.remove(
+                decodeNameToDots(oldChild.getCompletePathName()), oldChild))
+            return;
+
         Iterator<TreeNode> it = normalizedChildren.values().iterator();
         while (it.hasNext()) {
             if (it.next() == oldChild) {
@@ -307,23 +312,24 @@ public abstract class AbstractTreeNode implements TreeNode, Comparable<TreeNode>
     public List<TreeNode> traverse(boolean ignoreDisabled) {
 //        System.out.println ("Node: " + this.getName ()+ " is enabled "+isEnabled());
         List<TreeNode> list = new ArrayList<TreeNode>();
+        traverse(ignoreDisabled, list);
+        return list;
+    }
 
+    private void traverse(boolean ignoreDisabled, List<TreeNode> list) {
         if (ignoreDisabled) {
             if (!this.enabled) {
-                return list;
+                return;
             }
         }
         list.add(this);
 
-        if (!hasChildNodes()) {
-            return list;
+        for (TreeNode node : children.values()) {
+            if (node instanceof AbstractTreeNode)
+                ((AbstractTreeNode) node).traverse(ignoreDisabled, list);
+            else
+                list.addAll(node.traverse(ignoreDisabled));
         }
-
-        Collection<TreeNode> childList = children.values();
-        for (TreeNode node : childList) {
-            list.addAll(node.traverse(ignoreDisabled));
-        }
-        return list;
     }
 
     @Override
@@ -361,27 +367,8 @@ public abstract class AbstractTreeNode implements TreeNode, Comparable<TreeNode>
                 pattern = convertGFv2PatternToRegex(pattern);
 
             Pattern mPattern = Pattern.compile(pattern);
-            List<TreeNode> completeTree = traverse(ignoreDisabled);
-
-            for (TreeNode node : completeTree) {
-                String path = node.getCompletePathName();
-                String path2 = null;
-
-                if (path.indexOf("\\") >= 0)
-                    path2 = path.replace("\\", "");
-
-                Matcher matcher = mPattern.matcher(path);
-
-                if (matcher.matches()) {
-                    regexMatchedTree.add(node);
-                }
-                else if (path2 != null) {
-                    Matcher matcher2 = mPattern.matcher(path2);
-                    if (matcher2.matches()) {
-                        regexMatchedTree.add(node);
-                    }
-                }
-            }
+            addMatchingNodes(this, getCompletePathName(), mPattern.matcher(""),
+                    ignoreDisabled, regexMatchedTree);
         }
         catch (java.util.regex.PatternSyntaxException e) {
             // log this
@@ -390,6 +377,40 @@ public abstract class AbstractTreeNode implements TreeNode, Comparable<TreeNode>
         return regexMatchedTree;
     }
 
+    /**
+     * Adds the nodes of the subtree whose path matches, in the order of
+     * traverse().  Instead of matching every node in the tree, a subtree is
+     * only visited if the path of its root can be the start of a match, so
+     * e.g. "server.web.*" doesn't look at the rest of the tree.
+     */
+    private static void addMatchingNodes(TreeNode node, String path,
+            Matcher matcher, boolean ignoreDisabled, List<TreeNode> list) {
+        if (ignoreDisabled && !node.isEnabled())
+            return;
+
+        // hitEnd() tells whether a longer path could still match
+        matcher.reset(path);
+        boolean matches = matcher.matches();
+        boolean canMatchChildren = matcher.hitEnd();
+
+        if (path.indexOf("\\") >= 0) {
+            matcher.reset(path.replace("\\", ""));
+            matches |= matcher.matches();
+            canMatchChildren |= matcher.hitEnd();
+        }
+
+        if (matches)
+            list.add(node);
+
+        if (!canMatchChildren || !node.hasChildNodes())
+            return;
+
+        for (TreeNode child : node.getChildNodes()) {
+            addMatchingNodes(child, path + NAME_SEPARATOR + child.getName(),
+                    matcher, ignoreDisabled, list);
+        }
+    }
+
     @Override
     public List<TreeNode> getNodes(String pattern) {
         return getNodes(pattern, true, true);
@@ -447,25 +468,32 @@ public abstract class AbstractTreeNode implements TreeNode, Comparable<TreeNode>
         if (pattern == null || pattern.length() <= 0 || pattern.indexOf('*') >= 0)
             return null;
 
-        TreeNode node = null;
-        int longest = 0;
+        return findPossibleParentNode(this, getCompletePathName(), pattern);
+    }
+
+    // The paths of a node's descendants start with the node's path, so
+    // only subtrees whose path is a prefix of the pattern are searched.
+    // The deepest such node has the longest path.
+    private static TreeNode findPossibleParentNode(TreeNode n, String aname, String pattern) {
+        if (aname == null || !n.isEnabled())
+            return null;   // defensive pgming
 
-        for (TreeNode n : traverse(true)) {
-            String aname = n.getCompletePathName();
+        // JIRA 15500 -- there may be a backslash in the name!
 
-            if (aname == null)
-                continue;   // defensive pgming
+        if (!pattern.startsWith(aname) && !pattern.startsWith(aname.replace("\\", "")))
+            return null;
 
-            // JIRA 15500 -- there may be a backslash in the name!
+        // keep the longest match ONLY!
+        TreeNode node = n;
+        int longest = aname.length();
 
-            if (pattern.startsWith(aname) || pattern.startsWith(aname.replace("\\", ""))) {
-                int thisLength = aname.length();
+        for (TreeNode child : n.getChildNodes()) {
+            TreeNode found = findPossibleParentNode(child,
+                    aname + NAME_SEPARATOR + child.getName(), pattern);
 
-                // keep the longest match ONLY!
-                if (node == null || thisLength > longest) {
-                    node = n;
-                    longest = thisLength;
-                }
+            if (found != null && found.getCompletePathName().length() > longest) {
+                node = found;
+                longest = found.getCompletePathName().length();
             }
         }
 
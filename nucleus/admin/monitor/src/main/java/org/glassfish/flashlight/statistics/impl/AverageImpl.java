@@ -45,6 +45,7 @@
 package org.glassfish.flashlight.statistics.impl;
 
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.glassfish.flashlight.datatree.impl.AbstractTreeNode;
 import org.glassfish.flashlight.statistics.Average;
 
@@ -67,13 +68,16 @@ public class AverageImpl extends AbstractTreeNode implements Average {
     /** DEFAULT_VALUE of any statistic is 0 */
     protected static final String NEWLINE = System.getProperty("line.separator");
    
-    AtomicLong min = new AtomicLong (DEFAULT_MIN_BOUND);
-    AtomicLong max = new AtomicLong(0);
+    // min is Long.MAX_VALUE until the first data point.  min and max are
+    // only written when a data point exceeds them; times and sum are spread
+    // over cells so that concurrent data points don't contend.
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
     
-    AtomicLong times = new AtomicLong(0);
-    AtomicLong sum = new AtomicLong(0);
+    private final LongAdder times = new LongAdder();
+    private final LongAdder sum = new LongAdder();
     private long startTime = 0;
-    private AtomicLong lastSampleTime = new AtomicLong(0);
+    private volatile long lastSampleTime;
     
     private String NAME = "average";
     private String DESCRIPTION = "Average RangeStatistic";
@@ -92,19 +96,20 @@ public class AverageImpl extends AbstractTreeNode implements Average {
      */
     @Override
     public void addDataPoint(long value) {
-        if (min.get() == DEFAULT_MIN_BOUND) // initial seeding
-        {
-            min.set(value);
+        long current;
+        while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+            // lost a race with another data point, retry
         }
-        if (value < min.get()) {
-            min.set(value);
-        } else if (value > max.get()) {
-            max.set(value);
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // lost a race with another data point, retry
         }
-        sum.addAndGet(value);
-        times.incrementAndGet();
+        sum.add(value);
+        times.increment();
         // TBD: remove this code, once getSampleTime is refactored
-        lastSampleTime.set(getSampleTime ());
+        long now = getSampleTime();
+        if (lastSampleTime != now) {
+            lastSampleTime = now;
+        }
     }
 
     @Override
@@ -117,14 +122,15 @@ public class AverageImpl extends AbstractTreeNode implements Average {
 
     @Override
     public void setReset() {
-        times.set(0);
-        sum.set(0);
+        times.reset();
+        sum.reset();
 
     }
 
     @Override
     public long getMin() {
-        return min.get();
+        long value = min.get();
+        return (value == Long.MAX_VALUE) ? DEFAULT_MIN_BOUND : value;
     }
 
     @Override
@@ -149,7 +155,7 @@ public class AverageImpl extends AbstractTreeNode implements Average {
 
     @Override
     public long getSize() {
-        return times.get();
+        return times.sum();
     }
 
     @Override
@@ -183,7 +189,7 @@ public class AverageImpl extends AbstractTreeNode implements Average {
     }
     @Override
     public long getTotal (){
-        return sum.get();
+        return sum.sum();
 
     }
     /*
@@ -197,6 +203,6 @@ public class AverageImpl extends AbstractTreeNode implements Average {
     }
     @Override
     public long getLastSampleTime() {
-        return this.lastSampleTime.longValue();
+        return this.lastSampleTime;
     }
 }
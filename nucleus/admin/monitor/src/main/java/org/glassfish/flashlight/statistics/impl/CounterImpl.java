@@ -45,7 +45,7 @@
 package org.glassfish.flashlight.statistics.impl;
 
 import org.glassfish.flashlight.statistics.*;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.glassfish.flashlight.datatree.impl.AbstractTreeNode;
 
 import org.jvnet.hk2.annotations.Service;
@@ -65,10 +65,14 @@ public class CounterImpl extends AbstractTreeNode implements Counter {
     public static final long DEFAULT_MIN_BOUND = DEFAULT_VALUE;
     /** DEFAULT_VALUE of any statistic is 0 */
     protected static final String NEWLINE = System.getProperty("line.separator");
-    private AtomicLong count = new AtomicLong(0);
-    long max = 0;
-    long min = 0;
-    private AtomicLong lastSampleTime = new AtomicLong();
+    // Request threads update counters concurrently, so the count is spread
+    // over cells that are only summed up when it is read. setCount() and
+    // reset replace the adder as a whole: afterwards the count is exactly the
+    // value set plus the updates made after it, and readers see either the
+    // old count or the new one. An update racing with them may be dropped,
+    // as if it had happened just before the set.
+    private volatile LongAdder count = new LongAdder();
+    private volatile long lastSampleTime;
     private String DESCRIPTION = "Counter CountStatistic";
     private String UNIT = java.lang.Long.class.toString();
 
@@ -79,47 +83,33 @@ public class CounterImpl extends AbstractTreeNode implements Counter {
     }
 
     public long getCount() {
-        return count.get();
+        return count.sum();
     }
 
     public void setCount(long count) {
-        if (count > max) {
-            max = count;
-        } else {
-            min = count;
-        }
-        this.count.set(count);
+        LongAdder newCount = new LongAdder();
+        newCount.add(count);
+        this.count = newCount;
     }
-    // TBD: remove reference to getSampleTime -> extremely inefficient implementation
-    // Will have to be replaced by Timer implemenation
+
     public void increment() {
-        long cnt = this.count.incrementAndGet();
-        if (cnt > max) {
-            max = cnt;
-        // Remove this after refactoring to Timer Impl. This is inefficient
-        }
-        this.lastSampleTime.set(getSampleTime ());
+        this.count.increment();
+        updateLastSampleTime();
     }
 
     //automatically add the increment to cnt
     public void  increment(long delta) {
-        long cnt = this.count.addAndGet(delta);
-        if(cnt > max) {
-            max = cnt;
-        }
-        this.lastSampleTime.set(getSampleTime());
+        this.count.add(delta);
+        updateLastSampleTime();
     }
     
     public void decrement() {
-        long cnt = this.count.decrementAndGet();
-        if (cnt < min) {
-            min = cnt;
-        }
+        this.count.decrement();
     }
 
     public void setReset(boolean reset) {
         if (reset) {
-            this.count.set(0);
+            this.count = new LongAdder();
         }
     }
 
@@ -141,7 +131,15 @@ public class CounterImpl extends AbstractTreeNode implements Counter {
     }
 
     public long getLastSampleTime() {
-        return this.lastSampleTime.longValue();
+        return this.lastSampleTime;
+    }
+
+    // Only write the shared field once per millisecond
+    private void updateLastSampleTime() {
+        long now = getSampleTime();
+        if (lastSampleTime != now) {
+            lastSampleTime = now;
+        }
     }
 
     /*
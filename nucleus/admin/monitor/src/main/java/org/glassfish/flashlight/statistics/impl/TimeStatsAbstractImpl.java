@@ -44,8 +44,6 @@ import org.glassfish.flashlight.datatree.impl.AbstractTreeNode;
 import org.glassfish.flashlight.statistics.*;
 import org.glassfish.flashlight.statistics.factory.AverageFactory;
 
-import java.util.concurrent.atomic.AtomicLong;
-
 /**
  * @author Harpreet Singh
  */
@@ -55,23 +53,16 @@ public abstract class TimeStatsAbstractImpl extends AbstractTreeNode
     private Average average = AverageFactory.createAverage();
 
 
-    private AtomicLong lastSampleTime = new AtomicLong(0);
+    private volatile long lastSampleTime;
     protected long startTime = 0;
 
+    // Entry and exit times of the calls in progress, one per thread
     private ThreadLocalTimeStatData individualData = new ThreadLocalTimeStatData();
 
     private static class ThreadLocalTimeStatData extends ThreadLocal<TimeStatData> {
 
-        private TimeStatData tsd;
-
         protected TimeStatData initialValue (){
-            tsd = new TimeStatData ();
-            return tsd;
-        }
-        public TimeStatData get (){
-            if (tsd == null)
-                tsd = new TimeStatData();
-            return tsd;
+            return new TimeStatData ();
         }
         
     }
@@ -141,7 +132,7 @@ public abstract class TimeStatsAbstractImpl extends AbstractTreeNode
     }
 
     public long getLastSampleTime() {
-        return this.lastSampleTime.get();
+        return this.lastSampleTime;
     }
 
     public long getStartTime() {
@@ -149,7 +140,9 @@ public abstract class TimeStatsAbstractImpl extends AbstractTreeNode
     }
 
     private void setLastSampleTime(long time) {
-        this.lastSampleTime.set(time);
+        if (this.lastSampleTime != time) {
+            this.lastSampleTime = time;
+        }
     }
 
     private static class TimeStatData {
@@ -0,0 +1,135 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.flashlight.datatree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.glassfish.flashlight.datatree.factory.TreeNodeFactory;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the pattern queries on the monitoring tree against a plain
+ * match of every node in the tree.
+ */
+public class TreeNodeQueryTest {
+
+    private TreeNode server;
+
+    @Before
+    public void setUp() {
+        server = node("server", null);
+        TreeNode web = node("web", server);
+        TreeNode app = node("app1", web);
+        node("requestcount", app);
+        node("errorcount", app);
+        TreeNode app2 = node("app2", web);
+        node("requestcount", app2);
+        node("my.jndi.name", node("jdbc", server));
+        TreeNode disabled = node("disabled", server);
+        node("requestcount", disabled);
+        disabled.setEnabled(false);
+    }
+
+    @Test
+    public void testGFv2Patterns() {
+        String[] patterns = { "*", "server", "server.*", "*requestcount",
+            "server.web.*.requestcount", "*app*", "web.*", "server.jdbc.*",
+            "*name", "server.disabled*", "server.nothere.*" };
+
+        for (String pattern : patterns) {
+            assertMatches(pattern, true, true);
+            assertMatches(pattern, false, true);
+        }
+    }
+
+    @Test
+    public void testRegexPatterns() {
+        String[] patterns = { ".*", "server.web..*", ".*count",
+            "server.(web|jdbc).[^.]*", "server.web.app[12]", "server.jdbc.my.*" };
+
+        for (String pattern : patterns) {
+            assertMatches(pattern, true, false);
+            assertMatches(pattern, false, false);
+        }
+    }
+
+    @Test
+    public void testPossibleParentNode() {
+        TreeNode parent = server.getPossibleParentNode("server.web.app1.foo");
+        assertEquals("server.web.app1", parent.getCompletePathName());
+        assertNull(server.getPossibleParentNode("cluster.web"));
+        parent = server.getPossibleParentNode("server.disabled.requestcount");
+        assertEquals("server", parent.getCompletePathName());
+    }
+
+    private void assertMatches(String pattern, boolean ignoreDisabled, boolean gfv2Compatible) {
+        String regex = gfv2Compatible ?
+                (pattern.equals("*") ? ".*" : pattern.replace("*", ".*")) : pattern;
+        Pattern p = Pattern.compile(regex);
+        List<TreeNode> expected = new ArrayList<TreeNode>();
+
+        for (TreeNode n : server.traverse(ignoreDisabled)) {
+            String path = n.getCompletePathName();
+            if (p.matcher(path).matches() || p.matcher(path.replace("\\", "")).matches())
+                expected.add(n);
+        }
+
+        List<TreeNode> actual = server.getNodes(pattern, ignoreDisabled, gfv2Compatible);
+        assertEquals(pattern, pathsOf(expected), pathsOf(actual));
+    }
+
+    private static List<String> pathsOf(List<TreeNode> nodes) {
+        List<String> paths = new ArrayList<String>();
+        for (TreeNode n : nodes)
+            paths.add(n.getCompletePathName());
+        return paths;
+    }
+
+    private TreeNode node(String name, TreeNode parent) {
+        TreeNode n = TreeNodeFactory.createTreeNode(name, this, "test");
+        if (parent != null)
+            parent.addChild(n);
+        return n;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.flashlight.statistics.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the counter and average statistics are exact, including
+ * under concurrent updates.
+ */
+public class CounterImplTest {
+
+    @Test
+    public void testSetCountIsExact() {
+        CounterImpl counter = new CounterImpl();
+        counter.increment(5);
+        counter.setCount(42);
+        assertEquals(42, counter.getCount());
+
+        counter.increment();
+        counter.decrement();
+        counter.decrement();
+        assertEquals(41, counter.getCount());
+
+        counter.setCount(-3);
+        assertEquals(-3, counter.getCount());
+        assertEquals(Long.valueOf(-3), counter.getValue());
+    }
+
+    @Test
+    public void testSetCountAfterConcurrentIncrements() throws Exception {
+        final CounterImpl counter = new CounterImpl();
+        runConcurrently(8, 10000, new Runnable() {
+            public void run() {
+                counter.increment();
+            }
+        });
+        assertEquals(80000, counter.getCount());
+
+        counter.setCount(7);
+        assertEquals(7, counter.getCount());
+    }
+
+    @Test
+    public void testReset() {
+        CounterImpl counter = new CounterImpl();
+        counter.increment(10);
+        counter.setReset(false);
+        assertEquals(10, counter.getCount());
+
+        counter.setReset(true);
+        assertEquals(0, counter.getCount());
+        counter.increment();
+        assertEquals(1, counter.getCount());
+    }
+
+    @Test
+    public void testIncrementUpdatesLastSampleTime() {
+        CounterImpl counter = new CounterImpl();
+        long before = System.currentTimeMillis();
+        counter.increment();
+        assertTrue(counter.getLastSampleTime() >= before);
+    }
+
+    @Test
+    public void testAverage() {
+        AverageImpl average = new AverageImpl();
+        assertEquals(0, average.getMin());
+        assertEquals(0.0, average.getAverage(), 0.0);
+
+        average.addDataPoint(30);
+        average.addDataPoint(10);
+        average.addDataPoint(20);
+        assertEquals(10, average.getMin());
+        assertEquals(30, average.getMax());
+        assertEquals(60, average.getTotal());
+        assertEquals(3, average.getSize());
+        assertEquals(20.0, average.getAverage(), 0.0);
+    }
+
+    @Test
+    public void testConcurrentDataPoints() throws Exception {
+        final AverageImpl average = new AverageImpl();
+        final long[] next = new long[1];
+        runConcurrently(8, 1000, new Runnable() {
+            public void run() {
+                long value;
+                synchronized (next) {
+                    value = ++next[0];
+                }
+                average.addDataPoint(value);
+            }
+        });
+        assertEquals(8000, average.getSize());
+        assertEquals(8000L * 8001 / 2, average.getTotal());
+        assertEquals(1, average.getMin());
+        assertEquals(8000, average.getMax());
+    }
+
+    private static void runConcurrently(int threadCount, final int iterations,
+            final Runnable update) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < iterations; j++) {
+                        update.run();
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -42,6 +42,7 @@ package org.glassfish.admin.rest;
 
 import org.glassfish.admin.restconnector.ProxyRestCommandAdapter;
 import org.glassfish.admin.restconnector.ProxyRestManagementAdapter;
+import org.glassfish.admin.restconnector.ProxyRestMetricsAdapter;
 import org.glassfish.admin.restconnector.ProxyRestMonitoringAdapter;
 import org.glassfish.hk2.api.ServiceLocator;
 import org.glassfish.hk2.bootstrap.PopulatorPostProcessor;
@@ -71,6 +72,7 @@ public class EmbeddedInhabitantsParser implements PopulatorPostProcessor {
                 boolean skip = RestService.class.getCanonicalName().equals(descriptorImpl.getImplementation()) ||
                                 ProxyRestManagementAdapter.class.getCanonicalName().equals(descriptorImpl.getImplementation()) ||
                                 ProxyRestMonitoringAdapter.class.getCanonicalName().equals(descriptorImpl.getImplementation()) ||
+                                ProxyRestMetricsAdapter.class.getCanonicalName().equals(descriptorImpl.getImplementation()) ||
                                 ProxyRestCommandAdapter.class.getCanonicalName().equals(descriptorImpl.getImplementation());
                 
                 if (!skip) {
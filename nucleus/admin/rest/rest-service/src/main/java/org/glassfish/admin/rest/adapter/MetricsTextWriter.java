@@ -0,0 +1,350 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.admin.rest.adapter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.glassfish.external.statistics.AverageRangeStatistic;
+import org.glassfish.external.statistics.BoundaryStatistic;
+import org.glassfish.external.statistics.CountStatistic;
+import org.glassfish.external.statistics.RangeStatistic;
+import org.glassfish.external.statistics.Statistic;
+import org.glassfish.external.statistics.Stats;
+import org.glassfish.external.statistics.TimeStatistic;
+import org.glassfish.flashlight.datatree.TreeNode;
+
+/**
+ * Writes the enabled part of a monitoring tree in the Prometheus text exposition format.
+ * <p>
+ * A metric family is named after the monitoring subsystem (the first node below the instance)
+ * and the leaf, e.g. every <code>requestcount</code> leaf below <code>http-service</code> is
+ * reported in the family <code>glassfish_http_service_requestcount</code>. The nodes in between,
+ * which name applications, listeners, pools and so on, are carried verbatim in the
+ * <code>path</code> label, so the set of families stays bounded no matter how many such
+ * objects are deployed. Every sample also carries the <code>instance</code> label and, where
+ * the statistic declares one, a <code>unit</code> label.
+ * <p>
+ * Samples are grouped per family before anything is written, so each family is announced by
+ * exactly one <code>TYPE</code> (and <code>HELP</code>) line. Node names that only differ in
+ * characters that are not allowed in metric names map to the same family; a sample whose
+ * labels are already taken in its family, or whose family is already registered with a
+ * different type, is dropped rather than producing an exposition a scraper would reject.
+ * Only numeric values are exported; string statistics and other values are skipped.
+ */
+final class MetricsTextWriter {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String PREFIX = "glassfish_";
+
+    private final Writer out;
+    private final String instanceName;
+    private final Map<String, Family> familiesByName = new HashMap<String, Family>();
+    private final List<Family> families = new ArrayList<Family>();
+    private final StringBuilder path = new StringBuilder(128);
+
+    MetricsTextWriter(Writer out, String instanceName) {
+        this.out = out;
+        this.instanceName = instanceName;
+    }
+
+    /**
+     * Writes all enabled leaves below the given instance node. The instance node itself does
+     * not contribute to the metric names, it is reported through the <code>instance</code> label.
+     */
+    void write(TreeNode instanceNode) throws IOException {
+        for (TreeNode subsystem : instanceNode.getChildNodes()) {
+            if (!subsystem.isEnabled()) {
+                continue;
+            }
+            String subsystemName = sanitize(subsystem.getName());
+            path.setLength(0);
+            if (subsystem.hasChildNodes()) {
+                for (TreeNode child : subsystem.getChildNodes()) {
+                    writeNode(subsystemName, child);
+                }
+            } else {
+                writeLeaf(PREFIX + subsystemName, subsystem);
+            }
+        }
+        for (Family family : families) {
+            family.writeTo(out);
+        }
+        out.flush();
+    }
+
+    private void writeNode(String subsystemName, TreeNode node) {
+        if (!node.isEnabled()) {
+            return;
+        }
+        if (node.hasChildNodes()) {
+            int mark = path.length();
+            if (mark > 0) {
+                path.append('.');
+            }
+            path.append(node.getName());
+            for (TreeNode child : node.getChildNodes()) {
+                writeNode(subsystemName, child);
+            }
+            path.setLength(mark);
+        } else {
+            writeLeaf(PREFIX + subsystemName + '_' + sanitize(node.getName()), node);
+        }
+    }
+
+    private void writeLeaf(String familyName, TreeNode node) {
+        //getValue() on leaf node will return one of the following -
+        //Statistic object, Stats object or the object for primitive type
+        Object value = node.getValue();
+        if (value instanceof Statistic) {
+            writeStatistic(familyName, (Statistic) value);
+        } else if (value instanceof Stats) {
+            for (Statistic statistic : ((Stats) value).getStatistics()) {
+                writeStatistic(familyName + '_' + sanitize(statistic.getName()), statistic);
+            }
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            writeGauge(familyName, null, ((Number) value).longValue(), null);
+        } else if (value instanceof Number) {
+            writeGauge(familyName, null, ((Number) value).doubleValue(), null);
+        } else if (value instanceof Boolean) {
+            writeGauge(familyName, null, ((Boolean) value) ? 1L : 0L, null);
+        }
+    }
+
+    private void writeStatistic(String familyName, Statistic statistic) {
+        String unit = statistic.getUnit();
+        if (unit != null && unit.isEmpty()) {
+            unit = null;
+        }
+        String help = statistic.getDescription();
+        if (statistic instanceof CountStatistic) {
+            Family family = family(familyName, "counter", help);
+            if (family != null) {
+                family.addSample(familyName, labels(unit), Long.toString(((CountStatistic) statistic).getCount()));
+            }
+        } else if (statistic instanceof TimeStatistic) {
+            TimeStatistic time = (TimeStatistic) statistic;
+            Family family = family(familyName, "summary", help);
+            if (family != null) {
+                String labels = labels(unit);
+                if (family.addSample(familyName + "_count", labels, Long.toString(time.getCount()))) {
+                    family.addSample(familyName + "_sum", labels, Long.toString(time.getTotalTime()));
+                }
+            }
+            writeGauge(familyName + "_max", help, time.getMaxTime(), unit);
+            writeGauge(familyName + "_min", help, time.getMinTime(), unit);
+        } else if (statistic instanceof RangeStatistic) {
+            RangeStatistic range = (RangeStatistic) statistic;
+            writeGauge(familyName, help, range.getCurrent(), unit);
+            writeGauge(familyName + "_highwatermark", help, range.getHighWaterMark(), unit);
+            writeGauge(familyName + "_lowwatermark", help, range.getLowWaterMark(), unit);
+            if (statistic instanceof AverageRangeStatistic) {
+                writeGauge(familyName + "_average", help, ((AverageRangeStatistic) statistic).getAverage(), unit);
+            }
+            if (statistic instanceof BoundaryStatistic) {
+                writeBounds(familyName, help, (BoundaryStatistic) statistic, unit);
+            }
+        } else if (statistic instanceof BoundaryStatistic) {
+            writeBounds(familyName, help, (BoundaryStatistic) statistic, unit);
+        }
+    }
+
+    private void writeBounds(String familyName, String help, BoundaryStatistic boundary, String unit) {
+        writeGauge(familyName + "_upperbound", help, boundary.getUpperBound(), unit);
+        writeGauge(familyName + "_lowerbound", help, boundary.getLowerBound(), unit);
+    }
+
+    private void writeGauge(String familyName, String help, long value, String unit) {
+        Family family = family(familyName, "gauge", help);
+        if (family != null) {
+            family.addSample(familyName, labels(unit), Long.toString(value));
+        }
+    }
+
+    private void writeGauge(String familyName, String help, double value, String unit) {
+        Family family = family(familyName, "gauge", help);
+        if (family != null) {
+            String text;
+            if (Double.isNaN(value)) {
+                text = "NaN";
+            } else if (Double.isInfinite(value)) {
+                text = value > 0 ? "+Inf" : "-Inf";
+            } else {
+                text = Double.toString(value);
+            }
+            family.addSample(familyName, labels(unit), text);
+        }
+    }
+
+    /**
+     * Returns the family of the given name, registering it on first use. A summary also claims
+     * the names of its <code>_count</code> and <code>_sum</code> series. Returns null if the name
+     * is already taken by a family of another type.
+     */
+    private Family family(String familyName, String type, String help) {
+        Family family = familiesByName.get(familyName);
+        if (family == null) {
+            if ("summary".equals(type)
+                    && (familiesByName.containsKey(familyName + "_count")
+                    || familiesByName.containsKey(familyName + "_sum"))) {
+                return null;
+            }
+            family = new Family(familyName, type);
+            familiesByName.put(familyName, family);
+            if ("summary".equals(type)) {
+                familiesByName.put(familyName + "_count", family);
+                familiesByName.put(familyName + "_sum", family);
+            }
+            families.add(family);
+        } else if (!family.type.equals(type) || !family.name.equals(familyName)) {
+            return null;
+        }
+        if (family.help == null && help != null && !help.isEmpty()) {
+            family.help = help;
+        }
+        return family;
+    }
+
+    private String labels(String unit) {
+        StringBuilder labels = new StringBuilder(64);
+        labels.append("{instance=\"");
+        appendLabelValue(labels, instanceName);
+        if (path.length() > 0) {
+            labels.append("\",path=\"");
+            appendLabelValue(labels, path);
+        }
+        if (unit != null) {
+            labels.append("\",unit=\"");
+            appendLabelValue(labels, unit);
+        }
+        labels.append("\"}");
+        return labels.toString();
+    }
+
+    private static void appendLabelValue(StringBuilder sb, CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * Maps every character of a node name that is not allowed in a metric name to '_'.
+     * Escape characters of dotted names ("\.") are dropped.
+     */
+    static String sanitize(String nodeName) {
+        StringBuilder sb = new StringBuilder(nodeName.length());
+        for (int i = 0; i < nodeName.length(); i++) {
+            char c = nodeName.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == ':') {
+                sb.append(c);
+            } else if (c != '\\') {
+                sb.append('_');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The samples of one metric family, kept together so the family is written as one block.
+     */
+    private static final class Family {
+
+        private final String name;
+        private final String type;
+        private String help;
+        private final StringBuilder samples = new StringBuilder(128);
+        private final Set<String> series = new HashSet<String>();
+
+        Family(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        /**
+         * Adds a sample unless a sample with the same name and labels was already added.
+         */
+        boolean addSample(String sampleName, String labels, String value) {
+            if (!series.add(sampleName + labels)) {
+                return false;
+            }
+            samples.append(sampleName).append(labels).append(' ').append(value).append('\n');
+            return true;
+        }
+
+        void writeTo(Writer out) throws IOException {
+            if (help != null) {
+                out.write("# HELP ");
+                out.write(name);
+                out.write(' ');
+                for (int i = 0; i < help.length(); i++) {
+                    char c = help.charAt(i);
+                    if (c == '\\') {
+                        out.write("\\\\");
+                    } else if (c == '\n') {
+                        out.write("\\n");
+                    } else {
+                        out.write(c);
+                    }
+                }
+                out.write('\n');
+            }
+            out.write("# TYPE ");
+            out.write(name);
+            out.write(' ');
+            out.write(type);
+            out.write('\n');
+            out.append(samples);
+        }
+    }
+}
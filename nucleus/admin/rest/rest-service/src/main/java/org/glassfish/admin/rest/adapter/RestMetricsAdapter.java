@@ -0,0 +1,156 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.admin.rest.adapter;
+
+import com.sun.enterprise.util.LocalStringManagerImpl;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.logging.Level;
+import javax.inject.Inject;
+import javax.security.auth.login.LoginException;
+import org.glassfish.admin.rest.RestLogging;
+import org.glassfish.admin.rest.RestService;
+import org.glassfish.admin.restconnector.Constants;
+import org.glassfish.admin.restconnector.ProxiedRestAdapter;
+import org.glassfish.api.admin.ServerEnvironment;
+import org.glassfish.flashlight.MonitoringRuntimeDataRegistry;
+import org.glassfish.flashlight.datatree.TreeNode;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.internal.api.AdminAccessController;
+import org.glassfish.internal.api.RemoteAdminAccessException;
+import org.jvnet.hk2.annotations.Optional;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Adapter for the metrics endpoint. Unlike the REST monitoring interface it does not go through
+ * Jersey: a GET streams the monitoring tree of this instance in the Prometheus text format
+ * directly from the {@link MonitoringRuntimeDataRegistry}, see {@link MetricsTextWriter}.
+ * Requests are authenticated the same way as the other REST adapters.
+ */
+@Service(name = Constants.REST_METRICS_ADAPTER)
+public class RestMetricsAdapter extends HttpHandler implements ProxiedRestAdapter {
+    private static final String HEADER_AUTHENTICATE = "WWW-Authenticate";
+
+    private final static LocalStringManagerImpl localStrings = new LocalStringManagerImpl(RestService.class);
+
+    @Inject
+    private ServiceLocator habitat;
+
+    @Inject
+    private ServerEnvironment serverEnvironment;
+
+    @Inject @Optional
+    private AdminAccessController adminAuthenticator;
+
+    private volatile MonitoringRuntimeDataRegistry monitoringRegistry;
+
+    @Override
+    public HttpHandler getHttpService() {
+        return this;
+    }
+
+    @Override
+    public void service(Request req, Response res) {
+        RestLogging.restLogger.log(Level.FINER, "Received metrics request: {0}", req.getRequestURI());
+
+        boolean head = Method.HEAD.equals(req.getMethod());
+        if (!head && !Method.GET.equals(req.getMethod())) {
+            res.setHeader("Allow", "GET, HEAD");
+            reportError(res, HttpURLConnection.HTTP_BAD_METHOD, "Only GET requests are allowed.");
+            return;
+        }
+
+        try {
+            if (adminAuthenticator != null) {
+                adminAuthenticator.loginAsAdmin(req);
+            }
+
+            String instanceName = serverEnvironment.getInstanceName();
+            TreeNode instanceNode = getMonitoringRegistry().get(instanceName);
+            res.setStatus(HttpURLConnection.HTTP_OK);
+            res.setContentType(MetricsTextWriter.CONTENT_TYPE);
+            if (instanceNode != null && !head) {
+                new MetricsTextWriter(res.getWriter(), instanceName).write(instanceNode);
+            }
+        } catch (RemoteAdminAccessException e) {
+            reportError(res, HttpURLConnection.HTTP_FORBIDDEN,
+                    localStrings.getLocalString("rest.adapter.auth.forbidden",
+                    "Remote access not allowed. If you desire remote access, please turn on secure admin"));
+        } catch (LoginException e) {
+            res.setHeader(HEADER_AUTHENTICATE, "BASIC");
+            reportError(res, HttpURLConnection.HTTP_UNAUTHORIZED,
+                    localStrings.getLocalString("rest.adapter.auth.userpassword", "Invalid user name or password"));
+        } catch (IOException e) {
+            // The scraper went away while we were writing, nothing left to report to
+            RestLogging.restLogger.log(Level.FINE, "Unable to write metrics response", e);
+        } catch (Exception e) {
+            String msg = localStrings.getLocalString("rest.adapter.server.exception",
+                    "An error occurred while processing the request. Please see the server logs for details.");
+            RestLogging.restLogger.log(Level.INFO, RestLogging.SERVER_ERROR, e);
+            reportError(res, HttpURLConnection.HTTP_UNAVAILABLE, msg);
+        }
+    }
+
+    private MonitoringRuntimeDataRegistry getMonitoringRegistry() {
+        MonitoringRuntimeDataRegistry registry = monitoringRegistry;
+        if (registry == null) {
+            registry = habitat.getService(MonitoringRuntimeDataRegistry.class);
+            monitoringRegistry = registry;
+        }
+        return registry;
+    }
+
+    private void reportError(Response res, int statusCode, String msg) {
+        try {
+            res.setStatus(statusCode);
+            res.setContentType("text/plain");
+            res.getWriter().write(msg);
+            res.finish();
+        } catch (IOException e) {
+            RestLogging.restLogger.log(Level.FINE, "Unable to write metrics error response", e);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.admin.rest.adapter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.glassfish.external.statistics.impl.CountStatisticImpl;
+import org.glassfish.external.statistics.impl.RangeStatisticImpl;
+import org.glassfish.external.statistics.impl.StatisticImpl;
+import org.glassfish.flashlight.datatree.TreeNode;
+import static org.testng.AssertJUnit.*;
+import org.testng.annotations.Test;
+
+public class MetricsTextWriterTest {
+
+    @Test
+    public void familyIsSharedAcrossPaths() throws IOException {
+        Node server = new Node("server");
+        Node applications = server.add(new Node("applications"));
+        applications.add(new Node("app1")).add(new Node("server")).add(count("requestcount", 3));
+        applications.add(new Node("app2")).add(new Node("server")).add(count("requestcount", 5));
+
+        String text = write(server);
+
+        assertEquals(1, occurrences(text, "# TYPE glassfish_applications_requestcount counter\n"));
+        assertEquals(1, occurrences(text, "# HELP glassfish_applications_requestcount "));
+        assertTrue(text.contains(
+                "glassfish_applications_requestcount{instance=\"server\",path=\"app1.server\",unit=\"count\"} 3\n"));
+        assertTrue(text.contains(
+                "glassfish_applications_requestcount{instance=\"server\",path=\"app2.server\",unit=\"count\"} 5\n"));
+    }
+
+    @Test
+    public void collidingNamesDoNotRepeatType() throws IOException {
+        Node server = new Node("server");
+        Node pool = server.add(new Node("resources")).add(new Node("pool"));
+        pool.add(count("num-conn", 1));
+        pool.add(count("num_conn", 2));
+        // a range statistic whose family name is already taken by a counter is dropped
+        pool.add(new Node("num\\.conn", new RangeStatisticImpl(4L, 4L, 0L, "num.conn",
+                StatisticImpl.UNIT_COUNT, "range", 0L, 0L)));
+
+        String text = write(server);
+
+        assertEquals(1, occurrences(text, "# TYPE glassfish_resources_num_conn "));
+        assertEquals(1, occurrences(text, "glassfish_resources_num_conn{"));
+        assertTrue(text.contains("glassfish_resources_num_conn{instance=\"server\",path=\"pool\",unit=\"count\"} 1\n"));
+        assertFalse(text.contains("# TYPE glassfish_resources_num_conn gauge"));
+    }
+
+    @Test
+    public void samplesOfAFamilyAreGrouped() throws IOException {
+        Node server = new Node("server");
+        Node pools = server.add(new Node("resources"));
+        Node pool1 = pools.add(new Node("pool1"));
+        pool1.add(count("numconnused", 1));
+        pool1.add(count("numconnfree", 2));
+        Node pool2 = pools.add(new Node("pool2"));
+        pool2.add(count("numconnused", 3));
+        pool2.add(count("numconnfree", 4));
+
+        String text = write(server);
+
+        int type = text.indexOf("# TYPE glassfish_resources_numconnused ");
+        int first = text.indexOf("glassfish_resources_numconnused{", type);
+        int second = text.indexOf("glassfish_resources_numconnused{", first + 1);
+        int other = text.indexOf("# TYPE glassfish_resources_numconnfree ");
+        assertTrue(type >= 0 && first > type && second > first);
+        assertTrue(other > second || other < type);
+    }
+
+    @Test
+    public void disabledNodesAreSkipped() throws IOException {
+        Node server = new Node("server");
+        Node jvm = server.add(new Node("jvm"));
+        jvm.add(new Node("memory")).add(count("usedheapsize", 7));
+        Node disabled = jvm.add(new Node("thread-system"));
+        disabled.add(count("threadcount", 9));
+        disabled.setEnabled(false);
+
+        String text = write(server);
+
+        assertTrue(text.contains("glassfish_jvm_usedheapsize{instance=\"server\",path=\"memory\",unit=\"count\"} 7\n"));
+        assertFalse(text.contains("threadcount"));
+    }
+
+    @Test
+    public void labelValuesAreEscaped() throws IOException {
+        Node server = new Node("server");
+        server.add(new Node("web")).add(new Node("my\"app\\1")).add(new Node("count", Long.valueOf(2L)));
+
+        String text = write(server);
+
+        assertTrue(text.contains("glassfish_web_count{instance=\"server\",path=\"my\\\"app\\\\1\"} 2\n"));
+    }
+
+    private static String write(Node instance) throws IOException {
+        StringWriter out = new StringWriter();
+        new MetricsTextWriter(out, instance.getName()).write(instance);
+        return out.toString();
+    }
+
+    private static Node count(String name, long value) {
+        CountStatisticImpl statistic = new CountStatisticImpl(name, StatisticImpl.UNIT_COUNT, "count of " + name);
+        statistic.setCount(value);
+        return new Node(name, statistic);
+    }
+
+    private static int occurrences(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Minimal tree node; the writer only walks names, values, children and the enabled flag.
+     */
+    private static final class Node implements TreeNode {
+
+        private String name;
+        private final Object value;
+        private boolean enabled = true;
+        private TreeNode parent;
+        private final List<TreeNode> children = new ArrayList<TreeNode>();
+
+        Node(String name) {
+            this(name, null);
+        }
+
+        Node(String name, Object value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        Node add(Node child) {
+            addChild(child);
+            return child;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public String getCategory() {
+            return null;
+        }
+
+        @Override
+        public void setCategory(String category) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        @Override
+        public void setDescription(String description) {
+        }
+
+        @Override
+        public String getDescription() {
+            return null;
+        }
+
+        @Override
+        public TreeNode addChild(TreeNode newChild) {
+            children.add(newChild);
+            newChild.setParent(this);
+            return newChild;
+        }
+
+        @Override
+        public void removeChild(TreeNode oldChild) {
+            children.remove(oldChild);
+        }
+
+        @Override
+        public void setParent(TreeNode parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public TreeNode getParent() {
+            return parent;
+        }
+
+        @Override
+        public String getCompletePathName() {
+            return parent == null ? name : parent.getCompletePathName() + "." + name;
+        }
+
+        @Override
+        public boolean hasChildNodes() {
+            return !children.isEmpty();
+        }
+
+        @Override
+        public Collection<TreeNode> getChildNodes() {
+            return children;
+        }
+
+        @Override
+        public Collection<TreeNode> getEnabledChildNodes() {
+            List<TreeNode> enabledChildren = new ArrayList<TreeNode>();
+            for (TreeNode child : children) {
+                if (child.isEnabled()) {
+                    enabledChildren.add(child);
+                }
+            }
+            return enabledChildren;
+        }
+
+        @Override
+        public TreeNode getNode(String completeName) {
+            return null;
+        }
+
+        @Override
+        public List<TreeNode> traverse(boolean ignoreDisabled) {
+            return null;
+        }
+
+        @Override
+        public List<TreeNode> getNodes(String pattern, boolean ignoreDisabled, boolean gfv2Compatible) {
+            return null;
+        }
+
+        @Override
+        public List<TreeNode> getNodes(String pattern) {
+            return null;
+        }
+
+        @Override
+        public TreeNode getChild(String childName) {
+            return null;
+        }
+
+        @Override
+        public TreeNode getPossibleParentNode(String pattern) {
+            return null;
+        }
+    }
+}
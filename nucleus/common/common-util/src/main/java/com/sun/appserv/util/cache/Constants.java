@@ -74,6 +74,10 @@ public class Constants {
     public final static String STAT_MULTILRUCACHE_SEGMENT_LIST_LENGTH="cache.MultiLruCache.stat_segmentListLength"; 
     public final static String STAT_MULTILRUCACHE_TRIM_COUNT="cache.MultiLruCache.stat_trimCount";
 
+    public final static String STAT_TINYLFUCACHE_SEGMENT_COUNT="cache.TinyLfuCache.stat_segmentCount";
+    public final static String STAT_TINYLFUCACHE_TRIM_COUNT="cache.TinyLfuCache.stat_trimCount";
+    public final static String STAT_TINYLFUCACHE_REJECT_COUNT="cache.TinyLfuCache.stat_rejectCount";
+
     public final static String STAT_BOUNDEDMULTILRUCACHE_CURRENT_SIZE="cache.BoundedMultiLruCache.stat_currentSize";
     public final static String STAT_BOUNDEDMULTILRUCACHE_MAX_SIZE="cache.BoundedMultiLruCache.stat_maxSize";
 }
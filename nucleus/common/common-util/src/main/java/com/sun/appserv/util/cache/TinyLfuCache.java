@@ -0,0 +1,605 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.appserv.util.cache;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * TinyLfuCache -- in-memory bounded cache with W-TinyLFU eviction.
+ *
+ * The underlying hashtable is split into segments, each with its own lock,
+ * its own frequency sketch and its own set of recency lists: a small
+ * admission window plus a segmented LRU (probation and protected) main
+ * space. When the window overflows its LRU item competes with the main
+ * space victim and the one with the lower estimated access frequency is
+ * trimmed. This keeps one-hit wonders from flushing frequently used items.
+ */
+public class TinyLfuCache extends BaseCache {
+
+    // the item never expires
+    public static final long NO_TIMEOUT = -1;
+
+    public static final String SEGMENTS_PROPERTY = "TinyLfuSegments";
+
+    // percentage of a segment used as the admission window
+    static final int WINDOW_PERCENT = 1;
+
+    // percentage of the main space used for the protected list
+    static final int PROTECTED_PERCENT = 80;
+
+    // don't split a segment further below this many entries
+    static final int MIN_SEGMENT_CAPACITY = 64;
+
+    static final int WINDOW = 0;
+    static final int PROBATION = 1;
+    static final int PROTECTED = 2;
+    static final int NONE = 3;
+
+    protected long timeout = NO_TIMEOUT;
+
+    protected int defaultMaxEntries = Constants.DEFAULT_MAX_ENTRIES;
+    protected boolean isUnbounded = false;
+
+    Segment[] segments;
+
+    /**
+     * default constructor
+     */
+    public TinyLfuCache() { }
+
+    /**
+     * constructor with specified max entries.
+     * @param defaultMaxEntries specifies the default max entries
+     *        to use when the maxEntries is <= 0.
+     */
+    public TinyLfuCache(int defaultMaxEntries) {
+        this.defaultMaxEntries = defaultMaxEntries;
+    }
+
+    /**
+     * initialize the cache
+     * @param maxEntries maximum number of entries expected in the cache
+     * @param loadFactor the load factor
+     * @param timeout to be used to trim the expired entries
+     * @param props opaque list of properties for a given cache implementation
+     * @throws a generic Exception if the initialization failed
+     */
+    public void init(int maxEntries, long timeout, float loadFactor, Properties props) {
+        setTimeout(timeout);
+        init(maxEntries, loadFactor, props);
+    }
+
+    /**
+     * initialize the cache
+     * @param maxEntries maximum number of entries expected in the cache
+     * @param loadFactor the load factor
+     * @param props opaque list of properties for a given cache implementation
+     */
+    public void init(int maxEntries, float loadFactor, Properties props) {
+
+        // if the max entries is <= 0 then set the default max entries
+        if (maxEntries <= 0) {
+            maxEntries = defaultMaxEntries;
+
+            // mark this cache unbounded
+            isUnbounded = true;
+        }
+
+        super.init(maxEntries, loadFactor, props);
+
+        int capacity = (threshold > 0) ? threshold : maxEntries;
+
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors() * 2)
+            count <<= 1;
+
+        if (props != null) {
+            String prop = props.getProperty(SEGMENTS_PROPERTY);
+            if (prop != null) {
+                try {
+                    int requested = Integer.parseInt(prop);
+                    count = 1;
+                    while (count < requested)
+                        count <<= 1;
+                } catch (NumberFormatException nfe) {}
+            }
+        }
+
+        // keep every segment big enough to make frequency estimates useful
+        while (count > 1 && (count > maxBuckets ||
+                             capacity / count < MIN_SEGMENT_CAPACITY))
+            count >>= 1;
+
+        int segmentCapacity = (capacity + count - 1) / count;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * sets the timeout value
+     * @param timeout to be used to trim the expired entries
+     */
+    public void setTimeout(long timeout) {
+        // accept a positive timeout
+        if (timeout > 0)
+            this.timeout = timeout;
+    }
+
+    /**
+     * create new item
+     * @param hashCode for the entry
+     * @param key <code>Object</code> key
+     * @param value <code>Object</code> value
+     * @param size size in bytes of the item
+     *
+     * subclasses may override to provide their own CacheItem extensions
+     * e.g. one that permits persistence.
+     */
+    protected CacheItem createItem(int hashCode, Object key,
+                                        Object value, int size) {
+        return new TinyLfuCacheItem(hashCode, key, value, size);
+    }
+
+    /**
+     * get the segment owning the given hash code
+     */
+    final Segment segmentFor(int hashCode) {
+        return segments[getIndex(hashCode) & (segments.length - 1)];
+    }
+
+    /**
+     * this item is just added to the cache
+     * @param item <code>CacheItem</code> that was created
+     * @return a overflow item; may be null
+     *
+     * Cache bucket is already synchronized by the caller
+     */
+    protected CacheItem itemAdded(CacheItem item) {
+        if (!(item instanceof TinyLfuCacheItem))
+            return null;
+        TinyLfuCacheItem lc = (TinyLfuCacheItem) item;
+
+        lc.lastAccessed = System.currentTimeMillis();
+
+        Segment segment = segmentFor(item.hashCode);
+        CacheItem overflow;
+        synchronized (segment) {
+            segment.sketch.increment(item.hashCode);
+            overflow = segment.add(lc, !isUnbounded);
+        }
+
+        // an unbounded cache just keeps growing its threshold
+        if (isUnbounded && isThresholdReached())
+            super.handleOverflow();
+
+        return overflow;
+    }
+
+    /**
+     * this item is accessed
+     * @param item <code>CacheItem</code> accessed
+     *
+     * Cache bucket is already synchronized by the caller
+     */
+    protected void itemAccessed(CacheItem item) {
+        if (!(item instanceof TinyLfuCacheItem))
+            return;
+        TinyLfuCacheItem lc = (TinyLfuCacheItem) item;
+
+        Segment segment = segmentFor(item.hashCode);
+        synchronized (segment) {
+            // if the item is already trimmed, nothing to do.
+            if (lc.isTrimmed)
+                return;
+
+            lc.lastAccessed = System.currentTimeMillis();
+            segment.sketch.increment(item.hashCode);
+            segment.access(lc);
+        }
+    }
+
+    /**
+     * item value has been refreshed
+     * @param item <code>CacheItem</code> that was refreshed
+     * @param oldSize size of the previous value that was refreshed
+     * Cache bucket is already synchronized by the caller
+     */
+    protected void itemRefreshed(CacheItem item, int oldSize) {
+        itemAccessed(item);
+    }
+
+    /**
+     * item value has been removed from the cache
+     * @param item <code>CacheItem</code> that was just removed
+     *
+     * Cache bucket is already synchronized by the caller
+     */
+    protected void itemRemoved(CacheItem item) {
+        if (!(item instanceof TinyLfuCacheItem))
+            return;
+        TinyLfuCacheItem lc = (TinyLfuCacheItem) item;
+
+        Segment segment = segmentFor(item.hashCode);
+        synchronized (segment) {
+            // if the item is already trimmed, nothing to do.
+            if (lc.isTrimmed)
+                return;
+
+            segment.unlink(lc);
+        }
+    }
+
+    /**
+     * record the miss in the frequency sketch so that keys which are
+     * requested again soon get admitted over colder ones.
+     *
+     * Cache bucket is already synchronized by the caller
+     */
+    protected Object loadValue(Object key, int hashCode) {
+        Segment segment = segmentFor(hashCode);
+        synchronized (segment) {
+            segment.sketch.increment(hashCode);
+        }
+        return null;
+    }
+
+    /**
+     * trim the expired entries from the cache.
+     * @param maxCount maximum number of invalid entries to trim
+     *        specify Integer.MAX_VALUE to trim all invalid entries
+     * This call is to be scheduled by a thread managed by the container.
+     *
+     * NOTE: this algorithm assumes that all the entries in the cache have
+     * identical timeout (otherwise traversing from tail won't be right).
+     */
+    public void trimExpiredEntries(int maxCount) {
+        if (timeout == NO_TIMEOUT)
+            return;
+
+        long currentTime = System.currentTimeMillis();
+        ArrayList list = new ArrayList();
+
+        for (int i = 0; i < segments.length && list.size() < maxCount; i++) {
+            Segment segment = segments[i];
+            synchronized (segment) {
+                for (int queue = WINDOW; queue < NONE; queue++) {
+                    TinyLfuCacheItem item = segment.tails[queue];
+                    while (item != null && list.size() < maxCount &&
+                           (item.lastAccessed + timeout) <= currentTime) {
+                        TinyLfuCacheItem prev = item.lPrev;
+                        segment.unlink(item);
+                        item.isTrimmed = true;
+                        segment.trimCount++;
+                        list.add(item);
+                        item = prev;
+                    }
+                }
+            }
+        }
+
+        for (int index = 0; index < list.size(); index++) {
+            trimItem((CacheItem) list.get(index));
+        }
+    }
+
+    /**
+     * estimated access frequency of the given key
+     * @param key lookup key
+     * @return the frequency estimate, between 0 and 15
+     */
+    public int getFrequency(Object key) {
+        int hashCode = hash(key);
+        Segment segment = segmentFor(hashCode);
+        synchronized (segment) {
+            return segment.sketch.frequency(hashCode);
+        }
+    }
+
+    int getTrimCount() {
+        int count = 0;
+        for (int i = 0; i < segments.length; i++) {
+            count += segments[i].trimCount;
+        }
+        return count;
+    }
+
+    int getRejectCount() {
+        int count = 0;
+        for (int i = 0; i < segments.length; i++) {
+            count += segments[i].rejectCount;
+        }
+        return count;
+    }
+
+    /**
+     * get the desired statistic counter
+     * @param key to corresponding stat
+     * @return an Object corresponding to the stat
+     * See also: Constant.java for the key
+     */
+    public Object getStatByName(String key) {
+        Object stat = super.getStatByName(key);
+
+        if (stat == null && key != null) {
+            if (key.equals(Constants.STAT_TINYLFUCACHE_SEGMENT_COUNT))
+                stat = Integer.valueOf(segments.length);
+            else if (key.equals(Constants.STAT_TINYLFUCACHE_TRIM_COUNT))
+                stat = Integer.valueOf(getTrimCount());
+            else if (key.equals(Constants.STAT_TINYLFUCACHE_REJECT_COUNT))
+                stat = Integer.valueOf(getRejectCount());
+        }
+        return stat;
+    }
+
+    /**
+     * get the stats snapshot
+     * @return a Map of stats
+     * See also: Constant.java for the keys
+     */
+    public Map getStats() {
+        Map stats = super.getStats();
+        stats.put(Constants.STAT_TINYLFUCACHE_SEGMENT_COUNT,
+                  Integer.valueOf(segments.length));
+        stats.put(Constants.STAT_TINYLFUCACHE_TRIM_COUNT,
+                  Integer.valueOf(getTrimCount()));
+        stats.put(Constants.STAT_TINYLFUCACHE_REJECT_COUNT,
+                  Integer.valueOf(getRejectCount()));
+
+        return stats;
+    }
+
+    /**
+     * one lock stripe of the cache: the admission window, the probation and
+     * protected lists and the frequency sketch, all guarded by the segment
+     * monitor.
+     */
+    static final class Segment {
+        final TinyLfuCacheItem[] heads = new TinyLfuCacheItem[NONE];
+        final TinyLfuCacheItem[] tails = new TinyLfuCacheItem[NONE];
+        final int[] sizes = new int[NONE];
+
+        final int capacity;
+        final int maxWindow;
+        final int maxProtected;
+        final FrequencySketch sketch;
+
+        int trimCount;
+        int rejectCount;
+
+        Segment(int capacity) {
+            this.capacity = Math.max(capacity, 1);
+            maxWindow = Math.max(1, (this.capacity * WINDOW_PERCENT) / 100);
+            maxProtected = ((this.capacity - maxWindow) * PROTECTED_PERCENT) / 100;
+            sketch = new FrequencySketch(this.capacity);
+        }
+
+        /**
+         * add a new item to the window and run the admission policy
+         * @return the item to be trimmed; may be null
+         */
+        TinyLfuCacheItem add(TinyLfuCacheItem item, boolean bounded) {
+            link(item, WINDOW);
+            if (sizes[WINDOW] <= maxWindow)
+                return null;
+
+            // the window LRU item moves to the main space
+            TinyLfuCacheItem candidate = tails[WINDOW];
+            unlink(candidate);
+            link(candidate, PROBATION);
+
+            if (!bounded || sizes[WINDOW] + sizes[PROBATION] +
+                            sizes[PROTECTED] <= capacity)
+                return null;
+
+            TinyLfuCacheItem victim = tails[PROBATION];
+            if (victim == candidate && sizes[PROTECTED] > 0)
+                victim = tails[PROTECTED];
+
+            TinyLfuCacheItem evicted = victim;
+            if (victim != candidate &&
+                sketch.frequency(victim.hashCode) >=
+                sketch.frequency(candidate.hashCode)) {
+                evicted = candidate;
+                rejectCount++;
+            }
+
+            unlink(evicted);
+            evicted.isTrimmed = true;
+            trimCount++;
+            return evicted;
+        }
+
+        /**
+         * move an accessed item ahead in its list, promoting probation items
+         */
+        void access(TinyLfuCacheItem item) {
+            if (item.queue == PROBATION) {
+                unlink(item);
+                link(item, PROTECTED);
+
+                // demote the protected LRU item if protected is too big
+                if (sizes[PROTECTED] > maxProtected) {
+                    TinyLfuCacheItem demoted = tails[PROTECTED];
+                    unlink(demoted);
+                    link(demoted, PROBATION);
+                }
+            } else if (item.queue != NONE && heads[item.queue] != item) {
+                int queue = item.queue;
+                unlink(item);
+                link(item, queue);
+            }
+        }
+
+        void link(TinyLfuCacheItem item, int queue) {
+            item.queue = queue;
+            item.lPrev = null;
+            item.lNext = heads[queue];
+            if (heads[queue] != null)
+                heads[queue].lPrev = item;
+            else
+                tails[queue] = item;
+            heads[queue] = item;
+            sizes[queue]++;
+        }
+
+        void unlink(TinyLfuCacheItem item) {
+            int queue = item.queue;
+            if (queue == NONE)
+                return;
+
+            TinyLfuCacheItem prev = item.lPrev;
+            TinyLfuCacheItem next = item.lNext;
+
+            // patch up the neighbors and make sure head/tail are correct
+            if (prev != null)
+                prev.lNext = next;
+            else
+                heads[queue] = next;
+
+            if (next != null)
+                next.lPrev = prev;
+            else
+                tails[queue] = prev;
+
+            item.lPrev = item.lNext = null;
+            item.queue = NONE;
+            sizes[queue]--;
+        }
+    }
+
+    /**
+     * count-min sketch of 4-bit counters, four counters per key. All the
+     * counters are halved once the number of increments reaches ten times
+     * the capacity so that the estimates follow the recent history.
+     */
+    static final class FrequencySketch {
+        static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final long ONE_MASK = 0x1111111111111111L;
+
+        final long[] table;
+        final int tableMask;
+        final int sampleSize;
+        int additions;
+
+        FrequencySketch(int capacity) {
+            int size = 16;
+            while (size < capacity)
+                size <<= 1;
+            table = new long[size];
+            tableMask = size - 1;
+            sampleSize = 10 * Math.max(capacity, 16);
+        }
+
+        int frequency(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = (start + i) << 2;
+                long mask = 0xfL << offset;
+                if ((table[index] & mask) != mask) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+
+            if (added && ++additions == sampleSize)
+                reset();
+        }
+
+        void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions = (additions - (odd >>> 2)) >>> 1;
+        }
+
+        int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += (h >>> 32);
+            return ((int) h) & tableMask;
+        }
+
+        static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+
+    /** default CacheItem class implementation  ***/
+    protected static class TinyLfuCacheItem extends CacheItem {
+
+        // double linked list of the owning queue
+        TinyLfuCacheItem lNext;
+        TinyLfuCacheItem lPrev;
+        int queue = NONE;
+        protected boolean isTrimmed;
+        protected long lastAccessed;
+
+        protected TinyLfuCacheItem(int hashCode, Object key, Object value, int size) {
+            super(hashCode, key, value, size);
+        }
+    }
+}
@@ -118,6 +118,15 @@ public class ASURLClassLoader
     */
     private final Set<URLEntry> urlSet = Collections.synchronizedSet(new LinkedHashSet<URLEntry>());
 
+    /*
+       url entries in search order. The array is replaced, never modified, when an entry is
+       appended, so that lookups can iterate over it without holding the lock of this loader.
+    */
+    private volatile URLEntry[] searchPath = new URLEntry[0];
+
+    /** directories of the jars in 'searchPath', by position, to skip jars that cannot match */
+    private final PackageIndex packageIndex = new PackageIndex();
+
     /** cache of not found resources */
     private final Map<String,String> notFoundResources   = new ConcurrentHashMap<String,String>();
 
@@ -148,6 +157,10 @@ public class ASURLClassLoader
 
     //holder for declared and ee permissions
     private PermsHolder permissionsHolder;
+
+    static {
+        registerAsParallelCapable();
+    }
     
     /**
      * Constructor.
@@ -246,6 +259,8 @@ public class ASURLClassLoader
             // clears out the tables
             // Clear all values.  Because fields are 'final' (for thread safety), cannot null them
             this.urlSet.clear();
+            this.searchPath = new URLEntry[0];
+            this.packageIndex.clear();
             if (this.notFoundResources != null) { this.notFoundResources.clear(); }
             if (this.notFoundClasses != null)   { this.notFoundClasses.clear();   }
         }
@@ -305,6 +320,15 @@ public class ASURLClassLoader
                 // adds the url entry to the list
                 this.urlSet.add(entry);
 
+                // index the jar before publishing the new search path, so that a
+                // concurrent lookup never sees the jar without its directories
+                URLEntry[] path = Arrays.copyOf(searchPath, searchPath.length + 1);
+                path[searchPath.length] = entry;
+                if (entry.isJar) {
+                    packageIndex.add(searchPath.length, entry.zip);
+                }
+                searchPath = path;
+
                 if (entry.isJar) {
                     // checks the manifest if a jar
                     checkManifest(entry.zip, entry.file);
@@ -445,6 +469,38 @@ public class ASURLClassLoader
         this.notFoundClasses.clear();
     }
 
+    /**
+     * Returns the url entries that may contain the given path, in search order.
+     * Directories are always included; jars only if they have entries in the
+     * directory of the path.
+     *
+     * @param    name   '/' separated name of a class file or resource
+     */
+    private URLEntry[] searchPathFor(String name) {
+        final URLEntry[] path = searchPath;
+        final int[] jars = packageIndex.getPositions(name);
+        if (jars == null) {
+            return path;
+        }
+
+        URLEntry[] result = new URLEntry[path.length];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < path.length; i++) {
+            if (!path[i].isJar) {
+                result[n++] = path[i];
+                continue;
+            }
+            while (j < jars.length && jars[j] < i) {
+                j++;
+            }
+            if (j < jars.length && jars[j] == i) {
+                result[n++] = path[i];
+            }
+        }
+        return (n == path.length) ? path : Arrays.copyOf(result, n);
+    }
+
     /**
      * Internal implementation of find resource.
      *
@@ -518,14 +574,11 @@ public class ASURLClassLoader
             return null;
         }
 
-        // This code is dubious, because it iterates over items that could
-        // be changing via another thread.   It appears that since 'urlSet' cannot shrink
-        // that the iteration at least won't go out of bounds.  And it's probably OK
-        // if more than one thread adds the same resource to 'notFoundResources'.
+        // The search path is a snapshot, so it cannot change while iterating over it.
+        // It's OK if more than one thread adds the same resource to 'notFoundResources'.
         //
-        // HOWEVER, there is still a race condition from the check for 'doneCalled' above.
-        // That's OK for 'notFoundResources', but it could lead to an ArrayIndexOutOfBounds
-        // excpetion for 'urlSet', should the set be cleared while looping.
+        // There is still a race condition from the check for 'doneCalled' above: the jars
+        // may be closed while looping, in which case findResource0() logs and returns null.
 
         // resource is in the not found list
         String nf = (String) notFoundResources.get(name);
@@ -533,23 +586,20 @@ public class ASURLClassLoader
             return null;
         }
 
-        int i = 0;
-        synchronized(this) {
-            for (final URLEntry u : this.urlSet) {
-
-                if (!u.hasItem(name)) {
-                    i++;
-                    continue;
-                }
+        for (final URLEntry u : searchPathFor(name)) {
 
-                final URL url = findResource0(u, name);
-                if (url != null) return url;
-                i++;
+            if (!u.hasItem(name)) {
+                continue;
             }
+
+            final URL url = findResource0(u, name);
+            if (url != null) return url;
         }
 
-        // add resource to the not found list
-        notFoundResources.put(name, name);
+        // add resource to the not found list, unless done() was called while looping
+        if (!doneCalled) {
+            notFoundResources.put(name, name);
+        }
 
         return null;
     }
@@ -578,8 +628,7 @@ public class ASURLClassLoader
             return (new Vector(resourcesList)).elements();
         }
 
-        for (Iterator<URLEntry> iter = this.urlSet.iterator(); iter.hasNext();) {
-            final URLEntry urlEntry = iter.next();
+        for (final URLEntry urlEntry : searchPathFor(name)) {
             final URL url = findResource0(urlEntry, name);
             if (url != null) {
                 resourcesList.add(url);
@@ -684,6 +733,9 @@ public class ASURLClassLoader
                     }
                 } catch (IOException ioe) {
                     _logger.log(Level.INFO, CULoggerInfo.exceptionInASURLClassLoader, ioe);
+                } catch (IllegalStateException ise) {
+                    // the jar was closed by a concurrent call to done()
+                    _logger.log(Level.FINE, "jar closed while loading " + entryName, ise);
                 }
                 return null;
             }
@@ -812,14 +864,15 @@ public class ASURLClassLoader
      * have to be read and reading the bytes. It does not actually define
      * the Class object.
      * <p>
-     * To preclude a race condition on checking 'doneCalled', as well as transient errors
-     * if done() is called while running, this method is 'synchronized'.
+     * This method is not 'synchronized', so that classes can be loaded in parallel: it
+     * searches a snapshot of the url entries.  If done() is called while it runs, the
+     * jars may be closed under it; lookups then fail and are not recorded as not found.
 
      * @param name class name in java.lang.Object format
      * @return class bytes as well protection domain information
      * @throws ClassNotFoundException
      */
-    protected synchronized ClassData findClassData(String name) throws ClassNotFoundException {
+    protected ClassData findClassData(String name) throws ClassNotFoundException {
 
         if( doneCalled ) {
             _logger.log(Level.WARNING,
@@ -836,10 +889,8 @@ public class ASURLClassLoader
         // search thru the JARs for a file of the form java/lang/Object.class
         String entryName = name.replace('.', '/') + ".class";
 
-        int i = 0;
-        for (URLEntry u : this.urlSet) {
+        for (URLEntry u : searchPathFor(entryName)) {
             if (!u.hasItem(entryName)) {
-                i++;
                 continue;
             }
 
@@ -856,11 +907,12 @@ public class ASURLClassLoader
                     return new ClassData(result, pdWithPemissions);
                 }
             }
-            i++;
         }
 
-        // add to the not found classes list
-        notFoundClasses.put(name, name);
+        // add to the not found classes list, unless done() was called while looping
+        if (!doneCalled) {
+            notFoundClasses.put(name, name);
+        }
 
         throw new ClassNotFoundException(name);
     }
@@ -0,0 +1,145 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.loader;
+
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * Index from directory (package) names to the positions of the jars of a
+ * class loader that contain entries in that directory.
+ * <p>
+ * Class loaders with many jars otherwise probe every jar, one at a time,
+ * for each class or resource they look up, and for every lookup that fails.
+ * With the index, a lookup only visits the jars that have entries in the
+ * directory of the requested path, and a lookup in a directory no jar
+ * contains visits none.
+ * <p>
+ * Jars are added with their position in the search order of the loader;
+ * positions returned by {@link #getPositions} are in increasing order, so
+ * the search order of the loader is kept.  Only jars are indexed: the
+ * contents of directories may change after they are added to a loader and
+ * must still be searched directly.
+ * <p>
+ * {@link #add} must be serialized by the caller, typically under the lock
+ * that guards the jar list of the loader; {@link #getPositions} may be
+ * called concurrently and takes no lock.
+ */
+public final class PackageIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, int[]> positions = new ConcurrentHashMap<String, int[]>();
+
+    /**
+     * Adds the entries of a jar to the index.
+     *
+     * @param position position of the jar in the search order of the loader;
+     * must be greater than the position of any jar added before
+     * @param jar the jar, which must be open
+     */
+    public void add(int position, JarFile jar) {
+        Set<String> directories = new HashSet<String>();
+        Enumeration<? extends ZipEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            directories.add(directoryOf(entries.nextElement().getName()));
+        }
+        for (String directory : directories) {
+            int[] current = positions.get(directory);
+            if (current == null) {
+                positions.put(directory, new int[] { position });
+            } else {
+                int[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = position;
+                positions.put(directory, updated);
+            }
+        }
+    }
+
+    /**
+     * Returns the positions of the jars that may contain the given path, in
+     * search order.
+     *
+     * @param path a '/' separated path relative to the jar root
+     * @return the candidate positions, or null if the path cannot be
+     * resolved through the index and every jar must be searched
+     */
+    public int[] getPositions(String path) {
+        if (path.length() == 0 || path.charAt(0) == '/'
+                || path.startsWith("./") || path.contains("../")) {
+            return null;
+        }
+        int[] result = positions.get(directoryOf(path));
+        return (result == null) ? NONE : result;
+    }
+
+    /**
+     * Returns the number of directories in the index.
+     */
+    public int size() {
+        return positions.size();
+    }
+
+    public void clear() {
+        positions.clear();
+    }
+
+    /**
+     * Returns the parent directory of an entry or path, ignoring a trailing
+     * '/', so that "a/b/" and "a/b" (which JarFile resolves to the same
+     * directory entry) map to "a", and "a/b/C.class" maps to "a/b".
+     */
+    static String directoryOf(String name) {
+        int end = name.length();
+        if (end > 0 && name.charAt(end - 1) == '/') {
+            end--;
+        }
+        int sep = name.lastIndexOf('/', end - 1);
+        return (sep <= 0) ? "" : name.substring(0, sep);
+    }
+}
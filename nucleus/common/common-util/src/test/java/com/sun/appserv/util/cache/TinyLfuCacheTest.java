@@ -0,0 +1,207 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.appserv.util.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the W-TinyLFU cache, including a hit ratio comparison with
+ * the LRU caches on a workload mixing a hot set with a one-off scan.
+ */
+public class TinyLfuCacheTest {
+
+    private static final int CAPACITY = 128;
+
+    @Test
+    public void testBoundedAndTrimEvents() {
+        TinyLfuCache cache = new TinyLfuCache();
+        cache.init(CAPACITY, LruCache.NO_TIMEOUT, 1.0f, singleSegment());
+
+        final List<Object> trimmed = new ArrayList<Object>();
+        cache.addCacheListener(new CacheListener() {
+            public void trimEvent(Object key, Object value) {
+                trimmed.add(key);
+            }
+        });
+
+        for (int i = 0; i < 10 * CAPACITY; i++) {
+            cache.put(Integer.valueOf(i), "v" + i);
+        }
+
+        int threshold = ((Integer) cache.getStatByName(
+            Constants.STAT_BASECACHE_THRESHOLD)).intValue();
+        assertTrue(cache.getEntryCount() <= threshold);
+        assertEquals(10 * CAPACITY, cache.getEntryCount() + trimmed.size());
+        for (Object key : trimmed) {
+            assertNull(cache.get(key));
+        }
+    }
+
+    @Test
+    public void testFrequentKeysAreAdmitted() {
+        TinyLfuCache cache = new TinyLfuCache();
+        cache.init(CAPACITY, LruCache.NO_TIMEOUT, 1.0f, singleSegment());
+
+        Integer hot = Integer.valueOf(-1);
+        cache.put(hot, hot);
+        for (int i = 0; i < 10; i++) {
+            cache.get(hot);
+        }
+        for (int i = 0; i < 10 * CAPACITY; i++) {
+            cache.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+        assertEquals(hot, cache.get(hot));
+        assertTrue(cache.getFrequency(hot) > cache.getFrequency(Integer.valueOf(0)));
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        TinyLfuCache cache = new TinyLfuCache();
+        cache.init(CAPACITY, LruCache.NO_TIMEOUT, 1.0f, null);
+
+        for (int i = 0; i < CAPACITY; i++) {
+            cache.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+        assertEquals(Integer.valueOf(7), cache.remove(Integer.valueOf(7)));
+        assertNull(cache.get(Integer.valueOf(7)));
+        assertEquals(CAPACITY - 1, cache.clear());
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final TinyLfuCache cache = new TinyLfuCache();
+        Properties props = new Properties();
+        props.setProperty(TinyLfuCache.SEGMENTS_PROPERTY, "4");
+        cache.init(4 * CAPACITY, LruCache.NO_TIMEOUT, 1.0f, props);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 50000; i++) {
+                        Integer key = Integer.valueOf(random.nextInt(16 * CAPACITY));
+                        if (cache.get(key) == null) {
+                            cache.put(key, key);
+                        } else if (i % 7 == 0) {
+                            cache.remove(key);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int linked = 0;
+        for (TinyLfuCache.Segment segment : cache.segments) {
+            for (int size : segment.sizes) {
+                linked += size;
+            }
+            assertTrue(segment.sizes[TinyLfuCache.WINDOW] +
+                       segment.sizes[TinyLfuCache.PROBATION] +
+                       segment.sizes[TinyLfuCache.PROTECTED] <= segment.capacity);
+        }
+        assertEquals(cache.getEntryCount(), linked);
+    }
+
+    @Test
+    public void testHitRatioAgainstLru() throws Exception {
+        TinyLfuCache tinyLfu = new TinyLfuCache();
+        tinyLfu.init(CAPACITY, LruCache.NO_TIMEOUT, 1.0f, null);
+
+        LruCache lru = new LruCache();
+        lru.init(CAPACITY, LruCache.NO_TIMEOUT, 1.0f, null);
+
+        MultiLruCache multiLru = new MultiLruCache();
+        multiLru.init(CAPACITY, null);
+
+        int tinyLfuHits = replay(tinyLfu);
+        int lruHits = replay(lru);
+        int multiLruHits = replay(multiLru);
+
+        assertTrue("tinylfu " + tinyLfuHits + " lru " + lruHits,
+                   tinyLfuHits > lruHits);
+        assertTrue("tinylfu " + tinyLfuHits + " multilru " + multiLruHits,
+                   tinyLfuHits > multiLruHits);
+    }
+
+    /**
+     * half of the requests go to a hot set smaller than the cache, the
+     * other half are keys that are never requested again
+     */
+    private static int replay(Cache cache) {
+        Random random = new Random(42);
+        int hits = 0;
+        int scan = 1000000;
+        for (int i = 0; i < 100000; i++) {
+            Integer key = random.nextBoolean()
+                ? Integer.valueOf(random.nextInt(CAPACITY * 3 / 4))
+                : Integer.valueOf(scan++);
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        return hits;
+    }
+
+    private static Properties singleSegment() {
+        Properties props = new Properties();
+        props.setProperty(TinyLfuCache.SEGMENTS_PROPERTY, "1");
+        return props;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.loader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for PackageIndex.
+ */
+public class PackageIndexTest {
+
+    private final List<File> files = new ArrayList<File>();
+    private final List<JarFile> jars = new ArrayList<JarFile>();
+    private PackageIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        index = new PackageIndex();
+        index.add(0, jar("a/b/One.class", "a/b/res.txt"));
+        index.add(1, jar("a/", "a/b/", "a/b/Two.class", "META-INF/MANIFEST.MF"));
+        index.add(2, jar("top.properties", "META-INF/services/x.Y"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (JarFile jar : jars) {
+            jar.close();
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testClassesAndResources() {
+        assertArrayEquals(new int[] {0, 1}, index.getPositions("a/b/One.class"));
+        assertArrayEquals(new int[] {0, 1}, index.getPositions("a/b/Missing.class"));
+        assertArrayEquals(new int[] {1}, index.getPositions("META-INF/MANIFEST.MF"));
+        assertArrayEquals(new int[] {2}, index.getPositions("META-INF/services/x.Y"));
+    }
+
+    @Test
+    public void testDirectories() {
+        // explicit directory entries are found with and without the trailing '/'
+        assertArrayEquals(new int[] {1}, index.getPositions("a/b"));
+        assertArrayEquals(new int[] {1}, index.getPositions("a/b/"));
+        assertArrayEquals(new int[] {1, 2}, index.getPositions("a"));
+        assertArrayEquals(new int[] {1, 2}, index.getPositions("top.properties"));
+    }
+
+    @Test
+    public void testUnknownPackage() {
+        assertEquals(0, index.getPositions("x/y/Z.class").length);
+    }
+
+    @Test
+    public void testUnindexablePaths() {
+        assertNull(index.getPositions("/a/b/One.class"));
+        assertNull(index.getPositions("./a/b/One.class"));
+        assertNull(index.getPositions("a/../a/b/One.class"));
+        assertNull(index.getPositions(""));
+    }
+
+    @Test
+    public void testClear() {
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(0, index.getPositions("a/b/One.class").length);
+    }
+
+    private JarFile jar(String... entries) throws IOException {
+        File file = File.createTempFile("packageindex", ".jar");
+        files.add(file);
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+        try {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        JarFile jar = new JarFile(file);
+        jars.add(jar);
+        return jar;
+    }
+}
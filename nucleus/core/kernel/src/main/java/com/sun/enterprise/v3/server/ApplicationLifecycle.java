@@ -55,6 +55,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
@@ -164,6 +165,9 @@ public class ApplicationLifecycle implements Deployment, PostConstruct {
 
     private ExecutorService executorService = null;
 
+    // serializes the parts of deploy() that touch state shared by all applications
+    private final ReentrantLock sharedStateLock = new ReentrantLock();
+
     private Collection<ApplicationLifecycleInterceptor> alcInterceptors = Collections.EMPTY_LIST;
     
     public void postConstruct() {
@@ -219,7 +223,26 @@ public class ApplicationLifecycle implements Deployment, PostConstruct {
         return deploy(null, context);
     }
 
+    /**
+     * Deploys an application.
+     * <p>
+     * Applications may be deployed from several threads at once when they are loaded in
+     * parallel at startup. Deployment is serialized by a lock, so every deployment event,
+     * every deployer's prepare, load and start and every change to the application registry
+     * happen one application at a time. The lock is only released while the archive of the
+     * application is scanned for annotations, which reads nothing but that archive and its
+     * libraries and sends no events.
+     */
     public ApplicationInfo deploy(Collection<? extends Sniffer> sniffers, final ExtendedDeploymentContext context) {
+        sharedStateLock.lock();
+        try {
+            return deployUnderLock(sniffers, context);
+        } finally {
+            sharedStateLock.unlock();
+        }
+    }
+
+    private ApplicationInfo deployUnderLock(Collection<? extends Sniffer> sniffers, final ExtendedDeploymentContext context) {
 
         long operationStartTime = Calendar.getInstance().getTimeInMillis();
 
@@ -339,7 +362,12 @@ public class ApplicationLifecycle implements Deployment, PostConstruct {
             }
 
             if (handler.requiresAnnotationScanning(context.getSource())) {
-                getDeployableTypes(context);
+                sharedStateLock.unlock();
+                try {
+                    getDeployableTypes(context);
+                } finally {
+                    sharedStateLock.lock();
+                }
             }
 
             if (tracing!=null) {
@@ -145,6 +145,11 @@ public class ApplicationLoaderService implements org.glassfish.hk2.api.PreDestro
 
     private String deploymentTracingEnabled = null;
 
+    // load independent applications concurrently at startup
+    static final String PARALLEL_LOADING_PROPERTY = "org.glassfish.startup.parallelAppLoading";
+
+    static final String PARALLEL_LOADING_THREADS_PROPERTY = "org.glassfish.startup.parallelAppLoadingThreads";
+
     private Map<String,Integer> appOrderInfoMap = new HashMap<String, Integer>();
     private int appOrder = 0;
 
@@ -237,10 +242,25 @@ public class ApplicationLoaderService implements org.glassfish.hk2.api.PreDestro
         }
 
         Iterator iter = DeploymentOrder.getApplicationDeployments();
-        while (iter.hasNext()) {
-          Application app = (Application)iter.next();
-          ApplicationRef appRef = server.getApplicationRef(app.getName());
-          processApplication(app, appRef);
+        if (Boolean.getBoolean(PARALLEL_LOADING_PROPERTY)) {
+          List<Application> orderedApps = new ArrayList<Application>();
+          while (iter.hasNext()) {
+            orderedApps.add((Application)iter.next());
+          }
+          int threads = Integer.getInteger(PARALLEL_LOADING_THREADS_PROPERTY,
+              Math.min(Runtime.getRuntime().availableProcessors(), 8));
+          new ParallelApplicationLoader(logger, threads).load(orderedApps,
+              new ParallelApplicationLoader.ApplicationProcessor() {
+                public void process(Application app) {
+                  processApplication(app, server.getApplicationRef(app.getName()));
+                }
+              });
+        } else {
+          while (iter.hasNext()) {
+            Application app = (Application)iter.next();
+            ApplicationRef appRef = server.getApplicationRef(app.getName());
+            processApplication(app, appRef);
+          }
         }
 
         // does the user want us to run a particular application
@@ -66,6 +66,12 @@ import org.jvnet.hk2.config.IndentingXMLStreamWriter;
 
 /**
  * domain.xml persistence.
+ * <p>
+ * {@link #save} returns once domain.xml holds the saved change and has been forced to disk.
+ * Saves that arrive while domain.xml is being written are coalesced: the next write covers all
+ * of them, since the document is the live configuration, and each of them returns when that
+ * write completes. A burst of concurrent configuration transactions therefore costs far fewer
+ * writes than transactions, without a save ever reporting success ahead of the file.
  *
  * @author Jerome Dochez
  */
@@ -84,6 +90,13 @@ public class DomainXmlPersistence implements ConfigurationPersistence, Configura
 
     final XMLOutputFactory xmlFactory = XMLOutputFactory.newInstance();
 
+    // group commit of the saves, all guarded by saveLock: number of saves requested,
+    // number of them covered by a completed write, and whether a write is running
+    private final Object saveLock = new Object();
+    private long savesRequested;
+    private long savesWritten;
+    private boolean writing;
+
     final static LocalStringManagerImpl localStrings =
             new LocalStringManagerImpl(DomainXmlPersistence.class);    
 
@@ -133,6 +146,45 @@ public class DomainXmlPersistence implements ConfigurationPersistence, Configura
             skippedDoc = doc;
             return;
         }
+        long save;
+        long covered;
+        boolean interrupted = false;
+        synchronized (saveLock) {
+            save = ++savesRequested;
+            // a write that started before this save may have missed its change,
+            // wait for it and let the next write cover this save
+            while (writing) {
+                try {
+                    saveLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (savesWritten >= save) {
+                return;
+            }
+            writing = true;
+            covered = savesRequested;
+        }
+        boolean written = false;
+        try {
+            write(doc);
+            written = true;
+        } finally {
+            synchronized (saveLock) {
+                writing = false;
+                if (written) {
+                    savesWritten = covered;
+                }
+                saveLock.notifyAll();
+            }
+        }
+    }
+
+    private void write(DomDocument doc) throws IOException {
         File destination = getDestination();
         if (destination == null) {
             String msg = localStrings.getLocalString("NoLocation",
@@ -162,10 +214,16 @@ public class DomainXmlPersistence implements ConfigurationPersistence, Configura
             XMLStreamWriter writer = null;
             OutputStream fos = getOutputStream(f);
             try {
-                writer = xmlFactory.createXMLStreamWriter(new BufferedOutputStream(fos));
+                BufferedOutputStream bos = new BufferedOutputStream(fos);
+                writer = xmlFactory.createXMLStreamWriter(bos);
                 IndentingXMLStreamWriter indentingXMLStreamWriter = new IndentingXMLStreamWriter(writer);
                 doc.writeTo(indentingXMLStreamWriter);
                 indentingXMLStreamWriter.close();
+                // the saves waiting on this write report success once it is on disk
+                bos.flush();
+                if (fos instanceof FileOutputStream) {
+                    ((FileOutputStream) fos).getFD().sync();
+                }
             }
             catch (XMLStreamException e) {
                 String msg = localStrings.getLocalString("TmpFileNotSaved",
@@ -0,0 +1,261 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.v3.server;
+
+import com.sun.enterprise.config.serverbeans.Application;
+import com.sun.enterprise.config.serverbeans.ServerTags;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.internal.deployment.DeploymentType;
+import org.glassfish.kernel.KernelLoggerInfo;
+
+/**
+ * Loads the applications found in domain.xml at startup, running the ones
+ * that do not depend on each other concurrently on a bounded pool.
+ *
+ * System applications and standalone resource adapters are loaded first,
+ * one after the other, as other applications may use them. The remaining
+ * applications are kept in deployment order, and an application waits for
+ * an earlier one when
+ * <ul>
+ * <li>the earlier one has a lower deployment-order,</li>
+ * <li>both use a common library,</li>
+ * <li>the earlier one embeds a resource adapter and it does not.</li>
+ * </ul>
+ * Independent applications do not run their whole deployment concurrently:
+ * ApplicationLifecycle serializes deployment, including every deployment
+ * event and every deployer's prepare, load and start. Only opening the
+ * archive, building the deployment context and annotation scanning overlap.
+ */
+final class ParallelApplicationLoader {
+
+    /**
+     * Loads one application, reporting its own failures.
+     */
+    interface ApplicationProcessor {
+        void process(Application app);
+    }
+
+    private final Logger logger;
+    private final int threads;
+
+    ParallelApplicationLoader(Logger logger, int threads) {
+        this.logger = logger;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Loads the applications given in deployment order and returns when
+     * all of them have been processed.
+     */
+    void load(List<Application> applications, ApplicationProcessor processor) {
+        long startTime = System.currentTimeMillis();
+
+        List<AppNode> nodes = new ArrayList<AppNode>();
+        for (Application app : applications) {
+            if (isPrerequisite(app)) {
+                processSafely(processor, app);
+            } else {
+                nodes.add(new AppNode(app, app.getName(),
+                        parseDeploymentOrder(app.getDeploymentOrder()),
+                        parseLibraries(app.getLibraries()),
+                        app.containsSnifferType(ServerTags.CONNECTOR)));
+            }
+        }
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        buildDependencies(nodes);
+        int poolSize = Math.min(threads, nodes.size());
+        logger.log(Level.INFO, KernelLoggerInfo.parallelLoadingStart,
+                new Object[] {nodes.size(), poolSize});
+
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, new LoaderThreadFactory());
+        try {
+            CountDownLatch done = new CountDownLatch(nodes.size());
+            for (AppNode node : nodes) {
+                if (node.pending.get() == 0) {
+                    submit(executor, node, processor, done);
+                }
+            }
+
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        logger.log(Level.INFO, KernelLoggerInfo.parallelLoadingDone,
+                new Object[] {nodes.size(), System.currentTimeMillis() - startTime});
+    }
+
+    private void submit(final ExecutorService executor, final AppNode node,
+            final ApplicationProcessor processor, final CountDownLatch done) {
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    processSafely(processor, node.app);
+                } finally {
+                    for (AppNode dependent : node.dependents) {
+                        if (dependent.pending.decrementAndGet() == 0) {
+                            submit(executor, dependent, processor, done);
+                        }
+                    }
+                    done.countDown();
+                }
+            }
+        });
+    }
+
+    private void processSafely(ApplicationProcessor processor, Application app) {
+        try {
+            processor.process(app);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, KernelLoggerInfo.deployException, e);
+        }
+    }
+
+    private static boolean isPrerequisite(Application app) {
+        String objectType = app.getObjectType();
+        if (objectType != null && objectType.startsWith(DeploymentType.SYSTEM_PREFIX)) {
+            return true;
+        }
+        return app.isStandaloneModule() && app.containsSnifferType(ServerTags.CONNECTOR);
+    }
+
+    /**
+     * Links each application to the earlier ones it has to wait for. The
+     * nodes are in deployment order, so edges only go forward and the graph
+     * has no cycles.
+     */
+    static void buildDependencies(List<AppNode> nodes) {
+        for (int j = 1; j < nodes.size(); j++) {
+            AppNode later = nodes.get(j);
+            for (int i = 0; i < j; i++) {
+                AppNode earlier = nodes.get(i);
+                if (earlier.deploymentOrder < later.deploymentOrder
+                        || !Collections.disjoint(earlier.libraries, later.libraries)
+                        || (earlier.providesResources && !later.providesResources)) {
+                    earlier.dependents.add(later);
+                    later.pending.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    static int parseDeploymentOrder(String deploymentOrder) {
+        try {
+            return (deploymentOrder == null) ? 100 : Integer.parseInt(deploymentOrder.trim());
+        } catch (NumberFormatException e) {
+            return 100;
+        }
+    }
+
+    static Set<String> parseLibraries(String libraries) {
+        if (libraries == null || libraries.trim().length() == 0) {
+            return Collections.emptySet();
+        }
+        Set<String> names = new HashSet<String>();
+        for (String library : libraries.split(",")) {
+            library = library.trim();
+            if (library.length() > 0) {
+                names.add(new File(library).getName());
+            }
+        }
+        return names;
+    }
+
+    static final class AppNode {
+        final Application app;
+        final String name;
+        final int deploymentOrder;
+        final Set<String> libraries;
+        final boolean providesResources;
+        final List<AppNode> dependents = new ArrayList<AppNode>();
+        final AtomicInteger pending = new AtomicInteger();
+
+        AppNode(Application app, String name, int deploymentOrder,
+                Set<String> libraries, boolean providesResources) {
+            this.app = app;
+            this.name = name;
+            this.deploymentOrder = deploymentOrder;
+            this.libraries = libraries;
+            this.providesResources = providesResources;
+        }
+
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "application-loader-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
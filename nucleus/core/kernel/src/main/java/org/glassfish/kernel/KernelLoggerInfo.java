@@ -647,4 +647,14 @@ public class KernelLoggerInfo {
             level = "INFO")
     public static final String checkpointAutoResumeDone = LOGMSG_PREFIX + "-00096";
 
+    @LogMessageInfo(
+            message = "Loading {0} applications in parallel using {1} threads",
+            level = "INFO")
+    public static final String parallelLoadingStart = LOGMSG_PREFIX + "-00097";
+
+    @LogMessageInfo(
+            message = "Parallel loading of {0} applications done in {1} ms",
+            level = "INFO")
+    public static final String parallelLoadingDone = LOGMSG_PREFIX + "-00098";
+
 }
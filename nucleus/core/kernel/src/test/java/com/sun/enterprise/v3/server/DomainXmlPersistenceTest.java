@@ -0,0 +1,253 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.v3.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.server.ServerEnvironmentImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.jvnet.hk2.config.DomDocument;
+
+import com.sun.enterprise.config.modularity.ConfigModularityUtils;
+import com.sun.enterprise.util.io.FileUtils;
+
+public class DomainXmlPersistenceTest {
+
+    private File root;
+    private DomainXmlPersistence persistence;
+
+    @Before
+    public void setUp() throws IOException {
+        root = File.createTempFile("domain", "");
+        assertTrue(root.delete());
+        assertTrue(new File(root, ServerEnvironmentImpl.kConfigDirName).mkdirs());
+        persistence = new DomainXmlPersistence();
+        persistence.env = new ServerEnvironmentImpl(root);
+        persistence.logger = Logger.getLogger(DomainXmlPersistenceTest.class.getName());
+        persistence.modularityUtils = new ConfigModularityUtils();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.whack(root);
+    }
+
+    @Test
+    public void testSaveWritesBeforeReturning() throws Exception {
+        TestDocument doc = new TestDocument();
+        doc.version.set(7);
+
+        persistence.save(doc);
+
+        assertEquals(1, doc.writes.get());
+        assertEquals("<domain version=\"7\"/>", readDomainXml());
+    }
+
+    /**
+     * Saves that arrive while domain.xml is being written share the next write,
+     * which holds all of their changes.
+     */
+    @Test
+    public void testConcurrentSavesAreCoalesced() throws Exception {
+        final TestDocument doc = new TestDocument();
+        doc.blockNextWrite();
+        List<Saver> savers = new ArrayList<Saver>();
+
+        Saver first = new Saver(doc);
+        first.start();
+        assertTrue(doc.writeStarted.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            // each change is committed to the live document before its save
+            doc.version.incrementAndGet();
+            Saver saver = new Saver(doc);
+            saver.start();
+            savers.add(saver);
+        }
+        for (Saver saver : savers) {
+            awaitWaiting(saver);
+        }
+        doc.releaseWrite.countDown();
+
+        first.join();
+        for (Saver saver : savers) {
+            saver.join();
+        }
+        first.assertSaved();
+        for (Saver saver : savers) {
+            saver.assertSaved();
+        }
+        assertEquals(2, doc.writes.get());
+        assertEquals("<domain version=\"3\"/>", readDomainXml());
+    }
+
+    /**
+     * A save that waited on a write that failed does not report success, it
+     * writes domain.xml itself.
+     */
+    @Test
+    public void testSaveWaitingOnFailedWriteWritesItself() throws Exception {
+        final TestDocument doc = new TestDocument();
+        doc.blockNextWrite();
+        doc.failNextWrite = true;
+
+        Saver first = new Saver(doc);
+        first.start();
+        assertTrue(doc.writeStarted.await(10, TimeUnit.SECONDS));
+        doc.version.incrementAndGet();
+        Saver second = new Saver(doc);
+        second.start();
+        awaitWaiting(second);
+        doc.releaseWrite.countDown();
+
+        first.join();
+        second.join();
+        assertTrue(first.failure instanceof IOException);
+        second.assertSaved();
+        assertEquals(2, doc.writes.get());
+        assertEquals("<domain version=\"1\"/>", readDomainXml());
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.WAITING) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(thread.getName() + " is not waiting for the running write");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private String readDomainXml() throws IOException {
+        File domainXml = new File(new File(root, ServerEnvironmentImpl.kConfigDirName), "domain.xml");
+        return FileUtils.readSmallFile(domainXml).trim();
+    }
+
+    private class Saver extends Thread {
+        private final DomDocument doc;
+        volatile Throwable failure;
+        volatile boolean saved;
+
+        Saver(DomDocument doc) {
+            this.doc = doc;
+        }
+
+        @Override
+        public void run() {
+            try {
+                persistence.save(doc);
+                saved = true;
+            } catch (Throwable t) {
+                failure = t;
+            }
+        }
+
+        void assertSaved() {
+            if (failure != null) {
+                throw new AssertionError(failure);
+            }
+            assertTrue(saved);
+        }
+    }
+
+    private static class TestDocument extends DomDocument {
+        final AtomicInteger version = new AtomicInteger();
+        final AtomicInteger writes = new AtomicInteger();
+        volatile CountDownLatch writeStarted = new CountDownLatch(0);
+        volatile CountDownLatch releaseWrite = new CountDownLatch(0);
+        volatile boolean failNextWrite;
+
+        TestDocument() {
+            super((ServiceLocator) Proxy.newProxyInstance(
+                    ServiceLocator.class.getClassLoader(),
+                    new Class[] { ServiceLocator.class },
+                    new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            return null;
+                        }
+                    }));
+        }
+
+        void blockNextWrite() {
+            writeStarted = new CountDownLatch(1);
+            releaseWrite = new CountDownLatch(1);
+        }
+
+        @Override
+        public void writeTo(XMLStreamWriter w) throws XMLStreamException {
+            writes.incrementAndGet();
+            int current = version.get();
+            CountDownLatch release = releaseWrite;
+            writeStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new XMLStreamException(e);
+            }
+            releaseWrite = new CountDownLatch(0);
+            if (failNextWrite) {
+                failNextWrite = false;
+                throw new XMLStreamException("write failed");
+            }
+            w.writeEmptyElement("domain");
+            w.writeAttribute("version", String.valueOf(current));
+        }
+    }
+}
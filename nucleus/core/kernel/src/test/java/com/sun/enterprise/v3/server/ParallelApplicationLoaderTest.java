@@ -0,0 +1,112 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.v3.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.sun.enterprise.v3.server.ParallelApplicationLoader.AppNode;
+
+public class ParallelApplicationLoaderTest {
+
+    private static AppNode node(String name, int order, String libraries, boolean rar) {
+        return new AppNode(null, name, order,
+                ParallelApplicationLoader.parseLibraries(libraries), rar);
+    }
+
+    @Test
+    public void testIndependentApplications() {
+        AppNode a = node("a", 100, null, false);
+        AppNode b = node("b", 100, null, false);
+        AppNode c = node("c", 100, "", false);
+        ParallelApplicationLoader.buildDependencies(Arrays.asList(a, b, c));
+
+        assertEquals(0, a.pending.get());
+        assertEquals(0, b.pending.get());
+        assertEquals(0, c.pending.get());
+    }
+
+    @Test
+    public void testDeploymentOrderAndLibraries() {
+        AppNode a = node("a", 10, null, false);
+        AppNode b = node("b", 100, "/libs/common.jar,other.jar", false);
+        AppNode c = node("c", 100, "common.jar", false);
+        AppNode d = node("d", 100, null, false);
+        ParallelApplicationLoader.buildDependencies(Arrays.asList(a, b, c, d));
+
+        assertEquals(Arrays.asList(b, c, d), a.dependents);
+        assertEquals(Collections.singletonList(c), b.dependents);
+        assertEquals(1, b.pending.get());
+        assertEquals(2, c.pending.get());
+        assertEquals(1, d.pending.get());
+    }
+
+    @Test
+    public void testEmbeddedResourceAdapterFirst() {
+        AppNode ear = node("ear-with-rar", 100, null, true);
+        AppNode rar = node("other-ear-with-rar", 100, null, true);
+        AppNode web = node("web", 100, null, false);
+        List<AppNode> nodes = Arrays.asList(ear, rar, web);
+        ParallelApplicationLoader.buildDependencies(nodes);
+
+        assertEquals(0, rar.pending.get());
+        assertEquals(2, web.pending.get());
+        assertTrue(ear.dependents.contains(web));
+    }
+
+    @Test
+    public void testParseLibraries() {
+        Set<String> names = ParallelApplicationLoader.parseLibraries(" a.jar , /x/b.jar,,");
+        assertEquals(2, names.size());
+        assertTrue(names.contains("a.jar"));
+        assertTrue(names.contains("b.jar"));
+        assertEquals(100, ParallelApplicationLoader.parseDeploymentOrder("bad"));
+        assertEquals(5, ParallelApplicationLoader.parseDeploymentOrder(" 5"));
+    }
+}
@@ -47,6 +47,13 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.text.FieldPosition;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -58,7 +65,9 @@ import java.util.ResourceBundle;
 import java.util.Vector;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
@@ -142,6 +151,40 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
 
     private BlockingQueue<LogRecord> pendingRecords = new ArrayBlockingQueue<LogRecord>(5000);
 
+    // What publish does when the async ring buffer is full.
+    // BLOCK waits for room, DROP discards records below overflowDropLevel
+    // and blocks for the others, SUMMARIZE discards the record and writes
+    // a single summary record once the pump catches up.
+    enum OverflowPolicy { BLOCK, DROP, SUMMARIZE }
+
+    private static final int DEFAULT_RING_BUFFER_CAPACITY = 8192;
+
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    // Set when asyncBatchMode is enabled; records then go through this
+    // buffer instead of pendingRecords and are written in batches.
+    private LogRecordRingBuffer ringBuffer;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private Level overflowDropLevel = Level.WARNING;
+
+    private final AtomicLong droppedRecords = new AtomicLong();
+
+    private final AtomicLong unreportedDrops = new AtomicLong();
+
+    private final List<LogRecord> batch = new ArrayList<LogRecord>();
+
+    private final StringBuilder batchText = new StringBuilder();
+
+    private ByteBuffer writeBuffer;
+
+    private CharsetEncoder encoder;
+
+    private FileOutputStream fileOutputStream;
+
     // Rotation can be done in 3 ways
     // 1. Based on the Size: Rotate when some Threshold number of bytes are 
     //    written to server.log
@@ -252,6 +295,8 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
             currentgffileHandlerFormatter = "com.sun.enterprise.server.logging.UniformLogFormatter";
         }
 
+        configureAsyncBatchMode(manager, cname);
+
         // start the Queue consumer thread.
         initializePump();
         
@@ -532,12 +577,64 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
         }        
     }
     
+    private void configureAsyncBatchMode(LogManager manager, String cname) {
+        if (!Boolean.parseBoolean(manager.getProperty(cname + ".asyncBatchMode"))) {
+            return;
+        }
+
+        int capacity = DEFAULT_RING_BUFFER_CAPACITY;
+        String propValue = manager.getProperty(cname + ".ringBufferCapacity");
+        try {
+            if (propValue != null) {
+                capacity = Integer.parseInt(propValue);
+            }
+        } catch (NumberFormatException e) {
+            reportInvalidAttribute(propValue, "ringBufferCapacity");
+        }
+        if (capacity <= 0) {
+            capacity = DEFAULT_RING_BUFFER_CAPACITY;
+        }
+
+        propValue = manager.getProperty(cname + ".overflowPolicy");
+        try {
+            if (propValue != null) {
+                overflowPolicy = OverflowPolicy.valueOf(propValue.trim().toUpperCase());
+            }
+        } catch (IllegalArgumentException e) {
+            reportInvalidAttribute(propValue, "overflowPolicy");
+        }
+
+        propValue = manager.getProperty(cname + ".overflowDropLevel");
+        try {
+            if (propValue != null) {
+                overflowDropLevel = Level.parse(propValue.trim());
+            }
+        } catch (IllegalArgumentException e) {
+            reportInvalidAttribute(propValue, "overflowDropLevel");
+        }
+
+        ringBuffer = new LogRecordRingBuffer(capacity);
+    }
+
+    private void reportInvalidAttribute(String value, String attribute) {
+        LogRecord lr = new LogRecord(Level.WARNING, LogFacade.INVALID_ATTRIBUTE_VALUE);
+        lr.setParameters(new Object[]{value, attribute});
+        lr.setResourceBundle(ResourceBundle.getBundle(LogFacade.LOGGING_RB_NAME));
+        lr.setThreadID((int) Thread.currentThread().getId());
+        lr.setLoggerName(LogFacade.LOGGING_LOGGER_NAME);
+        EarlyLogHandler.earlyMessages.add(lr);
+    }
+
     void initializePump() {
         pump = new Thread() {
             public void run() {
                 while (!done.isSignalled()) {
                     try {
-                        log();
+                        if (ringBuffer != null) {
+                            logBatch();
+                        } else {
+                            log();
+                        }
                     } catch (Exception e) {
                         // GLASSFISH-19125
                         // Continue the loop without exiting
@@ -567,6 +664,21 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
             }
         }
 
+        if (ringBuffer != null) {
+            // the pump is gone, so this thread is the consumer now
+            try {
+                pump.join(1000);
+            } catch (InterruptedException e) {
+                // drain what we can anyway
+            }
+            Collection<LogRecord> records = new ArrayList<LogRecord>();
+            ringBuffer.drainTo(records, ringBuffer.capacity());
+            for (LogRecord record : records) {
+                super.publish(record);
+            }
+            flush();
+        }
+
     }
 
     /**
@@ -681,6 +793,7 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
         BufferedOutputStream bout = new BufferedOutputStream(fout);
         meter = new MeteredStream(bout, file.length());
         setOutputStream(meter);        
+        fileOutputStream = fout;
     }
 
     /**
@@ -850,6 +963,120 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
 
     }
 
+    /**
+     * Retrieves a batch of LogRecords from the ring buffer, formats them
+     * into one block of text and appends it to the file with a single
+     * channel write.
+     */
+    public void logBatch() {
+
+        // records published before the ring buffer was set up
+        pendingRecords.drainTo(batch);
+
+        if (ringBuffer.drainTo(batch, MAX_BATCH_SIZE) == 0 && batch.isEmpty()) {
+            ringBuffer.awaitRecords(TimeUnit.MILLISECONDS.toNanos(100));
+            if (unreportedDrops.get() == 0) {
+                return;
+            }
+        }
+
+        long dropped = unreportedDrops.getAndSet(0);
+        if (dropped > 0) {
+            LogRecord lr = new LogRecord(Level.WARNING, LogFacade.LOG_RECORDS_DROPPED);
+            lr.setParameters(new Object[]{dropped});
+            lr.setResourceBundle(ResourceBundle.getBundle(LogFacade.LOGGING_RB_NAME));
+            lr.setThreadID((int) Thread.currentThread().getId());
+            lr.setLoggerName(LogFacade.LOGGING_LOGGER_NAME);
+            GFLogRecord summary = new GFLogRecord(lr);
+            summary.setThreadName(Thread.currentThread().getName());
+            batch.add(summary);
+        }
+
+        try {
+            writeBatch(batch);
+        } finally {
+            batch.clear();
+        }
+
+        if ((rotationRequested.get())
+                || ((limitForFileRotation > 0)
+                && (meter.written >= limitForFileRotation))) {
+            synchronized (rotationLock) {
+                rotate();
+                rotationRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Formats the records and writes them straight to the file channel.
+     * Holds the handler lock so that close and rotation cannot swap the
+     * stream in the middle of a write.
+     */
+    private synchronized void writeBatch(List<LogRecord> records) {
+        Formatter formatter = getFormatter();
+        batchText.setLength(0);
+        for (LogRecord record : records) {
+            if (!isLoggable(record)) {
+                continue;
+            }
+            try {
+                batchText.append(formatter.format(record));
+            } catch (Exception e) {
+                reportError(null, e, ErrorManager.FORMAT_FAILURE);
+            }
+        }
+        if (batchText.length() == 0) {
+            return;
+        }
+
+        try {
+            // anything written through the StreamHandler goes first
+            super.flush();
+            FileChannel channel = fileOutputStream.getChannel();
+            CharsetEncoder enc = getBatchEncoder();
+            if (writeBuffer == null) {
+                writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            }
+            CharBuffer chars = CharBuffer.wrap(batchText);
+            enc.reset();
+            CoderResult result;
+            do {
+                result = enc.encode(chars, writeBuffer, true);
+                drainWriteBuffer(channel);
+            } while (result.isOverflow());
+            do {
+                result = enc.flush(writeBuffer);
+                drainWriteBuffer(channel);
+            } while (result.isOverflow());
+        } catch (Exception e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+        if (batchText.capacity() > 4 * WRITE_BUFFER_SIZE) {
+            batchText.setLength(0);
+            batchText.trimToSize();
+        }
+    }
+
+    private void drainWriteBuffer(FileChannel channel) throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            meter.written += channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    private CharsetEncoder getBatchEncoder() {
+        String encoding = getEncoding();
+        Charset charset = (encoding == null) ? Charset.defaultCharset() : Charset.forName(encoding);
+        if (encoder == null || !encoder.charset().equals(charset)) {
+            encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        return encoder;
+    }
+
     /**
      * Publishes the logrecord storing it in our queue
      */
@@ -867,16 +1094,20 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
         GFLogRecord recordWrapper = new GFLogRecord(record);
         recordWrapper.setThreadName(Thread.currentThread().getName());
 
-        try {
-            // set the thread id to be the current thread that is logging the message
-//            record.setThreadID((int)Thread.currentThread().getId());
-            pendingRecords.add(recordWrapper);
-        } catch (IllegalStateException e) {
-            // queue is full, start waiting.
+        if (ringBuffer != null) {
+            enqueue(recordWrapper);
+        } else {
             try {
-                pendingRecords.put(recordWrapper);
-            } catch (InterruptedException e1) {
-                // too bad, record is lost...
+                // set the thread id to be the current thread that is logging the message
+//                record.setThreadID((int)Thread.currentThread().getId());
+                pendingRecords.add(recordWrapper);
+            } catch (IllegalStateException e) {
+                // queue is full, start waiting.
+                try {
+                    pendingRecords.put(recordWrapper);
+                } catch (InterruptedException e1) {
+                    // too bad, record is lost...
+                }
             }
         }
         
@@ -888,6 +1119,49 @@ PostConstruct, PreDestroy, LogEventBroadcaster, LoggingRuntime {
         
     }
 
+    private void enqueue(LogRecord record) {
+        if (ringBuffer.offer(record)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP:
+                if (record.getLevel().intValue() < overflowDropLevel.intValue()) {
+                    droppedRecords.incrementAndGet();
+                    return;
+                }
+                break;
+            case SUMMARIZE:
+                droppedRecords.incrementAndGet();
+                unreportedDrops.incrementAndGet();
+                return;
+            default:
+                break;
+        }
+        if (!ringBuffer.put(record, done)) {
+            // too bad, record is lost...
+            droppedRecords.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of records discarded because the async queue was
+     *         full, or because the publishing thread gave up waiting
+     */
+    public long getDroppedRecordCount() {
+        return droppedRecords.get();
+    }
+
+    /**
+     * @return the number of records waiting to be written to the file
+     */
+    public int getQueuedRecordCount() {
+        int queued = pendingRecords.size();
+        if (ringBuffer != null) {
+            queued += ringBuffer.size();
+        }
+        return queued;
+    }
+
     protected File getLogFileName() {
 //        return new File(new File(env.getDomainRoot(),LOGS_DIR), logFileName);
         return new File(absoluteServerLogName);
@@ -0,0 +1,171 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.server.logging;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.LogRecord;
+
+import com.sun.common.util.logging.BooleanLatch;
+
+/**
+ * Bounded, lock-free ring buffer of LogRecords with many producers and a
+ * single consumer. Producers claim a slot by advancing the tail with a CAS
+ * and then publish the record into the slot; the consumer thread is the only
+ * one moving the head, so it never contends with the producers on it.
+ */
+final class LogRecordRingBuffer {
+
+    // how long a blocked producer waits between two attempts
+    private static final long PRODUCER_BACKOFF_NANOS = 50000L;
+
+    private static final int PRODUCER_SPINS = 64;
+
+    private final AtomicReferenceArray<LogRecord> slots;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private volatile Thread consumer;
+    private volatile boolean consumerWaiting;
+
+    LogRecordRingBuffer(int requestedCapacity) {
+        int capacity = 2;
+        while (capacity < requestedCapacity && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        slots = new AtomicReferenceArray<LogRecord>(capacity);
+        mask = capacity - 1;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0L, Math.min(size, capacity()));
+    }
+
+    /**
+     * Adds the record if there is room for it.
+     * @return false if the buffer is full
+     */
+    boolean offer(LogRecord record) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head >= capacity()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+
+        slots.set((int) t & mask, record);
+        if (consumerWaiting) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Adds the record, waiting for the consumer to make room if needed.
+     * @return false if the latch was signalled or the thread interrupted
+     *         before the record could be added
+     */
+    boolean put(LogRecord record, BooleanLatch done) {
+        int spins = 0;
+        while (!offer(record)) {
+            if (done.isSignalled() || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            if (spins++ < PRODUCER_SPINS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(this, PRODUCER_BACKOFF_NANOS);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves up to maxRecords published records into the given collection.
+     * Must only be called by the consumer thread.
+     * @return the number of records moved
+     */
+    int drainTo(Collection<? super LogRecord> records, int maxRecords) {
+        long h = head;
+        int count = 0;
+        while (count < maxRecords) {
+            int index = (int) h & mask;
+            LogRecord record = slots.get(index);
+            if (record == null) {
+                // empty, or the producer has not published its slot yet
+                break;
+            }
+            slots.lazySet(index, null);
+            records.add(record);
+            h++;
+            count++;
+        }
+        head = h;
+        return count;
+    }
+
+    /**
+     * Parks the consumer thread until a record is published or the timeout
+     * expires. Must only be called by the consumer thread.
+     */
+    void awaitRecords(long timeoutNanos) {
+        consumer = Thread.currentThread();
+        consumerWaiting = true;
+        try {
+            if (slots.get((int) head & mask) == null) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+        } finally {
+            consumerWaiting = false;
+        }
+    }
+}
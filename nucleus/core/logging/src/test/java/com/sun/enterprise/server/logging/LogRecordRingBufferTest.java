@@ -0,0 +1,131 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.enterprise.server.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.Test;
+
+import com.sun.common.util.logging.BooleanLatch;
+
+/**
+ * Test class for the ring buffer used by the async batch mode of GFFileHandler.
+ */
+public class LogRecordRingBufferTest {
+
+    @Test
+    public void testOfferAndDrainInOrder() {
+        LogRecordRingBuffer buffer = new LogRecordRingBuffer(6);
+        assertEquals(8, buffer.capacity());
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(buffer.offer(new LogRecord(Level.INFO, "m" + i)));
+        }
+        assertFalse(buffer.offer(new LogRecord(Level.INFO, "overflow")));
+        assertEquals(8, buffer.size());
+
+        List<LogRecord> records = new ArrayList<LogRecord>();
+        assertEquals(5, buffer.drainTo(records, 5));
+        assertEquals(3, buffer.size());
+        assertTrue(buffer.offer(new LogRecord(Level.INFO, "m8")));
+        assertEquals(4, buffer.drainTo(records, 100));
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals("m" + i, records.get(i).getMessage());
+        }
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final LogRecordRingBuffer buffer = new LogRecordRingBuffer(64);
+        final BooleanLatch done = new BooleanLatch();
+        final int producers = 4;
+        final int perProducer = 10000;
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            threads[p] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        buffer.put(new LogRecord(Level.INFO, id + ":" + i), done);
+                    }
+                }
+            };
+            threads[p].start();
+        }
+
+        Set<String> seen = new HashSet<String>();
+        List<LogRecord> records = new ArrayList<LogRecord>();
+        while (seen.size() < producers * perProducer) {
+            if (buffer.drainTo(records, 16) == 0) {
+                buffer.awaitRecords(1000000L);
+            }
+            for (LogRecord record : records) {
+                assertTrue(seen.add(record.getMessage()));
+            }
+            records.clear();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void testPutGivesUpWhenDone() {
+        LogRecordRingBuffer buffer = new LogRecordRingBuffer(2);
+        BooleanLatch done = new BooleanLatch();
+        assertTrue(buffer.put(new LogRecord(Level.INFO, "a"), done));
+        assertTrue(buffer.put(new LogRecord(Level.INFO, "b"), done));
+        done.tryReleaseShared(1);
+        assertFalse(buffer.put(new LogRecord(Level.INFO, "c"), done));
+    }
+}
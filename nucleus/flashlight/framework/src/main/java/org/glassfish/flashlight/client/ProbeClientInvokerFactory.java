@@ -41,6 +41,7 @@
 package org.glassfish.flashlight.client;
 
 import org.glassfish.flashlight.FlashlightUtils;
+import org.glassfish.flashlight.impl.client.MethodHandleClientInvoker;
 import org.glassfish.flashlight.impl.client.ReflectiveClientInvoker;
 import org.glassfish.flashlight.provider.FlashlightProbe;
 import org.jvnet.hk2.annotations.Service;
@@ -66,6 +67,13 @@ public class ProbeClientInvokerFactory {
                                                    FlashlightProbe probe, String[] paramNames) {
         int invokerId = clientMethodIdCounter.incrementAndGet();
 
+        // Method handles avoid the reflective call and the arguments copy
+        // on every probe event; the reflective invoker handles the rest
+        ProbeClientInvoker invoker = MethodHandleClientInvoker.create(
+                invokerId, target, method, paramNames, probe);
+        if (invoker != null) {
+            return invoker;
+        }
         return new ReflectiveClientInvoker(invokerId, target, method, paramNames, probe);
     }
 
@@ -0,0 +1,206 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.flashlight.impl.client;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.flashlight.FlashlightLoggerInfo;
+import org.glassfish.flashlight.FlashlightUtils;
+import org.glassfish.flashlight.client.ProbeClientInvoker;
+import org.glassfish.flashlight.impl.core.ComputedParamsHandlerManager;
+import org.glassfish.flashlight.provider.FlashlightProbe;
+
+/**
+ * Calls a probe listener method through a method handle bound to the
+ * listener, instead of through Method.invoke.  The probe arguments are
+ * passed on as they are when the listener takes the probe parameters in
+ * order, and rearranged otherwise.
+ *
+ * Arguments that the handle cannot convert, e.g. a probe value for a String
+ * listener parameter of another type, are left to a ReflectiveClientInvoker,
+ * which knows how to match them up.
+ */
+public class MethodHandleClientInvoker
+        implements ProbeClientInvoker {
+
+    private static final Logger logger = FlashlightLoggerInfo.getLogger();
+
+    private static final MethodType INVOKER_TYPE =
+            MethodType.methodType(void.class, Object[].class);
+
+    private final int id;
+    private final MethodHandle handle;
+    private final Class<?>[] argTypes;
+    private final boolean[] primitiveArgs;
+    private final String[] paramNames;
+    private final ReflectiveClientInvoker reflectiveInvoker;
+    private boolean emittedOneMessage = false;
+
+    private MethodHandleClientInvoker(MethodHandle handle, Class<?>[] argTypes, boolean[] primitiveArgs,
+            String[] clientParamNames, ReflectiveClientInvoker reflectiveInvoker) {
+        this.id = reflectiveInvoker.getId();
+        this.handle = handle;
+        this.argTypes = argTypes;
+        this.primitiveArgs = primitiveArgs;
+        this.paramNames = clientParamNames;
+        this.reflectiveInvoker = reflectiveInvoker;
+    }
+
+    /**
+     * Creates an invoker for the given listener method.
+     * @return the invoker, or null if the method can't be called through a
+     * public method handle, e.g. because it is static or has varargs
+     */
+    public static MethodHandleClientInvoker create(int id, Object target,
+            Method method, String[] clientParamNames, FlashlightProbe probe) {
+        if (method.isVarArgs() || Modifier.isStatic(method.getModifiers()))
+            return null;
+
+        // The spread handle unboxes primitive parameters from their wrapper
+        // types only, so check the arguments against the wrappers
+        Class<?>[] argTypes = method.getParameterTypes();
+        boolean[] primitiveArgs = new boolean[argTypes.length];
+        for (int i = 0; i < argTypes.length; i++) {
+            if (argTypes[i].isPrimitive()) {
+                primitiveArgs[i] = true;
+                argTypes[i] = MethodType.methodType(argTypes[i]).wrap().returnType();
+            }
+        }
+
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method)
+                    .bindTo(target)
+                    .asSpreader(Object[].class, method.getParameterTypes().length)
+                    .asType(INVOKER_TYPE);
+        }
+        catch (IllegalAccessException e) {
+            return null;
+        }
+
+        return new MethodHandleClientInvoker(handle, argTypes, primitiveArgs, clientParamNames,
+                new ReflectiveClientInvoker(id, target, method, clientParamNames, probe));
+    }
+
+    @Override
+    public String toString() {
+        return reflectiveInvoker.toString();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void invoke(Object[] args) {
+        if (!FlashlightUtils.isMonitoringEnabled())
+            return;
+
+        Object[] listenerArgs = args;
+        int size = paramNames.length;
+        if (!reflectiveInvoker.useProbeArgs || (args != null && args.length != size)) {
+            int[] probeIndices = reflectiveInvoker.probeIndices;
+            listenerArgs = new Object[size];
+            if (reflectiveInvoker.hasComputedParams) {
+                ComputedParamsHandlerManager cphm = ComputedParamsHandlerManager.getInstance();
+                for (int i = 0; i < size; i++) {
+                    if (probeIndices[i] == -1) {
+                        listenerArgs[i] = cphm.computeValue(paramNames[i]);
+                    }
+                    else {
+                        listenerArgs[i] = args[probeIndices[i]];
+                    }
+                }
+            }
+            else {
+                for (int i = 0; i < size; i++) {
+                    listenerArgs[i] = args[probeIndices[i]];
+                }
+            }
+        }
+
+        if (!argumentsFit(listenerArgs)) {
+            reflectiveInvoker.invoke(args);
+            return;
+        }
+
+        try {
+            handle.invokeExact(listenerArgs);
+        }
+        catch (Error err) {
+            throw err;
+        }
+        catch (Throwable ex) {
+            if (!emittedOneMessage) {
+                // Only do this one time!
+                emittedOneMessage = true;
+                logger.log(Level.WARNING, "Probe listener " + this + " failed", ex);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the handle can take the given arguments without a
+     * ClassCastException or NullPointerException, so that only a real type
+     * mismatch, and not one thrown by the listener itself, is left to the
+     * reflective invoker.
+     */
+    private boolean argumentsFit(Object[] listenerArgs) {
+        if (listenerArgs == null) {
+            return argTypes.length == 0;
+        }
+        if (listenerArgs.length != argTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < argTypes.length; i++) {
+            Object arg = listenerArgs[i];
+            if (arg == null ? primitiveArgs[i] : !argTypes[i].isInstance(arg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package org.glassfish.flashlight.impl.client;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.sun.enterprise.config.serverbeans.MonitoringService;
+import org.glassfish.flashlight.FlashlightUtils;
+import org.glassfish.flashlight.client.ProbeClientInvoker;
+import org.glassfish.flashlight.client.ProbeClientInvokerFactory;
+import org.glassfish.flashlight.provider.FlashlightProbe;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that probe listeners called through method handles get the same
+ * arguments as through reflection, and that only a real argument mismatch
+ * is left to the reflective invoker.
+ */
+public class MethodHandleClientInvokerTest {
+
+    private static final String[] PROBE_PARAMS = { "name", "count" };
+
+    private Object savedHabitat;
+    private Object savedMonConfig;
+    private boolean savedEnabled;
+    private Listener listener;
+
+    @Before
+    public void setUp() throws Exception {
+        // FlashlightUtils refuses to answer until it has been initialized
+        savedHabitat = setUtilsField("habitat", stub(ServiceLocator.class));
+        savedMonConfig = setUtilsField("monConfig", stub(MonitoringService.class));
+        savedEnabled = FlashlightUtils.isMonitoringEnabled();
+        FlashlightUtils.setMonitoringEnabled(true);
+        listener = new Listener();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FlashlightUtils.setMonitoringEnabled(savedEnabled);
+        setUtilsField("habitat", savedHabitat);
+        setUtilsField("monConfig", savedMonConfig);
+    }
+
+    @Test
+    public void testFactoryPrefersMethodHandles() throws Exception {
+        ProbeClientInvoker invoker = ProbeClientInvokerFactory.createInvoker(listener,
+                listenerMethod("inOrder"), probe(), PROBE_PARAMS);
+        assertTrue(invoker instanceof MethodHandleClientInvoker);
+
+        invoker = ProbeClientInvokerFactory.createInvoker(null,
+                listenerMethod("staticListener"), probe(), PROBE_PARAMS);
+        assertTrue(invoker instanceof ReflectiveClientInvoker);
+    }
+
+    @Test
+    public void testUnsupportedListenerMethods() throws Exception {
+        assertNull(create("staticListener", PROBE_PARAMS));
+        assertNull(create("varargs", PROBE_PARAMS));
+        assertNull(MethodHandleClientInvoker.create(1, new HiddenListener(),
+                HiddenListener.class.getMethod("event", String.class), new String[] { "name" },
+                probe()));
+    }
+
+    @Test
+    public void testProbeArgumentsInOrder() throws Exception {
+        create("inOrder", PROBE_PARAMS).invoke(new Object[] { "a", 1 });
+        create("inOrder", PROBE_PARAMS).invoke(new Object[] { "b", 2 });
+
+        assertEquals(Arrays.asList("a:1", "b:2"), listener.events);
+    }
+
+    @Test
+    public void testProbeArgumentsRearranged() throws Exception {
+        create("reversed", new String[] { "count", "name" }).invoke(new Object[] { "a", 1 });
+        create("nameOnly", new String[] { "name" }).invoke(new Object[] { "b", 2 });
+
+        assertEquals(Arrays.asList("a:1", "b"), listener.events);
+    }
+
+    @Test
+    public void testMismatchFallsBackToReflection() throws Exception {
+        // The reflective invoker turns the Integer into a String
+        create("strings", PROBE_PARAMS).invoke(new Object[] { "a", 1 });
+
+        assertEquals(Arrays.asList("a:1"), listener.events);
+    }
+
+    @Test
+    public void testNullPrimitiveIsNotPassed() throws Exception {
+        create("inOrder", PROBE_PARAMS).invoke(new Object[] { "a", null });
+
+        assertTrue(listener.events.isEmpty());
+    }
+
+    @Test
+    public void testListenerExceptionIsNotRetried() throws Exception {
+        MethodHandleClientInvoker invoker = create("failing", PROBE_PARAMS);
+        invoker.invoke(new Object[] { "a", 1 });
+        invoker.invoke(new Object[] { "b", 2 });
+
+        assertEquals(Arrays.asList("a:1", "b:2"), listener.events);
+    }
+
+    @Test
+    public void testNothingInvokedWhenMonitoringIsDisabled() throws Exception {
+        FlashlightUtils.setMonitoringEnabled(false);
+        create("inOrder", PROBE_PARAMS).invoke(new Object[] { "a", 1 });
+
+        assertTrue(listener.events.isEmpty());
+    }
+
+    private MethodHandleClientInvoker create(String name, String[] paramNames)
+            throws Exception {
+        return MethodHandleClientInvoker.create(1, listener, listenerMethod(name), paramNames,
+                probe());
+    }
+
+    private static Method listenerMethod(String name) throws NoSuchMethodException {
+        for (Method m : Listener.class.getMethods()) {
+            if (m.getName().equals(name)) {
+                return m;
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    private static FlashlightProbe probe() {
+        return new FlashlightProbe(1, Listener.class, "glassfish", "test", "listener", "event",
+                PROBE_PARAMS, new Class[] { String.class, int.class }, false, false, false,
+                false, false, null);
+    }
+
+    private static Object setUtilsField(String name, Object value) throws Exception {
+        Field field = FlashlightUtils.class.getDeclaredField(name);
+        field.setAccessible(true);
+        Object old = field.get(null);
+        field.set(null, value);
+        return old;
+    }
+
+    private static Object stub(Class<?> type) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                });
+    }
+
+    public static class Listener {
+        final List<String> events = new ArrayList<String>();
+
+        public void inOrder(String name, int count) {
+            events.add(name + ":" + count);
+        }
+
+        public void reversed(int count, String name) {
+            events.add(name + ":" + count);
+        }
+
+        public void nameOnly(String name) {
+            events.add(name);
+        }
+
+        public void strings(String name, String count) {
+            events.add(name + ":" + count);
+        }
+
+        public void failing(String name, int count) {
+            events.add(name + ":" + count);
+            throw new ClassCastException("thrown by the listener");
+        }
+
+        public void varargs(String... args) {
+            events.add(Arrays.toString(args));
+        }
+
+        public static void staticListener(String name, int count) {
+        }
+    }
+
+    private static class HiddenListener {
+        public void event(String name) {
+        }
+    }
+}